@@ -74,6 +74,19 @@ else
   psql -wq -v "ON_ERROR_STOP=1" -U "postgres" -d "${db_props[jdbc.database.name]}" --command "UPDATE provenance SET last_retrieval_end_date = now() WHERE name = 'HealthMap';" > /dev/null
 fi
 
+if [[ -n "${deploy_props[geonames.dump.source]}" ]]; then
+  # Load a GeoNames dump into the geoname table, so that HealthMap locations rarely need the GeoNames web service
+  echo "[[ DB | Writing GeoNames dump import properties ]]"
+  echo "geonames.dump.path=$PWD/external/geonames" >> "database.properties"
+
+  echo "[[ DB | Collating GeoNames dump ]]"
+  mkdir -p "external/geonames"
+  rsync -ct "$REMOTE_USER@${deploy_props[geonames.dump.source]}" "./external/geonames/allCountries.txt"
+
+  echo "[[ DB | Importing GeoNames dump (geonames.log) ]]"
+  ant "import.geonames.dump" > "../config/deploy/geonames.log"
+fi
+
 echo "[[ DB | Performing cleanup ]]"
 rm -f "pg_pass"
 rm -f "database.properties"
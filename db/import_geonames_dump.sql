@@ -0,0 +1,54 @@
+-- Script: import_geonames_dump.sql
+--
+-- Description: Loads the feature codes from a GeoNames dump file into the geoname table, so that the GeoNames web
+--              service only needs to be called for GeoNames that are newer than the dump. This is run once when the
+--              database is deployed (and can be run again with a newer dump). GeoNames that are already in the geoname
+--              table are not changed.
+--
+--              The dump file must be called allCountries.txt (unzipped, from http://download.geonames.org/export/dump/)
+--              and must be in the current directory. It is tab-delimited, with no quoting, and the feature code is the
+--              eighth of its 19 columns.
+--
+-- Copyright (c) 2016 University of Oxford
+
+SET client_min_messages TO WARNING;
+
+CREATE TEMPORARY TABLE geonames_dump (
+    id integer NOT NULL,
+    name text,
+    ascii_name text,
+    alternate_names text,
+    latitude text,
+    longitude text,
+    feature_class text,
+    feature_code text,
+    country_code text,
+    cc2 text,
+    admin1_code text,
+    admin2_code text,
+    admin3_code text,
+    admin4_code text,
+    population text,
+    elevation text,
+    dem text,
+    timezone text,
+    modification_date text
+);
+
+-- CSV format is used so that backslashes are not treated as escapes. The quote character is a backspace, which does
+-- not occur in the dump, as the dump does not quote its values.
+\copy geonames_dump FROM 'allCountries.txt' (FORMAT csv, DELIMITER E'\t', QUOTE E'\b', ENCODING utf8, NULL '')
+
+INSERT INTO geoname (id, feature_code)
+SELECT d.id, d.feature_code
+FROM geonames_dump d
+WHERE d.feature_code <> ''
+AND NOT EXISTS (SELECT 1 FROM geoname g WHERE g.id = d.id);
+
+-- These GeoNames have now been resolved
+DELETE FROM unresolved_geoname u
+WHERE EXISTS (SELECT 1 FROM geoname g WHERE g.id = u.id);
+
+DROP TABLE geonames_dump;
+
+ANALYZE geoname;
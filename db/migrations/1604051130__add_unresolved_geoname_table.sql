@@ -0,0 +1,11 @@
+-- Add a table of GeoNames IDs that could not be resolved (i.e. the GeoNames web service reported that they do not
+-- exist, or returned them without a feature code), so that they are not looked up again until the entry expires.
+--
+-- Copyright (c) 2016 University of Oxford
+CREATE TABLE unresolved_geoname (
+    id integer NOT NULL,
+    lookup_date timestamp NOT NULL,
+    CONSTRAINT pk_unresolved_geoname PRIMARY KEY (id)
+);
+
+GRANT SELECT, INSERT, UPDATE ON unresolved_geoname TO ${application_username};
@@ -0,0 +1,47 @@
+-- Add a rollup of HealthMap occurrences for the admin reporting pages, so that the reports do not aggregate the whole
+-- occurrence history on every page view. Each row holds the number of HealthMap occurrences (that passed QC and are in
+-- a country) created in a month for a disease group at a location. Rows are kept at location level because the reports
+-- count distinct locations, which cannot be summed across disease groups. The rollup is maintained incrementally using
+-- the ID of the last occurrence that it includes, and populated here from the existing occurrences.
+--
+-- Copyright (c) 2016 University of Oxford
+CREATE TABLE healthmap_report_rollup (
+    month date NOT NULL,
+    disease_group_id integer NOT NULL,
+    location_id integer NOT NULL,
+    country_gaul_code integer NOT NULL,
+    precision varchar(10) NOT NULL,
+    occurrence_count integer NOT NULL,
+    CONSTRAINT pk_healthmap_report_rollup PRIMARY KEY (month, disease_group_id, location_id),
+    CONSTRAINT fk_healthmap_report_rollup_disease_group FOREIGN KEY (disease_group_id) REFERENCES disease_group (id),
+    CONSTRAINT fk_healthmap_report_rollup_location FOREIGN KEY (location_id) REFERENCES location (id),
+    CONSTRAINT fk_healthmap_report_rollup_country FOREIGN KEY (country_gaul_code) REFERENCES country (gaul_code)
+);
+
+CREATE TABLE healthmap_report_rollup_status (
+    id integer NOT NULL,
+    last_disease_occurrence_id integer NOT NULL,
+    CONSTRAINT pk_healthmap_report_rollup_status PRIMARY KEY (id),
+    CONSTRAINT ck_healthmap_report_rollup_status_id CHECK (id = 1)
+);
+
+INSERT INTO healthmap_report_rollup_status (id, last_disease_occurrence_id)
+SELECT 1, COALESCE(MAX(id), 0) FROM disease_occurrence;
+
+INSERT INTO healthmap_report_rollup (month, disease_group_id, location_id, country_gaul_code, precision, occurrence_count)
+SELECT date_trunc('month', o.created_date)::date, o.disease_group_id, o.location_id, l.country_gaul_code, l.precision,
+       COUNT(*)
+FROM disease_occurrence o
+INNER JOIN location l ON l.id = o.location_id
+INNER JOIN alert a ON a.id = o.alert_id
+INNER JOIN feed f ON f.id = a.feed_id
+INNER JOIN provenance p ON p.id = f.provenance_id
+WHERE o.id <= (SELECT last_disease_occurrence_id FROM healthmap_report_rollup_status)
+AND p.name = 'HealthMap'
+AND l.has_passed_qc
+AND l.country_gaul_code IS NOT NULL
+GROUP BY date_trunc('month', o.created_date)::date, o.disease_group_id, o.location_id, l.country_gaul_code,
+         l.precision;
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON healthmap_report_rollup TO ${application_username};
+GRANT SELECT, UPDATE ON healthmap_report_rollup_status TO ${application_username};
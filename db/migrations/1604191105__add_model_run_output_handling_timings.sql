@@ -0,0 +1,5 @@
+-- Adds a column to record the time taken by each stage of handling a model run's outputs.
+--
+-- Copyright (c) 2016 University of Oxford
+
+ALTER TABLE model_run ADD COLUMN output_handling_timings text;
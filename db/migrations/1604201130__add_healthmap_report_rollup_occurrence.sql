@@ -0,0 +1,15 @@
+-- Tracks the recent occurrences that have been added to the HealthMap report rollup. An occurrence ID alone is not a
+-- safe high-water mark, as an occurrence with a lower ID can be committed (by a concurrent transaction) after the rollup
+-- has been updated. So the last_disease_occurrence_id of healthmap_report_rollup_status is only advanced past
+-- occurrences that are old enough to have been committed, and the newer occurrences that have already been added to
+-- the rollup are recorded here. is_pending marks the occurrences that are being added by the current update.
+--
+-- Copyright (c) 2016 University of Oxford
+
+CREATE TABLE healthmap_report_rollup_occurrence (
+    disease_occurrence_id integer NOT NULL,
+    is_pending boolean NOT NULL,
+    CONSTRAINT pk_healthmap_report_rollup_occurrence PRIMARY KEY (disease_occurrence_id)
+);
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON healthmap_report_rollup_occurrence TO ${application_username};
@@ -0,0 +1,33 @@
+-- Replace the high-water mark of the HealthMap report rollup with a queue of the occurrences that are still to be added
+-- to it. Each new occurrence is queued by a trigger, in the same transaction as the occurrence, so it becomes visible
+-- to the rollup update exactly when the occurrence is committed (whatever the order of the occurrence IDs, and however
+-- long the inserting transaction runs). The rollup update consumes the queue.
+--
+-- Copyright (c) 2016 University of Oxford
+CREATE TABLE healthmap_report_rollup_queue (
+    disease_occurrence_id integer NOT NULL,
+    CONSTRAINT pk_healthmap_report_rollup_queue PRIMARY KEY (disease_occurrence_id)
+);
+
+CREATE FUNCTION queue_healthmap_report_rollup_occurrence() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO healthmap_report_rollup_queue (disease_occurrence_id) VALUES (NEW.id);
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tr_disease_occurrence_queue_healthmap_report_rollup
+    AFTER INSERT ON disease_occurrence
+    FOR EACH ROW EXECUTE PROCEDURE queue_healthmap_report_rollup_occurrence();
+
+-- Queue the existing occurrences that are not yet in the rollup
+INSERT INTO healthmap_report_rollup_queue (disease_occurrence_id)
+SELECT o.id
+FROM disease_occurrence o
+WHERE o.id > (SELECT last_disease_occurrence_id FROM healthmap_report_rollup_status)
+AND NOT EXISTS (SELECT 1 FROM healthmap_report_rollup_occurrence i WHERE i.disease_occurrence_id = o.id);
+
+DROP TABLE healthmap_report_rollup_occurrence;
+DROP TABLE healthmap_report_rollup_status;
+
+GRANT SELECT, INSERT, DELETE ON healthmap_report_rollup_queue TO ${application_username};
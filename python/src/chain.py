@@ -42,3 +42,23 @@ class Chain(object):
             if prediction is not None:
                 return prediction
         return None
+
+    def predict_all(self, X):
+        """
+        Predict every row of X in one pass through the chain. Rows for which
+        a trusted prediction could not be found fall through to the next layer.
+        """
+        results = [None] * len(X)
+        remaining = list(range(len(X)))
+        for layer in self.layers:
+            if len(remaining) == 0:
+                break
+            predictions = layer.predict_all(X[remaining])
+            remaining_next = []
+            for i, prediction in zip(remaining, predictions):
+                if prediction is None:
+                    remaining_next.append(i)
+                else:
+                    results[i] = prediction
+            remaining = remaining_next
+        return results
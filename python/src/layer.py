@@ -24,6 +24,10 @@ def _get_prediction(p, x):
     """ Return the probability that x belongs to the valid class '1' """
     return p.predict_proba(x)[0][np.where(p.classes_ == 1)[0][0]]
 
+def _get_predictions(p, X):
+    """ Return the probabilities that each row of X belongs to the valid class '1' """
+    return p.predict_proba(X)[:, np.where(p.classes_ == 1)[0][0]]
+
 def _coefficient_of_variation(args):
     mu = np.mean(args)
     if mu == 0:
@@ -56,3 +60,14 @@ class Layer(object):
             return np.mean(predictions)
         else:
             return None
+
+    def predict_all(self, X):
+        """ Return the mean prediction for each row of X, or None for rows where the predictors disagree. """
+        predictions = np.array([_get_predictions(p, X) for p in self.predictors])
+        results = []
+        for column in predictions.T:
+            if _coefficient_of_variation(column) <= self.cv_threshold:
+                results.append(np.mean(column))
+            else:
+                results.append(None)
+        return results
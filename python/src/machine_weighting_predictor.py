@@ -5,6 +5,7 @@ and from which a prediction for a new datapoint is requested.
 from chain import Chain
 from flask import Flask, request
 from sklearn.externals import joblib
+import json
 import logging
 import numpy as np
 
@@ -65,27 +66,15 @@ def train(disease_group_id):
 def predict(disease_group_id):
     """ Return the prediction of the provided disease occurrence point. """
 
-    # Use the predictor in memory, otherwise load from backup pickle version
-    if disease_group_id in PREDICTORS:
-        predictor = PREDICTORS[disease_group_id]
-    else:
-        try:
-            filename = _get_pickled_predictor_filename(disease_group_id)
-            predictor = joblib.load(filename)
-            PREDICTORS[disease_group_id] = predictor
-        except IOError as e:
-            return _log_response(e.strerror + ': Unable to load predictor', disease_group_id, 400)
-
-    # Use the feed classes map in memory, otherwise load from backup pickle version
-    if disease_group_id in FEED_CLASSES:
-        feed_classes = FEED_CLASSES[disease_group_id]
-    else:
-        try:
-            filename = _get_pickled_feed_classes_filename(disease_group_id)
-            feed_classes = joblib.load(filename)
-            FEED_CLASSES[disease_group_id] = feed_classes
-        except IOError as e:
-            return _log_response(e.strerror + ': Unable to load feeds', disease_group_id, 400)
+    try:
+        predictor = _get_predictor(disease_group_id)
+    except IOError as e:
+        return _log_response(e.strerror + ': Unable to load predictor', disease_group_id, 400)
+
+    try:
+        feed_classes = _get_feed_classes(disease_group_id)
+    except IOError as e:
+        return _log_response(e.strerror + ': Unable to load feeds', disease_group_id, 400)
 
     # Extract datapoint from JSON
     try:
@@ -102,6 +91,47 @@ def predict(disease_group_id):
         return (str(prediction), 200)
 
 
+@app.route('/<int:disease_group_id>/predict_batch', methods=['POST'])
+def predict_batch(disease_group_id):
+    """ Return the predictions of the provided disease occurrence points, as a JSON array (null for no prediction). """
+
+    try:
+        predictor = _get_predictor(disease_group_id)
+    except IOError as e:
+        return _log_response(e.strerror + ': Unable to load predictor', disease_group_id, 400)
+
+    try:
+        feed_classes = _get_feed_classes(disease_group_id)
+    except IOError as e:
+        return _log_response(e.strerror + ': Unable to load feeds', disease_group_id, 400)
+
+    # Extract datapoints from JSON
+    try:
+        data = request.json['points']
+        X = _convert_data_to_matrix(data, feed_classes)
+    except (KeyError, TypeError):
+        return _log_response('Invalid JSON', disease_group_id, 400)
+
+    # Calculate all the predictions in one pass, and return them in the order of the datapoints
+    predictions = predictor.predict_all(X) if len(data) > 0 else []
+    body = [None if p is None else float(p) for p in predictions]
+    return (json.dumps(body), 200, {'Content-Type': 'application/json'})
+
+
+def _get_predictor(disease_group_id):
+    """ Use the predictor in memory, otherwise load from backup pickle version """
+    if disease_group_id not in PREDICTORS:
+        PREDICTORS[disease_group_id] = joblib.load(_get_pickled_predictor_filename(disease_group_id))
+    return PREDICTORS[disease_group_id]
+
+
+def _get_feed_classes(disease_group_id):
+    """ Use the feed classes map in memory, otherwise load from backup pickle version """
+    if disease_group_id not in FEED_CLASSES:
+        FEED_CLASSES[disease_group_id] = joblib.load(_get_pickled_feed_classes_filename(disease_group_id))
+    return FEED_CLASSES[disease_group_id]
+
+
 def _construct_feed_classes(data):
     """ Create a dictionary mapping from each feed id in training data, to an incremental class number """
     feed_classes = {}
@@ -148,6 +178,15 @@ def _convert_data_to_vector(data, feed_classes):
     return x
 
 
+def _convert_data_to_matrix(data, feed_classes):
+    """ Each row of X is the feature vector of one datapoint, as for _convert_data_to_vector """
+    n = 2 + len(feed_classes)
+    X = np.zeros((len(data), n))
+    for i, datapoint in enumerate(data):
+        X[i, :] = _convert_data_to_vector(datapoint, feed_classes)
+    return X
+
+
 def _pluck(name, data):
     """ Extract the named feature from each item in data, as an array """
     return [x[name] for x in data]
@@ -26,6 +26,9 @@ class MockPredictor(object):
     def predict(self, x):
         return self.prediction
 
+    def predict_all(self, X):
+        return [self.prediction for x in X]
+
 @contextlib.contextmanager
 def move_to_temp_directory():
     current_dir = os.getcwd()
@@ -98,6 +101,43 @@ class MachineWeightingPredictorTestCase(TestCase):
         self.assert200(response)
         assert str(prediction) in response.data
 
+    def test_predict_batch_returns_invalid_json_for_missing_points(self):
+        mwp.PREDICTORS[DISEASE_GROUP_ID] = MockPredictor(None)
+        mwp.FEED_CLASSES[DISEASE_GROUP_ID] = {}
+        response = self._post_json('predict_batch', {})
+        self.assert400(response)
+        assert 'Invalid JSON' in response.data
+
+    def test_predict_batch_returns_invalid_json_for_missing_feature(self):
+        mwp.PREDICTORS[DISEASE_GROUP_ID] = MockPredictor(None)
+        mwp.FEED_CLASSES[DISEASE_GROUP_ID] = {}
+        response = self._post_json('predict_batch', {'points': [{ES: 0.8, DFE: 150, FEED: 1}, {'unexpectedFeature': 456}]})
+        self.assert400(response)
+        assert 'Invalid JSON' in response.data
+
+    def test_predict_batch_returns_null_for_no_prediction(self):
+        mwp.PREDICTORS[DISEASE_GROUP_ID] = MockPredictor(None)
+        mwp.FEED_CLASSES[DISEASE_GROUP_ID] = {}
+        response = self._post_json('predict_batch', {'points': [{ES: 0.8, DFE: 150, FEED: 1}]})
+        self.assert200(response)
+        self.assertEqual(json.loads(response.data), [None])
+
+    def test_predict_batch_returns_prediction_for_each_point(self):
+        prediction = 0.8
+        mwp.PREDICTORS[DISEASE_GROUP_ID] = MockPredictor(prediction)
+        mwp.FEED_CLASSES[DISEASE_GROUP_ID] = {}
+        points = [{ES: 0.8, DFE: 150, FEED: 1}, {ES: 0.2, DFE: -150, FEED: 2}, {ES: 0.5, DFE: 0, FEED: 1}]
+        response = self._post_json('predict_batch', {'points': points})
+        self.assert200(response)
+        self.assertEqual(json.loads(response.data), [prediction, prediction, prediction])
+
+    def test_predict_batch_returns_empty_list_for_no_points(self):
+        mwp.PREDICTORS[DISEASE_GROUP_ID] = MockPredictor(0.8)
+        mwp.FEED_CLASSES[DISEASE_GROUP_ID] = {}
+        response = self._post_json('predict_batch', {'points': []})
+        self.assert200(response)
+        self.assertEqual(json.loads(response.data), [])
+
 
 if __name__ == '__main__':
     unittest.main(verbosity=2)
@@ -103,6 +103,26 @@ class TestMachineWeightingPredictor(unittest.TestCase):
         self.assertRaises(KeyError, mwp._convert_data_to_vector, data2, feed_classes)
         self.assertRaises(KeyError, mwp._convert_data_to_vector, data3, feed_classes)
 
+    def test_convert_data_to_matrix(self):
+        """
+        Features are extracted into columns, each datapoint corresponds to a row in X, and unseen feeds have no column
+        """
+        # Arrange
+        feed_classes = {123: 0, 456: 1}
+        data = [{ES: 0.25, DFE: 101, FEED: 456}, {ES: 0.50, DFE: 102, FEED: 789}]
+        expected_X = np.array([[0.25, 101, 0, 1], [0.50, 102, 0, 0]])
+        # Act
+        X = mwp._convert_data_to_matrix(data, feed_classes)
+        # Assert
+        self.assertTrue(np.array_equal(X, expected_X))
+
+    def test_convert_data_to_matrix_throws_key_error(self):
+        # Arrange
+        feed_classes = {123: 0}
+        data = [{ES: 0.25, DFE: 101, FEED: 123}, {DFE: 102, FEED: 123}]
+        # Assert
+        self.assertRaises(KeyError, mwp._convert_data_to_matrix, data, feed_classes)
+
     def test_pluck(self):
         """
         The specified feature is extracted from dict as an array
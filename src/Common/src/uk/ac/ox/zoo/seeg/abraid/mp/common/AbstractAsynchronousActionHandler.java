@@ -4,10 +4,14 @@ import ch.lambdaj.function.convert.Converter;
 import org.apache.log4j.Logger;
 
 import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static ch.lambdaj.Lambda.convert;
 
@@ -27,6 +31,19 @@ public abstract class AbstractAsynchronousActionHandler {
         this.logger = logger;
     }
 
+    /**
+     * Creates a handler whose pool holds at most the given number of waiting tasks. Any further submissions are
+     * rejected (with a RejectedExecutionException) until a task completes.
+     * @param threadPoolSize The number of tasks to execute concurrently.
+     * @param queueCapacity The maximum number of tasks waiting to be executed.
+     * @param logger The logger.
+     */
+    public AbstractAsynchronousActionHandler(int threadPoolSize, int queueCapacity, Logger logger) {
+        this.pool = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity));
+        this.logger = logger;
+    }
+
     /**
      * Initiates an orderly shutdown of the internal thread pool in which previously submitted tasks are executed,
      * but no new tasks will be accepted.
@@ -40,6 +57,7 @@ public abstract class AbstractAsynchronousActionHandler {
      * @param task The task to submit.
      * @param <T> The return type of the task.
      * @return A Future representing pending completion of the task.
+     * @throws RejectedExecutionException Thrown if the task cannot be accepted, as the queue of the pool is full.
      */
     protected <T> Future<T> submitAsynchronousTask(Callable<T> task) {
         return pool.submit(task);
@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import org.apache.log4j.Logger;
 import org.hibernate.*;
 
 import java.io.Serializable;
@@ -30,6 +31,12 @@ import java.util.List;
  * @param <I> the class of the entity's identifier
  */
 public abstract class AbstractDao<E, I extends Serializable> {
+    private static final Logger LOGGER = Logger.getLogger(AbstractDao.class);
+    private static final String SAVE_ALL_MESSAGE = "Saved %d %s row(s) in %d ms (%d rows/s)";
+    private static final int MILLISECONDS_PER_SECOND = 1000;
+    // The number of rows fetched from the database at a time when scrolling through query results
+    private static final int SCROLL_FETCH_SIZE = 500;
+
     private SessionFactory sessionFactory;
 
     private final Class<?> entityClass;
@@ -192,6 +199,24 @@ public abstract class AbstractDao<E, I extends Serializable> {
         return list(query);
     }
 
+    /**
+     * Get the results of a named query with the specified parameters as a forward-only, read-only cursor, so that
+     * they are fetched from the database in batches as they are read rather than all at once.
+     * @param namedQuery the named query to run
+     * @param parameterNamesAndValues the names and values of the parameters. These must be in the format
+     * name1, value1, name2, value2, ...
+     * @return the scrollable results, which must be closed after use
+     * @throws HibernateException Indicates a problem executing the SQL or processing the SQL results.
+     * @see Query#scroll(ScrollMode)
+     */
+    protected final ScrollableResults scrollNamedQuery(String namedQuery, Object... parameterNamesAndValues)
+            throws HibernateException {
+        Query query = getParameterisedNamedQuery(namedQuery, parameterNamesAndValues);
+        query.setFetchSize(SCROLL_FETCH_SIZE);
+        query.setReadOnly(true);
+        return query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
 
     /**
      * Get all entities of the given type.
@@ -232,6 +257,29 @@ public abstract class AbstractDao<E, I extends Serializable> {
         currentSession().save(entity);
     }
 
+    /**
+     * Saves or updates all of the given instances, then flushes the session. With hibernate.jdbc.batch_size set (and
+     * statement ordering enabled), the resulting inserts and updates are sent to the database in JDBC batches,
+     * rather than as one round-trip per instance. The instances remain associated with the session.
+     * @param entities the transient or persistent instances containing new or updated state
+     * @throws HibernateException Indicates a problem executing the SQL or processing the SQL results.
+     * @see Session#save(Object)
+     * @see Session#flush()
+     */
+    public final void saveAll(Collection<E> entities) throws HibernateException {
+        if (!entities.isEmpty()) {
+            long startTime = System.currentTimeMillis();
+            Session session = currentSession();
+            for (E entity : entities) {
+                session.save(entity);
+            }
+            session.flush();
+            long duration = Math.max(1, System.currentTimeMillis() - startTime);
+            LOGGER.info(String.format(SAVE_ALL_MESSAGE, entities.size(), entityClass.getSimpleName(), duration,
+                    entities.size() * (long) MILLISECONDS_PER_SECOND / duration));
+        }
+    }
+
     /**
      * Gets a named query, and sets the specified parameters.
      * @param namedQuery the named query.
@@ -4,6 +4,7 @@ import org.joda.time.DateTime;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitDiseaseExtentClass;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -58,6 +59,12 @@ public interface AdminUnitDiseaseExtentClassDao {
      */
     void save(AdminUnitDiseaseExtentClass adminUnitDiseaseExtentClass);
 
+    /**
+     * Saves disease extent classes that are associated with admin units (global or tropical), using JDBC batching.
+     * @param adminUnitDiseaseExtentClasses The objects to save.
+     */
+    void saveAll(Collection<AdminUnitDiseaseExtentClass> adminUnitDiseaseExtentClasses);
+
     /**
      * Gets the disease extent class for all admin units within a specific country.
      * @param diseaseGroupId The id of the disease group.
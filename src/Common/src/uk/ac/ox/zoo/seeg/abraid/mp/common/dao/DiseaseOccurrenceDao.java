@@ -2,7 +2,9 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
 import org.joda.time.DateTime;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -59,12 +61,43 @@ public interface DiseaseOccurrenceDao {
     List<DiseaseOccurrence> getDiseaseOccurrencesYetToBeReviewedByExpert(Integer expertId, boolean userIsSeeg,
                                                                          Integer validatorDiseaseGroupId);
 
+    /**
+     * Iterates over the occurrence points, for the specified validator disease group, for which the specified expert
+     * has not yet submitted a review, in ID order and starting after the specified cursor. The occurrences are read
+     * from the database as they are iterated over, and are evicted from the session once they have been processed, so
+     * they must not be modified. The iterator must be closed within the current transaction.
+     * @param expertId The id of the specified expert.
+     * @param userIsSeeg Whether the expert is a member of SEEG, and therefore should review more occurrences.
+     * @param validatorDiseaseGroupId The id of the validatorDiseaseGroup of interest.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the disease occurrence points.
+     */
+    CloseableIterator<DiseaseOccurrence> scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+            Integer expertId, boolean userIsSeeg, Integer validatorDiseaseGroupId, int cursor);
+
+    /**
+     * Iterates over the input disease occurrences of the specified model run, in ID order and starting after the
+     * specified cursor. The occurrences are read from the database as they are iterated over, and are evicted from the
+     * session once they have been processed, so they must not be modified. The iterator must be closed within the
+     * current transaction.
+     * @param modelRunId The model run's ID.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the input disease occurrences.
+     */
+    CloseableIterator<DiseaseOccurrence> scrollInputDiseaseOccurrencesForModelRun(int modelRunId, int cursor);
+
     /**
      * Saves the specified disease occurrence.
      * @param diseaseOccurrence The disease occurrence to save.
      */
     void save(DiseaseOccurrence diseaseOccurrence);
 
+    /**
+     * Saves the specified disease occurrences, using JDBC batching.
+     * @param diseaseOccurrences The disease occurrences to save.
+     */
+    void saveAll(Collection<DiseaseOccurrence> diseaseOccurrences);
+
     /**
      * Get disease occurrences (excluding bias occurrences) that match the specified disease group, location, alert
      * and occurrence start date. Used to check for the existence of a disease occurrence.
@@ -1,10 +1,13 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
 import org.hibernate.Query;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.joda.time.DateTime;
 import org.springframework.stereotype.Repository;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
 import java.util.Arrays;
 import java.util.List;
@@ -99,6 +102,40 @@ public class DiseaseOccurrenceDaoImpl extends AbstractDao<DiseaseOccurrence, Int
                 "expertId", expertId, "userIsSeeg", userIsSeeg, "validatorDiseaseGroupId", validatorDiseaseGroupId);
     }
 
+    /**
+     * Iterates over the occurrence points, for the specified validator disease group, for which the specified expert
+     * has not yet submitted a review, in ID order and starting after the specified cursor. The occurrences are read
+     * from the database as they are iterated over, and are evicted from the session once they have been processed, so
+     * they must not be modified. The iterator must be closed within the current transaction.
+     * @param expertId The id of the specified expert.
+     * @param userIsSeeg Whether the expert is a member of SEEG, and therefore should review more occurrences.
+     * @param validatorDiseaseGroupId The id of the validatorDiseaseGroup of interest.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the disease occurrence points.
+     */
+    @Override
+    public CloseableIterator<DiseaseOccurrence> scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+            Integer expertId, boolean userIsSeeg, Integer validatorDiseaseGroupId, int cursor) {
+        return scrollDiseaseOccurrences(scrollNamedQuery("scrollDiseaseOccurrencesYetToBeReviewedByExpert",
+                "expertId", expertId, "userIsSeeg", userIsSeeg, "validatorDiseaseGroupId", validatorDiseaseGroupId,
+                "cursor", cursor));
+    }
+
+    /**
+     * Iterates over the input disease occurrences of the specified model run, in ID order and starting after the
+     * specified cursor. The occurrences are read from the database as they are iterated over, and are evicted from the
+     * session once they have been processed, so they must not be modified. The iterator must be closed within the
+     * current transaction.
+     * @param modelRunId The model run's ID.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the input disease occurrences.
+     */
+    @Override
+    public CloseableIterator<DiseaseOccurrence> scrollInputDiseaseOccurrencesForModelRun(int modelRunId, int cursor) {
+        return scrollDiseaseOccurrences(scrollNamedQuery("scrollInputDiseaseOccurrencesForModelRun",
+                "modelRunId", modelRunId, "cursor", cursor));
+    }
+
     /**
      * Get disease occurrences (excluding bias occurrences) that match the specified disease group, location, alert
      * and occurrence start date. Used to check for the existence of a disease occurrence.
@@ -401,4 +438,16 @@ public class DiseaseOccurrenceDaoImpl extends AbstractDao<DiseaseOccurrence, Int
     public void deleteDiseaseOccurrencesByBiasDiseaseId(int diseaseGroupId) {
         noResultNamedQuery("deleteDiseaseOccurrencesByBiasDiseaseId", "diseaseGroupId", diseaseGroupId);
     }
+
+    private CloseableIterator<DiseaseOccurrence> scrollDiseaseOccurrences(ScrollableResults results) {
+        return new ScrollableResultsIterator<DiseaseOccurrence>(results, currentSession()) {
+            @Override
+            protected void evict(Session session, DiseaseOccurrence occurrence) {
+                // The location and alert are fetched with the occurrence, so are evicted with it
+                session.evict(occurrence);
+                session.evict(occurrence.getLocation());
+                session.evict(occurrence.getAlert());
+            }
+        };
+    }
 }
@@ -2,6 +2,9 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Interface for the GeoName entity's Data Access Object.
  *
@@ -15,6 +18,13 @@ public interface GeoNameDao {
      */
     GeoName getById(Integer geoNameId);
 
+    /**
+     * Gets the GeoNames with the specified IDs.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The GeoNames that were found.
+     */
+    List<GeoName> getByIds(Collection<Integer> geoNameIds);
+
     /**
      * Saves a GeoName.
      * @param geoName The GeoName to save.
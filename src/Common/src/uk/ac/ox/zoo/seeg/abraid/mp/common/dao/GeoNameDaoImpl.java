@@ -3,6 +3,9 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 import org.hibernate.SessionFactory;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The GeoName entity's Data Access Object.
  *
@@ -12,4 +15,14 @@ public class GeoNameDaoImpl extends AbstractDao<GeoName, Integer> implements Geo
     public GeoNameDaoImpl(SessionFactory sessionFactory) {
         super(sessionFactory);
     }
+
+    /**
+     * Gets the GeoNames with the specified IDs.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The GeoNames that were found.
+     */
+    @Override
+    public List<GeoName> getByIds(Collection<Integer> geoNameIds) {
+        return listNamedQuery("getGeoNamesByIds", "geoNameIds", geoNameIds);
+    }
 }
@@ -1,50 +1,121 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.type.StandardBasicTypes;
 import org.springframework.stereotype.Repository;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapReportEntry;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Data Access Object to access the aggregate data needed for HealthMap data rate reports.
+ * The reports are read from the healthmap_report_rollup table, which holds the number of HealthMap occurrences per
+ * month, disease group and location. The rollup is brought up-to-date with new occurrences by
+ * updateHealthMapReportRollup (when HealthMap data is acquired), and can be repopulated from scratch by
+ * rebuildHealthMapReportRollup. Reading the reports does not update the rollup.
  * Copyright (c) 2015 University of Oxford
  */
 @Repository
 public class HealthMapReportEntryDaoImpl implements HealthMapReportEntryDao {
-    private static final String BASE_HEALTH_MAP_REPORT_QUERY =
-            "select new uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapReportEntry( " +
-            "    concat(" +
-            "        year(o.createdDate)," +
-            "        '-', " +
-            "        case when month(o.createdDate)<10 then '0' else '' end, " +
-            "        month(o.createdDate)" +
-            "    ), " +
-            "    qualifier.name, " +
-            "    sum(case when location.precision='COUNTRY' then 1 else 0 end), " +
-            "    sum(case when location.precision='ADMIN1' then 1 else 0 end), " +
-            "    sum(case when location.precision='ADMIN2' then 1 else 0 end), " +
-            "    sum(case when location.precision='PRECISE' then 1 else 0 end)," +
-            "    count(distinct case when location.precision='COUNTRY' then location.id else null end), " +
-            "    count(distinct case when location.precision='ADMIN1' then location.id else null end), " +
-            "    count(distinct case when location.precision='ADMIN2' then location.id else null end), " +
-            "    count(distinct case when location.precision='PRECISE' then location.id else null end)" +
+    private static final String[] REPORT_ENTRY_COLUMNS = new String[] {
+            "country_occurrences", "admin1_occurrences", "admin2_occurrences", "precise_occurrences",
+            "country_locations", "admin1_locations", "admin2_locations", "precise_locations"
+    };
+
+    private static final String REPORT_OCCURRENCE_COLUMNS =
+            "select to_char(r.month, 'YYYY-MM') as month, " +
+            "    qualifier.name as qualifier, " +
+            "    sum(case when r.precision='COUNTRY' then r.occurrence_count else 0 end) as country_occurrences, " +
+            "    sum(case when r.precision='ADMIN1' then r.occurrence_count else 0 end) as admin1_occurrences, " +
+            "    sum(case when r.precision='ADMIN2' then r.occurrence_count else 0 end) as admin2_occurrences, " +
+            "    sum(case when r.precision='PRECISE' then r.occurrence_count else 0 end) as precise_occurrences, ";
+
+    // Each row of the rollup is a distinct location for its month and disease group, so the rows can be counted
+    private static final String HEALTH_MAP_DISEASE_REPORT_QUERY =
+            REPORT_OCCURRENCE_COLUMNS +
+            "    sum(case when r.precision='COUNTRY' then 1 else 0 end) as country_locations, " +
+            "    sum(case when r.precision='ADMIN1' then 1 else 0 end) as admin1_locations, " +
+            "    sum(case when r.precision='ADMIN2' then 1 else 0 end) as admin2_locations, " +
+            "    sum(case when r.precision='PRECISE' then 1 else 0 end) as precise_locations " +
+            "from healthmap_report_rollup r " +
+            "inner join disease_group qualifier on qualifier.id = r.disease_group_id " +
+            "where qualifier.is_priority_disease " +
+            "group by r.month, qualifier.id, qualifier.name";
+
+    // A location can appear in several rows (one per disease group), so the distinct locations must be counted
+    private static final String HEALTH_MAP_COUNTRY_REPORT_QUERY =
+            REPORT_OCCURRENCE_COLUMNS +
+            "    count(distinct case when r.precision='COUNTRY' then r.location_id end) as country_locations, " +
+            "    count(distinct case when r.precision='ADMIN1' then r.location_id end) as admin1_locations, " +
+            "    count(distinct case when r.precision='ADMIN2' then r.location_id end) as admin2_locations, " +
+            "    count(distinct case when r.precision='PRECISE' then r.location_id end) as precise_locations " +
+            "from healthmap_report_rollup r " +
+            "inner join disease_group diseaseGroup on diseaseGroup.id = r.disease_group_id " +
+            "inner join country qualifier on qualifier.gaul_code = r.country_gaul_code " +
+            "where diseaseGroup.is_priority_disease " +
+            "group by r.month, qualifier.gaul_code, qualifier.name";
+
+    // The rollup only includes HealthMap occurrences at locations that passed QC and are in a country (as for the
+    // original reports). Priority diseases are filtered when reading, as a disease group's priority can change.
+    private static final String ROLLUP_ROWS_QUERY_FORMAT =
+            "select cast(date_trunc('month', o.created_date) as date) as month, o.disease_group_id, o.location_id, " +
+            "    l.country_gaul_code, l.precision, count(*) as occurrence_count " +
+            "from disease_occurrence o " +
+            "%s" +
+            "inner join location l on l.id = o.location_id " +
+            "inner join alert a on a.id = o.alert_id " +
+            "inner join feed f on f.id = a.feed_id " +
+            "inner join provenance p on p.id = f.provenance_id " +
+            "where p.name = 'HealthMap' " +
+            "and l.has_passed_qc " +
+            "and l.country_gaul_code is not null " +
+            "group by cast(date_trunc('month', o.created_date) as date), o.disease_group_id, o.location_id, " +
+            "    l.country_gaul_code, l.precision";
+
+    // Stops concurrent updates of the rollup (which could add the same new row twice), but not reads of it
+    private static final String LOCK_ROLLUP_QUERY = "lock table healthmap_report_rollup in exclusive mode";
+
+    // Occurrences are queued by a trigger when they are inserted, so the queue holds exactly the committed occurrences
+    // that are not yet in the rollup (plus any inserted by this transaction). The queue is consumed and the rollup
+    // updated in a single statement, so that they both see the same occurrences.
+    private static final String UPDATE_ROLLUP_QUERY =
+            "with queued as (" +
+            "    delete from healthmap_report_rollup_queue returning disease_occurrence_id" +
+            "), new_rows as (" +
+            String.format(ROLLUP_ROWS_QUERY_FORMAT,
+                    "inner join queued q on q.disease_occurrence_id = o.id ") +
+            "), updated_rows as (" +
+            "    update healthmap_report_rollup r " +
+            "    set occurrence_count = r.occurrence_count + n.occurrence_count " +
+            "    from new_rows n " +
+            "    where r.month = n.month and r.disease_group_id = n.disease_group_id " +
+            "    and r.location_id = n.location_id " +
+            "    returning r.month, r.disease_group_id, r.location_id" +
             ") " +
-            "from DiseaseOccurrence as o " +
-            "    inner join o.location location" +
-            "    inner join o.alert alert " +
-            "    inner join alert.feed feed " +
-            "    inner join feed.provenance provenance " +
-            "    inner join o.diseaseGroup diseaseGroup " +
-            "    inner join location.country country " +
-            "where " +
-            "    provenance.name='HealthMap' and " +
-            "    location.hasPassedQc is TRUE and " +
-            "    diseaseGroup.isPriorityDisease is TRUE " +
-            "group by " +
-            "    year(o.createdDate)," +
-            "    month(o.createdDate), " +
-            "    qualifier.id";
+            "insert into healthmap_report_rollup " +
+            "    (month, disease_group_id, location_id, country_gaul_code, precision, occurrence_count) " +
+            "select n.month, n.disease_group_id, n.location_id, n.country_gaul_code, n.precision, n.occurrence_count " +
+            "from new_rows n " +
+            "where not exists (" +
+            "    select 1 from updated_rows u " +
+            "    where u.month = n.month and u.disease_group_id = n.disease_group_id " +
+            "    and u.location_id = n.location_id" +
+            ")";
+
+    private static final String DELETE_ROLLUP_ROWS_QUERY = "delete from healthmap_report_rollup";
+
+    // The queue is emptied in the same statement as the rollup is repopulated, so that each occurrence is either in
+    // the repopulated rollup or still queued
+    private static final String REPOPULATE_ROLLUP_QUERY =
+            "with queued as (" +
+            "    delete from healthmap_report_rollup_queue returning disease_occurrence_id" +
+            ") " +
+            "insert into healthmap_report_rollup " +
+            "    (month, disease_group_id, location_id, country_gaul_code, precision, occurrence_count) " +
+            String.format(ROLLUP_ROWS_QUERY_FORMAT, "");
 
     private final SessionFactory sessionFactory;
 
@@ -57,11 +128,8 @@ public class HealthMapReportEntryDaoImpl implements HealthMapReportEntryDao {
      * @return The data for a disease qualified HealthMap data rate report.
      */
     @Override
-    @SuppressWarnings("unchecked")
     public List<HealthMapReportEntry> getHealthMapDiseaseReportEntries() {
-        return sessionFactory.getCurrentSession().createQuery(
-                BASE_HEALTH_MAP_REPORT_QUERY.replaceAll("qualifier", "diseaseGroup")
-        ).list();
+        return getReportEntries(HEALTH_MAP_DISEASE_REPORT_QUERY);
     }
 
     /**
@@ -69,10 +137,50 @@ public class HealthMapReportEntryDaoImpl implements HealthMapReportEntryDao {
      * @return The data for a country qualified HealthMap data rate report.
      */
     @Override
-    @SuppressWarnings("unchecked")
     public List<HealthMapReportEntry> getHealthMapCountryReportEntries() {
-        return sessionFactory.getCurrentSession().createQuery(
-                BASE_HEALTH_MAP_REPORT_QUERY.replaceAll("qualifier", "country")
-        ).list();
+        return getReportEntries(HEALTH_MAP_COUNTRY_REPORT_QUERY);
+    }
+
+    /**
+     * Adds the occurrences that have been created since the last update to the HealthMap report rollup.
+     */
+    @Override
+    public void updateHealthMapReportRollup() {
+        Session session = sessionFactory.getCurrentSession();
+        // Write any occurrences that are pending in this session, so that they are included in the rollup
+        session.flush();
+        session.createSQLQuery(LOCK_ROLLUP_QUERY).executeUpdate();
+        session.createSQLQuery(UPDATE_ROLLUP_QUERY).executeUpdate();
+    }
+
+    /**
+     * Discards the HealthMap report rollup and repopulates it from all occurrences. This is used after backfilling or
+     * correcting occurrences, as the incremental update only considers occurrences created since the last update.
+     */
+    @Override
+    public void rebuildHealthMapReportRollup() {
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        session.createSQLQuery(LOCK_ROLLUP_QUERY).executeUpdate();
+        session.createSQLQuery(DELETE_ROLLUP_ROWS_QUERY).executeUpdate();
+        session.createSQLQuery(REPOPULATE_ROLLUP_QUERY).executeUpdate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<HealthMapReportEntry> getReportEntries(String queryString) {
+        SQLQuery query = sessionFactory.getCurrentSession().createSQLQuery(queryString);
+        query.addScalar("month", StandardBasicTypes.STRING);
+        query.addScalar("qualifier", StandardBasicTypes.STRING);
+        for (String column : REPORT_ENTRY_COLUMNS) {
+            query.addScalar(column, StandardBasicTypes.LONG);
+        }
+
+        List<HealthMapReportEntry> entries = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.list()) {
+            entries.add(new HealthMapReportEntry((String) row[0], (String) row[1],
+                    (Long) row[2], (Long) row[3], (Long) row[4], (Long) row[5],
+                    (Long) row[6], (Long) row[7], (Long) row[8], (Long) row[9]));
+        }
+        return entries;
     }
 }
@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRun;
 
@@ -73,6 +74,13 @@ public interface ModelRunDao {
      */
     List<String> getModelRunRequestServersByUsage();
 
+    /**
+     * Gets the completed model runs that were requested since the specified date.
+     * @param requestDate The earliest request date.
+     * @return The completed model runs.
+     */
+    List<ModelRun> getCompletedModelRunsRequestedSince(DateTime requestDate);
+
     /**
      * Gets all the model runs for the given disease group.
      * @param diseaseGroupId The specified disease group's ID.
@@ -2,6 +2,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRun;
 
@@ -109,6 +110,16 @@ public class ModelRunDaoImpl extends AbstractDao<ModelRun, Integer> implements M
         return query.list();
     }
 
+    /**
+     * Gets the completed model runs that were requested since the specified date.
+     * @param requestDate The earliest request date.
+     * @return The completed model runs.
+     */
+    @Override
+    public List<ModelRun> getCompletedModelRunsRequestedSince(DateTime requestDate) {
+        return listNamedQuery("getCompletedModelRunsRequestedSince", "requestDate", requestDate);
+    }
+
     /**
      * Gets all the model runs for the given disease group.
      * @param diseaseGroupId The specified disease group's ID.
@@ -1,6 +1,11 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.Point;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroupTriggerMetrics;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Interface for routines that interact with the PostGIS database using native SQL.
@@ -59,5 +64,29 @@ public interface NativeSQL {
      * @return The distance inside the disease extent, or 0.
      */
     Double findDistanceInsideDiseaseExtent(int diseaseGroupId, boolean isGlobal, int locationId);
-}
 
+    /**
+     * Gets the current geometry of the disease extent of the specified disease group (i.e. the admin units that are in
+     * the extent).
+     * @param diseaseGroupId The ID of the disease group.
+     * @return The disease extent geometry, or null if there is no extent.
+     */
+    Geometry findDiseaseExtentGeometry(int diseaseGroupId);
+
+    /**
+     * Gets the current geometry of the admin units that are not in the disease extent of the specified disease group.
+     * @param diseaseGroupId The ID of the disease group.
+     * @return The outside disease extent geometry, or null if there is no extent.
+     */
+    Geometry findOutsideDiseaseExtentGeometry(int diseaseGroupId);
+
+    /**
+     * Gets the values used to trigger extent generation and model runs, for each of the specified disease groups, using
+     * a single query.
+     * @param diseaseGroupIds The IDs of the disease groups.
+     * @param maxDaysOnValidator The maximum number of days that an occurrence remains on the Data Validator.
+     * @return The metrics of each disease group that exists.
+     */
+    List<DiseaseGroupTriggerMetrics> findTriggerMetricsForDiseaseGroups(Collection<Integer> diseaseGroupIds,
+                                                                       int maxDaysOnValidator);
+}
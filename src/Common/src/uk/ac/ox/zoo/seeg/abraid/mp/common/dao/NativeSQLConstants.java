@@ -101,6 +101,72 @@ public final class NativeSQLConstants {
     public static final String DISTANCE_INSIDE_DISEASE_EXTENT =
             DISTANCE_OUTSIDE_DISEASE_EXTENT.replace("geom AS extent_geom", "outside_geom AS extent_geom");
 
+    /** Query: Gets the current geom for the disease extent of a specified disease group id, as well-known binary. */
+    public static final String DISEASE_EXTENT_GEOM_QUERY =
+            "SELECT ST_AsBinary(geom) AS wkb " +
+            "FROM disease_extent " +
+            "WHERE disease_group_id=:diseaseGroupId";
+
+    /** Query: Gets the current geom for the outside of the disease extent of a specified disease group id, as
+     well-known binary. */
+    public static final String OUTSIDE_DISEASE_EXTENT_GEOM_QUERY =
+            DISEASE_EXTENT_GEOM_QUERY.replace("ST_AsBinary(geom)", "ST_AsBinary(outside_geom)");
+
+    /** The column alias for the well-known binary returned by the disease extent geom queries. */
+    public static final String WKB_COLUMN = "wkb";
+
+    /** Query: Gets the values used to trigger extent generation and model runs, for each of the specified disease
+     groups at once. For each disease group, counts the distinct model eligible locations of the "new" occurrences in
+     areas of interest (as NEW_LOCATION_COUNT_QUERY on DiseaseOccurrence), excluding the locations used by its last
+     requested model run, and finds the latest disease extent class change date. The cutoff for manually validated
+     occurrences is the start of the day that is :maxDaysOnValidator days before the last model run prep date. */
+    public static final String DISEASE_GROUP_TRIGGER_METRICS_QUERY =
+            "WITH " +
+            "  disease_group_thresholds AS ( " +
+            "    SELECT id, last_model_run_prep_date, max_env_suitability, min_distance_from_extent " +
+            "    FROM disease_group " +
+            "    WHERE id IN (:diseaseGroupIds) " +
+            "  ), " +
+            "  last_model_run_location AS ( " +
+            "    SELECT DISTINCT m.disease_group_id, o.location_id " +
+            "    FROM model_run m " +
+            "    JOIN model_run_disease_occurrence mo ON mo.model_run_id = m.id " +
+            "    JOIN disease_occurrence o ON o.id = mo.disease_occurrence_id " +
+            "    WHERE m.disease_group_id IN (:diseaseGroupIds) " +
+            "    AND m.request_date = (" +
+            "      SELECT MAX(request_date) FROM model_run WHERE disease_group_id = m.disease_group_id) " +
+            "  ), " +
+            "  new_location_count AS ( " +
+            "    SELECT o.disease_group_id, COUNT(DISTINCT o.location_id) AS location_count " +
+            "    FROM disease_occurrence o " +
+            "    JOIN disease_group_thresholds g ON g.id = o.disease_group_id " +
+            "    JOIN location l ON l.id = o.location_id " +
+            "    LEFT JOIN last_model_run_location r " +
+            "      ON r.disease_group_id = o.disease_group_id AND r.location_id = o.location_id " +
+            "    WHERE l.model_eligible IS TRUE " +
+            "    AND o.status = 'READY' " +
+            "    AND ( " +
+            "      (o.expert_weighting IS NULL AND o.created_date > g.last_model_run_prep_date) " +
+            "      OR " +
+            "      (o.expert_weighting IS NOT NULL AND o.created_date > " +
+            "        CAST(g.last_model_run_prep_date AS date) - CAST(:maxDaysOnValidator AS integer)) " +
+            "    ) " +
+            "    AND (o.env_suitability <= g.max_env_suitability " +
+            "      OR o.distance_from_extent >= g.min_distance_from_extent) " +
+            "    AND r.location_id IS NULL " +
+            "    GROUP BY o.disease_group_id " +
+            "  ), " +
+            "  latest_extent_class_change AS ( " +
+            "    SELECT disease_group_id, MAX(class_changed_date) AS class_changed_date " +
+            "    FROM admin_unit_disease_extent_class " +
+            "    WHERE disease_group_id IN (:diseaseGroupIds) " +
+            "    GROUP BY disease_group_id " +
+            "  ) " +
+            "SELECT g.id, g.last_model_run_prep_date, COALESCE(n.location_count, 0), c.class_changed_date " +
+            "FROM disease_group_thresholds g " +
+            "LEFT JOIN new_location_count n ON n.disease_group_id = g.id " +
+            "LEFT JOIN latest_extent_class_change c ON c.disease_group_id = g.id";
+
     /** Other: Global. */
     public static final String GLOBAL = "global";
     /** Other: Tropical. */
@@ -1,8 +1,19 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
 import org.hibernate.SQLQuery;
 import org.hibernate.SessionFactory;
+import org.hibernate.type.StandardBasicTypes;
+import org.joda.time.DateTime;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroupTriggerMetrics;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import static uk.ac.ox.zoo.seeg.abraid.mp.common.dao.NativeSQLConstants.*;
 
@@ -96,6 +107,56 @@ public class NativeSQLImpl implements NativeSQL {
         return (Double) uniqueResult(query, "diseaseGroupId", diseaseGroupId, "locationId", locationId);
     }
 
+    /**
+     * Gets the current geometry of the disease extent of the specified disease group (i.e. the admin units that are in
+     * the extent).
+     * @param diseaseGroupId The ID of the disease group.
+     * @return The disease extent geometry, or null if there is no extent.
+     */
+    @Override
+    public Geometry findDiseaseExtentGeometry(int diseaseGroupId) {
+        return uniqueGeometryResult(DISEASE_EXTENT_GEOM_QUERY, "diseaseGroupId", diseaseGroupId);
+    }
+
+    /**
+     * Gets the current geometry of the admin units that are not in the disease extent of the specified disease group.
+     * @param diseaseGroupId The ID of the disease group.
+     * @return The outside disease extent geometry, or null if there is no extent.
+     */
+    @Override
+    public Geometry findOutsideDiseaseExtentGeometry(int diseaseGroupId) {
+        return uniqueGeometryResult(OUTSIDE_DISEASE_EXTENT_GEOM_QUERY, "diseaseGroupId", diseaseGroupId);
+    }
+
+    /**
+     * Gets the values used to trigger extent generation and model runs, for each of the specified disease groups, using
+     * a single query.
+     * @param diseaseGroupIds The IDs of the disease groups.
+     * @param maxDaysOnValidator The maximum number of days that an occurrence remains on the Data Validator.
+     * @return The metrics of each disease group that exists.
+     */
+    @Override
+    public List<DiseaseGroupTriggerMetrics> findTriggerMetricsForDiseaseGroups(Collection<Integer> diseaseGroupIds,
+                                                                              int maxDaysOnValidator) {
+        List<DiseaseGroupTriggerMetrics> metrics = new ArrayList<>();
+        if (diseaseGroupIds.isEmpty()) {
+            return metrics;
+        }
+
+        // Flush the session to ensure that the latest occurrence and extent changes are counted
+        sessionFactory.getCurrentSession().flush();
+
+        SQLQuery query = getParameterisedSQLQuery(DISEASE_GROUP_TRIGGER_METRICS_QUERY,
+                "maxDaysOnValidator", maxDaysOnValidator);
+        query.setParameterList("diseaseGroupIds", diseaseGroupIds);
+        for (Object result : query.list()) {
+            Object[] row = (Object[]) result;
+            metrics.add(new DiseaseGroupTriggerMetrics(((Number) row[0]).intValue(), toDateTime(row[1]),
+                    ((Number) row[2]).longValue(), toDateTime(row[3])));
+        }
+        return metrics;
+    }
+
     private SQLQuery createSQLQuery(String queryString) {
         return sessionFactory.getCurrentSession().createSQLQuery(queryString);
     }
@@ -105,6 +166,24 @@ public class NativeSQLImpl implements NativeSQL {
         return parameterisedSQLQuery.uniqueResult();
     }
 
+    private Geometry uniqueGeometryResult(String queryString, Object... parameterNamesAndValues) {
+        // The geometry is fetched as well-known binary, so that it is read without the Hibernate Spatial type mapping
+        SQLQuery query = getParameterisedSQLQuery(queryString, parameterNamesAndValues);
+        query.addScalar(WKB_COLUMN, StandardBasicTypes.BINARY);
+        byte[] wkb = (byte[]) query.uniqueResult();
+        if (wkb == null) {
+            return null;
+        }
+
+        try {
+            Geometry geometry = new WKBReader().read(wkb);
+            geometry.setSRID(GeometryUtils.SRID_FOR_WGS_84);
+            return geometry;
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Object executeUpdate(String queryString, Object... parameterNamesAndValues) {
         return getParameterisedSQLQuery(queryString, parameterNamesAndValues).executeUpdate();
     }
@@ -117,6 +196,10 @@ public class NativeSQLImpl implements NativeSQL {
         return query;
     }
 
+    private static DateTime toDateTime(Object timestamp) {
+        return (timestamp == null) ? null : new DateTime(timestamp);
+    }
+
     private String getGlobalOrTropical(boolean isGlobal) {
         return isGlobal ? GLOBAL : TROPICAL;
     }
@@ -0,0 +1,76 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the entities in a ScrollableResults, so that they can be processed one at a time without the results
+ * being held in memory as a whole. Each entity is evicted from the session when the next one is requested (and on
+ * closing), so the session does not grow with the number of results. The entities must therefore not be modified.
+ * This must be used (and closed) within the transaction that created the ScrollableResults.
+ * @param <E> The type of the entities.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+class ScrollableResultsIterator<E> implements CloseableIterator<E> {
+    private final ScrollableResults results;
+    private final Session session;
+    private E previous = null;
+    private Boolean hasNext = null;
+
+    ScrollableResultsIterator(ScrollableResults results, Session session) {
+        this.results = results;
+        this.session = session;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            hasNext = results.next();
+        }
+        return hasNext;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        evictPrevious();
+        hasNext = null;
+        previous = (E) results.get(0);
+        return previous;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        evictPrevious();
+        results.close();
+    }
+
+    /**
+     * Evicts an entity from the session once it has been processed. By default only the entity itself is evicted;
+     * override this to also evict associated entities that were fetched with it.
+     * @param session The session.
+     * @param entity The entity.
+     */
+    protected void evict(Session session, E entity) {
+        session.evict(entity);
+    }
+
+    private void evictPrevious() {
+        if (previous != null) {
+            evict(session, previous);
+            previous = null;
+        }
+    }
+}
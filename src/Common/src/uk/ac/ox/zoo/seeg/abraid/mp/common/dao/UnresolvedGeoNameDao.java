@@ -0,0 +1,33 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
+
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.UnresolvedGeoName;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Interface for the UnresolvedGeoName entity's Data Access Object.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public interface UnresolvedGeoNameDao {
+    /**
+     * Gets an unresolved GeoName by ID.
+     * @param geoNameId The GeoNames ID.
+     * @return The unresolved GeoName, or null if not found.
+     */
+    UnresolvedGeoName getById(Integer geoNameId);
+
+    /**
+     * Gets the unresolved GeoNames with the specified IDs.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The unresolved GeoNames that were found.
+     */
+    List<UnresolvedGeoName> getByIds(Collection<Integer> geoNameIds);
+
+    /**
+     * Saves an unresolved GeoName.
+     * @param unresolvedGeoName The unresolved GeoName to save.
+     */
+    void save(UnresolvedGeoName unresolvedGeoName);
+}
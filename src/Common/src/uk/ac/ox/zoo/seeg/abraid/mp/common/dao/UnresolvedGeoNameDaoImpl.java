@@ -0,0 +1,29 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
+
+import org.hibernate.SessionFactory;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.UnresolvedGeoName;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The UnresolvedGeoName entity's Data Access Object.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class UnresolvedGeoNameDaoImpl extends AbstractDao<UnresolvedGeoName, Integer>
+        implements UnresolvedGeoNameDao {
+    public UnresolvedGeoNameDaoImpl(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    /**
+     * Gets the unresolved GeoNames with the specified IDs.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The unresolved GeoNames that were found.
+     */
+    @Override
+    public List<UnresolvedGeoName> getByIds(Collection<Integer> geoNameIds) {
+        return listNamedQuery("getUnresolvedGeoNamesByIds", "geoNameIds", geoNameIds);
+    }
+}
@@ -0,0 +1,39 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.domain;
+
+import org.joda.time.DateTime;
+
+/**
+ * A DTO for the values used to decide whether to update the disease extent and request a model run for a disease
+ * group, as of the disease group's last model run prep date.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class DiseaseGroupTriggerMetrics {
+    private int diseaseGroupId;
+    private DateTime lastModelRunPrepDate;
+    private long newLocationCount;
+    private DateTime latestExtentClassChangeDate;
+
+    public DiseaseGroupTriggerMetrics(int diseaseGroupId, DateTime lastModelRunPrepDate, long newLocationCount,
+                                      DateTime latestExtentClassChangeDate) {
+        this.diseaseGroupId = diseaseGroupId;
+        this.lastModelRunPrepDate = lastModelRunPrepDate;
+        this.newLocationCount = newLocationCount;
+        this.latestExtentClassChangeDate = latestExtentClassChangeDate;
+    }
+
+    public int getDiseaseGroupId() {
+        return diseaseGroupId;
+    }
+
+    public DateTime getLastModelRunPrepDate() {
+        return lastModelRunPrepDate;
+    }
+
+    public long getNewLocationCount() {
+        return newLocationCount;
+    }
+
+    public DateTime getLatestExtentClassChangeDate() {
+        return latestExtentClassChangeDate;
+    }
+}
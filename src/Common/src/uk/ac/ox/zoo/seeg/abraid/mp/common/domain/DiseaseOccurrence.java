@@ -42,11 +42,20 @@ import javax.persistence.Table;
         @NamedQuery(
                 name = "getDiseaseOccurrencesYetToBeReviewedByExpert",
                 query = DiseaseOccurrence.DISEASE_OCCURRENCE_BASE_QUERY +
-                        "where d.diseaseGroup.validatorDiseaseGroup.id=:validatorDiseaseGroupId " +
-                        "and (:userIsSeeg = true or d.diseaseGroup.lastModelRunPrepDate is not null) " +
-                        "and d.status = 'IN_REVIEW' " +
-                        "and d.id not in " +
-                        "(select diseaseOccurrence.id from DiseaseOccurrenceReview where expert.id=:expertId)"
+                        DiseaseOccurrence.YET_TO_BE_REVIEWED_BY_EXPERT_CLAUSE
+        ),
+        @NamedQuery(
+                name = "scrollDiseaseOccurrencesYetToBeReviewedByExpert",
+                query = DiseaseOccurrence.DISEASE_OCCURRENCE_BASE_QUERY +
+                        DiseaseOccurrence.YET_TO_BE_REVIEWED_BY_EXPERT_CLAUSE +
+                        DiseaseOccurrence.AFTER_CURSOR_CLAUSE
+        ),
+        @NamedQuery(
+                name = "scrollInputDiseaseOccurrencesForModelRun",
+                query = DiseaseOccurrence.DISEASE_OCCURRENCE_BASE_QUERY +
+                        "where d.id in (select o.id from ModelRun m inner join m.inputDiseaseOccurrences o " +
+                        "               where m.id=:modelRunId) " +
+                        DiseaseOccurrence.AFTER_CURSOR_CLAUSE
         ),
         @NamedQuery(
                 name = "getDiseaseOccurrencesInValidation",
@@ -180,6 +189,23 @@ public class DiseaseOccurrence {
             "inner join fetch d.alert.feed.provenance " +
             "inner join fetch d.diseaseGroup ";
 
+    /**
+     * An HQL fragment used to select the occurrences that an expert has yet to review.
+     */
+    public static final String YET_TO_BE_REVIEWED_BY_EXPERT_CLAUSE =
+            "where d.diseaseGroup.validatorDiseaseGroup.id=:validatorDiseaseGroupId " +
+            "and (:userIsSeeg = true or d.diseaseGroup.lastModelRunPrepDate is not null) " +
+            "and d.status = 'IN_REVIEW' " +
+            "and d.id not in " +
+            "(select diseaseOccurrence.id from DiseaseOccurrenceReview where expert.id=:expertId) ";
+
+    /**
+     * An HQL fragment used to page through occurrences in ID order, starting after the ID given by the cursor.
+     */
+    public static final String AFTER_CURSOR_CLAUSE =
+            "and d.id > :cursor " +
+            "order by d.id";
+
     /**
      * An HQL fragment used to exclude gold standard occurrences from queries.
      */
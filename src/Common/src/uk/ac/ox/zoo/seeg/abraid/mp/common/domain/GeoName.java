@@ -1,14 +1,18 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.domain;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Id;
+import javax.persistence.*;
 
 /**
  * Represents a GeoName.
  *
  * Copyright (c) 2014 University of Oxford
  */
+@NamedQueries({
+        @NamedQuery(
+                name = "getGeoNamesByIds",
+                query = "from GeoName where id in :geoNameIds"
+        )
+})
 @Entity
 public class GeoName {
     // The GeoNames ID.
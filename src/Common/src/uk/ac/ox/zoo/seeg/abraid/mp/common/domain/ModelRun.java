@@ -70,6 +70,12 @@ import java.util.List;
                             "sum(case(status) when 'IN_PROGRESS' then 1 else 0 end) asc, " +
                             "sum(case(status) when 'IN_PROGRESS' then 0 else 1 end) asc"
         ),
+        @NamedQuery(
+                name = "getCompletedModelRunsRequestedSince",
+                query = "from ModelRun " +
+                        "where status = 'COMPLETED' " +
+                        "and requestDate >= :requestDate"
+        ),
         @NamedQuery(
                 name = "getModelRunsForDiseaseGroup",
                 query = "from ModelRun " +
@@ -120,6 +126,10 @@ public class ModelRun {
     @Column(name = "error_text")
     private String errorText;
 
+    // The time taken by each stage of handling the model run's outputs, one "stage: duration" line per stage.
+    @Column(name = "output_handling_timings")
+    private String outputHandlingTimings;
+
     // List of submodel statistics associated with the model run.
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "modelRun")
     private List<SubmodelStatistic> submodelStatistics;
@@ -260,6 +270,14 @@ public class ModelRun {
         this.errorText = errorText;
     }
 
+    public String getOutputHandlingTimings() {
+        return outputHandlingTimings;
+    }
+
+    public void setOutputHandlingTimings(String outputHandlingTimings) {
+        this.outputHandlingTimings = outputHandlingTimings;
+    }
+
     public List<SubmodelStatistic> getSubmodelStatistics() {
         return submodelStatistics;
     }
@@ -370,6 +388,8 @@ public class ModelRun {
         if (id != null ? !id.equals(modelRun.id) : modelRun.id != null) return false;
         if (name != null ? !name.equals(modelRun.name) : modelRun.name != null) return false;
         if (outputText != null ? !outputText.equals(modelRun.outputText) : modelRun.outputText != null) return false;
+        if (outputHandlingTimings != null ? !outputHandlingTimings.equals(modelRun.outputHandlingTimings) : modelRun.outputHandlingTimings != null)
+            return false;
         if (requestDate != null ? !requestDate.equals(modelRun.requestDate) : modelRun.requestDate != null)
             return false;
         if (requestServer != null ? !requestServer.equals(modelRun.requestServer) : modelRun.requestServer != null)
@@ -396,6 +416,7 @@ public class ModelRun {
         result = 31 * result + (responseDate != null ? responseDate.hashCode() : 0);
         result = 31 * result + (outputText != null ? outputText.hashCode() : 0);
         result = 31 * result + (errorText != null ? errorText.hashCode() : 0);
+        result = 31 * result + (outputHandlingTimings != null ? outputHandlingTimings.hashCode() : 0);
         result = 31 * result + (batchStartDate != null ? batchStartDate.hashCode() : 0);
         result = 31 * result + (batchEndDate != null ? batchEndDate.hashCode() : 0);
         result = 31 * result + (batchOccurrenceCount != null ? batchOccurrenceCount.hashCode() : 0);
@@ -0,0 +1,80 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.domain;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import javax.persistence.*;
+
+/**
+ * Represents a GeoNames ID that could not be resolved into a GeoName (because the GeoNames web service reported that
+ * it does not exist, or returned it without a feature code). This prevents the ID from being looked up again until
+ * the entry expires.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+@NamedQueries({
+        @NamedQuery(
+                name = "getUnresolvedGeoNamesByIds",
+                query = "from UnresolvedGeoName where id in :geoNameIds"
+        )
+})
+@Entity
+@Table(name = "unresolved_geoname")
+public class UnresolvedGeoName {
+    // The GeoNames ID.
+    @Id
+    private Integer id;
+
+    // The date that the GeoNames ID was last looked up.
+    @Column(name = "lookup_date", nullable = false)
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    private DateTime lookupDate;
+
+    public UnresolvedGeoName() {
+    }
+
+    public UnresolvedGeoName(Integer id, DateTime lookupDate) {
+        this.id = id;
+        this.lookupDate = lookupDate;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public DateTime getLookupDate() {
+        return lookupDate;
+    }
+
+    public void setLookupDate(DateTime lookupDate) {
+        this.lookupDate = lookupDate;
+    }
+
+    ///COVERAGE:OFF - generated code
+    ///CHECKSTYLE:OFF AvoidInlineConditionalsCheck|LineLengthCheck|MagicNumberCheck|NeedBracesCheck - generated code
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        UnresolvedGeoName that = (UnresolvedGeoName) o;
+
+        if (id != null ? !id.equals(that.id) : that.id != null) return false;
+        if (lookupDate != null ? !lookupDate.equals(that.lookupDate) : that.lookupDate != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (lookupDate != null ? lookupDate.hashCode() : 0);
+        return result;
+    }
+    ///CHECKSTYLE:ON
+    ///COVERAGE:ON
+}
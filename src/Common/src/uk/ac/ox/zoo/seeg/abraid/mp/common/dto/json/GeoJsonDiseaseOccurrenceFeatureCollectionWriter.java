@@ -0,0 +1,161 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vividsolutions.jts.geom.Point;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.geojson.GeoJsonNamedCrs;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.geojson.GeoJsonObjectType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streams disease occurrences to an output stream as a GeoJSON "FeatureCollection", one feature at a time, so that
+ * the collection is never held in memory as a whole. The output is the same as serializing a
+ * GeoJsonDiseaseOccurrenceFeatureCollection, except that the occurrences can optionally be limited to a bounding box,
+ * and to a page size. If a page size is given and there are further matching occurrences, the ID of the last written
+ * occurrence is added to the collection as "nextCursor", to be used as the cursor when requesting the next page.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class GeoJsonDiseaseOccurrenceFeatureCollectionWriter {
+    /** The name of the member that holds the cursor for the next page of occurrences. */
+    public static final String NEXT_CURSOR_FIELD_NAME = "nextCursor";
+
+    private static final int BOUNDING_BOX_SIZE = 4;
+    private static final int MIN_LONGITUDE = 0;
+    private static final int MIN_LATITUDE = 1;
+    private static final int MAX_LONGITUDE = 2;
+    private static final int MAX_LATITUDE = 3;
+    private static final String BOUNDING_BOX_SEPARATOR = ",";
+    private static final String INVALID_BOUNDING_BOX_MESSAGE =
+            "Bounding box \"%s\" must be in the format minLongitude,minLatitude,maxLongitude,maxLatitude";
+    private static final String INVALID_LIMIT_MESSAGE = "Limit must be at least 1 (was %d)";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final List<Double> boundingBox;
+    private final Integer limit;
+
+    /**
+     * Creates a new instance of GeoJsonDiseaseOccurrenceFeatureCollectionWriter.
+     * @param objectMapper The object mapper used to serialize each feature.
+     * @param boundingBox OPTIONAL: only occurrences within this bounding box are written. This must be in the format
+     * [minLongitude, minLatitude, maxLongitude, maxLatitude] (see parseBoundingBox).
+     * @param limit OPTIONAL: the maximum number of occurrences to write.
+     * @throws IllegalArgumentException if the bounding box or limit is invalid.
+     */
+    public GeoJsonDiseaseOccurrenceFeatureCollectionWriter(ObjectMapper objectMapper, List<Double> boundingBox,
+                                                          Integer limit) throws IllegalArgumentException {
+        if (boundingBox != null && !isValidBoundingBox(boundingBox)) {
+            throw new IllegalArgumentException(String.format(INVALID_BOUNDING_BOX_MESSAGE, boundingBox));
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException(String.format(INVALID_LIMIT_MESSAGE, limit));
+        }
+        this.objectMapper = objectMapper;
+        // Flushing after each feature would send every feature to the client separately
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.boundingBox = (boundingBox == null) ? null : Collections.unmodifiableList(boundingBox);
+        this.limit = limit;
+    }
+
+    /**
+     * Parses a bounding box from a string in the format "minLongitude,minLatitude,maxLongitude,maxLatitude".
+     * @param boundingBox The bounding box string.
+     * @return The bounding box as a list of 4 coordinates, or null if the string is null.
+     * @throws IllegalArgumentException if the string is not a valid bounding box.
+     */
+    public static List<Double> parseBoundingBox(String boundingBox) throws IllegalArgumentException {
+        if (boundingBox == null) {
+            return null;
+        }
+
+        String[] parts = boundingBox.split(BOUNDING_BOX_SEPARATOR);
+        List<Double> coordinates = new ArrayList<>();
+        try {
+            for (String part : parts) {
+                coordinates.add(Double.parseDouble(part.trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(INVALID_BOUNDING_BOX_MESSAGE, boundingBox), e);
+        }
+
+        if (!isValidBoundingBox(coordinates)) {
+            throw new IllegalArgumentException(String.format(INVALID_BOUNDING_BOX_MESSAGE, boundingBox));
+        }
+        return coordinates;
+    }
+
+    /**
+     * Writes the disease occurrences to the output stream as a GeoJSON "FeatureCollection". The occurrences must be
+     * ordered by ID for the "nextCursor" to be meaningful.
+     * @param occurrences The disease occurrences.
+     * @param outputStream The output stream.
+     * @throws IOException if the occurrences could not be written.
+     */
+    public void write(Iterator<DiseaseOccurrence> occurrences, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("type", GeoJsonObjectType.FEATURE_COLLECTION.getGeoJsonName());
+        generator.writeFieldName("crs");
+        objectWriter.writeValue(generator, GeoJsonNamedCrs.createEPSG4326());
+
+        generator.writeArrayFieldStart("features");
+        // The cursor is only needed if the page is full, as otherwise there can be no further occurrences
+        Integer lastIdOnFullPage = writeFeatures(occurrences, generator);
+        generator.writeEndArray();
+
+        if (lastIdOnFullPage != null && hasNextMatchingOccurrence(occurrences)) {
+            generator.writeNumberField(NEXT_CURSOR_FIELD_NAME, lastIdOnFullPage);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private Integer writeFeatures(Iterator<DiseaseOccurrence> occurrences, JsonGenerator generator)
+            throws IOException {
+        Integer lastWrittenId = null;
+        int count = 0;
+        while ((limit == null || count < limit) && occurrences.hasNext()) {
+            DiseaseOccurrence occurrence = occurrences.next();
+            if (isInBoundingBox(occurrence)) {
+                objectWriter.writeValue(generator, new GeoJsonDiseaseOccurrenceFeature(occurrence));
+                lastWrittenId = occurrence.getId();
+                count++;
+            }
+        }
+        return (limit != null && count == limit) ? lastWrittenId : null;
+    }
+
+    private boolean hasNextMatchingOccurrence(Iterator<DiseaseOccurrence> occurrences) {
+        while (occurrences.hasNext()) {
+            if (isInBoundingBox(occurrences.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isInBoundingBox(DiseaseOccurrence occurrence) {
+        if (boundingBox == null) {
+            return true;
+        }
+        Point point = occurrence.getLocation().getGeom();
+        return point.getX() >= boundingBox.get(MIN_LONGITUDE) && point.getX() <= boundingBox.get(MAX_LONGITUDE) &&
+               point.getY() >= boundingBox.get(MIN_LATITUDE) && point.getY() <= boundingBox.get(MAX_LATITUDE);
+    }
+
+    private static boolean isValidBoundingBox(List<Double> boundingBox) {
+        return boundingBox.size() == BOUNDING_BOX_SIZE &&
+               boundingBox.get(MIN_LONGITUDE) <= boundingBox.get(MAX_LONGITUDE) &&
+               boundingBox.get(MIN_LATITUDE) <= boundingBox.get(MAX_LATITUDE);
+    }
+}
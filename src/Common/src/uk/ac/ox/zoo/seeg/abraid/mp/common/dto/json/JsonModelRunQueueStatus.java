@@ -0,0 +1,86 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JSON DTO used to report the model runs that are running (and waiting to run) on a ModelWrapper.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class JsonModelRunQueueStatus {
+    private int maxConcurrentRuns;
+    private int maxQueuedRuns;
+    private List<String> runningRuns = new ArrayList<>();
+    private List<String> queuedRuns = new ArrayList<>();
+
+    public JsonModelRunQueueStatus() {
+    }
+
+    public JsonModelRunQueueStatus(int maxConcurrentRuns, int maxQueuedRuns,
+                                   List<String> runningRuns, List<String> queuedRuns) {
+        this.maxConcurrentRuns = maxConcurrentRuns;
+        this.maxQueuedRuns = maxQueuedRuns;
+        this.runningRuns = runningRuns;
+        this.queuedRuns = queuedRuns;
+    }
+
+    public int getMaxConcurrentRuns() {
+        return maxConcurrentRuns;
+    }
+
+    public void setMaxConcurrentRuns(int maxConcurrentRuns) {
+        this.maxConcurrentRuns = maxConcurrentRuns;
+    }
+
+    public int getMaxQueuedRuns() {
+        return maxQueuedRuns;
+    }
+
+    public void setMaxQueuedRuns(int maxQueuedRuns) {
+        this.maxQueuedRuns = maxQueuedRuns;
+    }
+
+    public List<String> getRunningRuns() {
+        return runningRuns;
+    }
+
+    public void setRunningRuns(List<String> runningRuns) {
+        this.runningRuns = runningRuns;
+    }
+
+    public List<String> getQueuedRuns() {
+        return queuedRuns;
+    }
+
+    public void setQueuedRuns(List<String> queuedRuns) {
+        this.queuedRuns = queuedRuns;
+    }
+
+    ///COVERAGE:OFF - generated code
+    ///CHECKSTYLE:OFF AvoidInlineConditionalsCheck|LineLengthCheck|MagicNumberCheck|NeedBracesCheck - generated code
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        JsonModelRunQueueStatus that = (JsonModelRunQueueStatus) o;
+
+        if (maxConcurrentRuns != that.maxConcurrentRuns) return false;
+        if (maxQueuedRuns != that.maxQueuedRuns) return false;
+        if (queuedRuns != null ? !queuedRuns.equals(that.queuedRuns) : that.queuedRuns != null) return false;
+        if (runningRuns != null ? !runningRuns.equals(that.runningRuns) : that.runningRuns != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = maxConcurrentRuns;
+        result = 31 * result + maxQueuedRuns;
+        result = 31 * result + (runningRuns != null ? runningRuns.hashCode() : 0);
+        result = 31 * result + (queuedRuns != null ? queuedRuns.hashCode() : 0);
+        return result;
+    }
+    ///CHECKSTYLE:ON
+    ///COVERAGE:ON
+}
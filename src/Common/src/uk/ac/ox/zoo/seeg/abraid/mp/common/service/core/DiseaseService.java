@@ -3,7 +3,9 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.service.core;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -130,6 +132,16 @@ public interface DiseaseService {
     List<DiseaseOccurrence> getDiseaseOccurrencesForModelRunRequest(Integer diseaseGroupId,
                                                                     boolean onlyUseGoldStandardOccurrences);
 
+    /**
+     * Iterates over the input disease occurrences of the specified model run, in ID order and starting after the
+     * specified cursor. The occurrences are read from the database as they are iterated over, so the iterator must be
+     * used and closed within the caller's transaction, and the occurrences must not be modified.
+     * @param modelRunId The model run's ID.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the input disease occurrences.
+     */
+    CloseableIterator<DiseaseOccurrence> scrollInputDiseaseOccurrencesForModelRun(int modelRunId, int cursor);
+
     /**
      * Gets the number of distinct locations from the new disease occurrences for the specified disease group.
      * @param diseaseGroup The disease group.
@@ -155,6 +167,14 @@ public interface DiseaseService {
      */
     List<AdminUnitDiseaseExtentClass> getDiseaseExtentByDiseaseGroupId(Integer diseaseGroupId);
 
+    /**
+     * Gets the values used to trigger extent generation and model runs, for each of the specified disease groups.
+     * These are fetched for all of the disease groups using a single query.
+     * @param diseaseGroupIds The IDs of the disease groups.
+     * @return The metrics, indexed by disease group ID.
+     */
+    Map<Integer, DiseaseGroupTriggerMetrics> getTriggerMetricsForDiseaseGroups(Collection<Integer> diseaseGroupIds);
+
     /**
      * Gets the latest disease extent class change date for the specified disease group.
      * @param diseaseGroupId The ID of the disease group.
@@ -206,6 +226,12 @@ public interface DiseaseService {
      */
     void saveDiseaseOccurrence(DiseaseOccurrence diseaseOccurrence);
 
+    /**
+     * Saves disease occurrences, using JDBC batching.
+     * @param diseaseOccurrences The disease occurrences to save.
+     */
+    void saveDiseaseOccurrences(Collection<DiseaseOccurrence> diseaseOccurrences);
+
     /**
      * Saves a disease group.
      * @param diseaseGroup The disease group to save.
@@ -218,6 +244,12 @@ public interface DiseaseService {
      */
     void saveAdminUnitDiseaseExtentClass(AdminUnitDiseaseExtentClass adminUnitDiseaseExtentClass);
 
+    /**
+     * Saves disease extent classes that are associated with admin units (global or tropical), using JDBC batching.
+     * @param adminUnitDiseaseExtentClasses The objects to save.
+     */
+    void saveAdminUnitDiseaseExtentClasses(Collection<AdminUnitDiseaseExtentClass> adminUnitDiseaseExtentClasses);
+
     /**
      * Updates the aggregated disease extent that is stored in the disease_extent table, for the specified disease.
      * @param diseaseGroup The disease group.
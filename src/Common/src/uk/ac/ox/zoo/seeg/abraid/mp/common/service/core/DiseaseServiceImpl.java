@@ -5,6 +5,7 @@ import org.joda.time.LocalDate;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
 import java.util.*;
 
@@ -245,6 +246,19 @@ public class DiseaseServiceImpl implements DiseaseService {
                 onlyUseGoldStandardOccurrences);
     }
 
+    /**
+     * Iterates over the input disease occurrences of the specified model run, in ID order and starting after the
+     * specified cursor. The occurrences are read from the database as they are iterated over, so the iterator must be
+     * used and closed within the caller's transaction, and the occurrences must not be modified.
+     * @param modelRunId The model run's ID.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the input disease occurrences.
+     */
+    @Override
+    public CloseableIterator<DiseaseOccurrence> scrollInputDiseaseOccurrencesForModelRun(int modelRunId, int cursor) {
+        return diseaseOccurrenceDao.scrollInputDiseaseOccurrencesForModelRun(modelRunId, cursor);
+    }
+
     /**
      * Gets the number of distinct locations from the new disease occurrences for the specified disease group.
      * @param diseaseGroup The disease group.
@@ -311,6 +325,25 @@ public class DiseaseServiceImpl implements DiseaseService {
         }
     }
 
+    /**
+     * Gets the values used to trigger extent generation and model runs, for each of the specified disease groups.
+     * These are fetched for all of the disease groups using a single query, and are equivalent to calling
+     * getDistinctLocationsCountForTriggeringModelRun (with the disease group's last model run prep date) and
+     * getLatestDiseaseExtentClassChangeDateByDiseaseGroupId for each disease group.
+     * @param diseaseGroupIds The IDs of the disease groups.
+     * @return The metrics, indexed by disease group ID.
+     */
+    @Override
+    public Map<Integer, DiseaseGroupTriggerMetrics> getTriggerMetricsForDiseaseGroups(
+            Collection<Integer> diseaseGroupIds) {
+        Map<Integer, DiseaseGroupTriggerMetrics> metricsByDiseaseGroupId = new HashMap<>();
+        for (DiseaseGroupTriggerMetrics metrics :
+                nativeSQL.findTriggerMetricsForDiseaseGroups(diseaseGroupIds, maxDaysOnValidator)) {
+            metricsByDiseaseGroupId.put(metrics.getDiseaseGroupId(), metrics);
+        }
+        return metricsByDiseaseGroupId;
+    }
+
     /**
      * Gets the latest disease extent class change date for the specified disease group.
      * @param diseaseGroupId The ID of the disease group.
@@ -395,6 +428,15 @@ public class DiseaseServiceImpl implements DiseaseService {
         diseaseOccurrenceDao.save(diseaseOccurrence);
     }
 
+    /**
+     * Saves disease occurrences, using JDBC batching.
+     * @param diseaseOccurrences The disease occurrences to save.
+     */
+    @Override
+    public void saveDiseaseOccurrences(Collection<DiseaseOccurrence> diseaseOccurrences) {
+        diseaseOccurrenceDao.saveAll(diseaseOccurrences);
+    }
+
     /**
      * Saves a disease group.
      * @param diseaseGroup The disease group to save.
@@ -413,6 +455,16 @@ public class DiseaseServiceImpl implements DiseaseService {
         adminUnitDiseaseExtentClassDao.save(adminUnitDiseaseExtentClass);
     }
 
+    /**
+     * Saves disease extent classes that are associated with admin units (global or tropical), using JDBC batching.
+     * @param adminUnitDiseaseExtentClasses The objects to save.
+     */
+    @Override
+    public void saveAdminUnitDiseaseExtentClasses(
+            Collection<AdminUnitDiseaseExtentClass> adminUnitDiseaseExtentClasses) {
+        adminUnitDiseaseExtentClassDao.saveAll(adminUnitDiseaseExtentClasses);
+    }
+
     /**
      * Updates the aggregated disease extent that is stored in the disease_extent table, for the specified disease.
      * @param diseaseGroup The disease group.
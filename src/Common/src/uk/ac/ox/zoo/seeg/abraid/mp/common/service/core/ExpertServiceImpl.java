@@ -6,6 +6,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
 import java.util.Collection;
 import java.util.HashMap;
@@ -102,6 +103,24 @@ public class ExpertServiceImpl implements ExpertService {
                 expertId, userIsSeeg, validatorDiseaseGroupId);
     }
 
+    /**
+     * Iterates over the occurrence points, for the specified validator disease group, for which the specified expert
+     * has not yet submitted a review, in ID order and starting after the specified cursor. The occurrences are read
+     * from the database as they are iterated over, so the iterator must be used and closed within the caller's
+     * transaction, and the occurrences must not be modified.
+     * @param expertId The id of the specified expert.
+     * @param userIsSeeg Whether the expert is a member of SEEG, and therefore should review more occurrences.
+     * @param validatorDiseaseGroupId The id of the validatorDiseaseGroup of interest.
+     * @param cursor Only occurrences with an ID greater than this are returned.
+     * @return An iterator over the disease occurrence points to be displayed to the expert on the map.
+     */
+    @Override
+    public CloseableIterator<DiseaseOccurrence> scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+            Integer expertId, boolean userIsSeeg, Integer validatorDiseaseGroupId, int cursor) {
+        return diseaseOccurrenceDao.scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                expertId, userIsSeeg, validatorDiseaseGroupId, cursor);
+    }
+
     /**
      * Gets the number of disease occurrence reviews an expert has submitted, across all disease groups.
      * @param expertId The id of the specified expert.
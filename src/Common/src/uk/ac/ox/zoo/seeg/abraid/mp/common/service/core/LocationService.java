@@ -3,6 +3,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.service.core;
 import com.vividsolutions.jts.geom.Point;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +41,28 @@ public interface LocationService {
      */
     void saveGeoName(GeoName geoName);
 
+    /**
+     * Gets the GeoNames with the specified IDs, in a single query.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The GeoNames that were found.
+     */
+    List<GeoName> getGeoNamesByIds(Collection<Integer> geoNameIds);
+
+    /**
+     * Gets the unresolved GeoNames (i.e. GeoNames IDs that could not be resolved when they were last looked up) with
+     * the specified IDs, in a single query.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The unresolved GeoNames that were found.
+     */
+    List<UnresolvedGeoName> getUnresolvedGeoNamesByIds(Collection<Integer> geoNameIds);
+
+    /**
+     * Saves an unresolved GeoName. If the GeoNames ID has previously been saved as unresolved, its lookup date is
+     * updated.
+     * @param unresolvedGeoName The unresolved GeoName to save.
+     */
+    void saveUnresolvedGeoName(UnresolvedGeoName unresolvedGeoName);
+
     /**
      * Gets one or more extent classes that corresponded to the specified location (multiple for countries that are
      * split in to admin units in the extent map).
@@ -6,6 +6,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,13 +22,16 @@ public class LocationServiceImpl implements LocationService {
     private LocationDao locationDao;
     private GeoNamesLocationPrecisionDao geoNamesLocationPrecisionDao;
     private GeoNameDao geoNameDao;
+    private UnresolvedGeoNameDao unresolvedGeoNameDao;
     private AdminUnitDiseaseExtentClassDao adminUnitDiseaseExtentClassDao;
 
     public LocationServiceImpl(LocationDao locationDao, GeoNamesLocationPrecisionDao geoNamesLocationPrecisionDao,
-                               GeoNameDao geoNameDao, AdminUnitDiseaseExtentClassDao adminUnitDiseaseExtentClassDao) {
+                               GeoNameDao geoNameDao, UnresolvedGeoNameDao unresolvedGeoNameDao,
+                               AdminUnitDiseaseExtentClassDao adminUnitDiseaseExtentClassDao) {
         this.locationDao = locationDao;
         this.geoNamesLocationPrecisionDao = geoNamesLocationPrecisionDao;
         this.geoNameDao = geoNameDao;
+        this.unresolvedGeoNameDao = unresolvedGeoNameDao;
         this.adminUnitDiseaseExtentClassDao = adminUnitDiseaseExtentClassDao;
     }
 
@@ -76,6 +80,43 @@ public class LocationServiceImpl implements LocationService {
         geoNameDao.save(geoName);
     }
 
+    /**
+     * Gets the GeoNames with the specified IDs, in a single query.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The GeoNames that were found.
+     */
+    @Override
+    public List<GeoName> getGeoNamesByIds(Collection<Integer> geoNameIds) {
+        return geoNameDao.getByIds(geoNameIds);
+    }
+
+    /**
+     * Gets the unresolved GeoNames (i.e. GeoNames IDs that could not be resolved when they were last looked up) with
+     * the specified IDs, in a single query.
+     * @param geoNameIds The GeoNames IDs.
+     * @return The unresolved GeoNames that were found.
+     */
+    @Override
+    public List<UnresolvedGeoName> getUnresolvedGeoNamesByIds(Collection<Integer> geoNameIds) {
+        return unresolvedGeoNameDao.getByIds(geoNameIds);
+    }
+
+    /**
+     * Saves an unresolved GeoName. If the GeoNames ID has previously been saved as unresolved, its lookup date is
+     * updated.
+     * @param unresolvedGeoName The unresolved GeoName to save.
+     */
+    @Override
+    public void saveUnresolvedGeoName(UnresolvedGeoName unresolvedGeoName) {
+        UnresolvedGeoName existingUnresolvedGeoName = unresolvedGeoNameDao.getById(unresolvedGeoName.getId());
+        if (existingUnresolvedGeoName == null) {
+            unresolvedGeoNameDao.save(unresolvedGeoName);
+        } else {
+            // The existing entry is persistent, so the new lookup date is written when the session is flushed
+            existingUnresolvedGeoName.setLookupDate(unresolvedGeoName.getLookupDate());
+        }
+    }
+
     /**
      * Gets one or more extent classes that corresponded to the specified location (multiple for countries that are
      * split in to admin units in the extent map).
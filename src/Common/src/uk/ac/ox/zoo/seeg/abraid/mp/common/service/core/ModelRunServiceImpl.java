@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.core;
 
+import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.ModelRunDao;
@@ -107,6 +108,16 @@ public class ModelRunServiceImpl implements ModelRunService {
         return modelRunDao.getModelRunRequestServersByUsage();
     }
 
+    /**
+     * Gets the completed model runs that were requested since the specified date.
+     * @param requestDate The earliest request date.
+     * @return The completed model runs.
+     */
+    @Override
+    public List<ModelRun> getCompletedModelRunsRequestedSince(DateTime requestDate) {
+        return modelRunDao.getCompletedModelRunsRequestedSince(requestDate);
+    }
+
     /**
      * Gets all the model runs for the given disease group.
      * @param diseaseGroupId The specified disease group's ID.
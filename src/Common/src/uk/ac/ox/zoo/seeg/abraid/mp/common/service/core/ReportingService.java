@@ -20,4 +20,14 @@ public interface ReportingService {
      * @return The data for a country qualified HealthMap data rate report.
      */
     List<HealthMapReportEntry> getHealthMapCountryReportEntries();
+
+    /**
+     * Adds the occurrences that have been created since the last update to the HealthMap report rollup.
+     */
+    void updateHealthMapReportRollup();
+
+    /**
+     * Discards the HealthMap report rollup and repopulates it from all occurrences.
+     */
+    void rebuildHealthMapReportRollup();
 }
@@ -27,4 +27,14 @@ public class ReportingServiceImpl implements ReportingService {
     public List<HealthMapReportEntry> getHealthMapCountryReportEntries() {
         return healthMapReportEntryDao.getHealthMapCountryReportEntries();
     }
+
+    @Override
+    public void updateHealthMapReportRollup() {
+        healthMapReportEntryDao.updateHealthMapReportRollup();
+    }
+
+    @Override
+    public void rebuildHealthMapReportRollup() {
+        healthMapReportEntryDao.rebuildHealthMapReportRollup();
+    }
 }
@@ -1,17 +1,19 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow;
 
-import org.geotools.coverage.grid.GridCoverage2D;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrenceStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ProvenanceNames;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.DiseaseExtentDistanceCalculator;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.DistanceFromDiseaseExtentHelper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.EnvironmentalSuitabilityHelper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.MachineWeightingPredictor;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.CachedRaster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.ZonalStatistics;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -68,20 +70,34 @@ public class DiseaseOccurrenceValidationServiceImpl implements DiseaseOccurrence
         DiseaseGroup diseaseGroup = validateAndGetDiseaseGroup(occurrences);
 
         if (diseaseGroup != null) {
-            // Get the latest mean prediction raster for the disease group, and then use it to add validation parameters
-            // to all occurrences
-            GridCoverage2D suitabilityRaster = null;
-            GridCoverage2D[] adminRasters = null;
-            try {
-                suitabilityRaster = esHelper.getLatestMeanPredictionRaster(diseaseGroup);
-                adminRasters = esHelper.getAdminRasters();
-                for (DiseaseOccurrence occurrence : occurrences) {
-                    clearAndSetToReady(occurrence);
-                    addValidationParameters(occurrence, suitabilityRaster, adminRasters);
+            // Get the latest mean prediction raster for the disease group (and its precomputed admin unit averages), and
+            // then use it to add validation parameters to all occurrences
+            CachedRaster suitabilityRaster = esHelper.getLatestMeanPredictionRaster(diseaseGroup);
+            ZonalStatistics[] zonalStatistics = esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup);
+            CachedRaster[] adminRasters = esHelper.getAdminRasters(zonalStatistics);
+            // Similarly, get the disease group's current extent once, so that the distances from the extent can be
+            // calculated in memory rather than with a database query per occurrence
+            DiseaseExtentDistanceCalculator distanceCalculator = dfdeHelper.createDistanceCalculator(diseaseGroup);
+            List<DiseaseOccurrence> occurrencesForPredictor = new ArrayList<>();
+            for (DiseaseOccurrence occurrence : occurrences) {
+                clearAndSetToReady(occurrence);
+                addEnvironmentalSuitabilityAndDistanceFromDiseaseExtent(
+                        occurrence, suitabilityRaster, adminRasters, zonalStatistics, distanceCalculator);
+                if (shouldUseMachineLearning(occurrence)) {
+                    occurrencesForPredictor.add(occurrence);
+                } else {
+                    setMachineWeightingWithoutMachineLearningAndInReview(occurrence);
+                }
+            }
+
+            // Score all the occurrences that need a machine weighting in a single request to the predictor, rather
+            // than one request per occurrence
+            if (!occurrencesForPredictor.isEmpty()) {
+                List<Double> machineWeightings =
+                        mwPredictor.findMachineWeightings(diseaseGroup.getId(), occurrencesForPredictor);
+                for (int i = 0; i < occurrencesForPredictor.size(); i++) {
+                    setMachineWeightingAndInReview(occurrencesForPredictor.get(i), machineWeightings.get(i));
                 }
-            } finally {
-                RasterUtils.disposeRaster(suitabilityRaster);
-                RasterUtils.disposeRasters(adminRasters);
             }
         }
     }
@@ -145,44 +161,58 @@ public class DiseaseOccurrenceValidationServiceImpl implements DiseaseOccurrence
     }
 
     private void addValidationParameters(DiseaseOccurrence occurrence) {
-        GridCoverage2D suitabilityRaster = null;
-        GridCoverage2D[] adminRasters = null;
-        try {
-            suitabilityRaster = esHelper.getLatestMeanPredictionRaster(occurrence.getDiseaseGroup());
-            adminRasters = esHelper.getSingleAdminRaster(occurrence.getLocation().getPrecision());
-            addValidationParameters(occurrence, suitabilityRaster, adminRasters);
-        } finally {
-            RasterUtils.disposeRaster(suitabilityRaster);
-            RasterUtils.disposeRasters(adminRasters);
-        }
+        CachedRaster suitabilityRaster = esHelper.getLatestMeanPredictionRaster(occurrence.getDiseaseGroup());
+        ZonalStatistics[] zonalStatistics =
+                esHelper.getLatestMeanPredictionZonalStatistics(occurrence.getDiseaseGroup());
+        CachedRaster[] adminRasters =
+                esHelper.getSingleAdminRaster(occurrence.getLocation().getPrecision(), zonalStatistics);
+        addValidationParameters(occurrence, suitabilityRaster, adminRasters, zonalStatistics);
     }
 
-    private void addValidationParameters(
-            DiseaseOccurrence occurrence, GridCoverage2D predictionRaster, GridCoverage2D[] adminRasters) {
-        occurrence.setEnvironmentalSuitability(
-                esHelper.findEnvironmentalSuitability(occurrence, predictionRaster, adminRasters));
-        occurrence.setDistanceFromDiseaseExtent(dfdeHelper.findDistanceFromDiseaseExtent(occurrence));
+    private void addValidationParameters(DiseaseOccurrence occurrence, CachedRaster predictionRaster,
+                                         CachedRaster[] adminRasters, ZonalStatistics[] zonalStatistics) {
+        addEnvironmentalSuitabilityAndDistanceFromDiseaseExtent(
+                occurrence, predictionRaster, adminRasters, zonalStatistics, null);
         findAndSetMachineWeightingAndInReview(occurrence);
     }
 
+    private void addEnvironmentalSuitabilityAndDistanceFromDiseaseExtent(
+            DiseaseOccurrence occurrence, CachedRaster predictionRaster, CachedRaster[] adminRasters,
+            ZonalStatistics[] zonalStatistics, DiseaseExtentDistanceCalculator distanceCalculator) {
+        occurrence.setEnvironmentalSuitability(
+                esHelper.findEnvironmentalSuitability(occurrence, predictionRaster, adminRasters, zonalStatistics));
+        // Without a calculator (i.e. for a single occurrence), the distance is calculated by the database
+        occurrence.setDistanceFromDiseaseExtent((distanceCalculator == null) ?
+                dfdeHelper.findDistanceFromDiseaseExtent(occurrence) :
+                dfdeHelper.findDistanceFromDiseaseExtent(occurrence, distanceCalculator));
+    }
+
     private void findAndSetMachineWeightingAndInReview(DiseaseOccurrence occurrence) {
-        if (shouldGoDirectlyToDataValidator(occurrence)) {
+        if (shouldUseMachineLearning(occurrence)) {
+            setMachineWeightingAndInReview(occurrence, mwPredictor.findMachineWeighting(occurrence));
+        } else {
+            setMachineWeightingWithoutMachineLearningAndInReview(occurrence);
+        }
+    }
+
+    private boolean shouldUseMachineLearning(DiseaseOccurrence occurrence) {
+        return !shouldGoDirectlyToDataValidator(occurrence) && occurrence.getDiseaseGroup().useMachineLearning();
+    }
+
+    private void setMachineWeightingAndInReview(DiseaseOccurrence occurrence, Double machineWeighting) {
+        if (machineWeighting == null) {
             addOccurrenceToValidator(occurrence);
         } else {
-            if (occurrence.getDiseaseGroup().useMachineLearning()) {
-                Double machineWeighting = mwPredictor.findMachineWeighting(occurrence);
-                if (machineWeighting == null) {
-                    addOccurrenceToValidator(occurrence);
-                } else {
-                    occurrence.setMachineWeighting(machineWeighting);
-                }
-            } else {
-                if (shouldSendToDataValidatorWithoutUsingMachineLearning(occurrence)) {
-                    addOccurrenceToValidator(occurrence);
-                } else {
-                    occurrence.setMachineWeighting(1.0);
-                }
-            }
+            occurrence.setMachineWeighting(machineWeighting);
+        }
+    }
+
+    private void setMachineWeightingWithoutMachineLearningAndInReview(DiseaseOccurrence occurrence) {
+        if (shouldGoDirectlyToDataValidator(occurrence) ||
+                shouldSendToDataValidatorWithoutUsingMachineLearning(occurrence)) {
+            addOccurrenceToValidator(occurrence);
+        } else {
+            occurrence.setMachineWeighting(1.0);
         }
     }
 
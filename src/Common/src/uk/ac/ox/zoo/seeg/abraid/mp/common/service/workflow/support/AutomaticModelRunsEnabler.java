@@ -101,8 +101,6 @@ public class AutomaticModelRunsEnabler {
     }
 
     private void saveOccurrences(List<DiseaseOccurrence> occurrences) {
-        for (DiseaseOccurrence occurrence : occurrences) {
-            diseaseService.saveDiseaseOccurrence(occurrence);
-        }
+        diseaseService.saveDiseaseOccurrences(occurrences);
     }
 }
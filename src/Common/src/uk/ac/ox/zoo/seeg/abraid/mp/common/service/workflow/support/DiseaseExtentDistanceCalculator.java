@@ -0,0 +1,66 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
+
+/**
+ * Calculates the distances between points and a disease group's extent in memory, as an alternative to the PostGIS
+ * queries in NativeSQL. The extent and outside extent geometries are indexed on first use, so that the distances for
+ * a batch of occurrences can be found without a database round trip for each one. As with the PostGIS queries, the
+ * distance is measured along the shortest line between the point and the geometry (in degrees), on the WGS 84
+ * ellipsoid. An instance is intended for use by a single thread, for the duration of a batch.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class DiseaseExtentDistanceCalculator {
+    private final Geometry extentGeometry;
+    private final Geometry outsideExtentGeometry;
+    private NearestPointIndex extentIndex;
+    private NearestPointIndex outsideExtentIndex;
+
+    public DiseaseExtentDistanceCalculator(Geometry extentGeometry, Geometry outsideExtentGeometry) {
+        this.extentGeometry = extentGeometry;
+        this.outsideExtentGeometry = outsideExtentGeometry;
+    }
+
+    /**
+     * Calculates the distance between the point and the disease extent. If the point is within the disease extent, it
+     * returns zero.
+     * @param point The point.
+     * @return The distance outside the disease extent (in kilometres), or null if there is no extent.
+     */
+    public Double findDistanceOutsideDiseaseExtent(Point point) {
+        if (extentIndex == null && extentGeometry != null) {
+            extentIndex = new NearestPointIndex(extentGeometry);
+        }
+        return findDistance(extentIndex, point);
+    }
+
+    /**
+     * Calculates the distance between the point and the nearest admin unit that is not in the disease extent. If the
+     * point is outside the disease extent, it returns zero.
+     * @param point The point.
+     * @return The distance inside the disease extent (in kilometres), or null if there is no extent.
+     */
+    public Double findDistanceInsideDiseaseExtent(Point point) {
+        if (outsideExtentIndex == null && outsideExtentGeometry != null) {
+            outsideExtentIndex = new NearestPointIndex(outsideExtentGeometry);
+        }
+        return findDistance(outsideExtentIndex, point);
+    }
+
+    private static Double findDistance(NearestPointIndex index, Point point) {
+        if (index == null) {
+            return null;
+        }
+        Coordinate nearestCoordinate = index.findNearestCoordinate(point.getCoordinate());
+        if (nearestCoordinate == null) {
+            // The geometry has no polygons
+            return null;
+        }
+        return GeometryUtils.findOrthodromicDistance(point.getCoordinate(), nearestCoordinate);
+    }
+}
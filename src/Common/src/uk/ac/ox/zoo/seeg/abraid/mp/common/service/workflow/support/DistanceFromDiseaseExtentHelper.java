@@ -28,6 +28,19 @@ public class DistanceFromDiseaseExtentHelper {
         this.cacheService = cacheService;
     }
 
+    /**
+     * Creates a calculator for the distances between locations and the disease group's current extent, so that the
+     * distances for a batch of occurrences can be found in memory.
+     * @param diseaseGroup The disease group.
+     * @return The distance calculator.
+     */
+    @Transactional
+    public DiseaseExtentDistanceCalculator createDistanceCalculator(DiseaseGroup diseaseGroup) {
+        return new DiseaseExtentDistanceCalculator(
+                nativeSQL.findDiseaseExtentGeometry(diseaseGroup.getId()),
+                nativeSQL.findOutsideDiseaseExtentGeometry(diseaseGroup.getId()));
+    }
+
     /**
      * Finds the distance between the occurrence's location and the occurrence's disease group's current extent.
      * @param occurrence The occurrence.
@@ -35,6 +48,21 @@ public class DistanceFromDiseaseExtentHelper {
      */
     @Transactional
     public Double findDistanceFromDiseaseExtent(DiseaseOccurrence occurrence) {
+        return findDistanceFromDiseaseExtent(occurrence, null);
+    }
+
+    /**
+     * Finds the distance between the occurrence's location and the occurrence's disease group's current extent. If
+     * the location is precise, the distance is calculated in memory using the specified calculator, otherwise it is
+     * calculated by the database.
+     * @param occurrence The occurrence.
+     * @param distanceCalculator The calculator for the occurrence's disease group (see createDistanceCalculator), or
+     * null to always calculate the distance using the database.
+     * @return The distance from the disease extent.
+     */
+    @Transactional
+    public Double findDistanceFromDiseaseExtent(DiseaseOccurrence occurrence,
+                                                DiseaseExtentDistanceCalculator distanceCalculator) {
         DiseaseGroup diseaseGroup = occurrence.getDiseaseGroup();
         Location location = occurrence.getLocation();
 
@@ -43,7 +71,7 @@ public class DistanceFromDiseaseExtentHelper {
             return distance;
         }
 
-        distance = calculateDistance(diseaseGroup, location);
+        distance = calculateDistance(diseaseGroup, location, distanceCalculator);
 
         if (distance != null) {
             cacheService.saveDistanceToExtentCacheEntry(diseaseGroup.getId(), location.getId(), distance);
@@ -51,7 +79,8 @@ public class DistanceFromDiseaseExtentHelper {
         return distance;
     }
 
-    private Double calculateDistance(DiseaseGroup diseaseGroup, Location location) {
+    private Double calculateDistance(DiseaseGroup diseaseGroup, Location location,
+                                     DiseaseExtentDistanceCalculator distanceCalculator) {
         boolean isGlobal = diseaseGroup.isGlobal();
         int diseaseGroupId = diseaseGroup.getId();
         int locationId = location.getId();
@@ -67,16 +96,22 @@ public class DistanceFromDiseaseExtentHelper {
         boolean insideExtent = containsPresence || containsPossiblePresence;
         boolean outsideExtent = containsUncertain || containsPossibleAbsence || containsAbsence;
 
+        // A precise location is a point, so its distance can be found using the in-memory disease extent. Otherwise
+        // the location's geometry is an admin unit or country, so the distance is found using a PostGIS query.
+        boolean useCalculator = (distanceCalculator != null) && (location.getPrecision() == LocationPrecision.PRECISE);
+
         if (insideExtent && outsideExtent) {
             // "Split" country straddling the edge
             return 0.0;
         } else if (outsideExtent) {
-            // We find the distance using a PostGIS query instead of using routines in the GeometryUtils class, because
-            // loading the entire disease extent geometry into memory is likely to be inefficient
-            Double distance = nativeSQL.findDistanceOutsideDiseaseExtent(diseaseGroupId, isGlobal, locationId);
+            Double distance = useCalculator ?
+                    distanceCalculator.findDistanceOutsideDiseaseExtent(location.getGeom()) :
+                    nativeSQL.findDistanceOutsideDiseaseExtent(diseaseGroupId, isGlobal, locationId);
             return (distance != null) ? (+1.0 * distance) : null;
         } else if (insideExtent) {
-            Double distance = nativeSQL.findDistanceInsideDiseaseExtent(diseaseGroupId, isGlobal, locationId);
+            Double distance = useCalculator ?
+                    distanceCalculator.findDistanceInsideDiseaseExtent(location.getGeom()) :
+                    nativeSQL.findDistanceInsideDiseaseExtent(diseaseGroupId, isGlobal, locationId);
             return (distance != null) ? (-1.0 * distance) : null;
         } else {
             return null; // No extent defined
@@ -6,21 +6,19 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.processing.Operations;
 import org.geotools.geometry.Envelope2D;
-import org.geotools.geometry.jts.JTS;
-import org.opengis.coverage.PointOutsideCoverageException;
-import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.operation.TransformException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ValidationParameterCacheService;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.CachedRaster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterCache;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterTransformation;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.TiledRasterReaderCache;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.ZonalStatistics;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RasterFilePathFactory;
 
 import java.awt.*;
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 
@@ -37,6 +35,8 @@ public class EnvironmentalSuitabilityHelper {
     private ModelRunService modelRunService;
     private RasterFilePathFactory rasterFilePathFactory;
     private ValidationParameterCacheService cacheService;
+    private RasterCache rasterCache;
+    private TiledRasterReaderCache rasterReaderCache;
 
     private static final Logger LOGGER = Logger.getLogger(EnvironmentalSuitabilityHelper.class);
     private static final String ES_NOT_FOUND_NO_DATA_MESSAGE =
@@ -47,76 +47,133 @@ public class EnvironmentalSuitabilityHelper {
             "Reading raster file %s for environmental suitability calculation";
     private static final String TEMP_FILE_NOT_REMOVED =
             "An intermediary file could not be removed (%s)";
+    private static final String READING_ZONAL_STATISTICS_FILE_MESSAGE =
+            "Reading zonal statistics file %s for environmental suitability calculation";
+    private static final String ZONAL_STATISTICS_NOT_READ_WARNING =
+            "Zonal statistics file %s could not be read. Falling back to admin raster scan";
 
     private static final int RASTER_NO_DATA_VALUE = -9999;
 
 
     public EnvironmentalSuitabilityHelper(ModelRunService modelRunService,
                                           RasterFilePathFactory rasterFilePathFactory,
-                                          ValidationParameterCacheService cacheService) {
+                                          ValidationParameterCacheService cacheService,
+                                          RasterCache rasterCache,
+                                          TiledRasterReaderCache rasterReaderCache) {
         this.modelRunService = modelRunService;
         this.rasterFilePathFactory = rasterFilePathFactory;
         this.cacheService = cacheService;
+        this.rasterCache = rasterCache;
+        this.rasterReaderCache = rasterReaderCache;
     }
 
     /**
      * Gets the latest mean prediction raster for the disease group. This can then be used to find the environmental
      * suitability of points. Use this routine in conjunction with findEnvironmentalSuitability(occurrence, raster)
      * when you have several occurrences in the same disease group.
-     * Note: The raster returned by the method must be disposed using RasterUtils.disposeRaster when no longer in use.
+     * The raster is served from the shared raster cache, so does not need to be disposed.
      * @param diseaseGroup The disease group.
      * @return The mean prediction raster returned by the most recent completed model run for this disease group,
      * or null if no such raster exists.
      */
-    public GridCoverage2D getLatestMeanPredictionRaster(DiseaseGroup diseaseGroup) {
+    public CachedRaster getLatestMeanPredictionRaster(DiseaseGroup diseaseGroup) {
         ModelRun modelRun = modelRunService.getMostRecentlyRequestedModelRunWhichCompleted(diseaseGroup.getId());
         if (modelRun != null) {
             File rasterFile = rasterFilePathFactory.getFullMeanPredictionRasterFile(modelRun);
 
             LOGGER.debug(String.format(READING_RASTER_FILE_MESSAGE, rasterFile.getAbsolutePath()));
-            GridCoverage2D raster = null;
+            return loadCachedRaster(rasterFile);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the per GAUL code zonal statistics of the latest mean prediction raster for the disease group, for each of
+     * the three admin unit levels (at the array index for the level). These are written alongside the raster by the
+     * ModelOutputHandler, and allow the average environmental suitability of an admin unit to be looked up without
+     * scanning the rasters. Use in conjunction with findEnvironmentalSuitability(occurrence, raster, adminRasters,
+     * zonalStatistics).
+     * @param diseaseGroup The disease group.
+     * @return The zonal statistics, with null entries for any level that has no (readable) statistics file.
+     */
+    public ZonalStatistics[] getLatestMeanPredictionZonalStatistics(DiseaseGroup diseaseGroup) {
+        ZonalStatistics[] statistics = new ZonalStatistics[NUMBER_OF_ADMIN_LEVELS];
+        ModelRun modelRun = modelRunService.getMostRecentlyRequestedModelRunWhichCompleted(diseaseGroup.getId());
+        if (modelRun != null) {
+            for (int level = 0; level < NUMBER_OF_ADMIN_LEVELS; level++) {
+                File file = rasterFilePathFactory.getFullMeanPredictionZonalStatisticsFile(modelRun, level);
+                statistics[level] = loadZonalStatistics(file);
+            }
+        }
+        return statistics;
+    }
+
+    private ZonalStatistics loadZonalStatistics(File file) {
+        if (file != null && file.exists()) {
+            LOGGER.debug(String.format(READING_ZONAL_STATISTICS_FILE_MESSAGE, file.getAbsolutePath()));
             try {
-                raster = RasterUtils.loadRaster(rasterFile);
+                return ZonalStatistics.readFromFile(file);
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                LOGGER.warn(String.format(ZONAL_STATISTICS_NOT_READ_WARNING, file.getAbsolutePath()), e);
             }
-
-           return raster;
         }
         return null;
     }
 
     /**
      * Gets the admin unit level rasters for the three admin unit levels.
-     * Note: The rasters returned by the method must be disposed using RasterUtils.disposeRasters when no longer in use.
      * @return The admin unit rasters.
      */
-    public GridCoverage2D[] getAdminRasters() {
-        GridCoverage2D[] rasters = new GridCoverage2D[NUMBER_OF_ADMIN_LEVELS];
-        loadSingleAdminRaster(0, rasters);
-        loadSingleAdminRaster(1, rasters);
-        loadSingleAdminRaster(2, rasters);
+    public CachedRaster[] getAdminRasters() {
+        return getAdminRasters(new ZonalStatistics[NUMBER_OF_ADMIN_LEVELS]);
+    }
+
+    /**
+     * Gets the admin unit level rasters for the admin unit levels which are not covered by the given zonal statistics.
+     * @param zonalStatistics The available zonal statistics (see getLatestMeanPredictionZonalStatistics).
+     * @return The admin unit rasters, with null entries for the levels covered by zonal statistics.
+     */
+    public CachedRaster[] getAdminRasters(ZonalStatistics[] zonalStatistics) {
+        CachedRaster[] rasters = new CachedRaster[NUMBER_OF_ADMIN_LEVELS];
+        for (int level = 0; level < NUMBER_OF_ADMIN_LEVELS; level++) {
+            if (zonalStatistics[level] == null) {
+                loadSingleAdminRaster(level, rasters);
+            }
+        }
         return rasters;
     }
 
     /**
      * Gets the admin unit level raster for a single level (at the array index for the level).
-     * Note: The rasters returned by the method must be disposed using RasterUtils.disposeRasters when no longer in use.
      * @param precision The precision of the admin unit level to load.
      * @return The admin unit raster.
      */
-    public GridCoverage2D[] getSingleAdminRaster(LocationPrecision precision) {
-        GridCoverage2D[] rasters = new GridCoverage2D[NUMBER_OF_ADMIN_LEVELS];
-        if (precision != LocationPrecision.PRECISE) {
+    public CachedRaster[] getSingleAdminRaster(LocationPrecision precision) {
+        return getSingleAdminRaster(precision, new ZonalStatistics[NUMBER_OF_ADMIN_LEVELS]);
+    }
+
+    /**
+     * Gets the admin unit level raster for a single level (at the array index for the level), unless that level is
+     * covered by the given zonal statistics.
+     * @param precision The precision of the admin unit level to load.
+     * @param zonalStatistics The available zonal statistics (see getLatestMeanPredictionZonalStatistics).
+     * @return The admin unit raster.
+     */
+    public CachedRaster[] getSingleAdminRaster(LocationPrecision precision, ZonalStatistics[] zonalStatistics) {
+        CachedRaster[] rasters = new CachedRaster[NUMBER_OF_ADMIN_LEVELS];
+        if (precision != LocationPrecision.PRECISE && zonalStatistics[precision.getModelValue()] == null) {
             loadSingleAdminRaster(precision.getModelValue(), rasters);
         }
         return rasters;
     }
 
-    private void loadSingleAdminRaster(int level, GridCoverage2D[] set) {
-        File rasterFile = rasterFilePathFactory.getAdminRaster(level);
+    private void loadSingleAdminRaster(int level, CachedRaster[] set) {
+        set[level] = loadCachedRaster(rasterFilePathFactory.getAdminRaster(level));
+    }
+
+    private CachedRaster loadCachedRaster(File rasterFile) {
         try {
-            set[level] = RasterUtils.loadRaster(rasterFile);
+            return rasterCache.get(rasterFile);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -130,7 +187,22 @@ public class EnvironmentalSuitabilityHelper {
      * @return The environmental suitability of the occurrence according to the raster, or null if not found.
      */
     public Double findEnvironmentalSuitability(
-            DiseaseOccurrence occurrence, GridCoverage2D suitabilityRaster, GridCoverage2D[] adminRasters) {
+            DiseaseOccurrence occurrence, CachedRaster suitabilityRaster, CachedRaster[] adminRasters) {
+        return findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters,
+                new ZonalStatistics[NUMBER_OF_ADMIN_LEVELS]);
+    }
+
+    /**
+     * Finds the environmental suitability of the given occurrence, using the specified rasters. For non-precise
+     * occurrences, the zonal statistics for the admin unit level are used in preference to the admin raster.
+     * @param occurrence The occurrence.
+     * @param suitabilityRaster The environmental suitability raster for the occurrences disease group.
+     * @param adminRasters A set of admin unit level rasters.
+     * @param zonalStatistics A set of admin unit level zonal statistics for the environmental suitability raster.
+     * @return The environmental suitability of the occurrence according to the raster, or null if not found.
+     */
+    public Double findEnvironmentalSuitability(DiseaseOccurrence occurrence, CachedRaster suitabilityRaster,
+                                               CachedRaster[] adminRasters, ZonalStatistics[] zonalStatistics) {
         Integer diseaseGroupId = occurrence.getDiseaseGroup().getId();
         Integer locationId = occurrence.getLocation().getId();
 
@@ -139,7 +211,7 @@ public class EnvironmentalSuitabilityHelper {
             return suitability;
         }
 
-        suitability = calculateEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
+        suitability = calculateEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters, zonalStatistics);
 
         if (suitability != null) {
             cacheService.saveEnvironmentalSuitabilityCacheEntry(diseaseGroupId, locationId, suitability);
@@ -147,16 +219,19 @@ public class EnvironmentalSuitabilityHelper {
         return suitability;
     }
 
-    private Double calculateEnvironmentalSuitability(DiseaseOccurrence occurrence,
-                                                     GridCoverage2D suitabilityRaster, GridCoverage2D[] adminRasters) {
+    private Double calculateEnvironmentalSuitability(DiseaseOccurrence occurrence, CachedRaster suitabilityRaster,
+                                                     CachedRaster[] adminRasters,
+                                                     ZonalStatistics[] zonalStatistics) {
         Location location = occurrence.getLocation();
         LocationPrecision precision = location.getPrecision();
         if (precision == LocationPrecision.PRECISE) {
             return getPreciseES(location, suitabilityRaster);
         } else {
             int gaul = getLocationGaulCode(location, precision);
-            GridCoverage2D adminLayerRaster = adminRasters[precision.getModelValue()];
-            Double averageES = getAverageES(gaul, suitabilityRaster, adminLayerRaster);
+            ZonalStatistics adminLayerStatistics = zonalStatistics[precision.getModelValue()];
+            Double averageES = (adminLayerStatistics != null) ?
+                    adminLayerStatistics.getMean(gaul) :
+                    getAverageES(gaul, suitabilityRaster, adminRasters[precision.getModelValue()]);
             if (averageES == null) {
                 LOGGER.warn(String.format(NO_PIXEL_WARNING, gaul, precision));
                 return getPreciseES(location, suitabilityRaster);
@@ -171,20 +246,16 @@ public class EnvironmentalSuitabilityHelper {
                 location.getAdminUnitQCGaulCode();
     }
 
-    private Double getAverageES(int gaul, GridCoverage2D suitabilityRaster, GridCoverage2D adminRaster) {
-        Raster suitabilityData = suitabilityRaster.getRenderedImage().getData();
-        Raster adminData = adminRaster.getRenderedImage().getData();
+    private Double getAverageES(int gaul, CachedRaster suitabilityRaster, CachedRaster adminRaster) {
         double sum = 0;
         int count = 0;
-        for (int i = 0; i < adminData.getWidth(); i++) {
-            for (int j = 0; j < adminData.getHeight(); j++) {
-                //System.out.println("av");
-                int adminValue = adminData.getSample(i, j, 0);
+        // Row by row, to follow the layout of the cached tiles
+        for (int j = 0; j < adminRaster.getHeight(); j++) {
+            for (int i = 0; i < adminRaster.getWidth(); i++) {
+                int adminValue = adminRaster.getSample(i, j);
                 if (adminValue == gaul) {
-                    //System.out.println("sd");
-                    double rasterValue = suitabilityData.getSampleDouble(i, j, 0);
+                    double rasterValue = suitabilityRaster.getSampleDouble(i, j);
                     if (rasterValue != RasterUtils.NO_DATA_VALUE) {
-                        //System.out.println("add");
                         count++;
                         sum += rasterValue;
                     }
@@ -194,31 +265,25 @@ public class EnvironmentalSuitabilityHelper {
         return (count != 0) ? (sum / count) : null;
     }
 
-    private Double getPreciseES(Location location, GridCoverage2D raster) {
+    private Double getPreciseES(Location location, CachedRaster raster) {
         Point point = location.getGeom();
-
-        return getPointES(raster, point);
+        return getPointES(raster.getValueAtPosition(point.getX(), point.getY()), point);
     }
 
-    private Double getPointES(GridCoverage2D raster, Point point) {
-        Double result = null;
-        try {
-            DirectPosition position = JTS.toDirectPosition(point.getCoordinate(), GeometryUtils.WGS_84_CRS);
-            double[] resultArray = raster.evaluate(position, (double[]) null);
-            if (resultArray[0] != RASTER_NO_DATA_VALUE) {
-                result = resultArray[0];
-            } else {
-                LOGGER.debug(String.format(ES_NOT_FOUND_NO_DATA_MESSAGE, point.getX(), point.getY()));
-            }
-        } catch (PointOutsideCoverageException e) {
-            // Ignore the exception - if the point is outside of the raster area, the result is null
+    private Double getPointES(Double value, Point point) {
+        if (value == null) {
             LOGGER.debug(String.format(ES_NOT_FOUND_OUTSIDE_AREA_MESSAGE, point.getX(), point.getY()));
+        } else if (value == RASTER_NO_DATA_VALUE) {
+            LOGGER.debug(String.format(ES_NOT_FOUND_NO_DATA_MESSAGE, point.getX(), point.getY()));
+            value = null;
         }
-        return result;
+        return value;
     }
 
     /**
      * Finds the environmental suitability of the given point, using the specified rasters.
+     * The raster is read via the shared raster reader cache, so only the tile containing the point is decoded (and
+     * only on the first lookup in that tile).
      * @param point The point.
      * @param rasterFile The environmental suitability raster.
      * @return The environmental suitability of the point according to the raster, or null if not found.
@@ -227,13 +292,7 @@ public class EnvironmentalSuitabilityHelper {
     public Double findPointEnvironmentalSuitability(File rasterFile, Point point) throws IOException {
         Double result = null;
         if (rasterFile != null) {
-            GridCoverage2D raster = null;
-            try {
-                raster = RasterUtils.loadRaster(rasterFile);
-                result = getPointES(raster, point);
-            } finally {
-                RasterUtils.disposeRaster(raster);
-            }
+            result = getPointES(rasterReaderCache.getValueAtPosition(rasterFile, point.getX(), point.getY()), point);
         }
 
         return result;
@@ -254,45 +313,39 @@ public class EnvironmentalSuitabilityHelper {
         File croppedFile = File.createTempFile("cropped", "tif");
 
         // Mask the raster and record pixel bounds
-        final Rectangle cropRectangle = new Rectangle();
+        final Rectangle rasterPixels = new Rectangle(-1, -1, -1, -1); // Empty
+        final Rectangle matchedPixels = new Rectangle(-1, -1, -1, -1); // Empty
         RasterUtils.transformRaster(suitabilityRaster, maskedFile, new File[]{adminRaster}, new RasterTransformation() {
             @Override
-            public void transform(WritableRaster raster, Raster[] referenceRasters) throws IOException {
-                Boolean containedAtLeastOnePixel = false;
-                int minI = Integer.MAX_VALUE;
-                int minJ = Integer.MAX_VALUE;
-                int maxI = Integer.MIN_VALUE;
-                int maxJ = Integer.MIN_VALUE;
-                for (int i = 0; i < raster.getWidth(); i++) {
-                    for (int j = 0; j < raster.getHeight(); j++) {
-                        int rasterValue = raster.getSample(i, j, 0);
-                        if (rasterValue != RasterUtils.NO_DATA_VALUE) {
-                            int adminValue = referenceRasters[0].getSample(i, j, 0);
-                            if (adminValue != gaulCode) {
-                                raster.setSample(i, j, 0, RasterUtils.NO_DATA_VALUE);
-                            } else {
-                                containedAtLeastOnePixel = true;
-                                minI = (minI > i) ? i : minI;
-                                minJ = (minJ > j) ? j : minJ;
-                                maxI = (maxI < i) ? i : maxI;
-                                maxJ = (maxJ < j) ? j : maxJ;
-                            }
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                rasterPixels.add(bounds);
+                double[] adminValues = referenceValues[0];
+                for (int k = 0; k < values.length; k++) {
+                    if ((int) values[k] != RasterUtils.NO_DATA_VALUE) {
+                        int adminValue = (int) adminValues[k];
+                        if (adminValue != gaulCode) {
+                            values[k] = RasterUtils.NO_DATA_VALUE;
+                        } else {
+                            matchedPixels.add(bounds.x + (k % bounds.width), bounds.y + (k / bounds.width));
                         }
                     }
                 }
-                if (containedAtLeastOnePixel) {
-                    // Pad
-                    minI = Math.max(minI - 1, 0);
-                    minJ = Math.max(minJ - 1, 0);
-                    maxI = Math.min(maxI + 1, raster.getWidth());
-                    maxJ = Math.min(maxJ + 1, raster.getHeight());
-                    cropRectangle.setBounds(minI, minJ, maxI - minI, maxJ - minJ);
-                } else {
-                    throw new IOException(COUNTRY_NO_PIXELS_WARNING);
-                }
             }
         });
 
+        if (matchedPixels.width < 0) {
+            deleteTemporaryFile(maskedFile);
+            deleteTemporaryFile(croppedFile);
+            throw new IOException(COUNTRY_NO_PIXELS_WARNING);
+        }
+
+        // Pad
+        int minI = Math.max(matchedPixels.x - 1, 0);
+        int minJ = Math.max(matchedPixels.y - 1, 0);
+        int maxI = Math.min((int) matchedPixels.getMaxX() + 1, rasterPixels.width);
+        int maxJ = Math.min((int) matchedPixels.getMaxY() + 1, rasterPixels.height);
+        Rectangle cropRectangle = new Rectangle(minI, minJ, maxI - minI, maxJ - minJ);
+
         // Cut to masked pixel bounds
         GridCoverage2D maskedRaster = null;
         GridCoverage2D virtualCroppedRaster = null;
@@ -315,10 +368,14 @@ public class EnvironmentalSuitabilityHelper {
             RasterUtils.disposeRaster(virtualCroppedRaster);
         }
 
-        if (maskedFile.exists() && !maskedFile.delete()) {
-            LOGGER.warn(String.format(TEMP_FILE_NOT_REMOVED, maskedFile.getAbsolutePath()));
-        }
+        deleteTemporaryFile(maskedFile);
 
         return croppedFile;
     }
+
+    private void deleteTemporaryFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn(String.format(TEMP_FILE_NOT_REMOVED, file.getAbsolutePath()));
+        }
+    }
 }
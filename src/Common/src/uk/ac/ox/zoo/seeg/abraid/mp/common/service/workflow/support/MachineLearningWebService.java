@@ -1,12 +1,15 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.web.util.UriComponentsBuilder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonDiseaseOccurrenceDataPoint;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonDiseaseOccurrenceDataSet;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParser;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
@@ -26,6 +29,10 @@ public class MachineLearningWebService {
     private static final String TRAIN_METHOD = "/train";
     /** URL component for prediction method name. */
     private static final String PREDICT_METHOD = "/predict";
+    /** URL component for batch prediction method name. */
+    private static final String PREDICT_BATCH_METHOD = "/predict_batch";
+    private static final String PREDICTION_COUNT_MISMATCH =
+            "Expected %d predictions from the machine learning predictor, but received %d";
 
     private WebServiceClient webServiceClient;
     private AbraidJsonObjectMapper objectMapper;
@@ -80,6 +87,30 @@ public class MachineLearningWebService {
         }
     }
 
+    /**
+     * Find the predicted weightings of the given disease occurrences, in a single request.
+     * @param diseaseGroupId The ID of the disease group the occurrences belong to.
+     * @param occurrences The disease occurrences.
+     * @return The predicted weightings, in the same order as the occurrences. A weighting is null if a trusted
+     * prediction was not returned for its occurrence.
+     * @throws JsonProcessingException If the JSON is invalid
+     * @throws WebServiceClientException If the web service client fails to execute request
+     * @throws JsonParserException If the response cannot be parsed as a list of predictions
+     */
+    public List<Double> getPredictions(int diseaseGroupId, List<DiseaseOccurrence> occurrences)
+            throws JsonProcessingException, WebServiceClientException, JsonParserException {
+        String url = buildUrl(diseaseGroupId, PREDICT_BATCH_METHOD);
+        JsonDiseaseOccurrenceDataSet data = convertToDTO(occurrences);
+        String bodyAsJson = writeRequestBodyAsJson(data);
+        String response = webServiceClient.makePostRequestWithJSON(url, bodyAsJson);
+        List<Double> predictions = new JsonParser().parse(response, new TypeReference<List<Double>>() { });
+        if (predictions.size() != occurrences.size()) {
+            throw new JsonParserException(
+                    String.format(PREDICTION_COUNT_MISMATCH, occurrences.size(), predictions.size()));
+        }
+        return predictions;
+    }
+
     private String buildUrl(int diseaseGroupId, String action) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(rootUrl)
                 .path("/" + Integer.toString(diseaseGroupId))
@@ -3,6 +3,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.apache.log4j.Logger;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
 import java.util.List;
@@ -20,6 +21,9 @@ public class MachineWeightingPredictor {
     private static final String TRAINING_MESSAGE = "Training predictor for disease group %d with %d occurrences";
     private static final String TRAINING_FAILURE = "Unable to train predictor for disease group.";
     private static final String PREDICTION_FAILURE = "Unable to get prediction for occurrence.";
+    private static final String BATCH_PREDICTION_MESSAGE =
+            "Requesting predictions for disease group %d for %d occurrences";
+    private static final String BATCH_PREDICTION_FAILURE = "Unable to get predictions for occurrences.";
 
     public MachineWeightingPredictor(MachineLearningWebService webService) {
         this.webService = webService;
@@ -56,4 +60,23 @@ public class MachineWeightingPredictor {
             throw new ModelRunWorkflowException(PREDICTION_FAILURE);
         }
     }
+
+    /**
+     * Predict the weightings of new occurrences, using a single request to the machine learning component.
+     * @param diseaseGroupId The ID of the disease group to which the occurrences belong.
+     * @param occurrences The occurrences.
+     * @return The predicted values for weighting, in the same order as the occurrences. A value is null if there is
+     * no trusted prediction for its occurrence.
+     * @throws ModelRunWorkflowException if the request cannot be made or the response cannot be handled.
+     */
+    public List<Double> findMachineWeightings(int diseaseGroupId, List<DiseaseOccurrence> occurrences)
+            throws ModelRunWorkflowException {
+        try {
+            LOGGER.info(String.format(BATCH_PREDICTION_MESSAGE, diseaseGroupId, occurrences.size()));
+            return webService.getPredictions(diseaseGroupId, occurrences);
+        } catch (JsonProcessingException|WebServiceClientException|JsonParserException e) {
+            LOGGER.error(e.getMessage());
+            throw new ModelRunWorkflowException(BATCH_PREDICTION_FAILURE);
+        }
+    }
 }
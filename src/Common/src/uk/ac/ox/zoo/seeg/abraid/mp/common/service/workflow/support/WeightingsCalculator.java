@@ -1,6 +1,5 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 
-import ch.lambdaj.function.convert.Converter;
 import org.apache.log4j.Logger;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
@@ -10,7 +9,6 @@ import java.util.*;
 
 import static ch.lambdaj.Lambda.*;
 import static org.hamcrest.core.IsNull.notNullValue;
-import static org.hamcrest.core.IsEqual.equalTo;
 
 /**
  * Updates the weightings of experts and of disease occurrences, given new reviews.
@@ -68,33 +66,21 @@ public class WeightingsCalculator {
     }
 
     private void updateDiseaseOccurrenceExpertWeightings(List<DiseaseOccurrenceReview> allReviews) {
-        for (DiseaseOccurrence occurrence : extractDistinctDiseaseOccurrences(allReviews)) {
-            List<DiseaseOccurrenceReview> reviews = selectReviewsForOccurrence(allReviews, occurrence);
-            double averageResponseValue = average(extractReviewResponseValues(reviews));
-            occurrence.setExpertWeighting(averageResponseValue);
-            diseaseService.saveDiseaseOccurrence(occurrence);
-        }
-    }
-
-    private Set<DiseaseOccurrence> extractDistinctDiseaseOccurrences(List<DiseaseOccurrenceReview> allReviews) {
-        Set<DiseaseOccurrence> occurrences = new HashSet<>(
-            extract(allReviews, on(DiseaseOccurrenceReview.class).getDiseaseOccurrence())
-        );
-        logger.info(String.format(RECALCULATING_OCCURRENCE_EXPERT_WEIGHTINGS, occurrences.size(), allReviews.size()));
-        return occurrences;
-    }
+        Map<DiseaseOccurrence, ResponseAccumulator> responsesByOccurrence = aggregateResponsesByOccurrence(allReviews);
+        logger.info(String.format(RECALCULATING_OCCURRENCE_EXPERT_WEIGHTINGS,
+                responsesByOccurrence.size(), allReviews.size()));
 
-    private List<DiseaseOccurrenceReview> selectReviewsForOccurrence(List<DiseaseOccurrenceReview> reviews,
-                                                                     DiseaseOccurrence occurrence) {
-        return select(reviews, having(on(DiseaseOccurrenceReview.class).getDiseaseOccurrence(), equalTo(occurrence)));
-    }
-
-    private List<Double> extractReviewResponseValues(List<DiseaseOccurrenceReview> reviewsOfOccurrence) {
-        return convert(reviewsOfOccurrence, new Converter<DiseaseOccurrenceReview, Double>() {
-            public Double convert(DiseaseOccurrenceReview review) {
-                return review.getResponse().getValue();
-            }
-        });
+        // Copied to a list, as the weighting is part of each occurrence's hash code
+        List<DiseaseOccurrence> occurrences = new ArrayList<>(responsesByOccurrence.size());
+        List<Double> expertWeightings = new ArrayList<>(responsesByOccurrence.size());
+        for (Map.Entry<DiseaseOccurrence, ResponseAccumulator> entry : responsesByOccurrence.entrySet()) {
+            occurrences.add(entry.getKey());
+            expertWeightings.add(entry.getValue().getAverage());
+        }
+        for (int i = 0; i < occurrences.size(); i++) {
+            occurrences.get(i).setExpertWeighting(expertWeightings.get(i));
+        }
+        diseaseService.saveDiseaseOccurrences(occurrences);
     }
 
     /**
@@ -115,6 +101,7 @@ public class WeightingsCalculator {
     }
 
     private void updateDiseaseOccurrenceValidationWeightingAndFinalWeightings(List<DiseaseOccurrence> occurrences) {
+        List<DiseaseOccurrence> changedOccurrences = new ArrayList<>();
         for (DiseaseOccurrence occurrence : occurrences) {
             Double newValidation = calculateNewValidationWeighting(occurrence);
             double newFinal = calculateNewFinalWeighting(occurrence, newValidation);
@@ -123,9 +110,10 @@ public class WeightingsCalculator {
                 occurrence.setValidationWeighting(newValidation);
                 occurrence.setFinalWeighting(newFinal);
                 occurrence.setFinalWeightingExcludingSpatial(newFinalExcludingSpatial);
-                diseaseService.saveDiseaseOccurrence(occurrence);
+                changedOccurrences.add(occurrence);
             }
         }
+        diseaseService.saveDiseaseOccurrences(changedOccurrences);
     }
 
     /**
@@ -191,48 +179,50 @@ public class WeightingsCalculator {
     }
 
     private void updateExpertsWeightings(List<DiseaseOccurrenceReview> allReviews) {
-        for (Expert expert : extractDistinctExperts(allReviews)) {
-            List<Double> differencesInResponses = new ArrayList<>();
-            for (DiseaseOccurrence occurrence : selectExpertsReviewedOccurrences(allReviews, expert)) {
-                differencesInResponses.add(calculateDifference(allReviews, occurrence, expert));
-            }
-            double newWeighting = 1 - average(differencesInResponses);
-            if (hasWeightingChanged(expert.getWeighting(), newWeighting)) {
-                expert.setWeighting(newWeighting);
+        Map<DiseaseOccurrence, ResponseAccumulator> responsesByOccurrence = aggregateResponsesByOccurrence(allReviews);
+
+        // For each of the expert's reviews, find the difference between the expert's review response and the average
+        // of all other experts' review responses for the occurrence (zero if there are no other experts' responses)
+        Map<Expert, ResponseAccumulator> differencesByExpert = new LinkedHashMap<>();
+        for (DiseaseOccurrenceReview review : allReviews) {
+            double expertsResponse = review.getResponse().getValue();
+            ResponseAccumulator otherResponses = responsesByOccurrence.get(review.getDiseaseOccurrence());
+            double difference = (otherResponses.getCount() > 1) ?
+                    Math.abs(expertsResponse - otherResponses.getAverageExcluding(expertsResponse)) : 0.0;
+            getOrAddAccumulator(differencesByExpert, review.getExpert()).add(difference);
+        }
+
+        // Weightings are only set once all differences are known, as the weighting is part of each expert's hash code
+        Map<Expert, Double> newWeightings = new LinkedHashMap<>();
+        for (Map.Entry<Expert, ResponseAccumulator> entry : differencesByExpert.entrySet()) {
+            newWeightings.put(entry.getKey(), 1 - entry.getValue().getAverage());
+        }
+        for (Map.Entry<Expert, Double> entry : newWeightings.entrySet()) {
+            Expert expert = entry.getKey();
+            if (hasWeightingChanged(expert.getWeighting(), entry.getValue())) {
+                expert.setWeighting(entry.getValue());
                 expertService.saveExpert(expert);
             }
         }
     }
 
-    private Set<Expert> extractDistinctExperts(List<DiseaseOccurrenceReview> allReviews) {
-        return new HashSet<>(extract(allReviews, on(DiseaseOccurrenceReview.class).getExpert()));
-    }
-
-    private Set<DiseaseOccurrence> selectExpertsReviewedOccurrences(List<DiseaseOccurrenceReview> reviews,
-                                                                    Expert expert) {
-        List<DiseaseOccurrenceReview> expertsReviews = select(reviews,
-                having(on(DiseaseOccurrenceReview.class).getExpert(), equalTo(expert)));
-        return new HashSet<>(extract(expertsReviews, on(DiseaseOccurrenceReview.class).getDiseaseOccurrence()));
+    private static Map<DiseaseOccurrence, ResponseAccumulator> aggregateResponsesByOccurrence(
+            List<DiseaseOccurrenceReview> reviews) {
+        Map<DiseaseOccurrence, ResponseAccumulator> responsesByOccurrence = new LinkedHashMap<>();
+        for (DiseaseOccurrenceReview review : reviews) {
+            getOrAddAccumulator(responsesByOccurrence, review.getDiseaseOccurrence()).add(
+                    review.getResponse().getValue());
+        }
+        return responsesByOccurrence;
     }
 
-    private Double calculateDifference(List<DiseaseOccurrenceReview> reviews, DiseaseOccurrence occurrence,
-                                       Expert expert) {
-        List<DiseaseOccurrenceReview> reviewsOfOccurrence = select(reviews,
-                having(on(DiseaseOccurrenceReview.class).getDiseaseOccurrence(), equalTo(occurrence)));
-        DiseaseOccurrenceReview expertsReview = selectUnique(reviewsOfOccurrence,
-                having(on(DiseaseOccurrenceReview.class).getExpert(), equalTo(expert)));
-        reviewsOfOccurrence.remove(expertsReview);
-
-        double expertsResponse = expertsReview.getResponse().getValue();
-        if (reviewsOfOccurrence.size() > 0) {
-            // For this occurrence, find the difference between this expert's review response and the average of
-            // all other experts' review responses
-            double averageResponse = average(extractReviewResponseValues(reviewsOfOccurrence));
-            return Math.abs(expertsResponse - averageResponse);
-        } else {
-            // There are no other experts' review responses, so the difference is zero
-            return 0.0;
+    private static <T> ResponseAccumulator getOrAddAccumulator(Map<T, ResponseAccumulator> accumulators, T key) {
+        ResponseAccumulator accumulator = accumulators.get(key);
+        if (accumulator == null) {
+            accumulator = new ResponseAccumulator();
+            accumulators.put(key, accumulator);
         }
+        return accumulator;
     }
 
     /**
@@ -248,4 +238,30 @@ public class WeightingsCalculator {
         List<Double> notNullValues = filter(notNullValue(), args);
         return (double) avg(notNullValues);
     }
+
+    /**
+     * Accumulates the sum and count of a series of values, so that their average can be found in a single pass.
+     */
+    private static final class ResponseAccumulator {
+        private double sum;
+        private int count;
+
+        public void add(double value) {
+            sum += value;
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getAverage() {
+            return sum / count;
+        }
+
+        // Review response values are multiples of 0.5, so removing one from the sum is exact
+        public double getAverageExcluding(double value) {
+            return (sum - value) / (count - 1);
+        }
+    }
 }
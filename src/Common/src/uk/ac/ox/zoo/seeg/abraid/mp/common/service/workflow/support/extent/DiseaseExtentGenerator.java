@@ -5,7 +5,9 @@ import org.joda.time.DateTime;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static ch.lambdaj.Lambda.index;
@@ -136,6 +138,7 @@ public class DiseaseExtentGenerator {
                 on(AdminUnitDiseaseExtentClass.class).getAdminUnitGlobalOrTropical().getGaulCode());
 
         // Update disease extent classes
+        List<AdminUnitDiseaseExtentClass> rows = new ArrayList<>();
         for (AdminUnitGlobalOrTropical adminUnit : adminUnits) {
             Integer gaulCode = adminUnit.getGaulCode();
 
@@ -157,8 +160,9 @@ public class DiseaseExtentGenerator {
             row.setValidatorDiseaseExtentClass(validatorExtentResults.getDiseaseExtentClassByGaulCode().get(gaulCode));
             row.setValidatorOccurrenceCount(validatorExtentResults.getOccurrenceCounts().get(gaulCode));
             row.setLatestValidatorOccurrences(validatorExtentResults.getLatestOccurrencesByGaulCode().get(gaulCode));
-            diseaseService.saveAdminUnitDiseaseExtentClass(row);
+            rows.add(row);
         }
+        diseaseService.saveAdminUnitDiseaseExtentClasses(rows);
     }
 
     private void logModeMessage(DiseaseGroup diseaseGroup, DiseaseProcessType process, boolean isInitial) {
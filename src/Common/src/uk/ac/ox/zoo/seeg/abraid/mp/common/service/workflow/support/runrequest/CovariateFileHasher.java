@@ -0,0 +1,81 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import org.apache.log4j.Logger;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.CovariateFile;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.CovariateSubFile;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.FileHashUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ch.lambdaj.Lambda.extract;
+import static ch.lambdaj.Lambda.flatten;
+import static ch.lambdaj.Lambda.on;
+
+/**
+ * Calculates the content hashes of covariate files, used to identify the files in a model run package's covariate
+ * manifest. Covariate files rarely change, so hashes are remembered until the file's modification time or size
+ * changes.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CovariateFileHasher {
+    private static final Logger LOGGER = Logger.getLogger(CovariateFileHasher.class);
+    private static final String LOG_HASHING_COVARIATE_FILE = "Calculating hash of covariate file %s";
+
+    private final Map<String, Entry> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the content hashes of all of the sub files of a set of covariates.
+     * @param covariateFiles The covariates.
+     * @param covariateDirectory The directory where the covariates can be found.
+     * @return A map from the (covariate directory relative) file path of each sub file to its hash.
+     * @throws IOException Thrown if a covariate file cannot be read.
+     */
+    public Map<String, String> hashCovariateFiles(Collection<CovariateFile> covariateFiles, String covariateDirectory)
+            throws IOException {
+        Map<String, String> result = new LinkedHashMap<>();
+        List<CovariateSubFile> files = flatten(extract(covariateFiles, on(CovariateFile.class).getFiles()));
+        for (CovariateSubFile file : files) {
+            result.put(file.getFile(), hashFile(Paths.get(covariateDirectory, file.getFile()).toFile()));
+        }
+        return result;
+    }
+
+    private String hashFile(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        Entry entry = hashes.get(key);
+        if (entry == null || !entry.isCurrent(file)) {
+            LOGGER.debug(String.format(LOG_HASHING_COVARIATE_FILE, key));
+            long lastModified = file.lastModified();
+            long length = file.length();
+            entry = new Entry(FileHashUtils.calculateSha256(file), lastModified, length);
+            hashes.put(key, entry);
+        }
+        return entry.hash;
+    }
+
+    /**
+     * A covariate file hash, along with the state of the file at the time that it was calculated.
+     */
+    private static final class Entry {
+        private final String hash;
+        private final long lastModified;
+        private final long length;
+
+        private Entry(String hash, long lastModified, long length) {
+            this.hash = hash;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private boolean isCurrent(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+}
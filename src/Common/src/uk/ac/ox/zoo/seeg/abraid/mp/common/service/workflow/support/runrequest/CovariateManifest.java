@@ -0,0 +1,50 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes how the covariate files for a model run are to be packaged. Every covariate file is listed (by content
+ * hash) in the package's manifest, but only the files that the target ModelWrapper does not already hold in its
+ * covariate store are included in the package itself.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CovariateManifest {
+    private final String covariateDirectory;
+    private final Map<String, String> fileHashes;
+    private final Set<String> hashesToInclude;
+
+    public CovariateManifest(String covariateDirectory, Map<String, String> fileHashes,
+                             Collection<String> hashesToInclude) {
+        this.covariateDirectory = covariateDirectory;
+        this.fileHashes = fileHashes;
+        this.hashesToInclude = new HashSet<>(hashesToInclude);
+    }
+
+    /**
+     * Gets the directory where the covariates can be found.
+     * @return The covariate directory.
+     */
+    public String getCovariateDirectory() {
+        return covariateDirectory;
+    }
+
+    /**
+     * Gets the content hashes of the covariate files.
+     * @return A map from the (covariate directory relative) path of each file to its hash.
+     */
+    public Map<String, String> getFileHashes() {
+        return fileHashes;
+    }
+
+    /**
+     * Determines whether a covariate file should be included in the package.
+     * @param file The (covariate directory relative) path of the file.
+     * @return True if the target ModelWrapper does not already have the file.
+     */
+    public boolean shouldIncludeFile(String file) {
+        return hashesToInclude.contains(fileHashes.get(file));
+    }
+}
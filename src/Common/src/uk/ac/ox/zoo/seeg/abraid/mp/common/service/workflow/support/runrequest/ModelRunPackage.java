@@ -0,0 +1,123 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import org.apache.commons.io.FileUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RequestBodyWriter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A model run package, which is zipped as it is written (e.g. to the body of a web service request), rather than
+ * being zipped to disk in advance. The small generated inputs are held in a working directory, and the large input
+ * rasters (covariates and admin units) are read directly from their original locations.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ModelRunPackage implements RequestBodyWriter, Closeable {
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String ZIP_SEPARATOR = "/";
+    // Rasters are already compressed, so are not deflated again
+    private static final String UNCOMPRESSED_EXTENSION = ".tif";
+    // The metadata is written first, so that the ModelWrapper can validate the run before reading the bulk data
+    // (this is hardcoded because it is hardcoded in ModelWrapper).
+    private static final String METADATA_FILE_NAME = "metadata.json";
+
+    private final String name;
+    private final Path workingDirectory;
+    private final Map<String, File> externalFiles;
+
+    /**
+     * Creates a new model run package.
+     * @param name The name of the model run.
+     * @param workingDirectory The directory holding the generated inputs of the model run (deleted on close).
+     * @param externalFiles The other inputs of the model run, keyed by their path within the package.
+     */
+    ModelRunPackage(String name, Path workingDirectory, Map<String, File> externalFiles) {
+        this.name = name;
+        this.workingDirectory = workingDirectory;
+        this.externalFiles = externalFiles;
+    }
+
+    /**
+     * Gets the file name of the zipped package.
+     * @return The file name.
+     */
+    public String getFileName() {
+        return name + ZIP_EXTENSION;
+    }
+
+    /**
+     * Gets the directory holding the generated inputs of the model run.
+     * @return The working directory.
+     */
+    Path getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    /**
+     * Writes the package to a stream, as a zip. The stream is not closed.
+     * @param outputStream The stream to write to.
+     * @throws IOException Thrown if the package could not be written.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        final ZipOutputStream zip = new ZipOutputStream(outputStream);
+        final Path metadata = workingDirectory.resolve(METADATA_FILE_NAME);
+        if (metadata.toFile().exists()) {
+            writeEntry(zip, METADATA_FILE_NAME, metadata);
+        }
+        Files.walkFileTree(workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                    throws IOException {
+                if (!directory.equals(workingDirectory)) {
+                    zip.putNextEntry(new ZipEntry(getEntryName(directory) + ZIP_SEPARATOR));
+                    zip.closeEntry();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (!file.equals(metadata)) {
+                    writeEntry(zip, getEntryName(file), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Map.Entry<String, File> externalFile : externalFiles.entrySet()) {
+            writeEntry(zip, externalFile.getKey(), externalFile.getValue().toPath());
+        }
+        zip.finish();
+    }
+
+    /**
+     * Deletes the working directory of the package.
+     * @throws IOException Thrown if the working directory could not be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (workingDirectory.toFile().exists()) {
+            FileUtils.deleteDirectory(workingDirectory.toFile());
+        }
+    }
+
+    private String getEntryName(Path path) {
+        return workingDirectory.relativize(path).toString().replace(File.separator, ZIP_SEPARATOR);
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String entryName, Path file) throws IOException {
+        zip.setLevel(entryName.endsWith(UNCOMPRESSED_EXTENSION) ?
+                Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(entryName));
+        Files.copy(file, zip);
+        zip.closeEntry();
+    }
+}
@@ -1,9 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
 
 import com.fasterxml.jackson.databind.ObjectWriter;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.config.ModellingConfiguration;
@@ -18,18 +15,19 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RasterFilePathFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static ch.lambdaj.Lambda.extract;
 import static ch.lambdaj.Lambda.flatten;
 import static ch.lambdaj.Lambda.on;
 
 /**
- * Builds a zip, representing a model run from a set of inputs.
+ * Builds a package (streamed as a zip), representing a model run from a set of inputs.
  * Copyright (c) 2014 University of Oxford
  */
 public class ModelRunPackageBuilder {
@@ -41,6 +39,8 @@ public class ModelRunPackageBuilder {
     private static final String MODEL_DATA_DIRECTORY_NAME = "data";
     private static final String COVARIATES_DATA_DIRECTORY_NAME = "covariates";
     private static final String ADMIN_UNIT_DATA_DIRECTORY_NAME = "admins";
+    // The name of the covariate manifest (this is hardcoded because it is hardcoded in ModelWrapper).
+    private static final String COVARIATE_MANIFEST_FILE_NAME = "covariates.json";
     private static final String LOG_PROVISIONING_WORKSPACE = "Provisioning workspace at %s";
     private static final String LOG_WORKSPACE_SUCCESSFULLY_PROVISIONED = "Workspace successfully provisioned at %s";
     private static final String UNSUPPORTED_MODEL_MODE =
@@ -68,23 +68,26 @@ public class ModelRunPackageBuilder {
     }
 
     /**
-     * Build a zip, representing a model run from a set of input data.
+     * Build a package, representing a model run from a set of input data. The generated inputs are written to a
+     * working directory, but the covariate and admin unit rasters are only read when the package is written, so are
+     * never copied. The package must be closed after use, to delete the working directory.
      * @param name The name of the model run.
      * @param diseaseGroup The disease group being modelled
      * @param occurrencesForModelRun The occurrences to be modelled.
      * @param diseaseExtent The extent to be modelled.
      * @param biasOccurrences The bias occurrences to be used by the model.
      * @param covariateFiles The covariate files to use in the model.
-     * @param covariateDirectory The directory where the covariates can be found.
-     * @return The zip file.
-     * @throws IOException Thrown if the zip workspace provisioning fails.
+     * @param covariateManifest The location and hashes of the covariate files, and which of them to include in the
+     *                          package (the remainder are already held by the ModelWrapper).
+     * @return The package.
+     * @throws IOException Thrown if the package workspace provisioning fails.
      */
-    public File buildPackage(String name, DiseaseGroup diseaseGroup,
+    public ModelRunPackage buildPackage(String name, DiseaseGroup diseaseGroup,
                              List<DiseaseOccurrence> occurrencesForModelRun,
                              Collection<AdminUnitDiseaseExtentClass> diseaseExtent,
                              List<DiseaseOccurrence> biasOccurrences,
                              Collection<CovariateFile> covariateFiles,
-                             String covariateDirectory) throws IOException {
+                             CovariateManifest covariateManifest) throws IOException {
         // Check the mode
         if (!sourceCodeManager.getSupportedModesForCurrentVersion().contains(diseaseGroup.getModelMode())) {
             throw new ModelRunWorkflowException(String.format(
@@ -93,7 +96,7 @@ public class ModelRunPackageBuilder {
 
         // Determine paths
         Path workingDirectory = Paths.get(FileUtils.getTempDirectoryPath(), name);
-        Path zipFile = Paths.get(FileUtils.getTempDirectoryPath(), name + ".zip");
+        Map<String, File> externalFiles = new LinkedHashMap<>();
 
         try {
             // create metadata
@@ -104,27 +107,19 @@ public class ModelRunPackageBuilder {
             buildDirectories(workingDirectory);
             addMetadata(workingDirectory, metadata);
             addData(workingDirectory, diseaseGroup, occurrencesForModelRun, diseaseExtent, biasOccurrences);
-            addCovariates(workingDirectory, covariateFiles, covariateDirectory);
-            addGaulLayers(workingDirectory);
+            addCovariates(workingDirectory, externalFiles, covariateFiles, covariateManifest);
+            addGaulLayers(externalFiles);
             addRModelCode(workingDirectory, diseaseGroup, covariateFiles);
 
             LOGGER.info(String.format(LOG_WORKSPACE_SUCCESSFULLY_PROVISIONED, workingDirectory.toString()));
-
-            // build zip
-            zipWorkspace(workingDirectory, zipFile);
         } catch (Exception e) {
-            // clean up zip
-            if (zipFile != null && zipFile.toFile().exists()) {
-                Files.delete(zipFile);
-            }
-            throw new IOException(e);
-        } finally {
             // clean up dir
-            if (workingDirectory != null && workingDirectory.toFile().exists()) {
+            if (workingDirectory.toFile().exists()) {
                 FileUtils.deleteDirectory(workingDirectory.toFile());
             }
+            throw new IOException(e);
         }
-        return zipFile.toFile();
+        return new ModelRunPackage(name, workingDirectory, externalFiles);
     }
 
     private JsonModelRun createJsonModelRun(DiseaseGroup diseaseGroup, String name) {
@@ -196,34 +191,33 @@ public class ModelRunPackageBuilder {
         inputDataManager.writeExtentData(extentData, baseExtentRaster, dataDirectory);
     }
 
-    private void addCovariates(Path workingDirectory, Collection<CovariateFile> covariateFiles,
-                               String covariateStorageDirectory) throws IOException {
-        File covariatesDirectory = Paths.get(workingDirectory.toString(), COVARIATES_DATA_DIRECTORY_NAME).toFile();
+    private void addCovariates(Path workingDirectory, Map<String, File> externalFiles,
+                               Collection<CovariateFile> covariateFiles,
+                               CovariateManifest covariateManifest) throws IOException {
+        // Covariate manifest, used by the ModelWrapper to provision the files that are not included from its store
+        Path manifestPath = Paths.get(workingDirectory.toString(), COVARIATE_MANIFEST_FILE_NAME);
+        objectMapper.writer().writeValue(manifestPath.toFile(), covariateManifest.getFileHashes());
+
         // Covariate data
         List<CovariateSubFile> files = flatten(extract(covariateFiles, on(CovariateFile.class).getFiles()));
         for (CovariateSubFile file : files) {
-            FileUtils.copyFile(
-                    Paths.get(covariateStorageDirectory, file.getFile()).toFile(),
-                    Paths.get(covariatesDirectory.toString(), file.getFile()).toFile()
-            );
+            if (covariateManifest.shouldIncludeFile(file.getFile())) {
+                externalFiles.put(
+                        COVARIATES_DATA_DIRECTORY_NAME + "/" + file.getFile(),
+                        Paths.get(covariateManifest.getCovariateDirectory(), file.getFile()).toFile()
+                );
+            }
         }
     }
 
-    private void addGaulLayers(Path workingDirectory) throws IOException {
-        File adminDirectory = Paths.get(workingDirectory.toString(), ADMIN_UNIT_DATA_DIRECTORY_NAME).toFile();
+    private void addGaulLayers(Map<String, File> externalFiles) {
         //Admin units
-        FileUtils.copyFile(
-                rasterFilePathFactory.getAdminRaster(0),
-                Paths.get(adminDirectory.toString(), "admin0.tif").toFile()
-        );
-        FileUtils.copyFile(
-                rasterFilePathFactory.getAdminRaster(1),
-                Paths.get(adminDirectory.toString(), "admin1.tif").toFile()
-        );
-        FileUtils.copyFile(
-                rasterFilePathFactory.getAdminRaster(2),
-                Paths.get(adminDirectory.toString(), "admin2.tif").toFile()
-        );
+        for (int level = 0; level <= 2; level++) {
+            externalFiles.put(
+                    ADMIN_UNIT_DATA_DIRECTORY_NAME + "/admin" + level + ".tif",
+                    rasterFilePathFactory.getAdminRaster(level)
+            );
+        }
     }
 
     private void addRModelCode(Path workingDirectory, DiseaseGroup diseaseGroup, Collection<CovariateFile> covariates)
@@ -235,11 +229,4 @@ public class ModelRunPackageBuilder {
         // Template script
         scriptGenerator.generateScript(modellingConfiguration, workingDirectory.toFile(), diseaseGroup, covariates);
     }
-
-    private void zipWorkspace(Path workingDirectoryPath, Path zipFilePath) throws ZipException {
-        ZipFile zip = new ZipFile(zipFilePath.toFile());
-        ZipParameters parameters = new ZipParameters();
-        parameters.setIncludeRootFolder(false);
-        zip.createZipFileFromFolder(workingDirectoryPath.toFile(), parameters, false, 0);
-    }
 }
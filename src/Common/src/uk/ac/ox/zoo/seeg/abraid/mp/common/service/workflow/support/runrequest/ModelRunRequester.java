@@ -1,10 +1,11 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
 
 import ch.lambdaj.function.convert.Converter;
-import ch.lambdaj.function.matcher.LambdaJMatcher;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
+import org.springframework.http.HttpStatus;
 import org.springframework.util.StringUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
@@ -12,8 +13,12 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.CovariateService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModelRunWorkflowException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RequestBodyNotSentException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
-import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
 import java.net.URI;
 import java.util.*;
 
@@ -28,8 +33,10 @@ public class ModelRunRequester {
     private ModelWrapperWebService modelWrapperWebService;
     private CovariateService covariateService;
     private final ModelRunPackageBuilder modelRunPackageBuilder;
+    private final CovariateFileHasher covariateFileHasher;
     private DiseaseService diseaseService;
     private ModelRunService modelRunService;
+    private final ModelWrapperScheduler modelWrapperScheduler;
 
     private static final Logger LOGGER = Logger.getLogger(ModelRunRequester.class);
     private static final String WEB_SERVICE_ERROR_MESSAGE = "Error when requesting a model run: %s";
@@ -37,31 +44,29 @@ public class ModelRunRequester {
             "Requesting a model run for disease group %d (%s) with %d disease occurrence(s)";
     private static final String NO_OCCURRENCES_MESSAGE = "Cannot request a model run because there are no occurrences";
     private static final String CLEAN_UP_WARNING_MESSAGE = "Could not clean up workspace package (%s).";
+    private static final String COVARIATE_STORE_LOG_MESSAGE =
+            "Including %d of %d covariate file(s) in the model run package, the remainder are held by %s";
+    private static final String COVARIATE_STORE_WARNING_MESSAGE =
+            "Could not query the covariate store of %s, so all covariate files will be included (%s)";
+    private static final String REROUTE_WARNING_MESSAGE =
+            "Could not request a model run from %s, so trying the next ModelWrapper (%s)";
 
     // This the max file name length (255) minus reserved space for a GUID (36), a datetime (19) and separators (2)
     private static final int MAX_DISEASE_NAME_LENGTH = 195;
 
-    private List<URI> modelWrapperUrlCollection;
-
     public ModelRunRequester(ModelWrapperWebService modelWrapperWebService,
                              ModelRunPackageBuilder modelRunPackageBuilder,
+                             CovariateFileHasher covariateFileHasher,
                              CovariateService covariateService,
                              DiseaseService diseaseService, ModelRunService modelRunService,
-                             List<String> modelWrapperUrlCollection) {
+                             ModelWrapperScheduler modelWrapperScheduler) {
         this.modelWrapperWebService = modelWrapperWebService;
         this.modelRunPackageBuilder = modelRunPackageBuilder;
+        this.covariateFileHasher = covariateFileHasher;
         this.diseaseService = diseaseService;
         this.covariateService = covariateService;
         this.modelRunService = modelRunService;
-        this.modelWrapperUrlCollection = convert(modelWrapperUrlCollection, new Converter<String, URI>() {
-            @Override
-            public URI convert(String url) {
-                return URI.create(url);
-            }
-        });
-        if (this.modelWrapperUrlCollection.isEmpty()) {
-            throw new IllegalArgumentException("At least 1 ModelWrapper URL must be provided.");
-        }
+        this.modelWrapperScheduler = modelWrapperScheduler;
     }
 
     /**
@@ -92,32 +97,42 @@ public class ModelRunRequester {
                         diseaseService.getDefaultBiasOccurrencesForModelRun(diseaseGroup, startDate, endDate);
             }
 
-            // Pick a blade
-            URI modelWrapperUrl = selectLeastBusyModelWrapperUrl();
-
-            File runPackage = null;
-            try {
-                // Build the work package
-                String name = buildRunName(diseaseGroup.getAbbreviation());
-                runPackage = modelRunPackageBuilder.buildPackage(name, diseaseGroup, occurrencesForModelRun,
-                        diseaseExtent, biasOccurrences, covariateFiles, covariateDirectory);
-
-                // Submit the run
-                logRequest(diseaseGroup, occurrencesForModelRun);
-                ModelRun modelRun = createPreliminaryModelRun(name, diseaseGroup, modelWrapperUrl, startDate, endDate);
-                setModelRunProperties(
-                        modelRun, diseaseGroup, batchStartDate, batchEndDate, occurrencesForModelRun, diseaseExtent);
-
-                JsonModelRunResponse response = modelWrapperWebService.startRun(modelWrapperUrl, runPackage);
-
-                handleModelRunResponse(response, modelRun);
-            } catch (Exception e) {
-                String message = String.format(WEB_SERVICE_ERROR_MESSAGE, e.getMessage());
-                LOGGER.error(message);
-                throw new ModelRunWorkflowException(message, e);
-            } finally {
-                if (runPackage != null && runPackage.exists() && !runPackage.delete()) {
-                    LOGGER.warn(String.format(CLEAN_UP_WARNING_MESSAGE, runPackage.getAbsolutePath()));
+            // Pick a blade, falling back to the next one if a blade cannot be reached or is too busy to accept the run
+            List<URI> modelWrapperUrls = modelWrapperScheduler.getModelWrapperUrlsInPreferenceOrder();
+            String name = buildRunName(diseaseGroup.getAbbreviation());
+            for (int i = 0; i < modelWrapperUrls.size(); i++) {
+                URI modelWrapperUrl = modelWrapperUrls.get(i);
+                boolean isLastModelWrapper = (i == modelWrapperUrls.size() - 1);
+
+                ModelRunPackage runPackage = null;
+                try {
+                    // Build the work package (which depends on the covariates already held by the blade)
+                    CovariateManifest covariateManifest =
+                            buildCovariateManifest(modelWrapperUrl, covariateFiles, covariateDirectory);
+                    runPackage = modelRunPackageBuilder.buildPackage(name, diseaseGroup, occurrencesForModelRun,
+                            diseaseExtent, biasOccurrences, covariateFiles, covariateManifest);
+
+                    // Submit the run
+                    logRequest(diseaseGroup, occurrencesForModelRun);
+                    ModelRun modelRun =
+                            createPreliminaryModelRun(name, diseaseGroup, modelWrapperUrl, startDate, endDate);
+                    setModelRunProperties(modelRun, diseaseGroup, batchStartDate, batchEndDate,
+                            occurrencesForModelRun, diseaseExtent);
+
+                    JsonModelRunResponse response = modelWrapperWebService.startRun(modelWrapperUrl, runPackage);
+
+                    handleModelRunResponse(response, modelRun);
+                    return;
+                } catch (Exception e) {
+                    if (!isLastModelWrapper && wasNotAcceptedByModelWrapper(e)) {
+                        LOGGER.warn(String.format(REROUTE_WARNING_MESSAGE, modelWrapperUrl.getHost(), e.getMessage()));
+                    } else {
+                        String message = String.format(WEB_SERVICE_ERROR_MESSAGE, e.getMessage());
+                        LOGGER.error(message);
+                        throw new ModelRunWorkflowException(message, e);
+                    }
+                } finally {
+                    closeRunPackage(runPackage);
                 }
             }
         } else {
@@ -125,6 +140,52 @@ public class ModelRunRequester {
         }
     }
 
+    private static boolean wasNotAcceptedByModelWrapper(Exception e) {
+        // Only reroute if the ModelWrapper is known not to have started the run (i.e. it could not be reached, it said
+        // it was busy, or it closed the connection before the whole run package was sent, which is also how a busy
+        // ModelWrapper's response is often seen). Any other failure (e.g. a read timeout) may have happened after the
+        // run was accepted.
+        if (e instanceof WebServiceClientException) {
+            Integer statusCode = ((WebServiceClientException) e).getStatusCode();
+            if (statusCode != null) {
+                return statusCode == HttpStatus.SERVICE_UNAVAILABLE.value();
+            }
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException ||
+                        cause instanceof RequestBodyNotSentException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void closeRunPackage(ModelRunPackage runPackage) {
+        if (runPackage != null) {
+            try {
+                runPackage.close();
+            } catch (IOException e) {
+                LOGGER.warn(String.format(CLEAN_UP_WARNING_MESSAGE, runPackage.getWorkingDirectory()), e);
+            }
+        }
+    }
+
+    private CovariateManifest buildCovariateManifest(URI modelWrapperUrl, Collection<CovariateFile> covariateFiles,
+                                                     String covariateDirectory) throws IOException {
+        Map<String, String> fileHashes = covariateFileHasher.hashCovariateFiles(covariateFiles, covariateDirectory);
+        Set<String> requiredHashes = new HashSet<>(fileHashes.values());
+        Collection<String> hashesToInclude = requiredHashes;
+        try {
+            // Only include the covariate files that the model wrapper does not already have
+            hashesToInclude = modelWrapperWebService.getMissingCovariateHashes(modelWrapperUrl, requiredHashes);
+            LOGGER.info(String.format(COVARIATE_STORE_LOG_MESSAGE,
+                    hashesToInclude.size(), requiredHashes.size(), modelWrapperUrl.getHost()));
+        } catch (WebServiceClientException|JsonParserException e) {
+            LOGGER.warn(String.format(COVARIATE_STORE_WARNING_MESSAGE, modelWrapperUrl.getHost(), e.getMessage()));
+        }
+        return new CovariateManifest(covariateDirectory, fileHashes, hashesToInclude);
+    }
+
     private ModelRun createPreliminaryModelRun(String name, DiseaseGroup diseaseGroup, URI modelWrapperUrl,
                                                DateTime startDate, DateTime endDate) {
         return new ModelRun(name, diseaseGroup, modelWrapperUrl.getHost(), DateTime.now(), startDate, endDate);
@@ -149,28 +210,6 @@ public class ModelRunRequester {
         }
     }
 
-    private URI selectLeastBusyModelWrapperUrl() {
-        Stack<String> usedHostsWithBusiestAtTop = new Stack<>();
-        usedHostsWithBusiestAtTop.addAll(modelRunService.getModelRunRequestServersByUsage());
-
-        List<URI> availableHostsInPreferenceOrder = modelWrapperUrlCollection;
-
-        // Until only 1 available host remains, or there are no more used hosts remaining
-        while (availableHostsInPreferenceOrder.size() > 1 && usedHostsWithBusiestAtTop.size() > 0) {
-            // Remove the busiest of the used hosts from the list of available hosts (assuming it's present)
-            final String busiestHost = usedHostsWithBusiestAtTop.pop();
-            availableHostsInPreferenceOrder = filter(new LambdaJMatcher<URI>() {
-                @Override
-                public boolean matches(Object host) {
-                    return !((URI) host).getHost().equals(busiestHost);
-                }
-            }, availableHostsInPreferenceOrder);
-        }
-
-        // If only 1 host remains use that one, if multiple hosts remain just use the first (preferred) one.
-        return availableHostsInPreferenceOrder.get(0);
-    }
-
     private void logRequest(DiseaseGroup diseaseGroup, List<DiseaseOccurrence> diseaseOccurrences) {
         LOGGER.info(String.format(REQUEST_LOG_MESSAGE, diseaseGroup.getId(), diseaseGroup.getName(),
                 diseaseOccurrences.size()));
@@ -0,0 +1,149 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import ch.lambdaj.function.convert.Converter;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRun;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
+
+import java.net.URI;
+import java.util.*;
+
+import static ch.lambdaj.Lambda.convert;
+
+/**
+ * Determines the order in which the ModelWrapper instances should be offered a new model run, so that the run is
+ * placed on the instance where it is expected to complete soonest. This is estimated from the live state of each
+ * instance's execution slots and queue, and the durations of recent model runs on that instance. Instances whose
+ * queue is full are offered the run next, then those that could not be contacted. Ties are broken by the historical
+ * usage of the instances (least used first).
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ModelWrapperScheduler {
+    private static final Logger LOGGER = Logger.getLogger(ModelWrapperScheduler.class);
+    private static final String STATUS_WARNING_MESSAGE = "Could not query the model run queue status of %s (%s)";
+    private static final String STATUS_LOG_MESSAGE =
+            "ModelWrapper %s has %d running and %d queued model run(s) in %d slot(s), expected completion in %d min";
+
+    // The period over which model run durations are averaged
+    private static final int RECENT_MODEL_RUN_DAYS = 28;
+    // Used if no model runs have recently completed, so is only relevant when comparing instances with different loads
+    private static final Duration DEFAULT_MODEL_RUN_DURATION = Duration.standardHours(1);
+    private static final long QUEUE_FULL = Long.MAX_VALUE - 1;
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final ModelWrapperWebService modelWrapperWebService;
+    private final ModelRunService modelRunService;
+    private final List<URI> modelWrapperUrlCollection;
+
+    public ModelWrapperScheduler(ModelWrapperWebService modelWrapperWebService, ModelRunService modelRunService,
+                                 List<String> modelWrapperUrlCollection) {
+        this.modelWrapperWebService = modelWrapperWebService;
+        this.modelRunService = modelRunService;
+        this.modelWrapperUrlCollection = convert(modelWrapperUrlCollection, new Converter<String, URI>() {
+            @Override
+            public URI convert(String url) {
+                return URI.create(url);
+            }
+        });
+        if (this.modelWrapperUrlCollection.isEmpty()) {
+            throw new IllegalArgumentException("At least 1 ModelWrapper URL must be provided.");
+        }
+    }
+
+    /**
+     * Gets the ModelWrapper URLs in the order in which they should be offered a new model run.
+     * @return The ordered ModelWrapper URLs.
+     */
+    public List<URI> getModelWrapperUrlsInPreferenceOrder() {
+        List<URI> urls = orderByHistoricalUsage(modelWrapperUrlCollection);
+        List<ModelRun> recentModelRuns =
+                modelRunService.getCompletedModelRunsRequestedSince(DateTime.now().minusDays(RECENT_MODEL_RUN_DAYS));
+        Map<String, Duration> meanDurations = getMeanDurationsByHost(recentModelRuns);
+        Duration overallMeanDuration = getMeanDuration(recentModelRuns);
+
+        final Map<URI, Long> expectedCompletionTimes = new HashMap<>();
+        for (URI url : urls) {
+            Duration meanDuration = meanDurations.containsKey(url.getHost()) ?
+                    meanDurations.get(url.getHost()) : overallMeanDuration;
+            expectedCompletionTimes.put(url, estimateCompletionTime(url, meanDuration));
+        }
+
+        // Sorting is stable, so the historical usage order is kept for equal estimates
+        Collections.sort(urls, new Comparator<URI>() {
+            @Override
+            public int compare(URI url1, URI url2) {
+                return Long.compare(expectedCompletionTimes.get(url1), expectedCompletionTimes.get(url2));
+            }
+        });
+        return urls;
+    }
+
+    private long estimateCompletionTime(URI url, Duration meanDuration) {
+        JsonModelRunQueueStatus status;
+        try {
+            status = modelWrapperWebService.getModelRunQueueStatus(url);
+        } catch (WebServiceClientException|JsonParserException e) {
+            LOGGER.warn(String.format(STATUS_WARNING_MESSAGE, url.getHost(), e.getMessage()));
+            return UNREACHABLE;
+        }
+
+        int slots = Math.max(1, status.getMaxConcurrentRuns());
+        int runsAhead = status.getRunningRuns().size() + status.getQueuedRuns().size();
+        if (runsAhead >= slots + status.getMaxQueuedRuns()) {
+            return QUEUE_FULL;
+        }
+
+        // The new run starts once enough of the runs ahead of it have finished to free a slot
+        long expectedCompletionTime = (runsAhead / slots + 1) * meanDuration.getMillis();
+        LOGGER.info(String.format(STATUS_LOG_MESSAGE, url.getHost(), status.getRunningRuns().size(),
+                status.getQueuedRuns().size(), slots, Duration.millis(expectedCompletionTime).getStandardMinutes()));
+        return expectedCompletionTime;
+    }
+
+    // Gets the mean duration (request to response) of the model runs, for each host
+    private static Map<String, Duration> getMeanDurationsByHost(Collection<ModelRun> modelRuns) {
+        Map<String, List<ModelRun>> modelRunsByHost = new HashMap<>();
+        for (ModelRun modelRun : modelRuns) {
+            if (!modelRunsByHost.containsKey(modelRun.getRequestServer())) {
+                modelRunsByHost.put(modelRun.getRequestServer(), new ArrayList<ModelRun>());
+            }
+            modelRunsByHost.get(modelRun.getRequestServer()).add(modelRun);
+        }
+
+        Map<String, Duration> meanDurations = new HashMap<>();
+        for (Map.Entry<String, List<ModelRun>> entry : modelRunsByHost.entrySet()) {
+            meanDurations.put(entry.getKey(), getMeanDuration(entry.getValue()));
+        }
+        return meanDurations;
+    }
+
+    // Gets the mean duration (request to response) of the model runs
+    private static Duration getMeanDuration(Collection<ModelRun> modelRuns) {
+        if (modelRuns.isEmpty()) {
+            return DEFAULT_MODEL_RUN_DURATION;
+        }
+        long total = 0;
+        for (ModelRun modelRun : modelRuns) {
+            total += new Duration(modelRun.getRequestDate(), modelRun.getResponseDate()).getMillis();
+        }
+        return Duration.millis(total / modelRuns.size());
+    }
+
+    private List<URI> orderByHistoricalUsage(List<URI> urls) {
+        // Sorted by ascending usage, hosts which have never been used are not present
+        final List<String> hostsByUsage = modelRunService.getModelRunRequestServersByUsage();
+        List<URI> orderedUrls = new ArrayList<>(urls);
+        Collections.sort(orderedUrls, new Comparator<URI>() {
+            @Override
+            public int compare(URI url1, URI url2) {
+                return Integer.compare(hostsByUsage.indexOf(url1.getHost()), hostsByUsage.indexOf(url2.getHost()));
+            }
+        });
+        return orderedUrls;
+    }
+}
@@ -1,15 +1,19 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.web.util.UriComponentsBuilder;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParser;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
-import java.io.File;
-import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+
 /**
  * Represents the ModelWrapper's web service interface.
  *
@@ -17,32 +21,71 @@ import java.net.URI;
  */
 public class ModelWrapperWebService {
     private WebServiceClient webServiceClient;
+    private AbraidJsonObjectMapper objectMapper;
 
     // The ModelWrapper's URL path for the model run (this is hardcoded because it is hardcoded in ModelWrapper).
     private static final String MODEL_RUN_URL_PATH = "/model/run";
+    // The ModelWrapper's URL path for the covariate store query (this is hardcoded because it is hardcoded in
+    // ModelWrapper).
+    private static final String MISSING_COVARIATES_URL_PATH = "/model/covariates/missing";
+    // The ModelWrapper's URL path for the model run queue status (this is hardcoded because it is hardcoded in
+    // ModelWrapper).
+    private static final String MODEL_RUN_STATUS_URL_PATH = "/model/status";
 
-    public ModelWrapperWebService(WebServiceClient webServiceClient) {
+    public ModelWrapperWebService(WebServiceClient webServiceClient, AbraidJsonObjectMapper objectMapper) {
         this.webServiceClient = webServiceClient;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Starts a model run.
      * @param modelWrapperUrl The base url path for the model wrapper instance on which to start a run.
-     * @param modelRunPackage The zip file to submit containing the model run workspace.
+     * @param modelRunPackage The package to submit containing the model run workspace (zipped as it is sent).
      * @return The response from the webservice.
-     * @throws WebServiceClientException If the web service call fails.
-     * @throws IOException If the model run package can not be read.
+     * @throws WebServiceClientException If the web service call fails, or the model run package can not be read.
      */
-    public JsonModelRunResponse startRun(URI modelWrapperUrl, File modelRunPackage)
-            throws WebServiceClientException, IOException {
-        String url = buildStartRunUrl(modelWrapperUrl);
-        String response = webServiceClient.makePostRequestWithBinary(url, modelRunPackage);
+    public JsonModelRunResponse startRun(URI modelWrapperUrl, ModelRunPackage modelRunPackage)
+            throws WebServiceClientException {
+        String url = buildUrl(modelWrapperUrl, MODEL_RUN_URL_PATH);
+        String response =
+                webServiceClient.makePostRequestWithStream(url, modelRunPackage.getFileName(), modelRunPackage);
         return parseResponseJson(response);
     }
 
-    private String buildStartRunUrl(URI rootUrl) {
+    /**
+     * Determines which covariate files are not already held in a ModelWrapper's covariate store, and so must be
+     * included in the model run package.
+     * @param modelWrapperUrl The base url path for the model wrapper instance.
+     * @param covariateHashes The content hashes of the covariate files required by the model run.
+     * @return The subset of the hashes that the model wrapper does not hold.
+     * @throws WebServiceClientException If the web service call fails.
+     * @throws JsonProcessingException If the request or response JSON is invalid.
+     */
+    public Collection<String> getMissingCovariateHashes(URI modelWrapperUrl, Collection<String> covariateHashes)
+            throws WebServiceClientException, JsonProcessingException {
+        String url = buildUrl(modelWrapperUrl, MISSING_COVARIATES_URL_PATH);
+        String body = objectMapper.writer().writeValueAsString(covariateHashes);
+        String response = webServiceClient.makePostRequestWithJSON(url, body);
+        return Arrays.asList(new JsonParser().parse(response, String[].class));
+    }
+
+    /**
+     * Gets the model runs that are running, and waiting to run, on a ModelWrapper.
+     * @param modelWrapperUrl The base url path for the model wrapper instance.
+     * @return The status of the model wrapper's model run queue.
+     * @throws WebServiceClientException If the web service call fails.
+     * @throws JsonParserException If the response JSON is invalid.
+     */
+    public JsonModelRunQueueStatus getModelRunQueueStatus(URI modelWrapperUrl)
+            throws WebServiceClientException, JsonParserException {
+        String url = buildUrl(modelWrapperUrl, MODEL_RUN_STATUS_URL_PATH);
+        String response = webServiceClient.makeGetRequest(url);
+        return new JsonParser().parse(response, JsonModelRunQueueStatus.class);
+    }
+
+    private String buildUrl(URI rootUrl, String path) {
         return UriComponentsBuilder.fromUri(rootUrl)
-                .path(MODEL_RUN_URL_PATH)
+                .path(path)
                 .build().toString();
     }
 
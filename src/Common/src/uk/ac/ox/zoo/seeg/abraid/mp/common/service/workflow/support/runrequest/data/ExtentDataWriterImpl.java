@@ -5,13 +5,13 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitDiseaseExtentClass;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterTransformation;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
 
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
+import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Provides a mechanism for writing model input extent data into the working directory.
@@ -22,6 +22,12 @@ public class ExtentDataWriterImpl implements ExtentDataWriter {
     private static final Object LOG_TRANSFORMING_RASTER_DATA =
             "Transforming gaul code raster to weightings raster.";
 
+    private final ForkJoinPool rasterProcessingPool;
+
+    public ExtentDataWriterImpl(ForkJoinPool rasterProcessingPool) {
+        this.rasterProcessingPool = rasterProcessingPool;
+    }
+
     /**
      * Write the extent data to a raster file ready to run the model.
      * @param extentData The data to be written.
@@ -34,12 +40,13 @@ public class ExtentDataWriterImpl implements ExtentDataWriter {
                       final File sourceRasterFile, final File targetFile)
             throws IOException {
         final Map<Integer, Integer> extentMapping = extractDiseaseExtentMap(extentData);
+        LOGGER.info(LOG_TRANSFORMING_RASTER_DATA);
         RasterUtils.transformRaster(sourceRasterFile, targetFile, new File[0], new RasterTransformation() {
             @Override
-            public void transform(WritableRaster raster, Raster[] referenceRasters) throws IOException {
-                transformRaster(extentMapping, raster);
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                transformRaster(extentMapping, values);
             }
-        });
+        }, rasterProcessingPool);
     }
 
     private Map<Integer, Integer> extractDiseaseExtentMap(Collection<AdminUnitDiseaseExtentClass> diseaseExtent) {
@@ -53,18 +60,15 @@ public class ExtentDataWriterImpl implements ExtentDataWriter {
         return extentMapping;
     }
 
-    private void transformRaster(Map<Integer, Integer> transform, WritableRaster data) {
-        LOGGER.info(LOG_TRANSFORMING_RASTER_DATA);
-
-        for (int i = 0; i < data.getWidth(); i++) {
-            for (int j = 0; j < data.getHeight(); j++) {
-                int gaul = data.getSample(i, j, 0);
-                if (transform.containsKey(gaul)) {
-                    data.setSample(i, j, 0, transform.get(gaul));
-                } else {
-                    if (gaul != RasterUtils.NO_DATA_VALUE) {
-                        data.setSample(i, j, 0, RasterUtils.NO_DATA_VALUE);
-                    }
+    private void transformRaster(Map<Integer, Integer> transform, double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            int gaul = (int) values[i];
+            Integer weighting = transform.get(gaul);
+            if (weighting != null) {
+                values[i] = weighting;
+            } else {
+                if (gaul != RasterUtils.NO_DATA_VALUE) {
+                    values[i] = RasterUtils.NO_DATA_VALUE;
                 }
             }
         }
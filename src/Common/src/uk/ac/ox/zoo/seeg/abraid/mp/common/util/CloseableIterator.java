@@ -0,0 +1,18 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over a resource (such as a database cursor) that must be closed once the iteration has finished, so
+ * that it can be used in a try-with-resources statement.
+ * @param <T> The type of the elements.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+    /**
+     * Releases the underlying resource.
+     */
+    @Override
+    void close();
+}
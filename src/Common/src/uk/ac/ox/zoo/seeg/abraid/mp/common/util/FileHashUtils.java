@@ -0,0 +1,59 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utilities for calculating content hashes of files.
+ * Copyright (c) 2015 University of Oxford
+ */
+public final class FileHashUtils {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int NIBBLE_BITS = 4;
+    private static final int NIBBLE_MASK = 0x0F;
+
+    private FileHashUtils() {
+    }
+
+    /**
+     * Calculates the SHA-256 hash of a file's contents, streaming the file rather than loading it into memory.
+     * @param file The file.
+     * @return The hash, as a lower case hexadecimal string.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public static String calculateSha256(File file) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream stream = new FileInputStream(file)) {
+            int count;
+            while ((count = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // All Java platforms are required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> NIBBLE_BITS) & NIBBLE_MASK];
+            chars[(i * 2) + 1] = HEX_DIGITS[bytes[i] & NIBBLE_MASK];
+        }
+        return new String(chars);
+    }
+}
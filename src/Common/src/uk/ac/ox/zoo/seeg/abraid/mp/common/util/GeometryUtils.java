@@ -123,19 +123,29 @@ public final class GeometryUtils {
      * @return The orthodromic distance, in kilometres.
      */
     public static double findOrthodromicDistance(Point point1, Point point2) {
+        return findOrthodromicDistance(point1.getCoordinate(), point2.getCoordinate());
+    }
+
+    /**
+     * Finds the shortest distance between two co-ordinates on the surface of the Earth, as above.
+     * @param coordinate1 The first co-ordinate.
+     * @param coordinate2 The second co-ordinate.
+     * @return The orthodromic distance, in kilometres.
+     */
+    public static double findOrthodromicDistance(Coordinate coordinate1, Coordinate coordinate2) {
         // Ideally we would use GeodeticCalculator.getOrthodromicDistance() for this, but its internal call
         // to computeDirection() fails to converge for many real-life points. Instead we call the method on
         // DefaultEllipsoid directly. Its results largely match PostGIS's ST_DISTANCE function applied to geography
         // types.
         try {
-            return DefaultEllipsoid.WGS84.orthodromicDistance(point1.getX(), point1.getY(),
-                    point2.getX(), point2.getY()) / METRES_IN_A_KILOMETRE;
+            return DefaultEllipsoid.WGS84.orthodromicDistance(coordinate1.x, coordinate1.y,
+                    coordinate2.x, coordinate2.y) / METRES_IN_A_KILOMETRE;
         } catch (ArithmeticException e) {
             // Failed to converge, so fall back to using a sphere (like PostGIS does). Uses the Haversine formula.
-            double latDistance = Math.toRadians(point2.getY() - point1.getY());
-            double lonDistance = Math.toRadians(point2.getX() - point1.getX());
+            double latDistance = Math.toRadians(coordinate2.y - coordinate1.y);
+            double lonDistance = Math.toRadians(coordinate2.x - coordinate1.x);
             double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2) +
-                       Math.cos(Math.toRadians(point1.getY())) * Math.cos(Math.toRadians(point2.getY())) *
+                       Math.cos(Math.toRadians(coordinate1.y)) * Math.cos(Math.toRadians(coordinate2.y)) *
                        Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
             double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
             return RADIUS_OF_THE_EARTH_IN_KILOMETRES * c;
@@ -169,6 +179,32 @@ public final class GeometryUtils {
         return null;
     }
 
+    /**
+     * Finds the closest point on the indexed geometry to the specified point, as above. This gives the same result as
+     * the non-indexed version, but is much quicker for geometries with many vertices.
+     * @param geometryIndex The indexed geometry.
+     * @param point The specified point.
+     * @return The closest point, or the specified point if it is within the geometry, or null if a closest point
+     * cannot be found.
+     */
+    public static Point findClosestPointOnGeometry(NearestPointIndex geometryIndex, Point point) {
+        Coordinate coordinate = geometryIndex.findNearestCoordinate(point.getCoordinate());
+        if (coordinate == null) {
+            return null;
+        }
+
+        for (double xAdjustment : PRECISION_ADJUSTMENTS) {
+            for (double yAdjustment : PRECISION_ADJUSTMENTS) {
+                Point closestPoint = createPoint(coordinate.x + xAdjustment, coordinate.y + yAdjustment);
+                if (closestPoint.getCoordinate().equals(
+                        geometryIndex.findNearestCoordinate(closestPoint.getCoordinate()))) {
+                    return closestPoint;
+                }
+            }
+        }
+        return null;
+    }
+
     private static boolean contains(Geometry geometry, Point point) {
         // Ideally we would use Geometry.intersects() instead, but it sometimes reports "side location conflict" errors
         Coordinate[] coordinate = DistanceOp.nearestPoints(geometry, point);
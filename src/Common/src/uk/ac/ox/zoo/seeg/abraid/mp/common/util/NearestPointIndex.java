@@ -0,0 +1,240 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
+import com.vividsolutions.jts.algorithm.locate.IndexedPointInAreaLocator;
+import com.vividsolutions.jts.geom.*;
+import com.vividsolutions.jts.geom.util.PolygonExtracter;
+import com.vividsolutions.jts.index.strtree.AbstractNode;
+import com.vividsolutions.jts.index.strtree.Boundable;
+import com.vividsolutions.jts.index.strtree.ItemBoundable;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index of a polygonal geometry, for repeatedly finding the nearest point on the geometry to a given point.
+ * The boundary segments are held in an STR-tree, so that the nearest segment is found without walking every vertex,
+ * and each ring has an indexed point-in-ring locator. The results are identical to those of
+ * DistanceOp.nearestPoints(geometry, point): a point that is within the geometry (or on its boundary) is its own
+ * nearest point, otherwise the nearest point is on the closest segment, taking the first such segment in the order
+ * in which DistanceOp visits them if there is a tie.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class NearestPointIndex {
+    private final STRtree polygonIndex = new STRtree();
+    private final STRtree segmentIndex = new STRtree();
+
+    public NearestPointIndex(Geometry geometry) {
+        // Segments are numbered in the order in which DistanceOp visits them (each polygon's shell, then its holes)
+        int ordinal = 0;
+        for (Object object : PolygonExtracter.getPolygons(geometry)) {
+            Polygon polygon = (Polygon) object;
+            polygonIndex.insert(polygon.getEnvelopeInternal(), new IndexedPolygon(polygon));
+            for (LineString ring : extractRings(polygon)) {
+                Coordinate[] coordinates = ring.getCoordinates();
+                for (int i = 0; i < coordinates.length - 1; i++) {
+                    Segment segment = new Segment(ordinal++, coordinates[i], coordinates[i + 1]);
+                    segmentIndex.insert(new Envelope(coordinates[i], coordinates[i + 1]), segment);
+                }
+            }
+        }
+
+        // Building the trees now means that they are never modified by a query
+        polygonIndex.build();
+        segmentIndex.build();
+    }
+
+    /**
+     * Finds the nearest point on the geometry to the specified coordinate.
+     * @param coordinate The coordinate.
+     * @return The specified coordinate if it is within the geometry or on its boundary, otherwise the nearest point
+     * on the geometry's boundary. Returns null if the geometry has no polygons.
+     */
+    public Coordinate findNearestCoordinate(Coordinate coordinate) {
+        if (isWithinAnyPolygon(coordinate)) {
+            return coordinate;
+        }
+        Segment nearestSegment = findNearestSegment(coordinate);
+        return (nearestSegment == null) ? null : nearestSegment.closestPoint(coordinate);
+    }
+
+    private boolean isWithinAnyPolygon(Coordinate coordinate) {
+        for (Object polygon : polygonIndex.query(new Envelope(coordinate))) {
+            if (((IndexedPolygon) polygon).locate(coordinate) != Location.EXTERIOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Segment findNearestSegment(Coordinate coordinate) {
+        if (segmentIndex.isEmpty()) {
+            return null;
+        }
+        NearestSegmentSearch search = new NearestSegmentSearch(coordinate);
+        search.visit(segmentIndex.getRoot());
+        return search.getNearestSegment();
+    }
+
+    private static List<LineString> extractRings(Polygon polygon) {
+        List<LineString> rings = new ArrayList<>();
+        rings.add(polygon.getExteriorRing());
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            rings.add(polygon.getInteriorRingN(i));
+        }
+        return rings;
+    }
+
+    /**
+     * A polygon with indexed locators for its shell and holes. Points are located in the same way as PointLocator,
+     * i.e. the shell and holes are considered separately.
+     */
+    private static final class IndexedPolygon {
+        private final IndexedPointInAreaLocator shellLocator;
+        private final List<IndexedPointInAreaLocator> holeLocators = new ArrayList<>();
+
+        private IndexedPolygon(Polygon polygon) {
+            List<LineString> rings = extractRings(polygon);
+            shellLocator = createRingLocator(rings.get(0));
+            for (LineString hole : rings.subList(1, rings.size())) {
+                holeLocators.add(createRingLocator(hole));
+            }
+        }
+
+        public int locate(Coordinate coordinate) {
+            int shellLocation = shellLocator.locate(coordinate);
+            if (shellLocation != Location.INTERIOR) {
+                return shellLocation;
+            }
+            for (IndexedPointInAreaLocator holeLocator : holeLocators) {
+                int holeLocation = holeLocator.locate(coordinate);
+                if (holeLocation == Location.INTERIOR) {
+                    return Location.EXTERIOR;
+                } else if (holeLocation == Location.BOUNDARY) {
+                    return Location.BOUNDARY;
+                }
+            }
+            return Location.INTERIOR;
+        }
+
+        private static IndexedPointInAreaLocator createRingLocator(LineString ring) {
+            return new IndexedPointInAreaLocator(ring.getFactory().createPolygon((LinearRing) ring, null));
+        }
+    }
+
+    /**
+     * A branch-and-bound search of the segment tree for the nearest segment. Nodes are visited closest first, and a
+     * node is skipped if its envelope is further away than the nearest segment found so far. Ties are resolved within
+     * the search (rather than afterwards) so that they cost nothing extra.
+     */
+    private static final class NearestSegmentSearch {
+        // Allows for rounding differences between envelope and segment distances, so that a segment that ties with
+        // the nearest segment is never skipped
+        private static final double PRUNING_TOLERANCE = 1e-9;
+
+        private final Coordinate coordinate;
+        private final Envelope coordinateEnvelope;
+        private Segment nearestSegment;
+        private double nearestDistance = Double.POSITIVE_INFINITY;
+
+        private NearestSegmentSearch(Coordinate coordinate) {
+            this.coordinate = coordinate;
+            this.coordinateEnvelope = new Envelope(coordinate);
+        }
+
+        public Segment getNearestSegment() {
+            return nearestSegment;
+        }
+
+        public void visit(Boundable boundable) {
+            if (boundable instanceof ItemBoundable) {
+                visitSegment((Segment) ((ItemBoundable) boundable).getItem());
+            } else {
+                for (BoundableDistance child : sortChildrenByDistance((AbstractNode) boundable)) {
+                    if (child.getDistance() > nearestDistance + PRUNING_TOLERANCE) {
+                        // All remaining children are further away
+                        break;
+                    }
+                    visit(child.getBoundable());
+                }
+            }
+        }
+
+        private void visitSegment(Segment segment) {
+            double distance = segment.distance(coordinate);
+            if (distance < nearestDistance ||
+                    (distance == nearestDistance && segment.getOrdinal() < nearestSegment.getOrdinal())) {
+                nearestSegment = segment;
+                nearestDistance = distance;
+            }
+        }
+
+        private List<BoundableDistance> sortChildrenByDistance(AbstractNode node) {
+            List<BoundableDistance> children = new ArrayList<>();
+            for (Object child : node.getChildBoundables()) {
+                Boundable boundable = (Boundable) child;
+                double distance = ((Envelope) boundable.getBounds()).distance(coordinateEnvelope);
+                children.add(new BoundableDistance(boundable, distance));
+            }
+            Collections.sort(children);
+            return children;
+        }
+    }
+
+    /**
+     * A node or item in the segment tree, with its envelope's distance from the search coordinate.
+     */
+    private static final class BoundableDistance implements Comparable<BoundableDistance> {
+        private final Boundable boundable;
+        private final double distance;
+
+        private BoundableDistance(Boundable boundable, double distance) {
+            this.boundable = boundable;
+            this.distance = distance;
+        }
+
+        public Boundable getBoundable() {
+            return boundable;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        @Override
+        public int compareTo(BoundableDistance other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    /**
+     * A boundary segment, numbered in the order in which DistanceOp visits the segments.
+     */
+    private static final class Segment {
+        private final int ordinal;
+        private final Coordinate start;
+        private final Coordinate end;
+
+        private Segment(int ordinal, Coordinate start, Coordinate end) {
+            this.ordinal = ordinal;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        // Calculated in the same way as DistanceOp
+        public double distance(Coordinate coordinate) {
+            return CGAlgorithms.distancePointLine(coordinate, start, end);
+        }
+
+        public Coordinate closestPoint(Coordinate coordinate) {
+            return new LineSegment(start, end).closestPoint(coordinate);
+        }
+    }
+}
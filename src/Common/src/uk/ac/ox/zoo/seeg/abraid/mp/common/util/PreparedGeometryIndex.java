@@ -0,0 +1,105 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory spatial index of keyed geometries, for fast point-in-polygon lookups without a database round trip.
+ * The geometries' envelopes are held in an STR-tree, and the candidates that it returns are tested using prepared
+ * versions of the geometries.
+ * @param <TKey> The type of the key that identifies each geometry.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class PreparedGeometryIndex<TKey extends Comparable<TKey>> {
+    private final STRtree index = new STRtree();
+    private final int size;
+
+    public PreparedGeometryIndex(Map<TKey, ? extends Geometry> geometries) {
+        int count = 0;
+        for (Map.Entry<TKey, ? extends Geometry> entry : geometries.entrySet()) {
+            Geometry geometry = entry.getValue();
+            if (geometry != null && !geometry.isEmpty()) {
+                PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(geometry);
+                index.insert(geometry.getEnvelopeInternal(), new IndexEntry<>(entry.getKey(), preparedGeometry));
+                count++;
+            }
+        }
+        // Building the tree now means that it is never modified by a query, so that it can be shared between threads
+        index.build();
+        size = count;
+    }
+
+    /**
+     * Finds the first geometry that intersects the specified point, i.e. that contains the point or has the point on
+     * its border. As with the equivalent PostGIS queries (which use MIN), the first geometry is the one with the
+     * lowest key.
+     * @param point The point.
+     * @return The key of the first geometry that intersects the point, or null if there are none.
+     */
+    public TKey findFirstIntersecting(Point point) {
+        TKey firstKey = null;
+        for (IndexEntry<TKey> entry : queryCandidates(point)) {
+            if ((firstKey == null || entry.getKey().compareTo(firstKey) < 0) &&
+                    entry.getPreparedGeometry().intersects(point)) {
+                firstKey = entry.getKey();
+            }
+        }
+        return firstKey;
+    }
+
+    /**
+     * Determines whether any of the geometries intersect the specified point.
+     * @param point The point.
+     * @return True if any geometry contains the point or has the point on its border, otherwise false.
+     */
+    public boolean intersectsAny(Point point) {
+        for (IndexEntry<TKey> entry : queryCandidates(point)) {
+            if (entry.getPreparedGeometry().intersects(point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of (non-empty) geometries in the index.
+     * @return The number of geometries in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<IndexEntry<TKey>> queryCandidates(Point point) {
+        return (List<IndexEntry<TKey>>) index.query(point.getEnvelopeInternal());
+    }
+
+    /**
+     * A geometry in the index, with its key.
+     * @param <TKey> The type of the key.
+     */
+    private static final class IndexEntry<TKey> {
+        private final TKey key;
+        private final PreparedGeometry preparedGeometry;
+
+        private IndexEntry(TKey key, PreparedGeometry preparedGeometry) {
+            this.key = key;
+            this.preparedGeometry = preparedGeometry;
+        }
+
+        public TKey getKey() {
+            return key;
+        }
+
+        public PreparedGeometry getPreparedGeometry() {
+            return preparedGeometry;
+        }
+    }
+}
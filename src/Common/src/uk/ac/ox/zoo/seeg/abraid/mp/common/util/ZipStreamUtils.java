@@ -0,0 +1,72 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Utilities for reading zip files as they are streamed (e.g. from the body of a request), rather than from disk.
+ * Copyright (c) 2015 University of Oxford
+ */
+public final class ZipStreamUtils {
+    private static final String INVALID_ENTRY_PATH = "Zip entry \"%s\" is outside of the extraction directory";
+
+    private ZipStreamUtils() {
+    }
+
+    /**
+     * Reads the rest of the current entry of a zip stream, as UTF-8 text. The stream is not closed.
+     * @param zip The zip stream, positioned at the start of the entry's content.
+     * @return The content of the entry.
+     * @throws IOException Thrown if the entry cannot be read.
+     */
+    public static String readEntryAsString(ZipInputStream zip) throws IOException {
+        return IOUtils.toString(zip, StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Extracts the current entry of a zip stream into a directory. The stream is not closed.
+     * @param zip The zip stream, positioned at the start of the entry's content.
+     * @param entry The current entry.
+     * @param directory The directory to extract into.
+     * @throws IOException Thrown if the entry cannot be extracted, or its path is outside of the directory.
+     */
+    public static void extractEntry(ZipInputStream zip, ZipEntry entry, File directory) throws IOException {
+        Path target = resolveEntryPath(entry, directory);
+        if (entry.isDirectory()) {
+            Files.createDirectories(target);
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.copy(zip, target);
+        }
+    }
+
+    /**
+     * Extracts all of the remaining entries of a zip stream into a directory. The stream is not closed.
+     * @param zip The zip stream.
+     * @param directory The directory to extract into.
+     * @throws IOException Thrown if an entry cannot be extracted, or its path is outside of the directory.
+     */
+    public static void extractRemainingEntries(ZipInputStream zip, File directory) throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            extractEntry(zip, entry, directory);
+        }
+    }
+
+    private static Path resolveEntryPath(ZipEntry entry, File directory) throws IOException {
+        Path root = directory.toPath().toAbsolutePath().normalize();
+        Path target = root.resolve(entry.getName()).normalize();
+        // Guard against entries such as "../../file" being written outside of the directory
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new IOException(String.format(INVALID_ENTRY_PATH, entry.getName()));
+        }
+        return target;
+    }
+}
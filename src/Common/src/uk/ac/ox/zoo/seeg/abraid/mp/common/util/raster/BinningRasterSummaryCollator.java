@@ -7,43 +7,112 @@ import java.util.*;
 
 /**
 * Counts the number of raster pixels that fall within a set of predefined bins.
+* A value that falls within more than one bin is counted in the bin with the lowest minimum.
 * Copyright (c) 2015 University of Oxford
 */
-public class BinningRasterSummaryCollator implements RasterSummaryCollator<Map<DoubleRange, Integer>> {
-    private Map<DoubleRange, Integer> bins;
-    private List<DoubleRange> keys;
+public class BinningRasterSummaryCollator implements ParallelRasterSummaryCollator<Map<DoubleRange, Integer>> {
+    private final List<DoubleRange> keys;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final boolean isSearchable;
+    private final long[] counts;
 
     public BinningRasterSummaryCollator(List<DoubleRange> bins) {
-        this.bins = new HashMap<>();
-        List<DoubleRange> unsortedKeys = new ArrayList<>();
-        for (DoubleRange bin : bins) {
-            this.bins.put(bin, 0);
-            unsortedKeys.add(bin);
-        }
-
-        Collections.sort(unsortedKeys, new Comparator<DoubleRange>() {
+        List<DoubleRange> sortedKeys = new ArrayList<>(bins);
+        Collections.sort(sortedKeys, new Comparator<DoubleRange>() {
             @Override
             public int compare(DoubleRange o1, DoubleRange o2) {
                 return Double.compare(o1.getMinimumDouble(), o2.getMinimumDouble());
             }
         });
-        this.keys = unsortedKeys;
+        this.keys = sortedKeys;
+
+        // The bin edges are held as primitive arrays, to avoid per pixel boxing and DoubleRange lookups
+        this.minimums = new double[keys.size()];
+        this.maximums = new double[keys.size()];
+        boolean areBinsDisjoint = true;
+        for (int i = 0; i < keys.size(); i++) {
+            minimums[i] = keys.get(i).getMinimumDouble();
+            maximums[i] = keys.get(i).getMaximumDouble();
+            if (i > 0 && minimums[i] < maximums[i - 1]) {
+                areBinsDisjoint = false;
+            }
+        }
+        // If the bins only touch at their edges (as for a histogram), the maximums are sorted so can be binary searched
+        this.isSearchable = areBinsDisjoint;
+        this.counts = new long[keys.size()];
     }
 
     @Override
+    public void addValues(double[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            addValue(values[i]);
+        }
+    }
+
+    /**
+     * Add a single pixel value to the raster summary.
+     * @param value The pixel value.
+     * @throws IOException Thrown if the operation fails.
+     */
     public void addValue(double value) throws IOException {
-        for (int i = 0; i < this.keys.size(); i++) {
-            DoubleRange range = this.keys.get(i);
-            if (range.containsDouble(value)) {
-                this.bins.put(range, this.bins.get(range) + 1);
-                return;
+        int bin = isSearchable ? searchForBin(value) : scanForBin(value);
+        if (bin < 0) {
+            throw new IOException();
+        }
+        counts[bin]++;
+    }
+
+    private int searchForBin(double value) {
+        // Find the first bin whose maximum is not below the value, so that a value on the edge between two bins is
+        // counted in the lower bin
+        int low = 0;
+        int high = maximums.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maximums[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
         }
-        throw new IOException();
+        return isInBin(value, low) ? low : -1;
+    }
+
+    private int scanForBin(double value) {
+        for (int i = 0; i < minimums.length; i++) {
+            if (isInBin(value, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isInBin(double value, int bin) {
+        return bin < minimums.length && minimums[bin] <= value && value <= maximums[bin];
+    }
+
+    @Override
+    public ParallelRasterSummaryCollator<Map<DoubleRange, Integer>> createPartial() {
+        return new BinningRasterSummaryCollator(this.keys);
+    }
+
+    @Override
+    public void merge(ParallelRasterSummaryCollator<Map<DoubleRange, Integer>> partial) {
+        long[] partialCounts = ((BinningRasterSummaryCollator) partial).counts;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += partialCounts[i];
+        }
     }
 
     @Override
     public Map<DoubleRange, Integer> getSummary() {
-        return this.bins;
+        Map<DoubleRange, Integer> bins = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            // Equal bins share a map entry
+            Integer existingCount = bins.get(keys.get(i));
+            bins.put(keys.get(i), (int) counts[i] + ((existingCount == null) ? 0 : existingCount));
+        }
+        return bins;
     }
 }
@@ -0,0 +1,158 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.log4j.Logger;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.Envelope2D;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only copy of the first band of a raster file, held as memory-mapped, primitive-typed tiles (bands of rows)
+ * rather than as a GeoTools/JAI image. Once created, pixel lookups are simple buffer reads, with no decoding, and the
+ * object does not need to be disposed. Created via RasterCache.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CachedRaster {
+    private static final Logger LOGGER = Logger.getLogger(CachedRaster.class);
+    private static final String LOG_COULD_NOT_DELETE_BACKING_FILE =
+            "Could not delete the backing file for a cached raster (%s). It will be deleted on exit.";
+
+    // Keeps each mapped tile well below the 2GB limit on a single mapping
+    private static final long MAX_TILE_SIZE_IN_BYTES = 64L * 1024 * 1024;
+    private static final int INT_SAMPLE_SIZE_IN_BYTES = 4;
+    private static final int DOUBLE_SAMPLE_SIZE_IN_BYTES = 8;
+
+    private final int width;
+    private final int height;
+    private final double minX;
+    private final double maxY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int rowsPerTile;
+    private final IntBuffer[] intTiles;
+    private final DoubleBuffer[] doubleTiles;
+
+    /**
+     * Copies the pixel values of a loaded raster into memory-mapped tiles.
+     * The raster is not disposed by this constructor.
+     * @param raster The loaded raster.
+     * @throws IOException thrown if the (temporary) memory-mapped file cannot be created.
+     */
+    public CachedRaster(GridCoverage2D raster) throws IOException {
+        RenderedImage image = raster.getRenderedImage();
+        Envelope2D envelope = raster.getGridGeometry().getEnvelope2D();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.minX = envelope.getMinX();
+        this.maxY = envelope.getMaxY();
+        this.cellWidth = envelope.getWidth() / width;
+        this.cellHeight = envelope.getHeight() / height;
+
+        int dataType = image.getSampleModel().getDataType();
+        boolean isIntegral = (dataType != DataBuffer.TYPE_FLOAT) && (dataType != DataBuffer.TYPE_DOUBLE);
+        int sampleSize = isIntegral ? INT_SAMPLE_SIZE_IN_BYTES : DOUBLE_SAMPLE_SIZE_IN_BYTES;
+        this.rowsPerTile = (int) Math.max(1, Math.min(height, MAX_TILE_SIZE_IN_BYTES / ((long) width * sampleSize)));
+        int tileCount = (height + rowsPerTile - 1) / rowsPerTile;
+        this.intTiles = isIntegral ? new IntBuffer[tileCount] : null;
+        this.doubleTiles = isIntegral ? null : new DoubleBuffer[tileCount];
+
+        File backingFile = File.createTempFile("raster_cache", ".bin");
+        try (RandomAccessFile file = new RandomAccessFile(backingFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            for (int tile = 0; tile < tileCount; tile++) {
+                int firstRow = tile * rowsPerTile;
+                int rows = Math.min(rowsPerTile, height - firstRow);
+                long tileSize = (long) width * rows * sampleSize;
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_WRITE, (long) firstRow * width * sampleSize, tileSize);
+                buffer.order(ByteOrder.nativeOrder());
+
+                // Only decode the rows for this tile, rather than materialising the whole image at once
+                Raster data = image.getData(new Rectangle(image.getMinX(), image.getMinY() + firstRow, width, rows));
+                if (isIntegral) {
+                    int[] samples = data.getSamples(
+                            image.getMinX(), image.getMinY() + firstRow, width, rows, 0, (int[]) null);
+                    intTiles[tile] = buffer.asIntBuffer();
+                    intTiles[tile].put(samples);
+                } else {
+                    double[] samples = data.getSamples(
+                            image.getMinX(), image.getMinY() + firstRow, width, rows, 0, (double[]) null);
+                    doubleTiles[tile] = buffer.asDoubleBuffer();
+                    doubleTiles[tile].put(samples);
+                }
+            }
+        } finally {
+            // The mappings remain valid after the file is deleted (on platforms that allow this)
+            if (!backingFile.delete()) {
+                LOGGER.debug(String.format(LOG_COULD_NOT_DELETE_BACKING_FILE, backingFile.getAbsolutePath()));
+                backingFile.deleteOnExit();
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the approximate amount of (mapped) memory used by the raster.
+     * @return The size in bytes.
+     */
+    public long getSizeInBytes() {
+        return (long) width * height * ((intTiles != null) ? INT_SAMPLE_SIZE_IN_BYTES : DOUBLE_SAMPLE_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Gets the value of a pixel, as an integer.
+     * @param x The column (0 is the left most).
+     * @param y The row (0 is the top most).
+     * @return The pixel value.
+     */
+    public int getSample(int x, int y) {
+        int tile = y / rowsPerTile;
+        int index = ((y - (tile * rowsPerTile)) * width) + x;
+        return (intTiles != null) ? intTiles[tile].get(index) : (int) doubleTiles[tile].get(index);
+    }
+
+    /**
+     * Gets the value of a pixel, as a double.
+     * @param x The column (0 is the left most).
+     * @param y The row (0 is the top most).
+     * @return The pixel value.
+     */
+    public double getSampleDouble(int x, int y) {
+        int tile = y / rowsPerTile;
+        int index = ((y - (tile * rowsPerTile)) * width) + x;
+        return (intTiles != null) ? intTiles[tile].get(index) : doubleTiles[tile].get(index);
+    }
+
+    /**
+     * Gets the value of the pixel containing a (WGS84) position.
+     * @param longitude The longitude (x) of the position.
+     * @param latitude The latitude (y) of the position.
+     * @return The pixel value, or null if the position is outside of the raster area.
+     */
+    public Double getValueAtPosition(double longitude, double latitude) {
+        int x = (int) Math.floor((longitude - minX) / cellWidth);
+        int y = (int) Math.floor((maxY - latitude) / cellHeight);
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return null;
+        }
+        return getSampleDouble(x, y);
+    }
+}
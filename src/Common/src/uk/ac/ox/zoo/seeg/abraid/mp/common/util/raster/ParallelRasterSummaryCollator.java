@@ -0,0 +1,26 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import java.io.IOException;
+
+/**
+ * Defines a raster summary operation that can be split across several threads. Used by the parallel variant of
+ * RasterUtils.summarizeRaster, which summarizes parts of the raster into separate partial collators (created by
+ * createPartial) and then merges them back together.
+ * @param <TResult> The type of summary data returned by the operation.
+ * Copyright (c) 2015 University of Oxford
+ */
+public interface ParallelRasterSummaryCollator<TResult> extends RasterSummaryCollator<TResult> {
+    /**
+     * Creates a new, empty, collator with the same configuration as this one.
+     * @return The partial collator.
+     */
+    ParallelRasterSummaryCollator<TResult> createPartial();
+
+    /**
+     * Merges the values added to a partial collator into this collator, as if they had been added to this collator
+     * after its existing values.
+     * @param partial The partial collator (created by createPartial).
+     * @throws IOException Thrown if the operation fails.
+     */
+    void merge(ParallelRasterSummaryCollator<TResult> partial) throws IOException;
+}
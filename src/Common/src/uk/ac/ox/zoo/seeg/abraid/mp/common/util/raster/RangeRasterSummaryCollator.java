@@ -8,11 +8,28 @@ import java.io.IOException;
 * Finds the min and max values in a raster file.
 * Copyright (c) 2015 University of Oxford
 */
-public class RangeRasterSummaryCollator implements RasterSummaryCollator<DoubleRange> {
+public class RangeRasterSummaryCollator implements ParallelRasterSummaryCollator<DoubleRange> {
     private double min = Double.MAX_VALUE;
     private double max = Double.MIN_VALUE;
 
     @Override
+    public void addValues(double[] values, int count) throws IOException {
+        double blockMin = min;
+        double blockMax = max;
+        for (int i = 0; i < count; i++) {
+            double value = values[i];
+            blockMin = (value < blockMin) ? value : blockMin;
+            blockMax = (value > blockMax) ? value : blockMax;
+        }
+        min = blockMin;
+        max = blockMax;
+    }
+
+    /**
+     * Add a single pixel value to the raster summary.
+     * @param value The pixel value.
+     * @throws IOException Thrown if the operation fails.
+     */
     public void addValue(double value) throws IOException {
         if (value < min) {
             min = value;
@@ -22,6 +39,18 @@ public class RangeRasterSummaryCollator implements RasterSummaryCollator<DoubleR
         }
     }
 
+    @Override
+    public ParallelRasterSummaryCollator<DoubleRange> createPartial() {
+        return new RangeRasterSummaryCollator();
+    }
+
+    @Override
+    public void merge(ParallelRasterSummaryCollator<DoubleRange> partial) {
+        RangeRasterSummaryCollator other = (RangeRasterSummaryCollator) partial;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
     @Override
     public DoubleRange getSummary() {
         return new DoubleRange(min, max);
@@ -0,0 +1,219 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import javax.media.jai.TiledImage;
+import java.awt.*;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join tasks used by RasterUtils to process the blocks (tiles) of a raster concurrently. Neither the decoding of
+ * the raster files (by a shared reader, via the JAI tile cache) nor the updating of the target image is known to be
+ * thread safe, so the blocks are processed in batches: the data for each block of a batch is copied out of the images
+ * on the calling thread, only the per block computation is run concurrently, and (for transformations) the results are
+ * copied back into the target image on the calling thread. Within a batch, the list of blocks is recursively split in
+ * half until each task has only a few blocks to process.
+ * Copyright (c) 2015 University of Oxford
+ */
+final class RasterBlockTasks {
+    private static final int MAX_BLOCKS_PER_TASK = 4;
+    // Limits the number of blocks held in memory at once, while giving each thread several tasks per batch
+    private static final int BATCH_SIZE_PER_THREAD = 4 * MAX_BLOCKS_PER_TASK;
+
+    private RasterBlockTasks() {
+    }
+
+    /**
+     * Transforms the blocks of a raster concurrently (see RasterUtils.transformRaster).
+     * @param pool The pool in which to run the tasks.
+     * @param targetImage The raster to be updated.
+     * @param referenceImages The reference rasters.
+     * @param blocks The blocks of the raster.
+     * @param transformation The (thread safe) transformation.
+     * @throws IOException thrown if the transformation of any block fails.
+     */
+    static void transformBlocks(ForkJoinPool pool, TiledImage targetImage, RenderedImage[] referenceImages,
+                                List<Rectangle> blocks, RasterTransformation transformation) throws IOException {
+        for (List<Rectangle> batch : getBatches(pool, blocks)) {
+            List<TransformBlock> batchData = new ArrayList<>(batch.size());
+            for (Rectangle bounds : batch) {
+                batchData.add(RasterUtils.readTransformBlock(targetImage, referenceImages, bounds));
+            }
+            try {
+                pool.invoke(new TransformTask(batchData, transformation));
+            } catch (RuntimeException e) {
+                throw unwrap(e);
+            }
+            for (TransformBlock block : batchData) {
+                RasterUtils.writeTransformBlock(targetImage, block);
+            }
+        }
+    }
+
+    /**
+     * Summarizes the blocks of a raster concurrently (see RasterUtils.summarizeRaster).
+     * @param pool The pool in which to run the tasks.
+     * @param image The raster.
+     * @param blocks The blocks of the raster.
+     * @param collator The collator, used to create the partial collators.
+     * @param <TResult> The type of summary data returned by the collator.
+     * @return A partial collator containing the values of all of the blocks.
+     * @throws IOException thrown if the summary of any block fails.
+     */
+    static <TResult> ParallelRasterSummaryCollator<TResult> summarizeBlocks(
+            ForkJoinPool pool, RenderedImage image, List<Rectangle> blocks,
+            ParallelRasterSummaryCollator<TResult> collator) throws IOException {
+        ParallelRasterSummaryCollator<TResult> result = collator.createPartial();
+        for (List<Rectangle> batch : getBatches(pool, blocks)) {
+            List<double[]> batchData = new ArrayList<>(batch.size());
+            for (Rectangle bounds : batch) {
+                batchData.add(RasterUtils.readSummaryBlock(image, bounds));
+            }
+            try {
+                // Merge in raster order
+                result.merge(pool.invoke(new SummarizeTask<>(batchData, collator)));
+            } catch (RuntimeException e) {
+                throw unwrap(e);
+            }
+        }
+        return result;
+    }
+
+    private static List<List<Rectangle>> getBatches(ForkJoinPool pool, List<Rectangle> blocks) {
+        int batchSize = pool.getParallelism() * BATCH_SIZE_PER_THREAD;
+        List<List<Rectangle>> batches = new ArrayList<>();
+        for (int start = 0; start < blocks.size(); start += batchSize) {
+            batches.add(blocks.subList(start, Math.min(start + batchSize, blocks.size())));
+        }
+        return batches;
+    }
+
+    private static IOException unwrap(RuntimeException e) {
+        // The pool may rethrow a copy of the task's exception, so search the full cause chain
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+            cause = cause.getCause();
+        }
+        throw e;
+    }
+
+    /**
+     * The pixel values of a block to be transformed, copied out of the target and reference images.
+     */
+    static final class TransformBlock {
+        private final Rectangle bounds;
+        private final Rectangle relativeBounds;
+        private final double[] values;
+        private final double[][] referenceValues;
+
+        TransformBlock(Rectangle bounds, Rectangle relativeBounds, double[] values, double[][] referenceValues) {
+            this.bounds = bounds;
+            this.relativeBounds = relativeBounds;
+            this.values = values;
+            this.referenceValues = referenceValues;
+        }
+
+        Rectangle getBounds() {
+            return bounds;
+        }
+
+        double[] getValues() {
+            return values;
+        }
+
+        void transform(RasterTransformation transformation) throws IOException {
+            transformation.transform(values, referenceValues, relativeBounds);
+        }
+    }
+
+    /**
+     * Used to carry an IOException out of a fork/join task.
+     */
+    private static final class BlockProcessingException extends RuntimeException {
+        private BlockProcessingException(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Transforms a range of blocks, which have already been copied out of the images. Tasks are never serialized.
+     */
+    @SuppressFBWarnings("SE_BAD_FIELD")
+    private static final class TransformTask extends RecursiveAction {
+        private final List<TransformBlock> blocks;
+        private final RasterTransformation transformation;
+
+        private TransformTask(List<TransformBlock> blocks, RasterTransformation transformation) {
+            this.blocks = blocks;
+            this.transformation = transformation;
+        }
+
+        @Override
+        protected void compute() {
+            if (blocks.size() <= MAX_BLOCKS_PER_TASK) {
+                try {
+                    for (TransformBlock block : blocks) {
+                        block.transform(transformation);
+                    }
+                } catch (IOException e) {
+                    throw new BlockProcessingException(e);
+                }
+            } else {
+                int middle = blocks.size() / 2;
+                invokeAll(
+                        new TransformTask(blocks.subList(0, middle), transformation),
+                        new TransformTask(blocks.subList(middle, blocks.size()), transformation));
+            }
+        }
+    }
+
+    /**
+     * Summarizes a range of blocks (the non-NODATA values of each block, which have already been copied out of the
+     * image) into a new partial collator. Tasks are never serialized.
+     */
+    @SuppressFBWarnings("SE_BAD_FIELD")
+    private static final class SummarizeTask<TResult> extends RecursiveTask<ParallelRasterSummaryCollator<TResult>> {
+        private final List<double[]> blocks;
+        private final ParallelRasterSummaryCollator<TResult> collator;
+
+        private SummarizeTask(List<double[]> blocks, ParallelRasterSummaryCollator<TResult> collator) {
+            this.blocks = blocks;
+            this.collator = collator;
+        }
+
+        @Override
+        protected ParallelRasterSummaryCollator<TResult> compute() {
+            try {
+                if (blocks.size() <= MAX_BLOCKS_PER_TASK) {
+                    ParallelRasterSummaryCollator<TResult> partial = collator.createPartial();
+                    for (double[] values : blocks) {
+                        partial.addValues(values, values.length);
+                    }
+                    return partial;
+                } else {
+                    int middle = blocks.size() / 2;
+                    SummarizeTask<TResult> first = new SummarizeTask<>(blocks.subList(0, middle), collator);
+                    SummarizeTask<TResult> second =
+                            new SummarizeTask<>(blocks.subList(middle, blocks.size()), collator);
+                    first.fork();
+                    ParallelRasterSummaryCollator<TResult> secondResult = second.compute();
+                    ParallelRasterSummaryCollator<TResult> firstResult = first.join();
+                    // Merge in raster order
+                    firstResult.merge(secondResult);
+                    return firstResult;
+                }
+            } catch (IOException e) {
+                throw new BlockProcessingException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.log4j.Logger;
+import org.geotools.coverage.grid.GridCoverage2D;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded, least recently used, cache of raster files (e.g. mean prediction and admin unit rasters), so that
+ * repeated pixel lookups within a process do not each require a full GeoTIFF decode. The decoded raster is released
+ * once it has been copied, without RasterUtils.disposeRaster's forced garbage collection. Entries are keyed by file path, and are reloaded if the file's modification time or
+ * size changes. Entries can also be explicitly invalidated, e.g. when the file is about to be deleted.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class RasterCache {
+    private static final Logger LOGGER = Logger.getLogger(RasterCache.class);
+    private static final String LOG_LOADING_RASTER = "Loading raster %s into raster cache";
+    private static final String LOG_EVICTING_RASTER = "Evicting raster %s from raster cache";
+    private static final String LOG_RASTER_LARGER_THAN_CACHE =
+            "Raster %s (%s bytes) is larger than the raster cache (%s bytes), so will not be retained";
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024;
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access ordered
+    private long sizeInBytes = 0;
+
+    public RasterCache(long maxSizeInMegabytes) {
+        this.maxSizeInBytes = maxSizeInMegabytes * BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * Gets a raster file from the cache, loading it if it is not present or if the file has changed since it was
+     * cached.
+     * @param location The file location of the raster.
+     * @return The cached raster.
+     * @throws IOException thrown if unable to load the raster.
+     */
+    public synchronized CachedRaster get(File location) throws IOException {
+        String key = location.getAbsolutePath();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isCurrent(location)) {
+            return entry.raster;
+        }
+        remove(key);
+
+        LOGGER.info(String.format(LOG_LOADING_RASTER, key));
+        long lastModified = location.lastModified();
+        long length = location.length();
+        CachedRaster raster = load(location);
+        entry = new Entry(raster, lastModified, length);
+
+        if (raster.getSizeInBytes() > maxSizeInBytes) {
+            LOGGER.warn(String.format(LOG_RASTER_LARGER_THAN_CACHE, key, raster.getSizeInBytes(), maxSizeInBytes));
+        } else {
+            evictUntilSpaceFor(raster.getSizeInBytes());
+            entries.put(key, entry);
+            sizeInBytes += raster.getSizeInBytes();
+        }
+        return raster;
+    }
+
+    /**
+     * Removes a raster file from the cache, if present.
+     * @param location The file location of the raster.
+     */
+    public synchronized void invalidate(File location) {
+        remove(location.getAbsolutePath());
+    }
+
+    /**
+     * Removes all rasters from the cache.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    private CachedRaster load(File location) throws IOException {
+        GridCoverage2D raster = null;
+        try {
+            raster = RasterUtils.loadRaster(location);
+            return new CachedRaster(raster);
+        } finally {
+            // The pixel values have been copied, so the decoded raster can be released without a forced GC
+            RasterUtils.releaseRaster(raster);
+        }
+    }
+
+    private void evictUntilSpaceFor(long requiredSizeInBytes) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && (sizeInBytes + requiredSizeInBytes > maxSizeInBytes)) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            LOGGER.debug(String.format(LOG_EVICTING_RASTER, eldest.getKey()));
+            sizeInBytes -= eldest.getValue().raster.getSizeInBytes();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            sizeInBytes -= entry.raster.getSizeInBytes();
+        }
+    }
+
+    /**
+     * A cached raster, along with the state of the file at the time that it was loaded.
+     */
+    private static final class Entry {
+        private final CachedRaster raster;
+        private final long lastModified;
+        private final long length;
+
+        private Entry(CachedRaster raster, long lastModified, long length) {
+            this.raster = raster;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private boolean isCurrent(File location) {
+            return location.exists() && location.lastModified() == lastModified && location.length() == length;
+        }
+    }
+}
@@ -4,20 +4,22 @@ import java.io.IOException;
 
 /**
  * Defines a raster summary operation. Used by RasterUtils.summarizeRaster.
- * addValue will be called for each pixel in the raster, followed by getSummary to get the result.
+ * addValues will be called for each block (tile) of the raster, followed by getSummary to get the result.
  * @param <TResult> The type of summary data returned by the operation.
  * Copyright (c) 2015 University of Oxford
  */
 public interface RasterSummaryCollator<TResult> {
     /**
-     * Add a single pixel value to the raster summary. Will be called once for each non-NODATA pixel in the raster.
-     * @param value The pixel value.
+     * Add a block of pixel values to the raster summary. Will be called once for each block of the raster, with the
+     * non-NODATA pixel values of the block (in row-major order).
+     * @param values The pixel values. Only the first "count" entries are valid.
+     * @param count The number of pixel values.
      * @throws IOException Thrown if the operation fails.
      */
-    void addValue(double value) throws IOException;
+    void addValues(double[] values, int count) throws IOException;
 
     /**
-     * Returns the result of the summary operation. Will be called after all calls to addValue.
+     * Returns the result of the summary operation. Will be called after all calls to addValues.
      * @return The summary result.
      * @throws IOException Thrown if the operation fails.
      */
@@ -1,21 +1,25 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
 
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
+import java.awt.*;
 import java.io.IOException;
 
 /**
- * An interface to define a raster transformation operation. This will likely involve iterating through the pixels in
- * the WritableRaster and setting new values where required for the operation being implemented.
+ * An interface to define a raster transformation operation. Used by RasterUtils.transformRaster, which will call
+ * transform once for each block (tile) of the raster. This will likely involve iterating through the pixel values of
+ * the block and setting new values where required for the operation being implemented.
+ * Pixel values are provided as primitive arrays, in row-major order, i.e. the value of the pixel at (x, y) within the
+ * block is at index (y * bounds.width) + x.
  *
  * Copyright (c) 2015 University of Oxford
  */
 public interface RasterTransformation {
     /**
-     * Perform a raster transformation operation.
-     * @param raster The raster which should be updated.
-     * @param referenceRasters One or more rasters which may be compared against when updating the main raster.
+     * Perform a raster transformation operation on a single block of the raster.
+     * @param values The pixel values of the block, which should be updated in place.
+     * @param referenceValues The aligned pixel values of each of the reference rasters, which may be compared against
+     *                        when updating the main raster.
+     * @param bounds The position and size of the block within the raster (in pixels, 0,0 is the top left).
      * @throws IOException thrown if the transformation cannot be completed.
      */
-    void transform(WritableRaster raster, Raster[] referenceRasters) throws IOException;
+    void transform(double[] values, double[][] referenceValues, Rectangle bounds) throws IOException;
 }
@@ -19,11 +19,17 @@ import org.opengis.parameter.ParameterValue;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 
 import javax.media.jai.PlanarImage;
+import javax.media.jai.TiledImage;
+import java.awt.*;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Utilities for working with raster files.
@@ -74,6 +80,8 @@ public final class RasterUtils {
 
     /**
      * Applies a transformation operation to a raster file and saves the updated raster at a new location.
+     * The raster is processed one tile (block) at a time, so the transformation is invoked once per block, with the
+     * aligned blocks of the reference rasters.
      * @param sourceRasterFile The file location of the raster to be transformed.
      * @param targetRasterFile The file location at which to save the updated raster.
      * @param referenceRasterFiles The file locations of any additional raster required to perform the transformation.
@@ -82,6 +90,22 @@ public final class RasterUtils {
      */
     public static void transformRaster(File sourceRasterFile, File targetRasterFile, File[] referenceRasterFiles,
                                        RasterTransformation transformation) throws IOException {
+        transformRaster(sourceRasterFile, targetRasterFile, referenceRasterFiles, transformation, null);
+    }
+
+    /**
+     * Applies a transformation operation to a raster file and saves the updated raster at a new location.
+     * The blocks (tiles) of the raster are transformed concurrently, using the specified pool, so the transformation
+     * must be safe to call from several threads at once (e.g. it only writes to the values array).
+     * @param sourceRasterFile The file location of the raster to be transformed.
+     * @param targetRasterFile The file location at which to save the updated raster.
+     * @param referenceRasterFiles The file locations of any additional raster required to perform the transformation.
+     * @param transformation The RasterTransformation to be performed.
+     * @param pool The pool in which to transform the blocks, or null to transform them serially on this thread.
+     * @throws IOException thrown if unable to complete the transformation.
+     */
+    public static void transformRaster(File sourceRasterFile, File targetRasterFile, File[] referenceRasterFiles,
+                                       RasterTransformation transformation, ForkJoinPool pool) throws IOException {
         int numberOfReferenceRasters = referenceRasterFiles.length;
         GridCoverage2D sourceRaster = null;
         GridCoverage2D[] referenceRasters = new GridCoverage2D[numberOfReferenceRasters];
@@ -90,30 +114,37 @@ public final class RasterUtils {
             // Load source raster
             LOGGER.info(LOG_LOADING_SOURCE_RASTER);
             sourceRaster = loadRaster(sourceRasterFile);
-            // Extract raw data from the source raster
-            WritableRaster rasterData = (WritableRaster) sourceRaster.getRenderedImage().getData();
+            RenderedImage sourceImage = sourceRaster.getRenderedImage();
+            // Create a tiled copy of the source raster to update. Pixel data is only copied from the source
+            // when each tile is first accessed.
+            TiledImage targetImage =
+                    new TiledImage(sourceImage, sourceImage.getTileWidth(), sourceImage.getTileHeight());
             // Extract meta data from the source raster
             Envelope2D rasterExtent = sourceRaster.getGridGeometry().getEnvelope2D();
             GridSampleDimension[] rasterProperties = sourceRaster.getSampleDimensions();
 
             // Load reference rasters
             LOGGER.info(LOG_LOADING_REFERENCE_RASTERS);
+            RenderedImage[] referenceImages = new RenderedImage[numberOfReferenceRasters];
             for (int i = 0; i < numberOfReferenceRasters; i++) {
                 referenceRasters[i] = loadRaster(referenceRasterFiles[i]);
-            }
-            // Extract raw data from the reference rasters
-            Raster[] referenceRastersData = new Raster[numberOfReferenceRasters];
-            for (int i = 0; i < numberOfReferenceRasters; i++) {
-                referenceRastersData[i] = referenceRasters[i].getRenderedImage().getData();
+                referenceImages[i] = referenceRasters[i].getRenderedImage();
             }
 
             // Apply transformation
             LOGGER.info(LOG_TRANSFORMING_RASTER_DATA);
-            transformation.transform(rasterData, referenceRastersData);
+            List<Rectangle> blocks = getTileBounds(targetImage);
+            if (pool == null) {
+                for (Rectangle bounds : blocks) {
+                    transformBlock(targetImage, referenceImages, bounds, transformation);
+                }
+            } else {
+                RasterBlockTasks.transformBlocks(pool, targetImage, referenceImages, blocks, transformation);
+            }
 
             // Save result
             LOGGER.info(String.format(LOG_SAVING_RASTER, targetRasterFile.getAbsolutePath()));
-            saveRaster(targetRasterFile, rasterData, rasterExtent, rasterProperties);
+            saveRaster(targetRasterFile, targetImage, rasterExtent, rasterProperties);
         } finally {
             disposeRaster(sourceRaster);
             for (int i = 0; i < numberOfReferenceRasters; i++) {
@@ -122,8 +153,40 @@ public final class RasterUtils {
         }
     }
 
+    static void transformBlock(TiledImage targetImage, RenderedImage[] referenceImages, Rectangle bounds,
+                                       RasterTransformation transformation) throws IOException {
+        RasterBlockTasks.TransformBlock block = readTransformBlock(targetImage, referenceImages, bounds);
+        block.transform(transformation);
+        writeTransformBlock(targetImage, block);
+    }
+
+    static RasterBlockTasks.TransformBlock readTransformBlock(TiledImage targetImage, RenderedImage[] referenceImages,
+                                                              Rectangle bounds) {
+        double[] values = getSamples(targetImage.getData(bounds), bounds, null);
+        double[][] referenceValues = new double[referenceImages.length][];
+        for (int i = 0; i < referenceImages.length; i++) {
+            referenceValues[i] = getSamples(referenceImages[i].getData(bounds), bounds, null);
+        }
+        Rectangle relativeBounds = new Rectangle(bounds);
+        relativeBounds.translate(-targetImage.getMinX(), -targetImage.getMinY());
+        return new RasterBlockTasks.TransformBlock(bounds, relativeBounds, values, referenceValues);
+    }
+
+    static void writeTransformBlock(TiledImage targetImage, RasterBlockTasks.TransformBlock block) {
+        Rectangle bounds = block.getBounds();
+        int tileX = targetImage.XToTileX(bounds.x);
+        int tileY = targetImage.YToTileY(bounds.y);
+        WritableRaster tile = targetImage.getWritableTile(tileX, tileY);
+        try {
+            tile.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0, block.getValues());
+        } finally {
+            targetImage.releaseWritableTile(tileX, tileY);
+        }
+    }
+
      /**
-     * Applies a summation operation to a raster file.
+     * Applies a summation operation to a raster file. The raster is read one tile (block) at a time, and the
+     * non-NODATA pixel values of each block are passed to the collator in row-major order.
      * @param rasterFile The file location of the raster.
      * @param collator The summary operation to to be performed.
      * @param <TResult> The data type of the summary result.
@@ -138,24 +201,134 @@ public final class RasterUtils {
             // Load source raster
             LOGGER.info(LOG_LOADING_SOURCE_RASTER);
             raster = loadRaster(rasterFile);
-            // Extract raw data from the source raster
-            WritableRaster rasterData = (WritableRaster) raster.getRenderedImage().getData();
-
-            for (int i = 0; i < rasterData.getWidth(); i++) {
-                for (int j = 0; j < rasterData.getHeight(); j++) {
-                    double rasterValue = rasterData.getSampleDouble(i, j, 0);
-                    if (rasterValue != RasterUtils.NO_DATA_VALUE) {
-                        collator.addValue(rasterValue);
-                    }
-                }
-            }
+            RenderedImage image = raster.getRenderedImage();
+            summarizeBlocks(image, getTileBounds(image), collator);
+            return collator.getSummary();
+        } finally {
+            disposeRaster(raster);
+        }
+    }
+
+    /**
+     * Applies a summation operation to a raster file. The blocks (tiles) of the raster are summarized concurrently,
+     * using the specified pool, each into its own partial collator. The partial collators are then merged (in raster
+     * order) into the specified collator.
+     * @param rasterFile The file location of the raster.
+     * @param collator The summary operation to to be performed.
+     * @param pool The pool in which to summarize the blocks, or null to summarize them serially on this thread.
+     * @param <TResult> The data type of the summary result.
+     * @return The summary result.
+     * @throws IOException thrown if unable to complete the operation.
+     */
+    public static <TResult> TResult summarizeRaster(File rasterFile, ParallelRasterSummaryCollator<TResult> collator,
+                                                    ForkJoinPool pool) throws IOException {
+        if (pool == null) {
+            return summarizeRaster(rasterFile, collator);
+        }
 
+        GridCoverage2D raster = null;
+        try {
+            // Load source raster
+            LOGGER.info(LOG_LOADING_SOURCE_RASTER);
+            raster = loadRaster(rasterFile);
+            RenderedImage image = raster.getRenderedImage();
+            collator.merge(RasterBlockTasks.summarizeBlocks(pool, image, getTileBounds(image), collator));
             return collator.getSummary();
         } finally {
             disposeRaster(raster);
         }
     }
 
+    private static void summarizeBlocks(RenderedImage image, List<Rectangle> blocks,
+                                        RasterSummaryCollator<?> collator) throws IOException {
+        double[] buffer = new double[image.getTileWidth() * image.getTileHeight()];
+        for (Rectangle bounds : blocks) {
+            getSamples(image.getData(bounds), bounds, buffer);
+            int count = removeNoDataValues(buffer, bounds.width * bounds.height);
+            collator.addValues(buffer, count);
+        }
+    }
+
+    static double[] readSummaryBlock(RenderedImage image, Rectangle bounds) {
+        double[] values = getSamples(image.getData(bounds), bounds, null);
+        return Arrays.copyOf(values, removeNoDataValues(values, values.length));
+    }
+
+    /**
+     * Calculates the per zone sum and count of the pixel values of a raster file, where the zones are defined by the
+     * pixel values of a second (aligned) raster file, e.g. an admin unit raster with GAUL code pixel values.
+     * Pixels which are NODATA in either raster are ignored.
+     * @param valueRasterFile The file location of the raster to be summarized.
+     * @param zoneRasterFile The file location of the zone raster.
+     * @return The zonal statistics.
+     * @throws IOException thrown if unable to complete the operation.
+     */
+    public static ZonalStatistics calculateZonalStatistics(File valueRasterFile, File zoneRasterFile)
+            throws IOException {
+        GridCoverage2D valueRaster = null;
+        GridCoverage2D zoneRaster = null;
+
+        try {
+            LOGGER.info(LOG_LOADING_SOURCE_RASTER);
+            valueRaster = loadRaster(valueRasterFile);
+            LOGGER.info(LOG_LOADING_REFERENCE_RASTERS);
+            zoneRaster = loadRaster(zoneRasterFile);
+            RenderedImage valueImage = valueRaster.getRenderedImage();
+            RenderedImage zoneImage = zoneRaster.getRenderedImage();
+
+            ZonalStatistics statistics = new ZonalStatistics();
+            int[] zones = new int[zoneImage.getTileWidth() * zoneImage.getTileHeight()];
+            double[] values = new double[zones.length];
+            for (Rectangle bounds : getTileBounds(zoneImage)) {
+                zoneImage.getData(bounds).getSamples(
+                        bounds.x, bounds.y, bounds.width, bounds.height, 0, zones);
+                getSamples(valueImage.getData(bounds), bounds, values);
+                int count = bounds.width * bounds.height;
+                for (int i = 0; i < count; i++) {
+                    if (zones[i] != NO_DATA_VALUE && values[i] != NO_DATA_VALUE) {
+                        statistics.addValue(zones[i], values[i]);
+                    }
+                }
+            }
+            return statistics;
+        } finally {
+            disposeRaster(valueRaster);
+            disposeRaster(zoneRaster);
+        }
+    }
+
+    private static List<Rectangle> getTileBounds(RenderedImage image) {
+        Rectangle imageBounds =
+                new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight());
+        List<Rectangle> tileBounds = new ArrayList<>(image.getNumXTiles() * image.getNumYTiles());
+        for (int tileY = image.getMinTileY(); tileY < image.getMinTileY() + image.getNumYTiles(); tileY++) {
+            for (int tileX = image.getMinTileX(); tileX < image.getMinTileX() + image.getNumXTiles(); tileX++) {
+                Rectangle tile = new Rectangle(
+                        image.getTileGridXOffset() + (tileX * image.getTileWidth()),
+                        image.getTileGridYOffset() + (tileY * image.getTileHeight()),
+                        image.getTileWidth(), image.getTileHeight());
+                // Edge tiles can extend beyond the image
+                tileBounds.add(tile.intersection(imageBounds));
+            }
+        }
+        return tileBounds;
+    }
+
+    private static double[] getSamples(Raster data, Rectangle bounds, double[] buffer) {
+        // Row-major, first band only
+        return data.getSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0, buffer);
+    }
+
+    private static int removeNoDataValues(double[] values, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] != NO_DATA_VALUE) {
+                values[count++] = values[i];
+            }
+        }
+        return count;
+    }
+
     /**
      * Load a raster file from a given location. This function assumes WGS84 GeoTiff files.
      * NOTE: All loaded rasters must subsequently be disposed using RasterUtils.disposeRaster.
@@ -204,6 +377,26 @@ public final class RasterUtils {
         }
     }
 
+    /**
+     * Save a (possibly tiled) image as a raster at a given location.
+     * @param location The file location at which to save the raster.
+     * @param image The pixel values for the raster.
+     * @param extents The extent of the raster.
+     * @param properties The meta-data for the raster.
+     * @throws IOException thrown if unable to save the raster.
+     */
+    public static void saveRaster(File location, RenderedImage image,
+                                  Envelope2D extents, GridSampleDimension[] properties) throws IOException {
+        GridCoverage2D targetRaster = null;
+        try {
+            GridCoverageFactory factory = new GridCoverageFactory();
+            targetRaster = factory.create(location.getName(), image, extents, properties, null, null);
+            saveRaster(location, targetRaster);
+        } finally {
+            disposeRaster(targetRaster);
+        }
+    }
+
     /**
      * Save a set of raster data at a given location.
      * @param location The file location at which to save the raster.
@@ -234,13 +427,25 @@ public final class RasterUtils {
      */
     @SuppressFBWarnings("DM_GC")
     public static void disposeRaster(GridCoverage2D raster) {
+        if (raster != null) {
+            releaseRaster(raster);
+            System.gc();
+        }
+    }
+
+    /**
+     * Dispose of a GridCoverage2D raster object, including the PlanarImage object that has a read lock on the raster
+     * file, but without forcing a garbage collection. For long running processes (e.g. caches) that do not reopen the
+     * file straight away, and so do not need the lock to be released immediately.
+     * @param raster The raster to be disposed.
+     */
+    public static void releaseRaster(GridCoverage2D raster) {
         if (raster != null) {
             RenderedImage image = raster.getRenderedImage();
             if (image != null) {
                 ImageUtilities.disposePlanarImageChain((PlanarImage) image);
             }
             raster.dispose(true);
-            System.gc();
         }
     }
 
@@ -0,0 +1,155 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.Envelope2D;
+
+import java.awt.*;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a raster file open, and answers point lookups from the first band by decoding only the tile (or strip) of the
+ * file that contains the point. Decoded tiles are retained in a size bounded, least recently used,
+ * cache, so repeated lookups in the same area do not decode the file again. Unlike CachedRaster, the raster is never
+ * decoded as a whole. The reader holds the file open until it is closed. Created via TiledRasterReaderCache.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class TiledRasterReader {
+    private static final String READER_CLOSED_MESSAGE = "The reader for raster %s has been closed";
+    private static final int SAMPLE_SIZE_IN_BYTES = 8;
+
+    private final String name;
+    private final long maxCachedTileSizeInBytes;
+    private GridCoverage2D raster;
+    private RenderedImage image;
+    private final int width;
+    private final int height;
+    private final double minX;
+    private final double maxY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final LinkedHashMap<Point, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true); // Access ordered
+    private long cachedTileSizeInBytes = 0;
+
+    /**
+     * Opens a raster file for reading. No pixel values are decoded until they are requested.
+     * @param location The file location of the raster.
+     * @param maxCachedTileSizeInBytes The maximum total size of the decoded tiles retained by this reader.
+     * @throws IOException thrown if unable to open the raster.
+     */
+    public TiledRasterReader(File location, long maxCachedTileSizeInBytes) throws IOException {
+        this.name = location.getAbsolutePath();
+        this.maxCachedTileSizeInBytes = maxCachedTileSizeInBytes;
+        this.raster = RasterUtils.loadRaster(location);
+        this.image = raster.getRenderedImage();
+        Envelope2D envelope = raster.getGridGeometry().getEnvelope2D();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.minX = envelope.getMinX();
+        this.maxY = envelope.getMaxY();
+        this.cellWidth = envelope.getWidth() / width;
+        this.cellHeight = envelope.getHeight() / height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the value of the pixel containing a (WGS84) position. Only the tile containing the pixel is decoded.
+     * @param longitude The longitude (x) of the position.
+     * @param latitude The latitude (y) of the position.
+     * @return The pixel value, or null if the position is outside of the raster area.
+     */
+    public synchronized Double getValueAtPosition(double longitude, double latitude) {
+        int x = (int) Math.floor((longitude - minX) / cellWidth);
+        int y = (int) Math.floor((maxY - latitude) / cellHeight);
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return null;
+        }
+        checkOpen();
+        return getTile(image.getMinX() + x, image.getMinY() + y).get(image.getMinX() + x, image.getMinY() + y);
+    }
+
+    /**
+     * Releases the raster file and the decoded tiles. The reader can not be used after it has been closed.
+     * No garbage collection is forced, so the file may remain locked until the next collection.
+     */
+    public synchronized void close() {
+        RasterUtils.releaseRaster(raster);
+        raster = null;
+        image = null;
+        tiles.clear();
+        cachedTileSizeInBytes = 0;
+    }
+
+    private void checkOpen() {
+        if (image == null) {
+            throw new IllegalStateException(String.format(READER_CLOSED_MESSAGE, name));
+        }
+    }
+
+    private Tile getTile(int imageX, int imageY) {
+        Point index = new Point((imageX - image.getTileGridXOffset()) / image.getTileWidth(),
+                                (imageY - image.getTileGridYOffset()) / image.getTileHeight());
+        Tile tile = tiles.get(index);
+        if (tile == null) {
+            tile = decodeTile(index);
+            evictUntilSpaceFor(tile.getSizeInBytes());
+            tiles.put(index, tile);
+            cachedTileSizeInBytes += tile.getSizeInBytes();
+        }
+        return tile;
+    }
+
+    private Tile decodeTile(Point index) {
+        Raster data = image.getTile(index.x, index.y);
+        // Edge tiles can extend beyond the image
+        Rectangle bounds = data.getBounds().intersection(
+                new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight()));
+        double[] values = data.getSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0, (double[]) null);
+        return new Tile(bounds, values);
+    }
+
+    private void evictUntilSpaceFor(long requiredSizeInBytes) {
+        Iterator<Map.Entry<Point, Tile>> iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext() && (cachedTileSizeInBytes + requiredSizeInBytes > maxCachedTileSizeInBytes)) {
+            cachedTileSizeInBytes -= iterator.next().getValue().getSizeInBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * The decoded values of a tile, along with its bounds in image coordinates.
+     */
+    private static final class Tile {
+        private final Rectangle bounds;
+        private final double[] values;
+
+        private Tile(Rectangle bounds, double[] values) {
+            this.bounds = bounds;
+            this.values = values;
+        }
+
+        private int indexOf(int imageX, int imageY) {
+            return ((imageY - bounds.y) * bounds.width) + (imageX - bounds.x);
+        }
+
+        private double get(int imageX, int imageY) {
+            return values[indexOf(imageX, imageY)];
+        }
+
+        private long getSizeInBytes() {
+            return (long) values.length * SAMPLE_SIZE_IN_BYTES;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A count bounded, least recently used, cache of open TiledRasterReaders (e.g. for the outputs of completed model
+ * runs), so that point lookups against the same raster file only decode the tiles involved, and only once while they
+ * remain cached. Entries are keyed by file path, and are reopened if the file's modification time or size changes.
+ * Whenever a reader is opened, the readers for any other files that have been deleted or replaced (e.g. the outputs
+ * of old model runs, which are deleted by the Model Output Handler in another process) are also closed. Entries can
+ * also be explicitly invalidated. Lookups are made while holding the cache's lock, so that a reader can not be closed
+ * while in use; readers that are evicted or invalidated are closed after the lock has been released.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class TiledRasterReaderCache {
+    private static final Logger LOGGER = Logger.getLogger(TiledRasterReaderCache.class);
+    private static final String LOG_OPENING_RASTER = "Opening raster %s in tiled raster reader cache";
+    private static final String LOG_CLOSING_RASTER = "Closing raster %s in tiled raster reader cache";
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024;
+
+    private final int maxOpenRasters;
+    private final long maxTileCacheSizePerRasterInBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access ordered
+
+    public TiledRasterReaderCache(int maxOpenRasters, long maxTileCacheSizePerRasterInMegabytes) {
+        this.maxOpenRasters = maxOpenRasters;
+        this.maxTileCacheSizePerRasterInBytes = maxTileCacheSizePerRasterInMegabytes * BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * Gets the value of the pixel of a raster file that contains the specified position, opening the raster if it is
+     * not present in the cache or if the file has changed since it was opened.
+     * @param location The file location of the raster.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @return The pixel value, or null if the position is outside of the raster.
+     * @throws IOException thrown if unable to open the raster.
+     */
+    public Double getValueAtPosition(File location, double longitude, double latitude) throws IOException {
+        List<TiledRasterReader> readersToClose = new ArrayList<>();
+        try {
+            synchronized (this) {
+                return get(location, readersToClose).getValueAtPosition(longitude, latitude);
+            }
+        } finally {
+            close(readersToClose);
+        }
+    }
+
+    /**
+     * Gets a reader for a raster file from the cache, opening it if it is not present or if the file has changed
+     * since it was opened. The reader may be closed as soon as it is returned, so this is only for use in tests.
+     * @param location The file location of the raster.
+     * @return The reader.
+     * @throws IOException thrown if unable to open the raster.
+     */
+    TiledRasterReader get(File location) throws IOException {
+        List<TiledRasterReader> readersToClose = new ArrayList<>();
+        try {
+            synchronized (this) {
+                return get(location, readersToClose);
+            }
+        } finally {
+            close(readersToClose);
+        }
+    }
+
+    /**
+     * Closes and removes the reader for a raster file from the cache, if present.
+     * @param location The file location of the raster.
+     */
+    public void invalidate(File location) {
+        List<TiledRasterReader> readersToClose = new ArrayList<>();
+        synchronized (this) {
+            remove(location.getAbsolutePath(), readersToClose);
+        }
+        close(readersToClose);
+    }
+
+    /**
+     * Closes and removes all readers from the cache.
+     */
+    public void invalidateAll() {
+        List<TiledRasterReader> readersToClose = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                readersToClose.add(entry.reader);
+            }
+            entries.clear();
+        }
+        close(readersToClose);
+    }
+
+    private TiledRasterReader get(File location, List<TiledRasterReader> readersToClose) throws IOException {
+        String key = location.getAbsolutePath();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isCurrent(location)) {
+            return entry.reader;
+        }
+        removeStale(readersToClose);
+
+        LOGGER.info(String.format(LOG_OPENING_RASTER, key));
+        long lastModified = location.lastModified();
+        long length = location.length();
+        TiledRasterReader reader = new TiledRasterReader(location, maxTileCacheSizePerRasterInBytes);
+        evictUntilSpaceForOneMore(readersToClose);
+        entries.put(key, new Entry(reader, lastModified, length));
+        return reader;
+    }
+
+    private void removeStale(List<TiledRasterReader> readersToClose) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (!entry.getValue().isCurrent(new File(entry.getKey()))) {
+                LOGGER.debug(String.format(LOG_CLOSING_RASTER, entry.getKey()));
+                readersToClose.add(entry.getValue().reader);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictUntilSpaceForOneMore(List<TiledRasterReader> readersToClose) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && entries.size() >= maxOpenRasters) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            LOGGER.debug(String.format(LOG_CLOSING_RASTER, eldest.getKey()));
+            readersToClose.add(eldest.getValue().reader);
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key, List<TiledRasterReader> readersToClose) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            LOGGER.debug(String.format(LOG_CLOSING_RASTER, key));
+            readersToClose.add(entry.reader);
+        }
+    }
+
+    private static void close(List<TiledRasterReader> readers) {
+        // Readers are only closed once they have been removed from the cache, so they can not be in use
+        for (TiledRasterReader reader : readers) {
+            reader.close();
+        }
+    }
+    /**
+     * An open reader, along with the state of the file at the time that it was opened.
+     */
+    private static final class Entry {
+        private final TiledRasterReader reader;
+        private final long lastModified;
+        private final long length;
+
+        private Entry(TiledRasterReader reader, long lastModified, long length) {
+            this.reader = reader;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private boolean isCurrent(File location) {
+            return location.exists() && location.lastModified() == lastModified && location.length() == length;
+        }
+    }
+}
@@ -8,16 +8,39 @@ import java.util.Collection;
 * Finds the unique values in a raster file.
 * Copyright (c) 2015 University of Oxford
 */
-public class ValuesRasterSummaryCollator implements RasterSummaryCollator<Collection<Double>> {
+public class ValuesRasterSummaryCollator implements ParallelRasterSummaryCollator<Collection<Double>> {
     private Collection<Double> values = new ArrayList<>();
 
     @Override
+    public void addValues(double[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            addValue(values[i]);
+        }
+    }
+
+    /**
+     * Add a single pixel value to the raster summary.
+     * @param value The pixel value.
+     * @throws IOException Thrown if the operation fails.
+     */
     public void addValue(double value) throws IOException {
         if (!values.contains(value)) {
             values.add(value);
         }
     }
 
+    @Override
+    public ParallelRasterSummaryCollator<Collection<Double>> createPartial() {
+        return new ValuesRasterSummaryCollator();
+    }
+
+    @Override
+    public void merge(ParallelRasterSummaryCollator<Collection<Double>> partial) throws IOException {
+        for (Double value : ((ValuesRasterSummaryCollator) partial).values) {
+            addValue(value);
+        }
+    }
+
     @Override
     public Collection<Double> getSummary() {
         return values;
@@ -0,0 +1,105 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the sum and count of the (non-NODATA) pixel values of a raster, for each zone of a matching zone raster
+ * (e.g. an admin unit raster, where the zones are GAUL codes). Once built, the mean value of any zone can be looked up
+ * without rescanning the rasters. Can be saved to, and reloaded from, a simple CSV file ("zone,sum,count").
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ZonalStatistics {
+    private static final String LINE_FORMAT = "%d,%s,%d";
+    private static final String LINE_SEPARATOR = ",";
+    private static final String INVALID_LINE_MESSAGE = "Invalid zonal statistics line \"%s\" in file %s";
+
+    private final Map<Integer, Zone> zones = new HashMap<>();
+
+    /**
+     * Add a single pixel value to the statistics for a zone.
+     * @param zone The zone (e.g. GAUL code) of the pixel.
+     * @param value The pixel value.
+     */
+    public void addValue(int zone, double value) {
+        getOrCreateZone(zone).add(value, 1);
+    }
+
+    /**
+     * Gets the mean of the pixel values in the specified zone.
+     * @param zone The zone (e.g. GAUL code).
+     * @return The mean pixel value, or null if the zone does not cover any (non-NODATA) pixels.
+     */
+    public Double getMean(int zone) {
+        Zone stats = zones.get(zone);
+        return (stats != null && stats.count != 0) ? (stats.sum / stats.count) : null;
+    }
+
+    /**
+     * Saves the statistics to a file, overwriting any existing file.
+     * @param file The file location.
+     * @throws IOException thrown if the file could not be written.
+     */
+    public void writeToFile(File file) throws IOException {
+        List<String> lines = new ArrayList<>(zones.size());
+        for (Map.Entry<Integer, Zone> entry : zones.entrySet()) {
+            Zone stats = entry.getValue();
+            lines.add(String.format(LINE_FORMAT, entry.getKey(), Double.toString(stats.sum), stats.count));
+        }
+        FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), lines);
+    }
+
+    /**
+     * Loads statistics previously saved with writeToFile.
+     * @param file The file location.
+     * @return The statistics.
+     * @throws IOException thrown if the file could not be read or is malformed.
+     */
+    public static ZonalStatistics readFromFile(File file) throws IOException {
+        ZonalStatistics statistics = new ZonalStatistics();
+        for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                String[] parts = line.split(LINE_SEPARATOR);
+                try {
+                    if (parts.length != 3) {
+                        throw new NumberFormatException();
+                    }
+                    statistics.getOrCreateZone(Integer.parseInt(parts[0]))
+                            .add(Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException(String.format(INVALID_LINE_MESSAGE, line, file.getAbsolutePath()), e);
+                }
+            }
+        }
+        return statistics;
+    }
+
+    private Zone getOrCreateZone(int zone) {
+        Zone stats = zones.get(zone);
+        if (stats == null) {
+            stats = new Zone();
+            zones.put(zone, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Running totals for a single zone.
+     */
+    private static final class Zone {
+        private double sum = 0;
+        private int count = 0;
+
+        private void add(double valueSum, int valueCount) {
+            sum += valueSum;
+            count += valueCount;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the elements of a top-level JSON array from a stream, one element at a time, so that the array is never held
+ * in memory as a whole. A JSON null is read as an empty array. Closing the reader closes the stream.
+ * @param <T> The type of the array's elements.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class JsonArrayReader<T> implements Closeable {
+    private static final String NOT_AN_ARRAY_MESSAGE = "Expected a JSON array but found %s";
+
+    private final ObjectMapper mapper;
+    private final com.fasterxml.jackson.core.JsonParser parser;
+    private final Class<T> elementClass;
+    private boolean hasStarted = false;
+    private boolean hasFinished = false;
+
+    JsonArrayReader(ObjectMapper mapper, InputStream inputStream, Class<T> elementClass) throws JsonParserException {
+        this.mapper = mapper;
+        this.elementClass = elementClass;
+        try {
+            this.parser = mapper.getFactory().createParser(inputStream);
+        } catch (IOException e) {
+            throw new JsonParserException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the next element of the array.
+     * @return The next element, or null if there are no more elements.
+     * @throws JsonParserException If the JSON is not an array, or an element could not be parsed.
+     */
+    public T readNext() throws JsonParserException {
+        try {
+            if (!hasStarted) {
+                readStartOfArray();
+            }
+            if (hasFinished) {
+                return null;
+            }
+
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                hasFinished = true;
+                return null;
+            }
+            return mapper.readValue(parser, elementClass);
+        } catch (IOException e) {
+            throw new JsonParserException(e.getMessage(), e);
+        }
+    }
+
+    private void readStartOfArray() throws IOException {
+        hasStarted = true;
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            hasFinished = true;
+        } else if (token != JsonToken.START_ARRAY) {
+            String found = (token == null) ? "no content" : token.asString();
+            throw new JsonParserException(String.format(NOT_AN_ARRAY_MESSAGE, found));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -8,6 +8,7 @@ import org.joda.time.format.DateTimeFormatter;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Parses JSON into the specified Java object.
@@ -70,4 +71,18 @@ public class JsonParser {
             throw new JsonParserException(e.getMessage(), e);
         }
     }
+
+    /**
+     * Creates a reader that parses a top-level JSON array from a stream one element at a time, rather than parsing the
+     * whole array at once.
+     * @param inputStream The stream containing the JSON text. This is closed when the reader is closed.
+     * @param elementClass The class that each element of the array should be parsed into.
+     * @param <T> The element class.
+     * @return The reader.
+     * @throws JsonParserException If the stream could not be read.
+     */
+    public <T> JsonArrayReader<T> createArrayReader(InputStream inputStream, Class<T> elementClass)
+            throws JsonParserException {
+        return new JsonArrayReader<>(mapper, inputStream, elementClass);
+    }
 }
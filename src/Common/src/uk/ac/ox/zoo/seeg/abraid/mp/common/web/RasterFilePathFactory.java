@@ -16,6 +16,7 @@ public class RasterFilePathFactory {
     private static final String FULL_FILENAME_FORMAT = "%s_%s_full.tif";
     private static final String MASKED_FILENAME_FORMAT = "%s_%s.tif";
     private static final String EXTENT_FILENAME_FORMAT = "%s_%s.tif";
+    private static final String ZONAL_STATISTICS_FILENAME_FORMAT = "%s_%s_full_admin%s.csv";
     private static final String ADMIN_RASTER_FILENAME_FORMAT = "admin%sqc.tif";
     private static final String EXTENT_GAUL_RASTER_FILENAME_FORMAT = "admin_%s.tif";
     private static final String GLOBAL_EXTENT_GAUL_TYPE = "global";
@@ -74,6 +75,19 @@ public class RasterFilePathFactory {
         return getFile(modelRun, EXTENT_INPUT_RASTER_TYPE, EXTENT_FILENAME_FORMAT);
     }
 
+    /**
+     * Gets the location of the per GAUL code zonal statistics file (see ZonalStatistics) for the pre-masking mean
+     * prediction raster of the specified model run, at the specified admin unit level.
+     * @param modelRun The model run.
+     * @param level The admin unit level.
+     * @return A zonal statistics file location.
+     */
+    public File getFullMeanPredictionZonalStatisticsFile(ModelRun modelRun, int level) {
+        String fileName = String.format(ZONAL_STATISTICS_FILENAME_FORMAT,
+                modelRun.getName(), MEAN_PREDICTION_RASTER_TYPE, level);
+        return Paths.get(resultsRasterFileDirectory.getAbsolutePath(), fileName).toFile();
+    }
+
     private File getFullRasterFile(ModelRun modelRun, String type) {
         return getFile(modelRun, type, FULL_FILENAME_FORMAT);
     }
@@ -0,0 +1,16 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
+
+import java.io.IOException;
+
+/**
+ * Indicates that the body of a web service request could not be written to the connection (e.g. because the web
+ * service closed the connection without reading it all), so the web service cannot have received the whole request.
+ * Found in the cause chain of the resulting WebServiceClientException.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class RequestBodyNotSentException extends IOException {
+    public RequestBodyNotSentException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the body of a streamed web service request, as it is being sent.
+ * Copyright (c) 2015 University of Oxford
+ */
+public interface RequestBodyWriter {
+    /**
+     * Writes the request body to the given stream. The stream must not be closed.
+     * @param outputStream The stream to write to (the body of the request).
+     * @throws IOException Thrown if the body could not be written.
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,41 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
+
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A multipart resolver which leaves the multipart requests to some paths unresolved, so that their handlers can read
+ * the request body as it arrives (using the commons-fileupload streaming API), rather than it first being buffered
+ * to disk in full.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class StreamingAwareMultipartResolver extends CommonsMultipartResolver {
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private Collection<String> streamedPaths = new ArrayList<>();
+
+    /**
+     * Sets the paths (within the application) whose multipart requests are streamed by their handlers.
+     * @param streamedPaths The paths.
+     */
+    public void setStreamedPaths(Collection<String> streamedPaths) {
+        this.streamedPaths = streamedPaths;
+    }
+
+    /**
+     * Gets the maximum size of an upload, which also applies to the multipart requests that are streamed by their
+     * handlers.
+     * @return The maximum size in bytes (-1 for no limit).
+     */
+    public long getMaxUploadSize() {
+        return getFileUpload().getSizeMax();
+    }
+
+    @Override
+    public boolean isMultipart(HttpServletRequest request) {
+        return !streamedPaths.contains(urlPathHelper.getPathWithinApplication(request)) && super.isMultipart(request);
+    }
+}
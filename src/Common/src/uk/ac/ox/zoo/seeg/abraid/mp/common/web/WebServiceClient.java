@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.http.*;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthScope;
@@ -7,13 +8,17 @@ import org.apache.http.auth.AuthState;
 import org.apache.http.auth.Credentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MIME;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicResponseHandler;
@@ -21,6 +26,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -28,7 +34,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Acts as a web service client.
@@ -37,7 +46,11 @@ import java.io.IOException;
  */
 public class WebServiceClient {
     private static final String GET_WEB_SERVICE_MESSAGE = "Making GET request to web service URL \"%s\"";
+    private static final String GET_TO_FILE_WEB_SERVICE_MESSAGE =
+            "Making GET request to web service URL \"%s\" (response to file \"%s\")";
     private static final String POST_WEB_SERVICE_MESSAGE = "Making POST request to web service URL \"%s\" (%s %s)";
+    private static final String POST_STREAM_WEB_SERVICE_MESSAGE =
+            "Making streamed POST request to web service URL \"%s\" (%s)";
     private static final String PUT_WEB_SERVICE_MESSAGE = "Making PUT request to web service URL \"%s\" (%s %s)";
     private static final String CALLED_WEB_SERVICE_MESSAGE =  "Call to web service URL \"%s\" took %d ms";
     private static final String STATUS_UNSUCCESSFUL_MESSAGE =
@@ -82,6 +95,19 @@ public class WebServiceClient {
         return request(createRequest(url, HttpMethod.GET).build());
     }
 
+    /**
+     * Calls a web service by making a GET request, and writes the response to a file as it is received (rather than
+     * holding it in memory).
+     * @param url The web service URL to call.
+     * @param file The file to write the response to. Any existing content is overwritten.
+     * @throws WebServiceClientException If a response could not be obtained from the web service for whatever reason
+     * (including the file failing to be written), or if a response status code other than "successful" is returned.
+     */
+    public void makeGetRequestToFile(String url, File file) throws WebServiceClientException {
+        LOGGER.debug(String.format(GET_TO_FILE_WEB_SERVICE_MESSAGE, url, file.getPath()));
+        request(createRequest(url, HttpMethod.GET).build(), new FileResponseHandler(file));
+    }
+
     /**
      * Calls a web service by making a POST request.
      * @param url The web service URL to call.
@@ -120,6 +146,27 @@ public class WebServiceClient {
         return request(build);
     }
 
+    /**
+     * Calls a web service by making a POST request, with a body that is written as the request is sent (using chunked
+     * transfer encoding), rather than being held in memory or on disk first. The body is not repeatable, so is sent
+     * as a single multipart file.
+     * @param url The web service URL to call.
+     * @param fileName The file name to give the body in the multipart request.
+     * @param body Writes the body of the request.
+     * @return The web service response as a string.
+     * @throws WebServiceClientException If a response could not be obtained from the web service for whatever reason
+     * (including the body failing to be written), or if a response status code other than "successful" is returned.
+     */
+    public String makePostRequestWithStream(String url, String fileName, RequestBodyWriter body)
+            throws WebServiceClientException {
+        if (body == null) {
+            throw new IllegalArgumentException("POST body must be non-null");
+        }
+
+        LOGGER.debug(String.format(POST_STREAM_WEB_SERVICE_MESSAGE, url, fileName));
+        return request(createRequest(url, HttpMethod.POST, fileName, body).build());
+    }
+
     /**
      * Calls a web service by making a PUT request.
      * @param url The web service URL to call.
@@ -181,7 +228,7 @@ public class WebServiceClient {
     }
 
     private RequestBuilder createRequest(String url, HttpMethod method, HttpEntity body) {
-        return createRequest(url, method).setEntity(body);
+        return createRequest(url, method).setEntity(new RequestBodyEntity(body));
     }
 
     private RequestBuilder createRequest(String url, HttpMethod method, String body, ContentType contentType) {
@@ -191,10 +238,19 @@ public class WebServiceClient {
         return createRequest(url, method, MultipartEntityBuilder.create().addPart("file", new FileBody(body)).build());
     }
 
+    private RequestBuilder createRequest(String url, HttpMethod method, String fileName, RequestBodyWriter body) {
+        return createRequest(url, method,
+                MultipartEntityBuilder.create().addPart("file", new StreamedContentBody(fileName, body)).build());
+    }
+
     private String request(HttpUriRequest request) {
+        return request(request, responseHandler);
+    }
+
+    private <T> T request(HttpUriRequest request, ResponseHandler<T> handler) {
         try {
             DateTime startDate = DateTime.now();
-            String response = httpClient.execute(request, responseHandler);
+            T response = httpClient.execute(request, handler);
             DateTime endDate = DateTime.now();
 
             long callDuration = new Duration(startDate, endDate).getMillis();
@@ -204,7 +260,7 @@ public class WebServiceClient {
         } catch (HttpResponseException e) {
             String status = HttpStatus.valueOf(e.getStatusCode()).getReasonPhrase();
             String message = String.format(STATUS_UNSUCCESSFUL_MESSAGE, e.getStatusCode(), status, request.getURI());
-            throw new WebServiceClientException(message);
+            throw new WebServiceClientException(message, e.getStatusCode());
         } catch (IOException e) {
             // We convert this to our WebServiceClientException; as well as being consistent and friendly,
             // it hides callers from the http client implementation library.
@@ -221,6 +277,123 @@ public class WebServiceClient {
         }
     }
 
+    /**
+     * A multipart ContentBody of unknown length, whose content is written directly to the request by a
+     * RequestBodyWriter.
+     */
+    private static class StreamedContentBody extends AbstractContentBody {
+        private final String fileName;
+        private final RequestBodyWriter body;
+
+        StreamedContentBody(String fileName, RequestBodyWriter body) {
+            super(ContentType.DEFAULT_BINARY);
+            this.fileName = fileName;
+            this.body = body;
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            body.writeTo(outputStream);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+
+    /**
+     * Wraps the entity (body) of a request, so that a failure to write it to the connection can be told apart from a
+     * failure to produce it, by the RequestBodyNotSentException in the cause chain.
+     */
+    private static class RequestBodyEntity extends HttpEntityWrapper {
+        RequestBodyEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            super.writeTo(new RequestBodyOutputStream(outputStream));
+        }
+    }
+
+    /**
+     * An OutputStream that marks any failure of the underlying (connection) stream with a RequestBodyNotSentException.
+     */
+    private static class RequestBodyOutputStream extends FilterOutputStream {
+        RequestBodyOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                throw new RequestBodyNotSentException(e);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                throw new RequestBodyNotSentException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new RequestBodyNotSentException(e);
+            }
+        }
+    }
+
+    /**
+     * A ResponseHandler that writes the response body to a file. As with BasicResponseHandler, a response status code
+     * other than "successful" causes a HttpResponseException.
+     */
+    private static class FileResponseHandler implements ResponseHandler<File> {
+        private final File file;
+
+        FileResponseHandler(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public File handleResponse(HttpResponse response) throws IOException {
+            StatusLine statusLine = response.getStatusLine();
+            HttpEntity entity = response.getEntity();
+            if (statusLine.getStatusCode() >= HttpStatus.MULTIPLE_CHOICES.value()) {
+                EntityUtils.consume(entity);
+                throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+            }
+
+            if (entity == null) {
+                FileUtils.write(file, "");
+            } else {
+                try (InputStream inputStream = entity.getContent()) {
+                    FileUtils.copyInputStreamToFile(inputStream, file);
+                }
+            }
+            return file;
+        }
+    }
+
     /**
      * A HttpRequestInterceptor to enable preemptive basic auth (ie 1 req, not 2) if credential specified in the url.
      */
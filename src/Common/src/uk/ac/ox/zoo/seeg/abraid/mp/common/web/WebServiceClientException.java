@@ -6,6 +6,8 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
  * Copyright (c) 2014 University of Oxford
  */
 public class WebServiceClientException extends RuntimeException {
+    private final Integer statusCode;
+
     /**
      * Constructs a new exception with the specified detail message.  The
      * cause is not initialized, and may subsequently be initialized by
@@ -16,6 +18,18 @@ public class WebServiceClientException extends RuntimeException {
      */
     public WebServiceClientException(String message) {
         super(message);
+        this.statusCode = null;
+    }
+
+    /**
+     * Constructs a new exception for a web service call that received an unsuccessful HTTP response.
+     *
+     * @param message    the detail message.
+     * @param statusCode the HTTP status code of the response.
+     */
+    public WebServiceClientException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
     }
 
     /**
@@ -34,5 +48,14 @@ public class WebServiceClientException extends RuntimeException {
      */
     public WebServiceClientException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = null;
+    }
+
+    /**
+     * Gets the HTTP status code of the unsuccessful response that caused this exception.
+     * @return The status code, or null if no response was received (e.g. the connection failed).
+     */
+    public Integer getStatusCode() {
+        return statusCode;
     }
 }
@@ -7,7 +7,9 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractCommonSpringIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -44,6 +46,9 @@ public class DiseaseOccurrenceDaoTest extends AbstractCommonSpringIntegrationTes
     @Autowired
     private LocationDao locationDao;
 
+    @Autowired
+    private ModelRunDao modelRunDao;
+
     @Autowired
     private ProvenanceDao provenanceDao;
 
@@ -269,6 +274,90 @@ public class DiseaseOccurrenceDaoTest extends AbstractCommonSpringIntegrationTes
         assertThat(list).doesNotContain(occurrenceWithoutModelRunPrepDate);
     }
 
+    @Test
+    public void scrollDiseaseOccurrencesYetToBeReviewedByExpertReturnsSameOccurrencesAsListInIdOrder() {
+        // Arrange
+        int validatorDiseaseGroupId = 2;
+        ValidatorDiseaseGroup validatorDiseaseGroup = validatorDiseaseGroupDao.getById(validatorDiseaseGroupId);
+        Expert expert = expertDao.getByEmail("helena.patching@zoo.ox.ac.uk");
+        saveOccurrenceInDiseaseGroupWithModelRunPrepDate(validatorDiseaseGroup);
+        saveOccurrenceInDiseaseGroupWithoutModelRunPrepDate(validatorDiseaseGroup);
+        List<Integer> expectedIds = extract(diseaseOccurrenceDao.getDiseaseOccurrencesYetToBeReviewedByExpert(
+                expert.getId(), expert.isSeegMember(), validatorDiseaseGroupId), on(DiseaseOccurrence.class).getId());
+        Collections.sort(expectedIds);
+
+        // Act
+        List<Integer> ids = getIds(diseaseOccurrenceDao.scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                expert.getId(), expert.isSeegMember(), validatorDiseaseGroupId, 0));
+
+        // Assert
+        assertThat(ids).hasSize(2);
+        assertThat(ids).isEqualTo(expectedIds);
+    }
+
+    @Test
+    public void scrollDiseaseOccurrencesYetToBeReviewedByExpertOnlyReturnsOccurrencesAfterCursor() {
+        // Arrange
+        int validatorDiseaseGroupId = 2;
+        ValidatorDiseaseGroup validatorDiseaseGroup = validatorDiseaseGroupDao.getById(validatorDiseaseGroupId);
+        Expert expert = expertDao.getByEmail("helena.patching@zoo.ox.ac.uk");
+        DiseaseOccurrence occurrence1 = saveOccurrenceInDiseaseGroupWithoutModelRunPrepDate(validatorDiseaseGroup);
+        DiseaseOccurrence occurrence2 = saveOccurrenceInDiseaseGroupWithModelRunPrepDate(validatorDiseaseGroup);
+
+        // Act
+        List<Integer> ids = getIds(diseaseOccurrenceDao.scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                expert.getId(), expert.isSeegMember(), validatorDiseaseGroupId, occurrence1.getId()));
+
+        // Assert
+        assertThat(ids).containsExactly(occurrence2.getId());
+    }
+
+    @Test
+    public void scrollInputDiseaseOccurrencesForModelRunReturnsInputOccurrencesInIdOrderAfterCursor() {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = diseaseOccurrenceDao.getAll().subList(0, 6);
+        ModelRun modelRun = new ModelRun("scrollTest", diseaseGroupDao.getById(87), "host", DateTime.now(),
+                DateTime.now(), DateTime.now());
+        modelRun.setInputDiseaseOccurrences(occurrences);
+        modelRunDao.save(modelRun);
+        flushAndClear();
+        List<Integer> expectedIds = extract(occurrences, on(DiseaseOccurrence.class).getId());
+        Collections.sort(expectedIds);
+
+        // Act
+        List<Integer> ids = getIds(diseaseOccurrenceDao.scrollInputDiseaseOccurrencesForModelRun(
+                modelRun.getId(), expectedIds.get(1)));
+
+        // Assert
+        assertThat(ids).isEqualTo(expectedIds.subList(2, 6));
+    }
+
+    @Test
+    public void scrollInputDiseaseOccurrencesForModelRunEvictsOccurrencesOnceProcessed() {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = diseaseOccurrenceDao.getAll().subList(0, 2);
+        ModelRun modelRun = new ModelRun("scrollTest", diseaseGroupDao.getById(87), "host", DateTime.now(),
+                DateTime.now(), DateTime.now());
+        modelRun.setInputDiseaseOccurrences(occurrences);
+        modelRunDao.save(modelRun);
+        flushAndClear();
+
+        // Act
+        CloseableIterator<DiseaseOccurrence> iterator =
+                diseaseOccurrenceDao.scrollInputDiseaseOccurrencesForModelRun(modelRun.getId(), 0);
+        DiseaseOccurrence first = iterator.next();
+        boolean firstInSessionWhenCurrent = sessionFactory.getCurrentSession().contains(first);
+        DiseaseOccurrence second = iterator.next();
+        boolean firstInSessionAfterNext = sessionFactory.getCurrentSession().contains(first);
+        iterator.close();
+
+        // Assert
+        assertThat(firstInSessionWhenCurrent).isTrue();
+        assertThat(firstInSessionAfterNext).isFalse();
+        assertThat(sessionFactory.getCurrentSession().contains(first.getLocation())).isFalse();
+        assertThat(sessionFactory.getCurrentSession().contains(second)).isFalse();
+    }
+
     private DiseaseOccurrence saveOccurrenceInDiseaseGroupWithoutModelRunPrepDate(ValidatorDiseaseGroup validatorDiseaseGroup) {
         DiseaseGroup diseaseGroup = diseaseGroupDao.getById(1);
         diseaseGroup.setLastModelRunPrepDate(null);
@@ -316,6 +405,18 @@ public class DiseaseOccurrenceDaoTest extends AbstractCommonSpringIntegrationTes
         assertThat(list).doesNotContain(occ3);
     }
 
+    private List<Integer> getIds(CloseableIterator<DiseaseOccurrence> iterator) {
+        List<Integer> ids = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                ids.add(iterator.next().getId());
+            }
+        } finally {
+            iterator.close();
+        }
+        return ids;
+    }
+
     private DiseaseOccurrence createDiseaseOccurrence(int id, DiseaseGroup diseaseGroup, DiseaseOccurrenceStatus status) {
         return createDiseaseOccurrence(id, diseaseGroup, status, 80, new DateTime());
     }
@@ -336,6 +437,23 @@ public class DiseaseOccurrenceDaoTest extends AbstractCommonSpringIntegrationTes
         return occurrence;
     }
 
+    @Test
+    public void saveAllUpdatesDiseaseOccurrences() {
+        // Arrange
+        DiseaseOccurrence occurrence0 = diseaseOccurrenceDao.getById(272829);
+        DiseaseOccurrence occurrence1 = diseaseOccurrenceDao.getById(272830);
+        occurrence0.setFinalWeighting(0.3);
+        occurrence1.setFinalWeighting(0.7);
+
+        // Act
+        diseaseOccurrenceDao.saveAll(Arrays.asList(occurrence0, occurrence1));
+
+        // Assert
+        flushAndClear();
+        assertThat(diseaseOccurrenceDao.getById(272829).getFinalWeighting()).isEqualTo(0.3);
+        assertThat(diseaseOccurrenceDao.getById(272830).getFinalWeighting()).isEqualTo(0.7);
+    }
+
     @Test
     public void saveThenReloadDiseaseOccurrence() {
         // Arrange
@@ -5,6 +5,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractCommonSpringIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -33,4 +36,19 @@ public class GeoNameDaoTest extends AbstractCommonSpringIntegrationTests {
             assertThat(geoName.getFeatureCode()).isEqualTo("ADM1");
             assertThat(geoName.getId()).isEqualTo(213);
         }
+
+        @Test
+        public void getByIdsReturnsOnlyGeoNamesThatExist() {
+            // Arrange
+            geoNameDao.save(new GeoName(213, "ADM1"));
+            geoNameDao.save(new GeoName(214, "PPL"));
+            geoNameDao.save(new GeoName(215, "PCLI"));
+            flushAndClear();
+
+            // Act
+            List<GeoName> geoNames = geoNameDao.getByIds(Arrays.asList(213, 215, 216));
+
+            // Assert
+            assertThat(geoNames).containsOnly(new GeoName(213, "ADM1"), new GeoName(215, "PCLI"));
+        }
 }
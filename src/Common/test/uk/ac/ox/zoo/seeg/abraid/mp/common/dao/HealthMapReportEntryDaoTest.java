@@ -4,6 +4,8 @@ import org.joda.time.DateTime;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractCommonSpringIntegrationTests;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrenceStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapReportEntry;
 
 import java.util.List;
@@ -18,10 +20,23 @@ public class HealthMapReportEntryDaoTest extends AbstractCommonSpringIntegration
     @Autowired
     private HealthMapReportEntryDao dao;
 
+    @Autowired
+    private AlertDao alertDao;
+
+    @Autowired
+    private DiseaseGroupDao diseaseGroupDao;
+
+    @Autowired
+    private DiseaseOccurrenceDao diseaseOccurrenceDao;
+
+    @Autowired
+    private LocationDao locationDao;
+
     @Test
     public void getDiseaseReportEntries() throws Exception {
         // Arrange
         String month = DateTime.now().toString("YYYY-MM");
+        dao.updateHealthMapReportRollup();
 
         // Act
         List<HealthMapReportEntry> entries = dao.getHealthMapDiseaseReportEntries();
@@ -38,6 +53,7 @@ public class HealthMapReportEntryDaoTest extends AbstractCommonSpringIntegration
     public void getCountryReportEntries() throws Exception {
         // Arrange
         String month = DateTime.now().toString("YYYY-MM");
+        dao.updateHealthMapReportRollup();
 
         // Act
         List<HealthMapReportEntry> entries = dao.getHealthMapCountryReportEntries();
@@ -64,4 +80,105 @@ public class HealthMapReportEntryDaoTest extends AbstractCommonSpringIntegration
                 new HealthMapReportEntry(month, "United States of America", 0L, 3L, 0L, 0L, 0L, 1L, 0L, 0L)
         );
     }
+
+    @Test
+    public void updateHealthMapReportRollupAddsNewOccurrences() throws Exception {
+        // Arrange
+        String month = DateTime.now().toString("YYYY-MM");
+        // A second Dengue occurrence at a country-precision location in Mexico, with a HealthMap alert
+        createDiseaseOccurrence(87, 48, 212855);
+
+        // Act
+        dao.updateHealthMapReportRollup();
+
+        // Assert
+        assertThat(dao.getHealthMapDiseaseReportEntries()).contains(
+                new HealthMapReportEntry(month, "Dengue", 19L, 4L, 5L, 18L, 11L, 4L, 5L, 18L));
+        assertThat(dao.getHealthMapCountryReportEntries()).contains(
+                new HealthMapReportEntry(month, "Mexico", 2L, 1L, 0L, 1L, 1L, 1L, 0L, 1L));
+    }
+
+    @Test
+    public void updateHealthMapReportRollupDoesNotAddOccurrencesTwice() throws Exception {
+        // Arrange
+        String month = DateTime.now().toString("YYYY-MM");
+        createDiseaseOccurrence(87, 48, 212855);
+        dao.updateHealthMapReportRollup();
+
+        // Act
+        dao.updateHealthMapReportRollup();
+
+        // Assert
+        assertThat(dao.getHealthMapDiseaseReportEntries()).contains(
+                new HealthMapReportEntry(month, "Dengue", 19L, 4L, 5L, 18L, 11L, 4L, 5L, 18L));
+    }
+
+    @Test
+    public void updateHealthMapReportRollupAddsOccurrenceCommittedAfterOccurrencesWithHigherIds() throws Exception {
+        // Arrange - an ID is allocated to an occurrence (as if by a concurrent transaction), but the occurrence is
+        // only inserted once a later occurrence has been added to the rollup
+        String month = DateTime.now().toString("YYYY-MM");
+        int lateOccurrenceId = ((Number) uniqueSQLResult("SELECT nextval('disease_occurrence_id_seq')")).intValue();
+        createDiseaseOccurrence(87, 48, 212855);
+        dao.updateHealthMapReportRollup();
+        executeSQLUpdate("INSERT INTO disease_occurrence (id, disease_group_id, location_id, alert_id, status, " +
+                "occurrence_date) VALUES (:id, 87, 48, 212855, 'READY', now())", "id", lateOccurrenceId);
+
+        // Act
+        dao.updateHealthMapReportRollup();
+
+        // Assert
+        assertThat(dao.getHealthMapDiseaseReportEntries()).contains(
+                new HealthMapReportEntry(month, "Dengue", 20L, 4L, 5L, 18L, 11L, 4L, 5L, 18L));
+        assertThat(dao.getHealthMapCountryReportEntries()).contains(
+                new HealthMapReportEntry(month, "Mexico", 3L, 1L, 0L, 1L, 1L, 1L, 0L, 1L));
+    }
+
+    @Test
+    public void getReportEntriesDoNotIncludeNewOccurrencesUntilTheRollupIsUpdated() throws Exception {
+        // Arrange
+        String month = DateTime.now().toString("YYYY-MM");
+        dao.updateHealthMapReportRollup();
+        createDiseaseOccurrence(87, 48, 212855);
+
+        // Act
+        List<HealthMapReportEntry> diseaseEntries = dao.getHealthMapDiseaseReportEntries();
+        List<HealthMapReportEntry> countryEntries = dao.getHealthMapCountryReportEntries();
+
+        // Assert
+        assertThat(diseaseEntries).contains(
+                new HealthMapReportEntry(month, "Dengue", 18L, 4L, 5L, 18L, 11L, 4L, 5L, 18L));
+        assertThat(countryEntries).contains(
+                new HealthMapReportEntry(month, "Mexico", 1L, 1L, 0L, 1L, 1L, 1L, 0L, 1L));
+    }
+
+    @Test
+    public void rebuildHealthMapReportRollupGivesSameEntriesAsIncrementalUpdates() throws Exception {
+        // Arrange
+        createDiseaseOccurrence(87, 48, 212855);
+        dao.updateHealthMapReportRollup();
+        List<HealthMapReportEntry> expectedDiseaseEntries = dao.getHealthMapDiseaseReportEntries();
+        List<HealthMapReportEntry> expectedCountryEntries = dao.getHealthMapCountryReportEntries();
+
+        // Act
+        dao.rebuildHealthMapReportRollup();
+
+        // Assert
+        List<HealthMapReportEntry> diseaseEntries = dao.getHealthMapDiseaseReportEntries();
+        List<HealthMapReportEntry> countryEntries = dao.getHealthMapCountryReportEntries();
+        assertThat(diseaseEntries).hasSameSizeAs(expectedDiseaseEntries);
+        assertThat(diseaseEntries).containsAll(expectedDiseaseEntries);
+        assertThat(countryEntries).hasSameSizeAs(expectedCountryEntries);
+        assertThat(countryEntries).containsAll(expectedCountryEntries);
+    }
+
+    private void createDiseaseOccurrence(int diseaseGroupId, int locationId, int alertId) {
+        DiseaseOccurrence occurrence = new DiseaseOccurrence();
+        occurrence.setDiseaseGroup(diseaseGroupDao.getById(diseaseGroupId));
+        occurrence.setLocation(locationDao.getById(locationId));
+        occurrence.setAlert(alertDao.getById(alertId));
+        occurrence.setStatus(DiseaseOccurrenceStatus.READY);
+        occurrence.setOccurrenceDate(DateTime.now());
+        diseaseOccurrenceDao.save(occurrence);
+    }
 }
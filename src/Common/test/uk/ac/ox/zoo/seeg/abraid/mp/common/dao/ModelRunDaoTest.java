@@ -445,6 +445,24 @@ public class ModelRunDaoTest extends AbstractCommonSpringIntegrationTests {
         assertThat(result.get(2)).isEqualTo("host1");
     }
 
+    @Test
+    public void getCompletedModelRunsRequestedSinceGetsCorrectModelRuns() {
+        // Arrange
+        modelRunDao.save(modelRunDengue1);
+        modelRunDao.save(modelRunDengue2);
+        modelRunDao.save(modelRunDengue3);
+        modelRunDao.save(modelRunDengue4);
+        modelRunDao.save(modelRunDengue5);
+        modelRunDao.save(modelRunMalarias1);
+
+        // Act
+        List<ModelRun> result = modelRunDao.getCompletedModelRunsRequestedSince(
+                new LocalDate("2014-07-02").toDateTimeAtStartOfDay());
+
+        // Assert
+        assertThat(result).containsOnly(modelRunDengue3, modelRunMalarias1);
+    }
+
     @Test
     public void getModelRunsForDiseaseGroupGetsCorrectSetOfModelRuns() {
         // Arrange
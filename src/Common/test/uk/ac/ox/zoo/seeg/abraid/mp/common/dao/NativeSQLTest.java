@@ -1,17 +1,24 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
 
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDateTime;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractCommonSpringIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.DiseaseExtentDistanceCalculator;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static ch.lambdaj.Lambda.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,6 +45,101 @@ public class NativeSQLTest extends AbstractCommonSpringIntegrationTests {
     private NativeSQLImpl nativeSQL;
     @Autowired
     private LocationDao locationDao;
+    @Autowired
+    private DiseaseOccurrenceDao diseaseOccurrenceDao;
+    @Autowired
+    private ModelRunDao modelRunDao;
+
+    @Test
+    public void findTriggerMetricsForDiseaseGroupsReturnsEmptyListForNoDiseaseGroups() {
+        List<DiseaseGroupTriggerMetrics> metrics =
+                nativeSQL.findTriggerMetricsForDiseaseGroups(new ArrayList<Integer>(), 7);
+        assertThat(metrics).isEmpty();
+    }
+
+    @Test
+    public void findTriggerMetricsForDiseaseGroupsReturnsMetricsForEachDiseaseGroup() {
+        // Arrange - a disease group with a previous model run, and new occurrences since its last model run prep
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lastModelRunPrepDate = now.minusDays(1);
+        executeSQLUpdate(String.format("UPDATE disease_group SET last_model_run_prep_date='%s', " +
+                "max_env_suitability=0.5, min_distance_from_extent=50 WHERE id=87", lastModelRunPrepDate));
+        int lastModelRunOccurrenceId =
+                insertOccurrence(2872, "READY", null, 51.0, 0.4, lastModelRunPrepDate.minusDays(2));
+        insertModelRun(87, diseaseOccurrenceDao.getById(lastModelRunOccurrenceId));
+        insertOccurrence(2872, "READY", null, 51.0, 0.4, now.minusHours(1)); // no - used in last model run
+        insertOccurrence(133, "READY", null, 51.0, 0.4, now.minusHours(1)); // yes
+        insertOccurrence(133, "READY", null, 51.0, 0.4, now.minusHours(1)); // no - not a distinct location
+        insertOccurrence(5447, "READY", null, 49.0, 0.4, now.minusHours(1)); // yes - low environmental suitability
+        insertOccurrence(8648, "READY", 0.5, 51.0, 0.6, lastModelRunPrepDate.minusDays(3)); // yes - validated
+        insertOccurrence(14993, "READY", null, 49.0, 0.6, now.minusHours(1)); // no - within disease extent
+        insertOccurrence(20635, "IN_REVIEW", null, 51.0, 0.4, now.minusHours(1)); // no - status
+        insertOccurrence(9394, "READY", null, 51.0, 0.4, lastModelRunPrepDate.minusHours(1)); // no - created date
+        insertOccurrence(6, "READY", null, 51.0, 0.4, now.minusHours(1)); // no - location not model eligible
+
+        DiseaseGroup diseaseGroup87 = diseaseGroupDao.getById(87);
+        DiseaseGroup diseaseGroup22 = diseaseGroupDao.getById(22);
+
+        // Act
+        List<DiseaseGroupTriggerMetrics> metrics =
+                nativeSQL.findTriggerMetricsForDiseaseGroups(Arrays.asList(87, 22), 7);
+
+        // Assert
+        assertThat(metrics).hasSize(2);
+        DiseaseGroupTriggerMetrics metrics87 = (metrics.get(0).getDiseaseGroupId() == 87) ? metrics.get(0) : metrics.get(1);
+        DiseaseGroupTriggerMetrics metrics22 = (metrics.get(0).getDiseaseGroupId() == 22) ? metrics.get(0) : metrics.get(1);
+        assertThat(metrics87.getNewLocationCount()).isEqualTo(3);
+        assertThatMetricsMatchPerDiseaseGroupQueries(metrics87, diseaseGroup87, 7);
+        assertThatMetricsMatchPerDiseaseGroupQueries(metrics22, diseaseGroup22, 7);
+    }
+
+    private void assertThatMetricsMatchPerDiseaseGroupQueries(DiseaseGroupTriggerMetrics metrics,
+                                                              DiseaseGroup diseaseGroup, int maxDaysOnValidator) {
+        assertThat(metrics.getDiseaseGroupId()).isEqualTo(diseaseGroup.getId());
+        assertThat(metrics.getLastModelRunPrepDate()).isEqualTo(diseaseGroup.getLastModelRunPrepDate());
+        assertThat(metrics.getLatestExtentClassChangeDate()).isEqualTo(
+                adminUnitDiseaseExtentClassDao.getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(
+                        diseaseGroup.getId()));
+
+        DateTime cutoff = diseaseGroup.getLastModelRunPrepDate();
+        if (cutoff != null) {
+            Set<Integer> locationsFromLastModelRun = new HashSet<>();
+            ModelRun lastModelRun = modelRunDao.getLastRequestedModelRun(diseaseGroup.getId());
+            if (lastModelRun != null && lastModelRun.getInputDiseaseOccurrences() != null) {
+                for (DiseaseOccurrence occurrence : lastModelRun.getInputDiseaseOccurrences()) {
+                    locationsFromLastModelRun.add(occurrence.getLocation().getId());
+                }
+            }
+            assertThat(metrics.getNewLocationCount()).isEqualTo(
+                    diseaseOccurrenceDao.getDistinctLocationsCountForTriggeringModelRun(diseaseGroup.getId(),
+                            locationsFromLastModelRun, cutoff,
+                            cutoff.minusDays(maxDaysOnValidator).withTimeAtStartOfDay(),
+                            diseaseGroup.getMaxEnvironmentalSuitabilityForTriggering(),
+                            diseaseGroup.getMinDistanceFromDiseaseExtentForTriggering()));
+        } else {
+            // No occurrences are new if the disease group has never been prepared for a model run
+            assertThat(metrics.getNewLocationCount()).isEqualTo(0);
+        }
+    }
+
+    private int insertOccurrence(int locationId, String status, Double expertWeighting,
+                                 Double distanceFromDiseaseExtent, Double environmentalSuitability,
+                                 LocalDateTime createdDate) {
+        executeSQLUpdate(String.format("INSERT INTO disease_occurrence (disease_group_id, alert_id, location_id, " +
+                "status, expert_weighting, distance_from_extent, env_suitability, created_date, occurrence_date) " +
+                "VALUES (87, 212855, %s, '%s', %s, %s, %s, '%s', '%s')", locationId, status, expertWeighting,
+                distanceFromDiseaseExtent, environmentalSuitability, createdDate, createdDate));
+        flushAndClear();
+        return (Integer) uniqueSQLResult("SELECT MAX(id) FROM disease_occurrence");
+    }
+
+    private void insertModelRun(int diseaseGroupId, DiseaseOccurrence inputOccurrence) {
+        ModelRun modelRun = new ModelRun("test" + diseaseGroupId, diseaseGroupDao.getById(diseaseGroupId), "host",
+                DateTime.now(), DateTime.now(), DateTime.now());
+        modelRun.setInputDiseaseOccurrences(Arrays.asList(inputOccurrence));
+        modelRunDao.save(modelRun);
+        flushAndClear();
+    }
 
     @Test
     public void findAdminUnitGlobalThatContainsPoint() {
@@ -227,6 +329,32 @@ public class NativeSQLTest extends AbstractCommonSpringIntegrationTests {
         assertThat(nativeSQL.findDistanceInsideDiseaseExtent(87, false, id)).isEqualTo(4460.23046, offset(0.00005));
     }
 
+    @Test
+    public void findDiseaseExtentGeometries() {
+        insertDiseaseExtent();
+        Geometry extent = nativeSQL.findDiseaseExtentGeometry(87);
+        Geometry outsideExtent = nativeSQL.findOutsideDiseaseExtentGeometry(87);
+        assertThat(extent.equalsExact(GeometryUtils.createMultiPolygon(getTriangle(0, 0), getTriangle(10, 0), getTriangle(20, 0), getTriangle(30, 0)))).isTrue();
+        assertThat(outsideExtent.equalsExact(GeometryUtils.createMultiPolygon(getTriangle(40, 0), getTriangle(50, 0), getTriangle(60, 0), getTriangle(70, 0)))).isTrue();
+    }
+
+    @Test
+    public void findDiseaseExtentGeometriesWithoutExtent() {
+        insertNullDiseaseExtent();
+        assertThat(nativeSQL.findDiseaseExtentGeometry(87)).isNull();
+        assertThat(nativeSQL.findOutsideDiseaseExtentGeometry(87)).isNull();
+    }
+
+    @Test
+    public void findDistanceToDiseaseExtentPointInMemoryMatchesDatabase() {
+        insertDiseaseExtent();
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(
+                nativeSQL.findDiseaseExtentGeometry(87), nativeSQL.findOutsideDiseaseExtentGeometry(87));
+        Point point = GeometryUtils.createPoint(1, 4);
+        assertThat(calculator.findDistanceOutsideDiseaseExtent(point)).isEqualTo(156.75914, offset(0.00005));
+        assertThat(calculator.findDistanceInsideDiseaseExtent(point)).isEqualTo(4460.23046, offset(0.00005));
+    }
+
     @Test
       public void findDistanceToDiseaseExtentAdmin1Global() {
         insertDiseaseExtent();
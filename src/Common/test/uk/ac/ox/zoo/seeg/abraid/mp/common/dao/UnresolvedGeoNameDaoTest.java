@@ -0,0 +1,53 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dao;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractCommonSpringIntegrationTests;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.UnresolvedGeoName;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for UnresolvedGeoNameDao.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class UnresolvedGeoNameDaoTest extends AbstractCommonSpringIntegrationTests {
+    @Autowired
+    private UnresolvedGeoNameDao unresolvedGeoNameDao;
+
+    @Test
+    public void saveAndReloadUnresolvedGeoName() {
+        // Arrange
+        DateTime lookupDate = new DateTime("2015-10-01T12:34:56");
+
+        // Act
+        unresolvedGeoNameDao.save(new UnresolvedGeoName(123, lookupDate));
+
+        // Assert
+        flushAndClear();
+        UnresolvedGeoName unresolvedGeoName = unresolvedGeoNameDao.getById(123);
+        assertThat(unresolvedGeoName).isNotNull();
+        assertThat(unresolvedGeoName.getId()).isEqualTo(123);
+        assertThat(unresolvedGeoName.getLookupDate().getMillis()).isEqualTo(lookupDate.getMillis());
+    }
+
+    @Test
+    public void getByIdsReturnsOnlyUnresolvedGeoNamesThatExist() {
+        // Arrange
+        DateTime lookupDate = new DateTime("2015-10-01T12:34:56");
+        unresolvedGeoNameDao.save(new UnresolvedGeoName(123, lookupDate));
+        unresolvedGeoNameDao.save(new UnresolvedGeoName(124, lookupDate));
+        flushAndClear();
+
+        // Act
+        List<UnresolvedGeoName> unresolvedGeoNames = unresolvedGeoNameDao.getByIds(Arrays.asList(122, 124));
+
+        // Assert
+        assertThat(unresolvedGeoNames).hasSize(1);
+        assertThat(unresolvedGeoNames.get(0).getId()).isEqualTo(124);
+    }
+}
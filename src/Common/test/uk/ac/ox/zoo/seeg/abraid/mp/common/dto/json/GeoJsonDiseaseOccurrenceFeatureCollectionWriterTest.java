@@ -0,0 +1,196 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import org.junit.Test;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractDiseaseOccurrenceGeoJsonTests;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the GeoJsonDiseaseOccurrenceFeatureCollectionWriter class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class GeoJsonDiseaseOccurrenceFeatureCollectionWriterTest extends AbstractDiseaseOccurrenceGeoJsonTests {
+    @Test
+    public void writeGivesSameOutputAsSerializingAFeatureCollection() throws Exception {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = Arrays.asList(defaultDiseaseOccurrence(), defaultDiseaseOccurrence());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer =
+                new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(new AbraidJsonObjectMapper(), null, null);
+
+        // Act
+        writer.write(occurrences.iterator(), stream);
+
+        // Assert
+        assertThat(stream.toString()).isEqualTo(getTwoDiseaseOccurrenceFeaturesAsJson());
+    }
+
+    @Test
+    public void writeGivesEmptyFeatureCollectionForNoOccurrences() throws Exception {
+        // Arrange
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer =
+                new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(new AbraidJsonObjectMapper(), null, 10);
+
+        // Act
+        writer.write(new ArrayList<DiseaseOccurrence>().iterator(), stream);
+
+        // Assert
+        GeoJsonDiseaseOccurrenceFeatureCollection result = new AbraidJsonObjectMapper()
+                .reader(GeoJsonDiseaseOccurrenceFeatureCollection.class).readValue(stream.toString());
+        assertThat(result.getFeatures()).isEmpty();
+        assertThat(stream.toString()).doesNotContain("nextCursor");
+    }
+
+    @Test
+    public void writeOnlyWritesOccurrencesWithinBoundingBox() throws Exception {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                mockOccurrence(1, -10.0, 10.0),
+                mockOccurrence(2, 10.0, 10.0),
+                mockOccurrence(3, 10.0, -10.0),
+                mockOccurrence(4, 0.0, 20.0));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer = new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(
+                new AbraidJsonObjectMapper(), Arrays.asList(-10.0, 0.0, 5.0, 20.0), null);
+
+        // Act
+        writer.write(occurrences.iterator(), stream);
+
+        // Assert
+        assertThat(getFeatureIds(stream)).containsExactly(1, 4);
+        assertThat(stream.toString()).doesNotContain("nextCursor");
+    }
+
+    @Test
+    public void writeLimitsOccurrencesAndWritesNextCursorIfThereAreMore() throws Exception {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                mockOccurrence(5, 0.0, 0.0),
+                mockOccurrence(8, 0.0, 0.0),
+                mockOccurrence(9, 0.0, 0.0));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer =
+                new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(new AbraidJsonObjectMapper(), null, 2);
+
+        // Act
+        writer.write(occurrences.iterator(), stream);
+
+        // Assert
+        assertThat(getFeatureIds(stream)).containsExactly(5, 8);
+        assertThat(stream.toString()).endsWith("],\"nextCursor\":8}");
+    }
+
+    @Test
+    public void writeDoesNotWriteNextCursorIfThereAreNoMoreOccurrences() throws Exception {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                mockOccurrence(5, 0.0, 0.0),
+                mockOccurrence(8, 0.0, 0.0));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer =
+                new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(new AbraidJsonObjectMapper(), null, 2);
+
+        // Act
+        writer.write(occurrences.iterator(), stream);
+
+        // Assert
+        assertThat(getFeatureIds(stream)).containsExactly(5, 8);
+        assertThat(stream.toString()).doesNotContain("nextCursor");
+    }
+
+    @Test
+    public void writeDoesNotWriteNextCursorIfThereAreNoMoreOccurrencesWithinBoundingBox() throws Exception {
+        // Arrange
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                mockOccurrence(5, 0.0, 0.0),
+                mockOccurrence(8, 50.0, 50.0));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer = new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(
+                new AbraidJsonObjectMapper(), Arrays.asList(-1.0, -1.0, 1.0, 1.0), 1);
+
+        // Act
+        writer.write(occurrences.iterator(), stream);
+
+        // Assert
+        assertThat(getFeatureIds(stream)).containsExactly(5);
+        assertThat(stream.toString()).doesNotContain("nextCursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForInvalidLimit() throws Exception {
+        new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(new AbraidJsonObjectMapper(), null, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForInvalidBoundingBox() throws Exception {
+        new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(
+                new AbraidJsonObjectMapper(), Arrays.asList(10.0, 0.0, 5.0, 20.0), null);
+    }
+
+    @Test
+    public void parseBoundingBoxReturnsCoordinates() throws Exception {
+        // Act
+        List<Double> result = GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox("-10.5, 0,5,20.25");
+
+        // Assert
+        assertThat(result).containsExactly(-10.5, 0.0, 5.0, 20.25);
+    }
+
+    @Test
+    public void parseBoundingBoxReturnsNullForNull() throws Exception {
+        // Act
+        List<Double> result = GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox(null);
+
+        // Assert
+        assertThat(result).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseBoundingBoxThrowsExceptionForWrongNumberOfCoordinates() throws Exception {
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox("1,2,3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseBoundingBoxThrowsExceptionForNonNumericCoordinates() throws Exception {
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox("1,2,3,a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseBoundingBoxThrowsExceptionIfMinimumExceedsMaximum() throws Exception {
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox("1,20,3,10");
+    }
+
+    private DiseaseOccurrence mockOccurrence(int id, double longitude, double latitude) {
+        DiseaseOccurrence occurrence = defaultDiseaseOccurrence();
+        when(occurrence.getId()).thenReturn(id);
+        Location location = mock(Location.class);
+        when(location.getGeom()).thenReturn(GeometryUtils.createPoint(longitude, latitude));
+        when(occurrence.getLocation()).thenReturn(location);
+        return occurrence;
+    }
+
+    private List<Integer> getFeatureIds(ByteArrayOutputStream stream) throws Exception {
+        // The "nextCursor" member is not part of the feature collection DTO, so is ignored
+        GeoJsonDiseaseOccurrenceFeatureCollection result = new AbraidJsonObjectMapper()
+                .reader(GeoJsonDiseaseOccurrenceFeatureCollection.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(stream.toString());
+        List<Integer> ids = new ArrayList<>();
+        for (GeoJsonDiseaseOccurrenceFeature feature : result.getFeatures()) {
+            ids.add(feature.getId());
+        }
+        return ids;
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Before;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 
 import java.util.*;
 
@@ -60,6 +62,21 @@ public class DiseaseServiceTest {
         verify(adminUnitDiseaseExtentClassDao).save(eq(disease));
     }
 
+    @Test
+    public void saveDiseaseOccurrences() {
+        List<DiseaseOccurrence> occurrences = Arrays.asList(new DiseaseOccurrence(1), new DiseaseOccurrence(2));
+        diseaseService.saveDiseaseOccurrences(occurrences);
+        verify(diseaseOccurrenceDao).saveAll(same(occurrences));
+    }
+
+    @Test
+    public void saveAdminUnitDiseaseExtentClasses() {
+        List<AdminUnitDiseaseExtentClass> diseaseExtent =
+                Arrays.asList(new AdminUnitDiseaseExtentClass(), new AdminUnitDiseaseExtentClass());
+        diseaseService.saveAdminUnitDiseaseExtentClasses(diseaseExtent);
+        verify(adminUnitDiseaseExtentClassDao).saveAll(same(diseaseExtent));
+    }
+
     @Test
     public void getAllDiseaseExtentClasses() {
         // Arrange
@@ -465,6 +482,26 @@ public class DiseaseServiceTest {
         assertThat(result).isSameAs(expectedTime);
     }
 
+    @Test
+    public void getTriggerMetricsForDiseaseGroupsIndexesMetricsByDiseaseGroupId() {
+        // Arrange
+        List<Integer> diseaseGroupIds = Arrays.asList(10, 20);
+        DiseaseGroupTriggerMetrics metrics1 = new DiseaseGroupTriggerMetrics(10, DateTime.now(), 3, null);
+        DiseaseGroupTriggerMetrics metrics2 = new DiseaseGroupTriggerMetrics(20, null, 0, DateTime.now());
+
+        when(nativeSQL.findTriggerMetricsForDiseaseGroups(diseaseGroupIds, maxDaysOnValidator))
+                .thenReturn(Arrays.asList(metrics1, metrics2));
+
+        // Act
+        Map<Integer, DiseaseGroupTriggerMetrics> result =
+                diseaseService.getTriggerMetricsForDiseaseGroups(diseaseGroupIds);
+
+        // Assert
+        assertThat(result).hasSize(2);
+        assertThat(result.get(10)).isSameAs(metrics1);
+        assertThat(result.get(20)).isSameAs(metrics2);
+    }
+
     @Test
     public void getDiseaseExtentByDiseaseGroupIdReturnsTropicalExtentForUnspecifiedDisease() {
         // Arrange
@@ -599,6 +636,23 @@ public class DiseaseServiceTest {
         assertThat(testOccurrences).isSameAs(occurrences);
     }
 
+    @Test
+    public void scrollInputDiseaseOccurrencesForModelRun() {
+        // Arrange
+        int modelRunId = 7;
+        int cursor = 100;
+        CloseableIterator<DiseaseOccurrence> iterator = GeneralTestUtils.createCloseableIterator(
+                Arrays.asList(new DiseaseOccurrence()));
+        when(diseaseOccurrenceDao.scrollInputDiseaseOccurrencesForModelRun(modelRunId, cursor)).thenReturn(iterator);
+
+        // Act
+        CloseableIterator<DiseaseOccurrence> result =
+                diseaseService.scrollInputDiseaseOccurrencesForModelRun(modelRunId, cursor);
+
+        // Assert
+        assertThat((Object) result).isSameAs(iterator);
+    }
+
     private void getDiseaseOccurrencesForDiseaseExtent(boolean isGlobal) {
         // Arrange
         int diseaseGroupId = 10;
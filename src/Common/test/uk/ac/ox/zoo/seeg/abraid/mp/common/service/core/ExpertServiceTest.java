@@ -8,6 +8,8 @@ import org.mockito.InOrder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -115,6 +117,21 @@ public class ExpertServiceTest {
         assertThat(list).isSameAs(testList);
     }
 
+    @Test
+    public void scrollDiseaseOccurrencesYetToBeReviewedByExpertReturnsIteratorFromDao() {
+        // Arrange
+        CloseableIterator<DiseaseOccurrence> iterator = GeneralTestUtils.createCloseableIterator(
+                new ArrayList<DiseaseOccurrence>());
+        when(diseaseOccurrenceDao.scrollDiseaseOccurrencesYetToBeReviewedByExpert(1, true, 2, 3)).thenReturn(iterator);
+
+        // Act
+        CloseableIterator<DiseaseOccurrence> result =
+                expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(1, true, 2, 3);
+
+        // Assert
+        assertThat((Object) result).isSameAs(iterator);
+    }
+
     @Test
     public void getDiseaseOccurrencesYetToBeReviewedByExpertMustReturnEmptyListIfExpertDoesNotExist() {
         // Arrange
@@ -1,6 +1,7 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.core;
 
 import com.vividsolutions.jts.geom.Point;
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.*;
@@ -22,6 +23,7 @@ public class LocationServiceTest {
     private LocationDao locationDao;
     private GeoNamesLocationPrecisionDao geoNamesLocationPrecisionDao;
     private GeoNameDao geoNameDao;
+    private UnresolvedGeoNameDao unresolvedGeoNameDao;
     private AdminUnitDiseaseExtentClassDao adminUnitDiseaseExtentClassDao;
 
     @Before
@@ -29,8 +31,10 @@ public class LocationServiceTest {
         locationDao = mock(LocationDao.class);
         geoNamesLocationPrecisionDao = mock(GeoNamesLocationPrecisionDao.class);
         geoNameDao = mock(GeoNameDao.class);
+        unresolvedGeoNameDao = mock(UnresolvedGeoNameDao.class);
         adminUnitDiseaseExtentClassDao = mock(AdminUnitDiseaseExtentClassDao.class);
-        locationService = new LocationServiceImpl(locationDao, geoNamesLocationPrecisionDao, geoNameDao, adminUnitDiseaseExtentClassDao);
+        locationService = new LocationServiceImpl(locationDao, geoNamesLocationPrecisionDao, geoNameDao,
+                unresolvedGeoNameDao, adminUnitDiseaseExtentClassDao);
     }
 
     @Test
@@ -97,6 +101,62 @@ public class LocationServiceTest {
         verify(geoNameDao).save(expectation);
     }
 
+    @Test
+    public void getGeoNamesByIds() {
+        // Arrange
+        List<Integer> ids = Arrays.asList(123, 456);
+        List<GeoName> expectation = Arrays.asList(new GeoName(123, "PPL"));
+        when(geoNameDao.getByIds(ids)).thenReturn(expectation);
+
+        // Act
+        List<GeoName> actual = locationService.getGeoNamesByIds(ids);
+
+        // Assert
+        assertThat(actual).isSameAs(expectation);
+    }
+
+    @Test
+    public void getUnresolvedGeoNamesByIds() {
+        // Arrange
+        List<Integer> ids = Arrays.asList(123, 456);
+        List<UnresolvedGeoName> expectation = Arrays.asList(new UnresolvedGeoName(456, new DateTime()));
+        when(unresolvedGeoNameDao.getByIds(ids)).thenReturn(expectation);
+
+        // Act
+        List<UnresolvedGeoName> actual = locationService.getUnresolvedGeoNamesByIds(ids);
+
+        // Assert
+        assertThat(actual).isSameAs(expectation);
+    }
+
+    @Test
+    public void saveUnresolvedGeoNameSavesNewEntry() {
+        // Arrange
+        UnresolvedGeoName unresolvedGeoName = new UnresolvedGeoName(123, new DateTime());
+        when(unresolvedGeoNameDao.getById(123)).thenReturn(null);
+
+        // Act
+        locationService.saveUnresolvedGeoName(unresolvedGeoName);
+
+        // Assert
+        verify(unresolvedGeoNameDao).save(unresolvedGeoName);
+    }
+
+    @Test
+    public void saveUnresolvedGeoNameUpdatesLookupDateOfExistingEntry() {
+        // Arrange
+        DateTime lookupDate = new DateTime("2015-10-01T12:00:00");
+        UnresolvedGeoName existingUnresolvedGeoName = new UnresolvedGeoName(123, new DateTime("2015-06-01T12:00:00"));
+        when(unresolvedGeoNameDao.getById(123)).thenReturn(existingUnresolvedGeoName);
+
+        // Act
+        locationService.saveUnresolvedGeoName(new UnresolvedGeoName(123, lookupDate));
+
+        // Assert
+        assertThat(existingUnresolvedGeoName.getLookupDate()).isEqualTo(lookupDate);
+        verify(unresolvedGeoNameDao, never()).save(any(UnresolvedGeoName.class));
+    }
+
     @Test
     public void getAdminUnitDiseaseExtentClassesCallsDaoForNonCountry() {
         // Arrange
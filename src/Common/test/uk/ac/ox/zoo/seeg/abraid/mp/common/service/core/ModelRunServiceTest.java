@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.core;
 
+import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.ModelRunDao;
@@ -127,6 +128,22 @@ public class ModelRunServiceTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    public void getCompletedModelRunsRequestedSince() {
+        // Arrange
+        DateTime requestDate = DateTime.now();
+        List<ModelRun> expected = Arrays.asList(mock(ModelRun.class));
+        ModelRunDao modelRunDao = mock(ModelRunDao.class);
+        ModelRunService modelRunService = new ModelRunServiceImpl(modelRunDao);
+        when(modelRunDao.getCompletedModelRunsRequestedSince(requestDate)).thenReturn(expected);
+
+        // Act
+        List<ModelRun> result = modelRunService.getCompletedModelRunsRequestedSince(requestDate);
+
+        // Assert
+        assertThat(result).isSameAs(expected);
+    }
+
     @Test
     public void getModelRunRequestServersByUsage() {
         // Arrange
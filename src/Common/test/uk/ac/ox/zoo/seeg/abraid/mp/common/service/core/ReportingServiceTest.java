@@ -9,6 +9,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -45,4 +46,30 @@ public class ReportingServiceTest {
         // Assert
         assertThat(result).isEqualTo(expected);
     }
+
+    @Test
+    public void updateHealthMapReportRollup() throws Exception {
+        // Arrange
+        HealthMapReportEntryDao dao = mock(HealthMapReportEntryDao.class);
+        ReportingServiceImpl target = new ReportingServiceImpl(dao);
+
+        // Act
+        target.updateHealthMapReportRollup();
+
+        // Assert
+        verify(dao).updateHealthMapReportRollup();
+    }
+
+    @Test
+    public void rebuildHealthMapReportRollup() throws Exception {
+        // Arrange
+        HealthMapReportEntryDao dao = mock(HealthMapReportEntryDao.class);
+        ReportingServiceImpl target = new ReportingServiceImpl(dao);
+
+        // Act
+        target.rebuildHealthMapReportRollup();
+
+        // Assert
+        verify(dao).rebuildHealthMapReportRollup();
+    }
 }
@@ -1,14 +1,16 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow;
 
-import org.geotools.coverage.grid.GridCoverage2D;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.DiseaseExtentDistanceCalculator;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.DistanceFromDiseaseExtentHelper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.EnvironmentalSuitabilityHelper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.MachineWeightingPredictor;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.CachedRaster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.ZonalStatistics;
 
 import java.util.Arrays;
 import java.util.List;
@@ -17,6 +19,7 @@ import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.*;
 
@@ -99,7 +102,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrence(diseaseGroupId, true, false);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(environmentalSuitability);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(environmentalSuitability);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(distanceFromDiseaseExtent);
         when(mwPredictor.findMachineWeighting(occurrence)).thenReturn(null);
 
@@ -167,7 +170,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getLocation().setPrecision(LocationPrecision.COUNTRY);
         occurrence.getLocation().setIsModelEligible(false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(environmentalSuitability);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(environmentalSuitability);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(distanceFromDiseaseExtent);
         when(mwPredictor.findMachineWeighting(occurrence)).thenReturn(null);
 
@@ -188,7 +191,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getLocation().setHasPassedQc(true);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(null);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(null);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(null);
 
         // Act
@@ -208,7 +211,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getLocation().setHasPassedQc(true);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(null);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(null);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(1.0);
 
         // Act
@@ -233,7 +236,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getLocation().setHasPassedQc(true);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.5);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.5);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(null);
 
         // Act
@@ -256,16 +259,18 @@ public class DiseaseOccurrenceValidationServiceTest {
         double environmentalSuitability = 0.42;
         double distanceFromDiseaseExtent = 500;
 
-        GridCoverage2D suitabilityRaster = mock(GridCoverage2D.class);
-        GridCoverage2D[] adminRasters = new GridCoverage2D[] {mock(GridCoverage2D.class)};
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
 
         DiseaseOccurrence occurrence = createDiseaseOccurrence(diseaseGroupId, true, false);
         occurrence.getLocation().setPrecision(LocationPrecision.ADMIN1);
         occurrence.getLocation().setHasPassedQc(true);
         setIsGoldStandardProvenance(occurrence, false);
         when(esHelper.getLatestMeanPredictionRaster(occurrence.getDiseaseGroup())).thenReturn(suitabilityRaster);
-        when(esHelper.getSingleAdminRaster(LocationPrecision.ADMIN1)).thenReturn(adminRasters);
-        when(esHelper.findEnvironmentalSuitability(same(occurrence), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(occurrence.getDiseaseGroup())).thenReturn(zonalStatistics);
+        when(esHelper.getSingleAdminRaster(LocationPrecision.ADMIN1, zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(same(occurrence), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(distanceFromDiseaseExtent);
         when(mwPredictor.findMachineWeighting(occurrence)).thenReturn(null);
 
@@ -329,7 +334,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrenceWithoutMachineLearning();
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.39);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.39);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(-300.0);
 
         // Act
@@ -351,7 +356,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrenceWithoutMachineLearning();
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.6);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.6);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(1.0);
 
         // Act
@@ -374,7 +379,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getLocation().setHasPassedQc(true);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(null);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(null);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(null);
 
         // Act
@@ -396,7 +401,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrenceWithoutMachineLearning();
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(null);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(null);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(1.0);
 
         // Act
@@ -419,7 +424,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         occurrence.getDiseaseGroup().setMaxEnvironmentalSuitabilityWithoutML(null);
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.6);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.6);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(1.0);
 
         // Act
@@ -441,7 +446,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrenceWithoutMachineLearning();
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.41);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.41);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(-1000.0);
 
         // Act
@@ -463,7 +468,7 @@ public class DiseaseOccurrenceValidationServiceTest {
         DiseaseOccurrence occurrence = createDiseaseOccurrenceWithoutMachineLearning();
         setIsGoldStandardProvenance(occurrence, false);
 
-        when(esHelper.findEnvironmentalSuitability(occurrence, null, null)).thenReturn(0.5);
+        when(esHelper.findEnvironmentalSuitability(occurrence, null, null, null)).thenReturn(0.5);
         when(dfdeHelper.findDistanceFromDiseaseExtent(occurrence)).thenReturn(null);
 
         // Act
@@ -489,8 +494,9 @@ public class DiseaseOccurrenceValidationServiceTest {
         double distanceFromDiseaseExtent1 = 500;
         double distanceFromDiseaseExtent2 = 800;
         double distanceFromDiseaseExtent3 = 900;
-        GridCoverage2D suitabilityRaster = mock(GridCoverage2D.class);
-        GridCoverage2D[] adminRasters = new GridCoverage2D[] {mock(GridCoverage2D.class)};
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
 
 
         DiseaseOccurrence occurrence1 = createDiseaseOccurrence(diseaseGroupId, false, false);
@@ -502,16 +508,14 @@ public class DiseaseOccurrenceValidationServiceTest {
         List<DiseaseOccurrence> occurrences = Arrays.asList(occurrence1, occurrence2);
 
         when(esHelper.getLatestMeanPredictionRaster(diseaseGroup)).thenReturn(suitabilityRaster);
-        when(esHelper.getAdminRasters()).thenReturn(adminRasters);
-        when(esHelper.findEnvironmentalSuitability(same(occurrence1), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability1);
-        when(esHelper.findEnvironmentalSuitability(same(occurrence2), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability2);
-        when(esHelper.findEnvironmentalSuitability(same(occurrence3), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability3);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup)).thenReturn(zonalStatistics);
+        when(esHelper.getAdminRasters(zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(same(occurrence1), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability1);
+        when(esHelper.findEnvironmentalSuitability(same(occurrence2), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability2);
+        when(esHelper.findEnvironmentalSuitability(same(occurrence3), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability3);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(occurrence1))).thenReturn(distanceFromDiseaseExtent1);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(occurrence2))).thenReturn(distanceFromDiseaseExtent2);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(occurrence3))).thenReturn(distanceFromDiseaseExtent3);
-        when(mwPredictor.findMachineWeighting(same(occurrence1))).thenReturn(null);
-        when(mwPredictor.findMachineWeighting(same(occurrence2))).thenReturn(null);
-        when(mwPredictor.findMachineWeighting(same(occurrence3))).thenReturn(null);
 
         // Act
         service.addValidationParameters(occurrences);
@@ -537,8 +541,9 @@ public class DiseaseOccurrenceValidationServiceTest {
         // Arrange
         double environmentalSuitability = 0.42;
         double distanceFromDiseaseExtent = 500;
-        GridCoverage2D suitabilityRaster = mock(GridCoverage2D.class);
-        GridCoverage2D[] adminRasters = new GridCoverage2D[] {mock(GridCoverage2D.class)};
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
 
         DiseaseGroup diseaseGroup = createDiseaseGroup();
         DiseaseOccurrence admin1Occurrence = createAdmin1Occurrence(1, diseaseGroup);
@@ -547,16 +552,16 @@ public class DiseaseOccurrenceValidationServiceTest {
         List<DiseaseOccurrence> occurrences = Arrays.asList(admin1Occurrence, countryOccurrence, largeCountryOccurrence);
 
         when(esHelper.getLatestMeanPredictionRaster(diseaseGroup)).thenReturn(suitabilityRaster);
-        when(esHelper.getAdminRasters()).thenReturn(adminRasters);
-        when(esHelper.findEnvironmentalSuitability(same(admin1Occurrence), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability);
-        when(esHelper.findEnvironmentalSuitability(same(countryOccurrence), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability);
-        when(esHelper.findEnvironmentalSuitability(same(largeCountryOccurrence), same(suitabilityRaster), same(adminRasters))).thenReturn(environmentalSuitability);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup)).thenReturn(zonalStatistics);
+        when(esHelper.getAdminRasters(zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(same(admin1Occurrence), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability);
+        when(esHelper.findEnvironmentalSuitability(same(countryOccurrence), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability);
+        when(esHelper.findEnvironmentalSuitability(same(largeCountryOccurrence), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(environmentalSuitability);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(admin1Occurrence))).thenReturn(distanceFromDiseaseExtent);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(countryOccurrence))).thenReturn(distanceFromDiseaseExtent);
         when(dfdeHelper.findDistanceFromDiseaseExtent(same(largeCountryOccurrence))).thenReturn(distanceFromDiseaseExtent);
-        when(mwPredictor.findMachineWeighting(same(admin1Occurrence))).thenReturn(null);
-        when(mwPredictor.findMachineWeighting(same(countryOccurrence))).thenReturn(null);
-        when(mwPredictor.findMachineWeighting(same(largeCountryOccurrence))).thenReturn(null);
+        when(mwPredictor.findMachineWeightings(diseaseGroup.getId(), occurrences))
+                .thenReturn(Arrays.asList((Double) null, null, null));
 
         // Act
         service.addValidationParameters(occurrences);
@@ -567,6 +572,39 @@ public class DiseaseOccurrenceValidationServiceTest {
         assertParameterValues(largeCountryOccurrence, environmentalSuitability, distanceFromDiseaseExtent, DiseaseOccurrenceStatus.READY);
     }
 
+    @Test
+    public void addValidationParametersFindsDistancesFromDiseaseExtentUsingSingleDistanceCalculator() {
+        // Arrange
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
+        DiseaseExtentDistanceCalculator distanceCalculator = mock(DiseaseExtentDistanceCalculator.class);
+
+        DiseaseGroup diseaseGroup = createDiseaseGroup();
+        DiseaseOccurrence occurrence1 = createAdmin1Occurrence(1, diseaseGroup);
+        DiseaseOccurrence occurrence2 = createAdmin1Occurrence(2, diseaseGroup);
+        List<DiseaseOccurrence> occurrences = Arrays.asList(occurrence1, occurrence2);
+
+        when(esHelper.getLatestMeanPredictionRaster(diseaseGroup)).thenReturn(suitabilityRaster);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup)).thenReturn(zonalStatistics);
+        when(esHelper.getAdminRasters(zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(any(DiseaseOccurrence.class), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(0.62);
+        when(dfdeHelper.createDistanceCalculator(diseaseGroup)).thenReturn(distanceCalculator);
+        when(dfdeHelper.findDistanceFromDiseaseExtent(same(occurrence1), same(distanceCalculator))).thenReturn(500.0);
+        when(dfdeHelper.findDistanceFromDiseaseExtent(same(occurrence2), same(distanceCalculator))).thenReturn(-300.0);
+        when(mwPredictor.findMachineWeightings(diseaseGroup.getId(), occurrences))
+                .thenReturn(Arrays.asList((Double) null, null));
+
+        // Act
+        service.addValidationParameters(occurrences);
+
+        // Assert
+        assertThat(occurrence1.getDistanceFromDiseaseExtent()).isEqualTo(500.0);
+        assertThat(occurrence2.getDistanceFromDiseaseExtent()).isEqualTo(-300.0);
+        verify(dfdeHelper).createDistanceCalculator(diseaseGroup);
+        verify(dfdeHelper, never()).findDistanceFromDiseaseExtent(any(DiseaseOccurrence.class));
+    }
+
     @Test
     public void addValidationParametersThrowsExceptionIfOccurrencesHaveDifferentDiseaseGroups() {
         // Arrange
@@ -586,8 +624,9 @@ public class DiseaseOccurrenceValidationServiceTest {
     public void addValidationParametersWithChecksSendsToValidatorForNonAutomaticDisease() {
         // Arrange
         int diseaseGroupId = 30;
-        GridCoverage2D suitabilityRaster = mock(GridCoverage2D.class);
-        GridCoverage2D[] adminRasters = new GridCoverage2D[] {mock(GridCoverage2D.class)};
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
 
         DiseaseOccurrence occurrence1 = createDiseaseOccurrence(diseaseGroupId, false, false);
         DiseaseOccurrence occurrence2 = createDiseaseOccurrence(diseaseGroupId, false, false);
@@ -596,8 +635,9 @@ public class DiseaseOccurrenceValidationServiceTest {
         List<DiseaseOccurrence> occurrences = Arrays.asList(occurrence1, occurrence2);
 
         when(esHelper.getLatestMeanPredictionRaster(diseaseGroup)).thenReturn(suitabilityRaster);
-        when(esHelper.getAdminRasters()).thenReturn(adminRasters);
-        when(esHelper.findEnvironmentalSuitability(any(DiseaseOccurrence.class), same(suitabilityRaster), same(adminRasters))).thenReturn(0.62);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup)).thenReturn(zonalStatistics);
+        when(esHelper.getAdminRasters(zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(any(DiseaseOccurrence.class), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(0.62);
         when(dfdeHelper.findDistanceFromDiseaseExtent(any(DiseaseOccurrence.class))).thenReturn(900.0);
         when(mwPredictor.findMachineWeighting(any(DiseaseOccurrence.class))).thenReturn(1.0);
 
@@ -609,6 +649,43 @@ public class DiseaseOccurrenceValidationServiceTest {
         assertParameterValues(occurrence2, 0.62, 900.0, DiseaseOccurrenceStatus.IN_REVIEW);
         assertDefaultParameters(occurrence3, DiseaseOccurrenceStatus.READY);
         verify(mwPredictor, never()).findMachineWeighting(any(DiseaseOccurrence.class));
+        verify(mwPredictor, never()).findMachineWeightings(anyInt(), anyListOf(DiseaseOccurrence.class));
+    }
+
+    @Test
+    public void addValidationParametersFindsMachineWeightingsInSingleRequestForEligibleOccurrences() {
+        // Arrange
+        CachedRaster suitabilityRaster = mock(CachedRaster.class);
+        CachedRaster[] adminRasters = new CachedRaster[] {mock(CachedRaster.class)};
+        ZonalStatistics[] zonalStatistics = new ZonalStatistics[] {mock(ZonalStatistics.class)};
+
+        DiseaseGroup diseaseGroup = createDiseaseGroup();
+        DiseaseOccurrence occurrence1 = createAdmin1Occurrence(1, diseaseGroup);
+        DiseaseOccurrence occurrence2 = createAdmin1Occurrence(2, diseaseGroup);
+        DiseaseOccurrence occurrence3 = createAdmin1Occurrence(3, diseaseGroup);
+        List<DiseaseOccurrence> occurrences = Arrays.asList(occurrence1, occurrence2, occurrence3);
+
+        when(esHelper.getLatestMeanPredictionRaster(diseaseGroup)).thenReturn(suitabilityRaster);
+        when(esHelper.getLatestMeanPredictionZonalStatistics(diseaseGroup)).thenReturn(zonalStatistics);
+        when(esHelper.getAdminRasters(zonalStatistics)).thenReturn(adminRasters);
+        when(esHelper.findEnvironmentalSuitability(any(DiseaseOccurrence.class), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(0.62);
+        when(esHelper.findEnvironmentalSuitability(same(occurrence2), same(suitabilityRaster), same(adminRasters), same(zonalStatistics))).thenReturn(null);
+        when(dfdeHelper.findDistanceFromDiseaseExtent(any(DiseaseOccurrence.class))).thenReturn(900.0);
+        when(mwPredictor.findMachineWeightings(diseaseGroup.getId(), Arrays.asList(occurrence1, occurrence3)))
+                .thenReturn(Arrays.asList(0.7, null));
+
+        // Act
+        service.addValidationParameters(occurrences);
+
+        // Assert
+        assertThat(occurrence1.getMachineWeighting()).isEqualTo(0.7);
+        assertThat(occurrence1.getStatus()).isEqualTo(DiseaseOccurrenceStatus.READY);
+        assertThat(occurrence2.getMachineWeighting()).isNull();
+        assertThat(occurrence2.getStatus()).isEqualTo(DiseaseOccurrenceStatus.IN_REVIEW);
+        assertThat(occurrence3.getMachineWeighting()).isNull();
+        assertThat(occurrence3.getStatus()).isEqualTo(DiseaseOccurrenceStatus.IN_REVIEW);
+        verify(mwPredictor).findMachineWeightings(anyInt(), anyListOf(DiseaseOccurrence.class));
+        verify(mwPredictor, never()).findMachineWeighting(any(DiseaseOccurrence.class));
     }
 
     @Test
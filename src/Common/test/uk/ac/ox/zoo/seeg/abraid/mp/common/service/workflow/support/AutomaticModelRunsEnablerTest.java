@@ -81,7 +81,6 @@ public class AutomaticModelRunsEnablerTest {
         assertThat(occurrence1.getFinalWeightingExcludingSpatial()).isNull();
 
         verify(diseaseOccurrenceValidationService).addValidationParameters(Arrays.asList(occurrence2));
-        verify(diseaseService).saveDiseaseOccurrence(occurrence1);
-        verify(diseaseService).saveDiseaseOccurrence(occurrence2);
+        verify(diseaseService).saveDiseaseOccurrences(Arrays.asList(occurrence1, occurrence2));
     }
 }
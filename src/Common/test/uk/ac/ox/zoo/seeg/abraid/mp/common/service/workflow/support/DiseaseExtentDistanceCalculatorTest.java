@@ -0,0 +1,109 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
+
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import org.junit.Test;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the DiseaseExtentDistanceCalculator class.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class DiseaseExtentDistanceCalculatorTest {
+    @Test
+    public void findDistanceOutsideDiseaseExtentReturnsDistanceToNearestPointOnExtent() {
+        // Arrange
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(getExtent(), getOutsideExtent());
+        Point point = GeometryUtils.createPoint(1, 4);
+
+        // Act
+        Double distance = calculator.findDistanceOutsideDiseaseExtent(point);
+
+        // Assert
+        // The nearest point is the top vertex of the first triangle
+        assertThat(distance).isEqualTo(GeometryUtils.findOrthodromicDistance(point, GeometryUtils.createPoint(2, 3)));
+    }
+
+    @Test
+    public void findDistanceInsideDiseaseExtentReturnsDistanceToNearestPointOutsideExtent() {
+        // Arrange
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(getExtent(), getOutsideExtent());
+        Point point = GeometryUtils.createPoint(2, 2);
+
+        // Act
+        Double distance = calculator.findDistanceInsideDiseaseExtent(point);
+
+        // Assert
+        // The nearest point is the bottom left vertex of the first outside triangle
+        assertThat(distance).isEqualTo(GeometryUtils.findOrthodromicDistance(point, GeometryUtils.createPoint(41, 1)));
+    }
+
+    @Test
+    public void findDistanceReturnsZeroForPointWithinGeometry() {
+        // Arrange
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(getExtent(), getOutsideExtent());
+
+        // Act
+        Double distanceOutside = calculator.findDistanceOutsideDiseaseExtent(GeometryUtils.createPoint(12, 2));
+        Double distanceOnBorder = calculator.findDistanceOutsideDiseaseExtent(GeometryUtils.createPoint(11, 1));
+        Double distanceInside = calculator.findDistanceInsideDiseaseExtent(GeometryUtils.createPoint(52, 2));
+
+        // Assert
+        assertThat(distanceOutside).isEqualTo(0);
+        assertThat(distanceOnBorder).isEqualTo(0);
+        assertThat(distanceInside).isEqualTo(0);
+    }
+
+    @Test
+    public void findDistanceReturnsNullIfThereIsNoExtent() {
+        // Arrange
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(null, null);
+        Point point = GeometryUtils.createPoint(1, 4);
+
+        // Act
+        Double distanceOutside = calculator.findDistanceOutsideDiseaseExtent(point);
+        Double distanceInside = calculator.findDistanceInsideDiseaseExtent(point);
+
+        // Assert
+        assertThat(distanceOutside).isNull();
+        assertThat(distanceInside).isNull();
+    }
+
+    @Test
+    public void findDistanceReturnsNullIfTheExtentIsEmpty() {
+        // Arrange
+        MultiPolygon empty = GeometryUtils.createMultiPolygon();
+        DiseaseExtentDistanceCalculator calculator = new DiseaseExtentDistanceCalculator(empty, empty);
+        Point point = GeometryUtils.createPoint(1, 4);
+
+        // Act
+        Double distanceOutside = calculator.findDistanceOutsideDiseaseExtent(point);
+        Double distanceInside = calculator.findDistanceInsideDiseaseExtent(point);
+
+        // Assert
+        assertThat(distanceOutside).isNull();
+        assertThat(distanceInside).isNull();
+    }
+
+    private MultiPolygon getExtent() {
+        return GeometryUtils.createMultiPolygon(getTriangle(0, 0), getTriangle(10, 0), getTriangle(20, 0),
+                getTriangle(30, 0));
+    }
+
+    private MultiPolygon getOutsideExtent() {
+        return GeometryUtils.createMultiPolygon(getTriangle(40, 0), getTriangle(50, 0), getTriangle(60, 0),
+                getTriangle(70, 0));
+    }
+
+    private Polygon getTriangle(double xOffset, double yOffset) {
+        return GeometryUtils.createPolygon(
+                xOffset + 1, yOffset + 1,
+                xOffset + 3, yOffset + 2,
+                xOffset + 2, yOffset + 3,
+                xOffset + 1, yOffset + 1);
+    }
+}
@@ -1,20 +1,23 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.NativeSQL;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.LocationService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ValidationParameterCacheService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * Tests the DistanceFromDiseaseExtentHelper class.
@@ -163,6 +166,88 @@ public class DistanceFromDiseaseExtentHelperTest {
         assertThat(actualDistance).isNull();
     }
 
+    @Test
+    public void createDistanceCalculatorUsesCurrentDiseaseExtentGeometries() {
+        // Arrange
+        int diseaseGroupId = 87;
+        Point point = GeometryUtils.createPoint(1, 4);
+        MultiPolygon extent = GeometryUtils.createMultiPolygon(GeometryUtils.createPolygon(1, 1, 3, 2, 2, 3, 1, 1));
+        MultiPolygon outsideExtent = GeometryUtils.createMultiPolygon(GeometryUtils.createPolygon(1, 3, 1, 5, 0, 4, 1, 3));
+        when(nativeSQL.findDiseaseExtentGeometry(diseaseGroupId)).thenReturn(extent);
+        when(nativeSQL.findOutsideDiseaseExtentGeometry(diseaseGroupId)).thenReturn(outsideExtent);
+
+        // Act
+        DiseaseExtentDistanceCalculator calculator = helper.createDistanceCalculator(new DiseaseGroup(diseaseGroupId));
+
+        // Assert
+        assertThat(calculator.findDistanceOutsideDiseaseExtent(point)).isEqualTo(
+                GeometryUtils.findOrthodromicDistance(point, GeometryUtils.createPoint(2, 3)));
+        assertThat(calculator.findDistanceInsideDiseaseExtent(point)).isEqualTo(0);
+    }
+
+    @Test
+    public void findDistanceFromDiseaseExtentUsesCalculatorForPreciseLocationOutsideTheExtent() {
+        // Arrange
+        int diseaseGroupId = 87;
+        int locationId = 123;
+        boolean isGlobal = false;
+        Location location = createPreciseLocation(locationId);
+        setupExtentClass(diseaseGroupId, isGlobal, location, DiseaseExtentClass.UNCERTAIN);
+        DiseaseOccurrence occurrence = createDiseaseOccurrence(diseaseGroupId, isGlobal, location);
+        DiseaseExtentDistanceCalculator calculator = mock(DiseaseExtentDistanceCalculator.class);
+        when(calculator.findDistanceOutsideDiseaseExtent(location.getGeom())).thenReturn(25d);
+
+        // Act
+        Double actualDistance = helper.findDistanceFromDiseaseExtent(occurrence, calculator);
+
+        // Assert
+        assertThat(actualDistance).isEqualTo(25);
+        verify(cacheService).saveDistanceToExtentCacheEntry(diseaseGroupId, locationId, actualDistance);
+        verify(nativeSQL, never()).findDistanceOutsideDiseaseExtent(anyInt(), anyBoolean(), anyInt());
+    }
+
+    @Test
+    public void findDistanceFromDiseaseExtentUsesCalculatorForPreciseLocationWithinTheExtent() {
+        // Arrange
+        int diseaseGroupId = 87;
+        int locationId = 123;
+        boolean isGlobal = true;
+        Location location = createPreciseLocation(locationId);
+        setupExtentClass(diseaseGroupId, isGlobal, location, DiseaseExtentClass.PRESENCE);
+        DiseaseOccurrence occurrence = createDiseaseOccurrence(diseaseGroupId, isGlobal, location);
+        DiseaseExtentDistanceCalculator calculator = mock(DiseaseExtentDistanceCalculator.class);
+        when(calculator.findDistanceInsideDiseaseExtent(location.getGeom())).thenReturn(25d);
+
+        // Act
+        Double actualDistance = helper.findDistanceFromDiseaseExtent(occurrence, calculator);
+
+        // Assert
+        assertThat(actualDistance).isEqualTo(-25);
+        verify(nativeSQL, never()).findDistanceInsideDiseaseExtent(anyInt(), anyBoolean(), anyInt());
+    }
+
+    @Test
+    public void findDistanceFromDiseaseExtentUsesDatabaseForNonPreciseLocationWhenCalculatorSpecified() {
+        // Arrange
+        int diseaseGroupId = 87;
+        int locationId = 123;
+        boolean isGlobal = false;
+        Location location = mock(Location.class);
+        when(location.getId()).thenReturn(locationId);
+        when(location.getPrecision()).thenReturn(LocationPrecision.ADMIN1);
+        setupExtentClass(diseaseGroupId, isGlobal, location, DiseaseExtentClass.ABSENCE);
+        DiseaseOccurrence occurrence = createDiseaseOccurrence(diseaseGroupId, isGlobal, location);
+        DiseaseExtentDistanceCalculator calculator = mock(DiseaseExtentDistanceCalculator.class);
+        when(nativeSQL.findDistanceOutsideDiseaseExtent(diseaseGroupId, isGlobal, locationId)).thenReturn(25d);
+
+        // Act
+        Double actualDistance = helper.findDistanceFromDiseaseExtent(occurrence, calculator);
+
+        // Assert
+        assertThat(actualDistance).isEqualTo(25);
+        verify(calculator, never()).findDistanceOutsideDiseaseExtent(any(Point.class));
+    }
+
     public void findDistanceFromDiseaseExtentUsesCacheWhenOutside() {
         int diseaseGroupId = 87;
         int locationId = 123;
@@ -214,6 +299,14 @@ public class DistanceFromDiseaseExtentHelperTest {
         when(locationService.getAdminUnitDiseaseExtentClassesForLocation(disease, isGlobal, location)).thenReturn(classes);
     }
 
+    private Location createPreciseLocation(int locationId) {
+        Location location = mock(Location.class);
+        when(location.getId()).thenReturn(locationId);
+        when(location.getPrecision()).thenReturn(LocationPrecision.PRECISE);
+        when(location.getGeom()).thenReturn(GeometryUtils.createPoint(1, 4));
+        return location;
+    }
+
     private DiseaseOccurrence createDiseaseOccurrence(int diseaseGroupId, boolean isGlobal, Location location) {
         DiseaseOccurrence occurrence = new DiseaseOccurrence();
         DiseaseGroup diseaseGroup = new DiseaseGroup(diseaseGroupId);
@@ -1,9 +1,10 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 
-import org.geotools.coverage.grid.GridCoverage2D;
 import org.joda.time.DateTime;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.kubek2k.springockito.annotations.ReplaceWithMock;
 import org.kubek2k.springockito.annotations.SpringockitoContextLoader;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +14,8 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ValidationParameterCacheService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.CachedRaster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.ZonalStatistics;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RasterFilePathFactory;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractSpringIntegrationTests;
 
@@ -46,6 +48,9 @@ public class EnvironmentalSuitabilityHelperIntegrationTest extends AbstractSprin
     private static final double LARGE_RASTER_YLLCORNER = -60;
     private static final double LARGE_RASTER_CELLSIZE = 0.5;
 
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
     private DiseaseGroup diseaseGroup;
 
     @Autowired
@@ -81,7 +86,7 @@ public class EnvironmentalSuitabilityHelperIntegrationTest extends AbstractSprin
         mockGetRasterFileForModelRun(modelRun2);
 
         // Act
-        GridCoverage2D meanPredictionRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
+        CachedRaster meanPredictionRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
 
         // Assert
         assertThat(meanPredictionRaster).isNull();
@@ -144,29 +149,51 @@ public class EnvironmentalSuitabilityHelperIntegrationTest extends AbstractSprin
         findEnvironmentalSuitabilityShape(0, 0, 321, LocationPrecision.ADMIN2, 0.491874);
     }
 
+    @Test
+    public void findEnvironmentalSuitabilityShapeUsesZonalStatisticsWhenAvailable() throws Exception {
+        // Arrange
+        DiseaseOccurrence occurrence = createOccurrence(0, 0, 321, LocationPrecision.ADMIN2);
+        ModelRun modelRun = createAndSaveModelRun("test name", diseaseGroup.getId(), ModelRunStatus.COMPLETED);
+        mockGetRasterFileForModelRun(modelRun);
+        mockGetAdminRasterFileForLevel(2);
+        ZonalStatistics statistics = new ZonalStatistics();
+        statistics.addValue(321, 0.25);
+        File statisticsFile = testFolder.newFile();
+        statistics.writeToFile(statisticsFile);
+        when(rasterFilePathFactory.getFullMeanPredictionZonalStatisticsFile(same(modelRun), eq(2)))
+                .thenReturn(statisticsFile);
+        CachedRaster suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
+        ZonalStatistics[] zonalStatistics = helper.getLatestMeanPredictionZonalStatistics(diseaseGroup);
+        CachedRaster[] adminRasters = helper.getSingleAdminRaster(LocationPrecision.ADMIN2, zonalStatistics);
+
+        // Act
+        Double suitability =
+                helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters, zonalStatistics);
+
+        // Assert
+        assertThat(zonalStatistics[0]).isNull();
+        assertThat(zonalStatistics[1]).isNull();
+        assertThat(zonalStatistics[2]).isNotNull();
+        assertThat(adminRasters[2]).isNull(); // Not loaded, as not needed
+        assertThat(suitability).isEqualTo(0.25);
+    }
+
     @Test
     public void findEnvironmentalSuitabilityUsesCachedValue() throws Exception {
         // Arrange
         DiseaseOccurrence occurrence = createOccurrence(1, 1, 1, LocationPrecision.PRECISE);
         ModelRun modelRun = createAndSaveModelRun("test name", diseaseGroup.getId(), ModelRunStatus.COMPLETED);
         mockGetRasterFileForModelRun(modelRun);
-        GridCoverage2D suitabilityRaster = null;
-        GridCoverage2D[] adminRasters = null;
-        try {
-            suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
-            adminRasters = helper.getSingleAdminRaster(LocationPrecision.PRECISE);
-
-            when(cacheService.getEnvironmentalSuitabilityFromCache(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId())).thenReturn(12345d);
-
-            // Act
-            Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
-
-            // Assert
-            assertThat(suitability).isEqualTo(12345d);
-        } finally {
-            RasterUtils.disposeRaster(suitabilityRaster);
-            RasterUtils.disposeRasters(adminRasters);
-        }
+        CachedRaster suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
+        CachedRaster[] adminRasters = helper.getSingleAdminRaster(LocationPrecision.PRECISE);
+
+        when(cacheService.getEnvironmentalSuitabilityFromCache(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId())).thenReturn(12345d);
+
+        // Act
+        Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
+
+        // Assert
+        assertThat(suitability).isEqualTo(12345d);
     }
 
     @Test
@@ -239,31 +266,23 @@ public class EnvironmentalSuitabilityHelperIntegrationTest extends AbstractSprin
         DiseaseOccurrence occurrence = createOccurrence(x, y, 1, LocationPrecision.PRECISE);
         ModelRun modelRun = createAndSaveModelRun("test name", diseaseGroup.getId(), ModelRunStatus.COMPLETED);
         mockGetRasterFileForModelRun(modelRun);
-        GridCoverage2D suitabilityRaster = null;
-        GridCoverage2D[] adminRasters = null;
-        try {
-            suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
-            adminRasters = helper.getSingleAdminRaster(LocationPrecision.PRECISE);
-
-
-            // Act
-            Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
-
-            // Assert
-            assertThat(suitabilityRaster).isNotNull();
-            assertThat(adminRasters).isNotNull();
-            assertThat(adminRasters[0]).isNull();
-            assertThat(adminRasters[1]).isNull();
-            assertThat(adminRasters[2]).isNull();
-            if (expectedEnvironmentalSuitability != null) {
-                assertThat(suitability).isEqualTo(expectedEnvironmentalSuitability, offset(0.0000005));
-                verify(cacheService).saveEnvironmentalSuitabilityCacheEntry(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId(), suitability);
-            } else {
-                assertThat(suitability).isNull();
-            }
-        } finally {
-            RasterUtils.disposeRaster(suitabilityRaster);
-            RasterUtils.disposeRasters(adminRasters);
+        CachedRaster suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
+        CachedRaster[] adminRasters = helper.getSingleAdminRaster(LocationPrecision.PRECISE);
+
+        // Act
+        Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
+
+        // Assert
+        assertThat(suitabilityRaster).isNotNull();
+        assertThat(adminRasters).isNotNull();
+        assertThat(adminRasters[0]).isNull();
+        assertThat(adminRasters[1]).isNull();
+        assertThat(adminRasters[2]).isNull();
+        if (expectedEnvironmentalSuitability != null) {
+            assertThat(suitability).isEqualTo(expectedEnvironmentalSuitability, offset(0.0000005));
+            verify(cacheService).saveEnvironmentalSuitabilityCacheEntry(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId(), suitability);
+        } else {
+            assertThat(suitability).isNull();
         }
     }
 
@@ -294,28 +313,21 @@ public class EnvironmentalSuitabilityHelperIntegrationTest extends AbstractSprin
         mockGetRasterFileForModelRun(modelRun);
         mockGetAdminRasterFileForLevel(precision.getModelValue());
         mockGetRasterFileForModelRun(modelRun);
-        GridCoverage2D suitabilityRaster = null;
-        GridCoverage2D[] adminRasters = null;
-        try {
-            suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
-            adminRasters = helper.getSingleAdminRaster(precision);
-
-            // Act
-            Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
-
-            // Assert
-            assertThat(suitabilityRaster).isNotNull();
-            assertThat(adminRasters).isNotNull();
-            assertThat(adminRasters[precision.getModelValue()]).isNotNull();
-            if (expectedEnvironmentalSuitability != null) {
-                assertThat(suitability).isEqualTo(expectedEnvironmentalSuitability, offset(0.0000005));
-                verify(cacheService).saveEnvironmentalSuitabilityCacheEntry(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId(), suitability);
-            } else {
-                assertThat(suitability).isNull();
-            }
-        } finally {
-            RasterUtils.disposeRaster(suitabilityRaster);
-            RasterUtils.disposeRasters(adminRasters);
+        CachedRaster suitabilityRaster = helper.getLatestMeanPredictionRaster(diseaseGroup);
+        CachedRaster[] adminRasters = helper.getSingleAdminRaster(precision);
+
+        // Act
+        Double suitability = helper.findEnvironmentalSuitability(occurrence, suitabilityRaster, adminRasters);
+
+        // Assert
+        assertThat(suitabilityRaster).isNotNull();
+        assertThat(adminRasters).isNotNull();
+        assertThat(adminRasters[precision.getModelValue()]).isNotNull();
+        if (expectedEnvironmentalSuitability != null) {
+            assertThat(suitability).isEqualTo(expectedEnvironmentalSuitability, offset(0.0000005));
+            verify(cacheService).saveEnvironmentalSuitabilityCacheEntry(occurrence.getDiseaseGroup().getId(), occurrence.getLocation().getId(), suitability);
+        } else {
+            assertThat(suitability).isNull();
         }
     }
 
@@ -6,6 +6,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Feed;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 
 import java.util.ArrayList;
@@ -141,6 +142,79 @@ public class MachineLearningWebServiceTest {
         assertThat(prediction).isNull();
     }
 
+    @Test
+    public void getPredictionsMakesSinglePOSTRequestWithCorrectArguments() throws Exception {
+        // Arrange
+        int diseaseGroupId = 1;
+        String expectedUrl = rootUrl + diseaseGroupId + "/predict_batch";
+
+        WebServiceClient webServiceClient = mock(WebServiceClient.class);
+        when(webServiceClient.makePostRequestWithJSON(anyString(), anyString())).thenReturn("[0.0,0.0]");
+        MachineLearningWebService webService = new MachineLearningWebService(webServiceClient, new AbraidJsonObjectMapper(), rootUrl);
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                createDiseaseOccurrence(diseaseGroupId, 0.4, 1000, 2),
+                createDiseaseOccurrence(diseaseGroupId, 0.6, -50, 3));
+
+        String expectedBodyAsJson =
+                "{\"points\":[" +
+                "{\"distanceFromExtent\":1000.0,\"environmentalSuitability\":0.4,\"feedId\":2}," +
+                "{\"distanceFromExtent\":-50.0,\"environmentalSuitability\":0.6,\"feedId\":3}]}";
+
+        // Act
+        webService.getPredictions(diseaseGroupId, occurrences);
+
+        // Assert
+        verify(webServiceClient).makePostRequestWithJSON(expectedUrl, expectedBodyAsJson);
+    }
+
+    @Test
+    public void getPredictionsReturnsPredictionsFromWebServiceIncludingNoPrediction() throws Exception {
+        // Arrange
+        WebServiceClient webServiceClient = mock(WebServiceClient.class);
+        when(webServiceClient.makePostRequestWithJSON(anyString(), anyString())).thenReturn("[0.6,null,0.2]");
+
+        MachineLearningWebService webService = new MachineLearningWebService(webServiceClient, new AbraidJsonObjectMapper(), rootUrl);
+        List<DiseaseOccurrence> occurrences =
+                Arrays.asList(createDefaultOccurrence(), createDefaultOccurrence(), createDefaultOccurrence());
+
+        // Act
+        List<Double> predictions = webService.getPredictions(1, occurrences);
+
+        // Assert
+        assertThat(predictions).containsExactly(0.6, null, 0.2);
+    }
+
+    @Test
+    public void getPredictionsThrowsJsonParserExceptionIfNumberOfPredictionsDoesNotMatch() throws Exception {
+        // Arrange
+        WebServiceClient webServiceClient = mock(WebServiceClient.class);
+        when(webServiceClient.makePostRequestWithJSON(anyString(), anyString())).thenReturn("[0.6]");
+
+        MachineLearningWebService webService = new MachineLearningWebService(webServiceClient, new AbraidJsonObjectMapper(), rootUrl);
+        List<DiseaseOccurrence> occurrences = Arrays.asList(createDefaultOccurrence(), createDefaultOccurrence());
+
+        // Act
+        catchException(webService).getPredictions(1, occurrences);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(JsonParserException.class);
+    }
+
+    @Test
+    public void getPredictionsThrowsJsonParserExceptionIfResponseCannotBeParsed() throws Exception {
+        // Arrange
+        WebServiceClient webServiceClient = mock(WebServiceClient.class);
+        when(webServiceClient.makePostRequestWithJSON(anyString(), anyString())).thenReturn("No prediction");
+
+        MachineLearningWebService webService = new MachineLearningWebService(webServiceClient, new AbraidJsonObjectMapper(), rootUrl);
+
+        // Act
+        catchException(webService).getPredictions(1, Arrays.asList(createDefaultOccurrence()));
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(JsonParserException.class);
+    }
+
     private DiseaseOccurrence createDefaultOccurrence() {
         DiseaseOccurrence occurrence = new DiseaseOccurrence();
         occurrence.setDiseaseGroup(new DiseaseGroup(1));
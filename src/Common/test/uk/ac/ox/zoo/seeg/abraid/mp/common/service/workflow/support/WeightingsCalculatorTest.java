@@ -2,6 +2,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support;
 
 import org.apache.log4j.Logger;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ExpertService;
@@ -9,7 +10,10 @@ import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
@@ -25,6 +29,10 @@ public class WeightingsCalculatorTest {
     private static final int DISEASE_GROUP_ID = 87;
     private static final double EXPERT_WEIGHTING_THRESHOLD = 0.6;
     private static final double VALIDATION_WEIGHTING_THRESHOLD = 0.2;
+    private static final long SYNTHETIC_SEED = 20150601;
+    private static final int SYNTHETIC_EXPERT_COUNT = 40;
+    private static final int SYNTHETIC_OCCURRENCE_COUNT = 500;
+    private static final double SYNTHETIC_REVIEW_PROBABILITY = 0.1;
 
     @Test
     public void updateDiseaseOccurrenceExpertWeightingsGetsExpectedListOfReviews() {
@@ -103,9 +111,9 @@ public class WeightingsCalculatorTest {
         target.updateDiseaseOccurrenceExpertWeightings(DISEASE_GROUP_ID);
 
         // Assert - Expert weighting is average of review responses.
-        for (DiseaseOccurrence occurrence : occurrences) {
-            verify(diseaseService).saveDiseaseOccurrence(occurrence);
-        }
+        ArgumentCaptor<Collection> savedOccurrences = ArgumentCaptor.forClass(Collection.class);
+        verify(diseaseService).saveDiseaseOccurrences(savedOccurrences.capture());
+        assertThat(savedOccurrences.getValue()).containsOnly(occurrences.toArray());
         assertThat(occurrences.get(0).getExpertWeighting()).isEqualTo(1.0);   // Average of: {1, 1, 1, 1}
         assertThat(occurrences.get(1).getExpertWeighting()).isEqualTo(0.0);   // Average of: {0, 0, 0, 0}
         assertThat(occurrences.get(2).getExpertWeighting()).isEqualTo(0.5);   // Average of: {0.5, 0.5, 0.5, 0.5}
@@ -167,8 +175,8 @@ public class WeightingsCalculatorTest {
         target.updateDiseaseOccurrenceValidationWeightingAndFinalWeightings(DISEASE_GROUP_ID);
 
         // Assert
-        verify(mockDiseaseService).saveDiseaseOccurrence(occurrenceWithExpertWeighting);
-        verify(mockDiseaseService).saveDiseaseOccurrence(occurrenceWithMachineWeighting);
+        verify(mockDiseaseService).saveDiseaseOccurrences(
+                Arrays.asList(occurrenceWithExpertWeighting, occurrenceWithMachineWeighting));
 
         assertThat(occurrenceWithExpertWeighting.getValidationWeighting()).isEqualTo(expertWeighting);
         assertThat(occurrenceWithMachineWeighting.getValidationWeighting()).isEqualTo(machineWeighting);
@@ -408,6 +416,49 @@ public class WeightingsCalculatorTest {
         assertThat(experts.get(3).getWeighting()).isEqualTo(0.667, offset(0.005));
     }
 
+    @Test
+    public void updateDiseaseOccurrenceExpertWeightingsMatchesReferenceCalculationForSyntheticReviews() {
+        // Arrange
+        List<DiseaseOccurrenceReview> reviews = createSyntheticReviews();
+        double[] expectedWeightings = calculateReferenceOccurrenceExpertWeightings(reviews);
+
+        DiseaseService mockDiseaseService = mock(DiseaseService.class);
+        when(mockDiseaseService.getDiseaseOccurrenceReviewsForOccurrencesInValidationForUpdatingWeightings(
+                DISEASE_GROUP_ID, EXPERT_WEIGHTING_THRESHOLD)).thenReturn(reviews);
+        WeightingsCalculator target = weightingsCalculator(mockDiseaseService, mock(ExpertService.class));
+
+        // Act
+        target.updateDiseaseOccurrenceExpertWeightings(DISEASE_GROUP_ID);
+
+        // Assert
+        for (DiseaseOccurrenceReview review : reviews) {
+            DiseaseOccurrence occurrence = review.getDiseaseOccurrence();
+            assertThat(occurrence.getExpertWeighting()).isEqualTo(expectedWeightings[occurrence.getId()]);
+        }
+    }
+
+    @Test
+    public void updateExpertsWeightingsMatchesReferenceCalculationForSyntheticReviews() {
+        // Arrange
+        List<DiseaseOccurrenceReview> reviews = createSyntheticReviews();
+        double[] expectedWeightings = calculateReferenceExpertsWeightings(reviews);
+
+        DiseaseService mockDiseaseService = mock(DiseaseService.class);
+        when(mockDiseaseService.getAllDiseaseOccurrenceReviews()).thenReturn(reviews);
+        ExpertService mockExpertService = mock(ExpertService.class);
+        WeightingsCalculator target = weightingsCalculator(mockDiseaseService, mockExpertService);
+
+        // Act
+        target.updateExpertsWeightings();
+
+        // Assert
+        for (DiseaseOccurrenceReview review : reviews) {
+            Expert expert = review.getExpert();
+            assertThat(expert.getWeighting()).isEqualTo(expectedWeightings[expert.getId()], offset(1e-12));
+        }
+        verify(mockExpertService, times(SYNTHETIC_EXPERT_COUNT)).saveExpert(any(Expert.class));
+    }
+
     @Test
     public void averageReturnsExpectedValue() {
         // Act
@@ -436,6 +487,71 @@ public class WeightingsCalculatorTest {
         assertThat(result).isEqualTo(0.0);
     }
 
+    // Each expert reviews each occurrence with a fixed probability, giving a random mix of responses
+    private List<DiseaseOccurrenceReview> createSyntheticReviews() {
+        Random random = new Random(SYNTHETIC_SEED);
+        DiseaseOccurrenceReviewResponse[] responses = DiseaseOccurrenceReviewResponse.values();
+        List<Expert> experts = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_EXPERT_COUNT; i++) {
+            Expert expert = new Expert(i);
+            expert.setWeighting(2.0); // An impossible weighting, so every expert's weighting changes
+            experts.add(expert);
+        }
+
+        List<DiseaseOccurrenceReview> reviews = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_OCCURRENCE_COUNT; i++) {
+            DiseaseOccurrence occurrence = new DiseaseOccurrence(i);
+            for (Expert expert : experts) {
+                if (random.nextDouble() < SYNTHETIC_REVIEW_PROBABILITY) {
+                    DiseaseOccurrenceReviewResponse response = responses[random.nextInt(responses.length)];
+                    reviews.add(new DiseaseOccurrenceReview(expert, occurrence, response));
+                }
+            }
+        }
+        Collections.shuffle(reviews, random);
+        return reviews;
+    }
+
+    // The average response for each occurrence, indexed by occurrence ID
+    private double[] calculateReferenceOccurrenceExpertWeightings(List<DiseaseOccurrenceReview> reviews) {
+        double[] weightings = new double[SYNTHETIC_OCCURRENCE_COUNT];
+        for (int i = 0; i < SYNTHETIC_OCCURRENCE_COUNT; i++) {
+            List<Double> responses = new ArrayList<>();
+            for (DiseaseOccurrenceReview review : reviews) {
+                if (review.getDiseaseOccurrence().getId() == i) {
+                    responses.add(review.getResponse().getValue());
+                }
+            }
+            weightings[i] = WeightingsCalculator.average(responses.toArray(new Double[responses.size()]));
+        }
+        return weightings;
+    }
+
+    // 1 - the average difference between each expert's responses and the average of all other experts' responses to
+    // the same occurrence, indexed by expert ID
+    private double[] calculateReferenceExpertsWeightings(List<DiseaseOccurrenceReview> reviews) {
+        double[] weightings = new double[SYNTHETIC_EXPERT_COUNT];
+        for (int i = 0; i < SYNTHETIC_EXPERT_COUNT; i++) {
+            List<Double> differences = new ArrayList<>();
+            for (DiseaseOccurrenceReview expertsReview : reviews) {
+                if (expertsReview.getExpert().getId() == i) {
+                    int occurrenceId = expertsReview.getDiseaseOccurrence().getId();
+                    List<Double> otherResponses = new ArrayList<>();
+                    for (DiseaseOccurrenceReview review : reviews) {
+                        if (review.getDiseaseOccurrence().getId() == occurrenceId && review.getExpert().getId() != i) {
+                            otherResponses.add(review.getResponse().getValue());
+                        }
+                    }
+                    double expertsResponse = expertsReview.getResponse().getValue();
+                    differences.add(otherResponses.isEmpty() ? 0.0 : Math.abs(expertsResponse -
+                            WeightingsCalculator.average(otherResponses.toArray(new Double[otherResponses.size()]))));
+                }
+            }
+            weightings[i] = 1 - WeightingsCalculator.average(differences.toArray(new Double[differences.size()]));
+        }
+        return weightings;
+    }
+
     private DiseaseOccurrence occurrenceWithExpertWeightingAndMachineWeighting(Double expertWeighting, Double machineWeighting) {
         DiseaseOccurrence occurrence = new DiseaseOccurrence();
         occurrence.setExpertWeighting(expertWeighting);
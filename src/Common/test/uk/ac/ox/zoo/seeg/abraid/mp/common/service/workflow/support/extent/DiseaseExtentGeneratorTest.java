@@ -3,6 +3,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.extent;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
@@ -11,7 +12,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.mockito.AdditionalMatchers.and;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -210,6 +211,11 @@ public class DiseaseExtentGeneratorTest extends BaseDiseaseExtentGenerationTests
     }
 
     private void assertSaved(List<? extends AdminUnitGlobalOrTropical> adminUnits, DiseaseExtentGenerationOutputData validatorResult, DiseaseExtentGenerationOutputData modellingResult, List<DiseaseOccurrence> occurrencesForLastValidatorExtent, List<AdminUnitDiseaseExtentClass> existingDiseaseExtent) {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(diseaseService).saveAdminUnitDiseaseExtentClasses(captor.capture());
+        List<AdminUnitDiseaseExtentClass> savedDiseaseExtent = captor.getValue();
+        assertThat(savedDiseaseExtent).hasSize(adminUnits.size());
+
         for (AdminUnitGlobalOrTropical adminUnit : adminUnits) {
             AdminUnitDiseaseExtentClass existingObject = findExistingObject(adminUnit.getGaulCode(), existingDiseaseExtent);
             AdminUnitDiseaseExtentClass expectation = new AdminUnitDiseaseExtentClass();
@@ -225,10 +231,10 @@ public class DiseaseExtentGeneratorTest extends BaseDiseaseExtentGenerationTests
             expectation.setValidatorOccurrenceCount(validatorResult.getOccurrenceCounts().get(adminUnit.getGaulCode()));
             expectation.setLatestValidatorOccurrences(validatorResult.getLatestOccurrencesByGaulCode().get(adminUnit.getGaulCode()));
 
-            if (existingObject == null) {
-                verify(diseaseService).saveAdminUnitDiseaseExtentClass(eq(expectation));
-            } else {
-                verify(diseaseService).saveAdminUnitDiseaseExtentClass(and(eq(expectation), same(existingObject)));
+            AdminUnitDiseaseExtentClass savedObject = findExistingObject(adminUnit.getGaulCode(), savedDiseaseExtent);
+            assertThat(savedObject).isEqualTo(expectation);
+            if (existingObject != null) {
+                assertThat(savedObject).isSameAs(existingObject);
             }
         }
 
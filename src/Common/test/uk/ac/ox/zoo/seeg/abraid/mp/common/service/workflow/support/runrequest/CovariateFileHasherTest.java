@@ -0,0 +1,86 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.CovariateFile;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.CovariateSubFile;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.FileHashUtils;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the CovariateFileHasher class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CovariateFileHasherTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void hashCovariateFilesReturnsHashOfEachSubFile() throws Exception {
+        // Arrange
+        File directory = testFolder.newFolder();
+        File a = writeFile(directory, "a.tif", "a");
+        File b1 = writeFile(directory, "sub/b1.tif", "b1");
+        File b2 = writeFile(directory, "sub/b2.tif", "b2");
+        List<CovariateFile> covariateFiles = Arrays.asList(
+                createCovariateFile("a.tif"),
+                createCovariateFile("sub/b1.tif", "sub/b2.tif"));
+
+        // Act
+        Map<String, String> result = new CovariateFileHasher().hashCovariateFiles(covariateFiles, directory.toString());
+
+        // Assert
+        assertThat(result).hasSize(3);
+        assertThat(result.get("a.tif")).isEqualTo(FileHashUtils.calculateSha256(a));
+        assertThat(result.get("sub/b1.tif")).isEqualTo(FileHashUtils.calculateSha256(b1));
+        assertThat(result.get("sub/b2.tif")).isEqualTo(FileHashUtils.calculateSha256(b2));
+    }
+
+    @Test
+    public void hashCovariateFilesRecalculatesHashIfFileChanges() throws Exception {
+        // Arrange
+        File directory = testFolder.newFolder();
+        File a = writeFile(directory, "a.tif", "a");
+        List<CovariateFile> covariateFiles = Arrays.asList(createCovariateFile("a.tif"));
+        CovariateFileHasher target = new CovariateFileHasher();
+        String originalHash = target.hashCovariateFiles(covariateFiles, directory.toString()).get("a.tif");
+
+        // Act
+        FileUtils.writeStringToFile(a, "changed");
+        String newHash = target.hashCovariateFiles(covariateFiles, directory.toString()).get("a.tif");
+
+        // Assert
+        assertThat(newHash).isNotEqualTo(originalHash);
+        assertThat(newHash).isEqualTo(FileHashUtils.calculateSha256(a));
+    }
+
+    private File writeFile(File directory, String name, String content) throws Exception {
+        File file = Paths.get(directory.toString(), name).toFile();
+        FileUtils.writeStringToFile(file, content);
+        return file;
+    }
+
+    private CovariateFile createCovariateFile(String... files) {
+        CovariateFile covariateFile = mock(CovariateFile.class);
+        List<CovariateSubFile> subFiles = new ArrayList<>();
+        for (String file : files) {
+            CovariateSubFile subFile = mock(CovariateSubFile.class);
+            when(subFile.getFile()).thenReturn(file);
+            subFiles.add(subFile);
+        }
+        when(covariateFile.getFiles()).thenReturn(subFiles);
+        return covariateFile;
+    }
+}
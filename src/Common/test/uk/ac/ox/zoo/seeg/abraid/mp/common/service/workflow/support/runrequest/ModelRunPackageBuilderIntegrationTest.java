@@ -21,13 +21,17 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModelRunWorkf
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RasterFilePathFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -85,6 +89,7 @@ public class ModelRunPackageBuilderIntegrationTest {
         buildPackageShouldCreateAZipContainingModelCode(directory);
         buildPackageShouldCreateAZipContainingGaulLevelAdminRasters(directory);
         buildPackageShouldCreateAZipContainingCovariateRasters(directory);
+        buildPackageShouldCreateAZipContainingCovariateManifest(directory);
         buildPackageShouldCreateAZipContainingExtentInput(directory);
         buildPackageShouldCreateAZipContainingOccurrenceInput(directory);
         buildPackageShouldCreateAZipContainingBiasOccurrenceInput(directory);
@@ -134,11 +139,24 @@ public class ModelRunPackageBuilderIntegrationTest {
                 createCovariateFile(3, "sub/c3.tif", true, 1)
         );
         String covariateDirectory = DATA_DIR + "covariates/";
+        Map<String, String> covariateHashes = new LinkedHashMap<>();
+        covariateHashes.put("c1.tif", "hash1");
+        covariateHashes.put("c2.tif_1", "hash2");
+        covariateHashes.put("c2.tif_2", "hash3");
+        covariateHashes.put("sub/c3.tif", "hash4");
+        // c2.tif_2 is already held by the ModelWrapper
+        CovariateManifest covariateManifest = new CovariateManifest(
+                covariateDirectory, covariateHashes, Arrays.asList("hash1", "hash2", "hash4"));
 
         //Act
-        File zip = modelRunPackageBuilder.buildPackage(runName, diseaseGroup, occurrences, extent, biasOccurrences, covariateFiles, covariateDirectory);
+        File zip = testDir.newFile("package.zip");
+        try (ModelRunPackage runPackage = modelRunPackageBuilder.buildPackage(runName, diseaseGroup, occurrences, extent, biasOccurrences, covariateFiles, covariateManifest);
+             OutputStream outputStream = new FileOutputStream(zip)) {
+            assertThat(runPackage.getFileName()).isEqualTo(runName + ".zip");
+            runPackage.writeTo(outputStream);
+        }
         ZipFile zipFile = new ZipFile(zip);
-        Path directory = testDir.getRoot().toPath();
+        Path directory = testDir.newFolder().toPath();
         zipFile.extractAll(directory.toAbsolutePath().toString());
         Files.delete(zip.toPath());
         return directory;
@@ -258,12 +276,19 @@ public class ModelRunPackageBuilderIntegrationTest {
         assertThat(Paths.get(dir.toString(), "c1.tif").toFile()).hasContentEqualTo(Paths.get(DATA_DIR, "covariates/c1.tif").toFile());
         assertThat(files).contains(Paths.get(dir.toString(), "c2.tif_1").toFile());
         assertThat(Paths.get(dir.toString(), "c2.tif_1").toFile()).hasContentEqualTo(Paths.get(DATA_DIR, "covariates/c2.tif_1").toFile());
-        assertThat(files).contains(Paths.get(dir.toString(), "c2.tif_2").toFile());
-        assertThat(Paths.get(dir.toString(), "c2.tif_2").toFile()).hasContentEqualTo(Paths.get(DATA_DIR, "covariates/c2.tif_2").toFile());
+        assertThat(files).doesNotContain(Paths.get(dir.toString(), "c2.tif_2").toFile());
         assertThat(files).contains(Paths.get(dir.toString(), "sub/c3.tif").toFile());
         assertThat(Paths.get(dir.toString(), "sub/c3.tif").toFile()).hasContentEqualTo(Paths.get(DATA_DIR, "covariates/sub/c3.tif").toFile());
     }
 
+    private void buildPackageShouldCreateAZipContainingCovariateManifest(Path directory) throws Exception {
+        // Assert
+        File file = Paths.get(directory.toString(), "covariates.json").toFile();
+        assertThat(file).exists();
+        assertThat(file).hasContent(
+                "{\"c1.tif\":\"hash1\",\"c2.tif_1\":\"hash2\",\"c2.tif_2\":\"hash3\",\"sub/c3.tif\":\"hash4\"}");
+    }
+
     private void buildPackageShouldCreateAZipContainingExtentInput(Path directory) throws Exception {
         // Assert
         File dir = Paths.get(directory.toString(), "data").toFile();
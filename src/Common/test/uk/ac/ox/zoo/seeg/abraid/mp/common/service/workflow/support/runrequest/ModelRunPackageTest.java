@@ -0,0 +1,95 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import net.lingala.zip4j.core.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the ModelRunPackage class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ModelRunPackageTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void writeToWritesZipOfWorkingDirectoryAndExternalFiles() throws Exception {
+        // Arrange
+        Path workingDirectory = testFolder.newFolder().toPath();
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "metadata.json").toFile(), "metadata");
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "data", "data.csv").toFile(), "data");
+        Paths.get(workingDirectory.toString(), "covariates").toFile().mkdir();
+        File external = testFolder.newFile();
+        FileUtils.writeStringToFile(external, "covariate");
+        Map<String, File> externalFiles = new LinkedHashMap<>();
+        externalFiles.put("admins/admin0.tif", external);
+        ModelRunPackage target = new ModelRunPackage("name", workingDirectory, externalFiles);
+        File zip = testFolder.newFile();
+
+        // Act
+        try (OutputStream outputStream = new FileOutputStream(zip)) {
+            target.writeTo(outputStream);
+        }
+
+        // Assert
+        File directory = testFolder.newFolder();
+        new ZipFile(zip).extractAll(directory.toString());
+        assertThat(Paths.get(directory.toString(), "metadata.json").toFile()).hasContent("metadata");
+        assertThat(Paths.get(directory.toString(), "data", "data.csv").toFile()).hasContent("data");
+        assertThat(Paths.get(directory.toString(), "covariates").toFile()).isDirectory();
+        assertThat(Paths.get(directory.toString(), "admins", "admin0.tif").toFile()).hasContent("covariate");
+        assertThat(target.getFileName()).isEqualTo("name.zip");
+    }
+
+    @Test
+    public void writeToWritesMetadataAsFirstEntry() throws Exception {
+        // Arrange
+        Path workingDirectory = testFolder.newFolder().toPath();
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "a", "data.csv").toFile(), "data");
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "metadata.json").toFile(), "metadata");
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "z.R").toFile(), "script");
+        ModelRunPackage target = new ModelRunPackage("name", workingDirectory, new LinkedHashMap<String, File>());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        target.writeTo(outputStream);
+
+        // Assert
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(zip.getNextEntry().getName()).isEqualTo("metadata.json");
+        int count = 1;
+        while (zip.getNextEntry() != null) {
+            count++;
+        }
+        assertThat(count).isEqualTo(4); // metadata.json, a/, a/data.csv, z.R
+    }
+
+    @Test
+    public void closeDeletesWorkingDirectory() throws Exception {
+        // Arrange
+        Path workingDirectory = testFolder.newFolder().toPath();
+        FileUtils.writeStringToFile(Paths.get(workingDirectory.toString(), "metadata.json").toFile(), "metadata");
+        ModelRunPackage target = new ModelRunPackage("name", workingDirectory, new LinkedHashMap<String, File>());
+
+        // Act
+        target.close();
+
+        // Assert
+        assertThat(workingDirectory.toFile()).doesNotExist();
+    }
+}
@@ -12,15 +12,19 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.CovariateService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModelRunWorkflowException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RequestBodyNotSentException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -34,49 +38,145 @@ import static uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils.captorForCl
 public class ModelRunRequesterTest {
 
     @Test
-    public void requestModelRunUsesLeastBusyModelWrapper() throws Exception {
+    public void requestModelRunUsesPreferredModelWrapper() throws Exception {
         // Arrange
-        CovariateService covariateService = mock(CovariateService.class);
-        DiseaseService diseaseService = mock(DiseaseService.class);
-        ModelRunPackageBuilder modelRunPackageBuilder = mock(ModelRunPackageBuilder.class);
-        when(diseaseService.getDiseaseGroupById(87)).thenReturn(mock(DiseaseGroup.class));
-        when(diseaseService.getDiseaseGroupById(87).getAbbreviation()).thenReturn("deng");
         ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
-        when(webService.startRun(any(URI.class), any(File.class))).thenReturn(mock(JsonModelRunResponse.class));
+        ModelRunRequester target = createMockModelRunRequester(mock(ModelRunService.class), mockDiseaseAndService(87, true, true, null), mock(ModelRunPackageBuilder.class), mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+
+        // Act
+        target.requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
 
+        // Assert
+        verify(webService).startRun(eq(URI.create("http://api:key@b:1245/path")), any(ModelRunPackage.class));
+        verify(webService, never()).startRun(eq(URI.create("http://api:key@a:1245/path")), any(ModelRunPackage.class));
+    }
+
+    @Test
+    public void requestModelRunReroutesToNextModelWrapperIfPreferredModelWrapperCannotAcceptRun() throws Exception {
+        // Arrange
         ModelRunService runService = mock(ModelRunService.class);
-        when(runService.getModelRunRequestServersByUsage()).thenReturn(Arrays.asList("a", "c", "b"));
-        ModelRunRequester target = new ModelRunRequester(webService, modelRunPackageBuilder, covariateService, diseaseService, runService,
-                Arrays.asList("http://api:key@a:1245/path", "http://api:key@b:1245/path", "http://api:key@c:1245/path"));
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        ModelRunPackageBuilder modelRunPackageBuilder = mock(ModelRunPackageBuilder.class);
+        ModelRunPackage firstPackage = mock(ModelRunPackage.class);
+        ModelRunPackage secondPackage = mock(ModelRunPackage.class);
+        when(modelRunPackageBuilder.buildPackage(anyString(), any(DiseaseGroup.class), anyListOf(DiseaseOccurrence.class),
+                anyCollectionOf(AdminUnitDiseaseExtentClass.class), anyListOf(DiseaseOccurrence.class),
+                anyCollectionOf(CovariateFile.class), any(CovariateManifest.class))).thenReturn(firstPackage, secondPackage);
+        ModelRunRequester target = createMockModelRunRequester(runService, mockDiseaseAndService(87, true, true, null), modelRunPackageBuilder, mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+        when(webService.startRun(eq(URI.create("http://api:key@b:1245/path")), any(ModelRunPackage.class)))
+                .thenThrow(new WebServiceClientException("503", 503));
 
         // Act
         target.requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
 
         // Assert
-        verify(webService).startRun(eq(URI.create("http://api:key@a:1245/path")), any(File.class));
+        verify(webService).startRun(URI.create("http://api:key@b:1245/path"), firstPackage);
+        verify(webService).startRun(URI.create("http://api:key@a:1245/path"), secondPackage);
+        verify(firstPackage).close();
+        verify(secondPackage).close();
+        ArgumentCaptor<ModelRun> modelRunArgumentCaptor = captorForClass(ModelRun.class);
+        verify(runService).saveModelRun(modelRunArgumentCaptor.capture());
+        assertThat(modelRunArgumentCaptor.getValue().getRequestServer()).isEqualTo("a");
     }
 
     @Test
-    public void requestModelRunUsesFirstNewModelWrapper() throws Exception {
+    public void requestModelRunReroutesToNextModelWrapperIfPreferredModelWrapperCannotBeConnectedTo()
+            throws Exception {
         // Arrange
-        CovariateService covariateService = mock(CovariateService.class);
-        DiseaseService diseaseService = mock(DiseaseService.class);
-        ModelRunPackageBuilder modelRunPackageBuilder = mock(ModelRunPackageBuilder.class);
-        when(diseaseService.getDiseaseGroupById(87)).thenReturn(mock(DiseaseGroup.class));
-        when(diseaseService.getDiseaseGroupById(87).getAbbreviation()).thenReturn("deng");
+        ModelRunService runService = mock(ModelRunService.class);
         ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
-        when(webService.startRun(any(URI.class), any(File.class))).thenReturn(mock(JsonModelRunResponse.class));
+        ModelRunRequester target = createMockModelRunRequester(runService, mockDiseaseAndService(87, true, true, null), mock(ModelRunPackageBuilder.class), mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+        when(webService.startRun(eq(URI.create("http://api:key@b:1245/path")), any(ModelRunPackage.class)))
+                .thenThrow(new WebServiceClientException("refused", new ConnectException("Connection refused")));
+
+        // Act
+        target.requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
+
+        // Assert
+        verify(webService).startRun(eq(URI.create("http://api:key@a:1245/path")), any(ModelRunPackage.class));
+        ArgumentCaptor<ModelRun> modelRunArgumentCaptor = captorForClass(ModelRun.class);
+        verify(runService).saveModelRun(modelRunArgumentCaptor.capture());
+        assertThat(modelRunArgumentCaptor.getValue().getRequestServer()).isEqualTo("a");
+    }
 
+    @Test
+    public void requestModelRunReroutesToNextModelWrapperIfPreferredModelWrapperClosesConnectionBeforeRunIsSent()
+            throws Exception {
+        // Arrange
         ModelRunService runService = mock(ModelRunService.class);
-        when(runService.getModelRunRequestServersByUsage()).thenReturn(Arrays.asList("c", "b"));
-        ModelRunRequester target = new ModelRunRequester(webService, modelRunPackageBuilder, covariateService, diseaseService, runService,
-                Arrays.asList("http://api:key@a:1245/path", "http://api:key@b:1245/path", "http://api:key@c:1245/path", "http://api:key@d:1245/path"));
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        ModelRunRequester target = createMockModelRunRequester(runService, mockDiseaseAndService(87, true, true, null), mock(ModelRunPackageBuilder.class), mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+        when(webService.startRun(eq(URI.create("http://api:key@b:1245/path")), any(ModelRunPackage.class)))
+                .thenThrow(new WebServiceClientException("reset",
+                        new RequestBodyNotSentException(new SocketException("Connection reset"))));
 
         // Act
         target.requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
 
         // Assert
-        verify(webService).startRun(eq(URI.create("http://api:key@a:1245/path")), any(File.class));
+        verify(webService).startRun(eq(URI.create("http://api:key@a:1245/path")), any(ModelRunPackage.class));
+        ArgumentCaptor<ModelRun> modelRunArgumentCaptor = captorForClass(ModelRun.class);
+        verify(runService).saveModelRun(modelRunArgumentCaptor.capture());
+        assertThat(modelRunArgumentCaptor.getValue().getRequestServer()).isEqualTo("a");
+    }
+
+    @Test
+    public void requestModelRunDoesNotRerouteIfPreferredModelWrapperResetsConnectionAfterRunIsSent() throws Exception {
+        requestModelRunDoesNotRerouteFor(
+                new WebServiceClientException("reset", new SocketException("Connection reset")));
+    }
+
+    @Test
+    public void requestModelRunDoesNotRerouteIfPreferredModelWrapperReturnsAnErrorOtherThanBusy() throws Exception {
+        requestModelRunDoesNotRerouteFor(new WebServiceClientException("500", 500));
+    }
+
+    @Test
+    public void requestModelRunDoesNotRerouteIfPreferredModelWrapperTimesOutAfterConnecting() throws Exception {
+        requestModelRunDoesNotRerouteFor(
+                new WebServiceClientException("timeout", new SocketTimeoutException("Read timed out")));
+    }
+
+    private void requestModelRunDoesNotRerouteFor(WebServiceClientException failure) throws Exception {
+        // Arrange
+        ModelRunService runService = mock(ModelRunService.class);
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        ModelRunRequester target = createMockModelRunRequester(runService, mockDiseaseAndService(87, true, true, null), mock(ModelRunPackageBuilder.class), mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+        when(webService.startRun(eq(URI.create("http://api:key@b:1245/path")), any(ModelRunPackage.class)))
+                .thenThrow(failure);
+
+        // Act
+        catchException(target).requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(ModelRunWorkflowException.class);
+        assertThat(caughtException().getCause()).isSameAs(failure);
+        verify(webService, never()).startRun(eq(URI.create("http://api:key@a:1245/path")), any(ModelRunPackage.class));
+        verify(runService, never()).saveModelRun(any(ModelRun.class));
+    }
+
+    @Test
+    public void requestModelRunThrowsExceptionIfNoModelWrapperCanAcceptRun() throws Exception {
+        // Arrange
+        ModelRunService runService = mock(ModelRunService.class);
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        ModelRunRequester target = createMockModelRunRequester(runService, mockDiseaseAndService(87, true, true, null), mock(ModelRunPackageBuilder.class), mock(CovariateService.class), webService,
+                "http://api:key@b:1245/path", "http://api:key@a:1245/path");
+        when(webService.startRun(any(URI.class), any(ModelRunPackage.class)))
+                .thenThrow(new WebServiceClientException("503", 503));
+
+        // Act
+        catchException(target).requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(ModelRunWorkflowException.class);
+        verify(webService, times(2)).startRun(any(URI.class), any(ModelRunPackage.class));
+        verify(runService, never()).saveModelRun(any(ModelRun.class));
     }
 
     @Test
@@ -221,7 +321,7 @@ public class ModelRunRequesterTest {
         target.requestModelRun(87, occurrences, null, null);
 
         // Assert
-        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), eq("covDir"));
+        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), any(CovariateManifest.class));
     }
 
     @Test
@@ -258,7 +358,7 @@ public class ModelRunRequesterTest {
         target.requestModelRun(87, occurrences, null, null);
 
         // Assert
-        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), eq("covDir"));
+        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), any(CovariateManifest.class));
     }
 
     @Test
@@ -296,7 +396,7 @@ public class ModelRunRequesterTest {
         target.requestModelRun(87, occurrences, null, null);
 
         // Assert
-        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), eq("covDir"));
+        verify(zipBuilder).buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), any(CovariateManifest.class));
     }
 
     @Test
@@ -330,15 +430,82 @@ public class ModelRunRequesterTest {
         when(diseaseService.getDefaultBiasOccurrencesForModelRun(same(diseaseGroup), any(DateTime.class), any(DateTime.class))).thenReturn(biasOccurrences);
         when(covService.getCovariateFilesByDiseaseGroup(diseaseGroup)).thenReturn(covariateFiles);
 
-        File zipFile = Files.createTempFile("abc", "xzy").toFile();
-        when(zipBuilder.buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), eq("covDir"))).thenReturn(zipFile);
+        ModelRunPackage zipFile = mock(ModelRunPackage.class);
+        when(zipBuilder.buildPackage(startsWith("deng_"), same(diseaseGroup), same(occurrences), same(extent), same(biasOccurrences), same(covariateFiles), any(CovariateManifest.class))).thenReturn(zipFile);
 
         // Act
         target.requestModelRun(87, occurrences, null, null);
 
         // Assert
         verify(webService).startRun(any(URI.class), same(zipFile));
-        assertThat(zipFile).doesNotExist(); // Should have been deleted
+        verify(zipFile).close(); // Should have been cleaned up
+    }
+
+    @Test
+    public void requestModelRunOnlyPackagesCovariateFilesMissingFromModelWrapper() throws Exception {
+        // Arrange
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put("a.tif", "hash1");
+        hashes.put("b.tif", "hash2");
+        hashes.put("c.tif", "hash1");
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        when(webService.getMissingCovariateHashes(any(URI.class), anyCollectionOf(String.class)))
+                .thenReturn(Arrays.asList("hash2"));
+
+        // Act
+        CovariateManifest manifest = requestModelRunAndCaptureCovariateManifest(hashes, webService);
+
+        // Assert
+        verify(webService).getMissingCovariateHashes(
+                eq(URI.create("http://api:key@a:1245/path")), eq(new HashSet<>(hashes.values())));
+        assertThat(manifest.getCovariateDirectory()).isEqualTo("covDir");
+        assertThat(manifest.getFileHashes()).isEqualTo(hashes);
+        assertThat(manifest.shouldIncludeFile("a.tif")).isFalse();
+        assertThat(manifest.shouldIncludeFile("b.tif")).isTrue();
+        assertThat(manifest.shouldIncludeFile("c.tif")).isFalse();
+    }
+
+    @Test
+    public void requestModelRunPackagesAllCovariateFilesIfModelWrapperCovariateStoreCannotBeQueried()
+            throws Exception {
+        // Arrange
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put("a.tif", "hash1");
+        hashes.put("b.tif", "hash2");
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        when(webService.getMissingCovariateHashes(any(URI.class), anyCollectionOf(String.class)))
+                .thenThrow(new WebServiceClientException("404"));
+
+        // Act
+        CovariateManifest manifest = requestModelRunAndCaptureCovariateManifest(hashes, webService);
+
+        // Assert
+        assertThat(manifest.shouldIncludeFile("a.tif")).isTrue();
+        assertThat(manifest.shouldIncludeFile("b.tif")).isTrue();
+    }
+
+    private CovariateManifest requestModelRunAndCaptureCovariateManifest(
+            Map<String, String> hashes, ModelWrapperWebService webService) throws Exception {
+        ModelRunService runService = mock(ModelRunService.class);
+        CovariateService covService = mock(CovariateService.class);
+        DiseaseService diseaseService = mockDiseaseAndService(87, true, false, null);
+        List<CovariateFile> covariateFiles = Arrays.asList(mock(CovariateFile.class));
+        when(covService.getCovariateDirectory()).thenReturn("covDir");
+        when(covService.getCovariateFilesByDiseaseGroup(any(DiseaseGroup.class))).thenReturn(covariateFiles);
+        CovariateFileHasher hasher = mock(CovariateFileHasher.class);
+        when(hasher.hashCovariateFiles(covariateFiles, "covDir")).thenReturn(hashes);
+        when(webService.startRun(any(URI.class), any(ModelRunPackage.class))).thenReturn(mock(JsonModelRunResponse.class));
+        ModelRunPackageBuilder zipBuilder = mock(ModelRunPackageBuilder.class);
+        ModelRunRequester target = new ModelRunRequester(webService, zipBuilder, hasher, covService, diseaseService,
+                runService, mockModelWrapperScheduler("http://api:key@a:1245/path"));
+
+        target.requestModelRun(87, Arrays.asList(mock(DiseaseOccurrence.class)), null, null);
+
+        ArgumentCaptor<CovariateManifest> captor = captorForClass(CovariateManifest.class);
+        verify(zipBuilder).buildPackage(anyString(), any(DiseaseGroup.class), anyListOf(DiseaseOccurrence.class),
+                anyCollectionOf(AdminUnitDiseaseExtentClass.class), anyListOf(DiseaseOccurrence.class),
+                same(covariateFiles), captor.capture());
+        return captor.getValue();
     }
 
     private AdminUnitDiseaseExtentClass createMockAdminUnitDiseaseExtentClass() {
@@ -348,11 +515,23 @@ public class ModelRunRequesterTest {
         return mock;
     }
 
-    private ModelRunRequester createMockModelRunRequester(ModelRunService runService, DiseaseService mockDiseaseService, ModelRunPackageBuilder modelRunPackageBuilder1, CovariateService covariateService, ModelWrapperWebService webService) throws IOException, ZipException {
-        when(webService.startRun(any(URI.class), any(File.class))).thenReturn(mock(JsonModelRunResponse.class));
-        when(runService.getModelRunRequestServersByUsage()).thenReturn(new ArrayList<String>());
-        return new ModelRunRequester(webService, modelRunPackageBuilder1, covariateService, mockDiseaseService, runService,
-                Arrays.asList("http://api:key@a:1245/path"));
+    private ModelRunRequester createMockModelRunRequester(ModelRunService runService, DiseaseService mockDiseaseService, ModelRunPackageBuilder modelRunPackageBuilder1, CovariateService covariateService, ModelWrapperWebService webService, String... modelWrapperUrls) throws IOException, ZipException {
+        when(webService.startRun(any(URI.class), any(ModelRunPackage.class))).thenReturn(mock(JsonModelRunResponse.class));
+        if (modelWrapperUrls.length == 0) {
+            modelWrapperUrls = new String[] {"http://api:key@a:1245/path"};
+        }
+        return new ModelRunRequester(webService, modelRunPackageBuilder1, mock(CovariateFileHasher.class), covariateService, mockDiseaseService, runService,
+                mockModelWrapperScheduler(modelWrapperUrls));
+    }
+
+    private ModelWrapperScheduler mockModelWrapperScheduler(String... modelWrapperUrls) {
+        List<URI> urls = new ArrayList<>();
+        for (String url : modelWrapperUrls) {
+            urls.add(URI.create(url));
+        }
+        ModelWrapperScheduler scheduler = mock(ModelWrapperScheduler.class);
+        when(scheduler.getModelWrapperUrlsInPreferenceOrder()).thenReturn(urls);
+        return scheduler;
     }
 
     private DiseaseService mockDiseaseAndService(int diseaseGroupId, boolean automaticRuns, boolean useBias, DiseaseService mockDiseaseService) {
@@ -0,0 +1,134 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRun;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the ModelWrapperScheduler class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ModelWrapperSchedulerTest {
+    private static final String URL_A = "http://api:key@a:1245/path";
+    private static final String URL_B = "http://api:key@b:1245/path";
+    private static final String URL_C = "http://api:key@c:1245/path";
+    private static final String URL_D = "http://api:key@d:1245/path";
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRequiresAtLeastOneModelWrapperUrl() {
+        new ModelWrapperScheduler(mock(ModelWrapperWebService.class), mock(ModelRunService.class),
+                new ArrayList<String>());
+    }
+
+    @Test
+    public void getModelWrapperUrlsInPreferenceOrderUsesHistoricalUsageIfStatusIsUnavailable() {
+        // Arrange
+        ModelWrapperWebService webService = mockUnreachableWebService();
+        ModelRunService runService = mockModelRunService(Arrays.asList("a", "c", "b"));
+        ModelWrapperScheduler target = new ModelWrapperScheduler(webService, runService,
+                Arrays.asList(URL_A, URL_B, URL_C));
+
+        // Act
+        List<URI> result = target.getModelWrapperUrlsInPreferenceOrder();
+
+        // Assert
+        assertThat(result).containsExactly(URI.create(URL_A), URI.create(URL_C), URI.create(URL_B));
+    }
+
+    @Test
+    public void getModelWrapperUrlsInPreferenceOrderPrefersNewModelWrappersIfStatusIsUnavailable() {
+        // Arrange
+        ModelWrapperWebService webService = mockUnreachableWebService();
+        ModelRunService runService = mockModelRunService(Arrays.asList("c", "b"));
+        ModelWrapperScheduler target = new ModelWrapperScheduler(webService, runService,
+                Arrays.asList(URL_A, URL_B, URL_C, URL_D));
+
+        // Act
+        List<URI> result = target.getModelWrapperUrlsInPreferenceOrder();
+
+        // Assert
+        assertThat(result).containsExactly(URI.create(URL_A), URI.create(URL_D), URI.create(URL_C), URI.create(URL_B));
+    }
+
+    @Test
+    public void getModelWrapperUrlsInPreferenceOrderOrdersByExpectedCompletionTime() {
+        // Arrange
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        // a: 3 runs ahead in 2 slots, so 2 x 1 hour
+        when(webService.getModelRunQueueStatus(URI.create(URL_A))).thenReturn(createStatus(2, 5, 2, 1));
+        // b: idle, but runs take 3 hours
+        when(webService.getModelRunQueueStatus(URI.create(URL_B))).thenReturn(createStatus(1, 5, 0, 0));
+        // c: free slot, no history so uses the overall mean (1h40m)
+        when(webService.getModelRunQueueStatus(URI.create(URL_C))).thenReturn(createStatus(4, 5, 1, 0));
+        ModelRunService runService = mockModelRunService(new ArrayList<String>(),
+                createModelRun("a", 1), createModelRun("a", 1), createModelRun("b", 3));
+        ModelWrapperScheduler target = new ModelWrapperScheduler(webService, runService,
+                Arrays.asList(URL_A, URL_B, URL_C));
+
+        // Act
+        List<URI> result = target.getModelWrapperUrlsInPreferenceOrder();
+
+        // Assert
+        assertThat(result).containsExactly(URI.create(URL_C), URI.create(URL_A), URI.create(URL_B));
+    }
+
+    @Test
+    public void getModelWrapperUrlsInPreferenceOrderPlacesFullAndUnreachableModelWrappersLast() {
+        // Arrange
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        when(webService.getModelRunQueueStatus(URI.create(URL_A))).thenReturn(createStatus(1, 1, 1, 1));
+        when(webService.getModelRunQueueStatus(URI.create(URL_B))).thenThrow(new WebServiceClientException("b"));
+        when(webService.getModelRunQueueStatus(URI.create(URL_C))).thenReturn(createStatus(1, 20, 1, 10));
+        ModelRunService runService = mockModelRunService(new ArrayList<String>());
+        ModelWrapperScheduler target = new ModelWrapperScheduler(webService, runService,
+                Arrays.asList(URL_A, URL_B, URL_C));
+
+        // Act
+        List<URI> result = target.getModelWrapperUrlsInPreferenceOrder();
+
+        // Assert
+        assertThat(result).containsExactly(URI.create(URL_C), URI.create(URL_A), URI.create(URL_B));
+    }
+
+    private ModelWrapperWebService mockUnreachableWebService() {
+        ModelWrapperWebService webService = mock(ModelWrapperWebService.class);
+        when(webService.getModelRunQueueStatus(any(URI.class))).thenThrow(new WebServiceClientException("message"));
+        return webService;
+    }
+
+    private ModelRunService mockModelRunService(List<String> serversByUsage, ModelRun... recentModelRuns) {
+        ModelRunService runService = mock(ModelRunService.class);
+        when(runService.getModelRunRequestServersByUsage()).thenReturn(serversByUsage);
+        when(runService.getCompletedModelRunsRequestedSince(any(DateTime.class)))
+                .thenReturn(Arrays.asList(recentModelRuns));
+        return runService;
+    }
+
+    private ModelRun createModelRun(String requestServer, int durationInHours) {
+        ModelRun modelRun = mock(ModelRun.class);
+        DateTime requestDate = DateTime.now().minusDays(1);
+        when(modelRun.getRequestServer()).thenReturn(requestServer);
+        when(modelRun.getRequestDate()).thenReturn(requestDate);
+        when(modelRun.getResponseDate()).thenReturn(requestDate.plusHours(durationInHours));
+        return modelRun;
+    }
+
+    private JsonModelRunQueueStatus createStatus(int maxConcurrentRuns, int maxQueuedRuns, int running, int queued) {
+        return new JsonModelRunQueueStatus(maxConcurrentRuns, maxQueuedRuns,
+                Collections.nCopies(running, "run"), Collections.nCopies(queued, "run"));
+    }
+}
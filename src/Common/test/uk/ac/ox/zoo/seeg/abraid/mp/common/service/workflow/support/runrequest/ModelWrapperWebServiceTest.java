@@ -1,18 +1,18 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest;
 
 import net.lingala.zip4j.exception.ZipException;
-import org.apache.commons.io.FileUtils;
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.TemporaryFolder;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 
-import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -28,17 +28,13 @@ import static org.mockito.Mockito.when;
 * Copyright (c) 2014 University of Oxford
 */
 public class ModelWrapperWebServiceTest {
-    @Rule
-    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
-
     private static final URI ROOT_URL = URI.create("http://localhost:8080/ModelWrapper");
 
     @Test
     public void startRunWithTypicalParameters() throws IOException, ZipException {
         // Arrange
         String expectedUrl = "http://localhost:8080/ModelWrapper/model/run";
-        File mockZip = testFolder.newFile();
-        FileUtils.writeStringToFile(mockZip, "Some fake content");
+        ModelRunPackage mockZip = createMockPackage();
         String responseJson = "{ \"errorText\": \"Some Error\" }";
 
         ModelWrapperWebService webService = getModelWrapperWebService(expectedUrl, mockZip, responseJson);
@@ -53,11 +49,10 @@ public class ModelWrapperWebServiceTest {
     @Test
     public void startRunPropagatesWebServiceClientException() throws IOException, ZipException {
         // Arrange
-        File mockZip = testFolder.newFile();
-        FileUtils.writeStringToFile(mockZip, "Some fake content");
+        ModelRunPackage mockZip = createMockPackage();
 
         WebServiceClient client = mock(WebServiceClient.class);
-        when(client.makePostRequestWithBinary(anyString(), any(File.class))).thenThrow(new WebServiceClientException(""));
+        when(client.makePostRequestWithStream(anyString(), anyString(), any(ModelRunPackage.class))).thenThrow(new WebServiceClientException(""));
         ModelWrapperWebService webService = getModelWrapperWebService(client);
 
         // Act
@@ -71,8 +66,7 @@ public class ModelWrapperWebServiceTest {
     public void startRunWithInvalidResponseJSONThrowsException() throws IOException, ZipException {
         // Arrange
         String expectedUrl = "http://localhost:8080/ModelWrapper/model/run";
-        File mockZip = testFolder.newFile();
-        FileUtils.writeStringToFile(mockZip, "Some fake content");
+        ModelRunPackage mockZip = createMockPackage();
 
         String responseJson = "{ asdas }";
 
@@ -85,14 +79,84 @@ public class ModelWrapperWebServiceTest {
         assertThat(caughtException()).isInstanceOf(JsonParserException.class);
     }
 
-    private ModelWrapperWebService getModelWrapperWebService(String expectedUrl, File expectedRequestBody, String responseJson) throws IOException, ZipException {
+    @Test
+    public void getMissingCovariateHashesWithTypicalParameters() throws Exception {
+        // Arrange
+        String expectedUrl = "http://localhost:8080/ModelWrapper/model/covariates/missing";
+        WebServiceClient client = mock(WebServiceClient.class);
+        when(client.makePostRequestWithJSON(expectedUrl, "[\"hash1\",\"hash2\",\"hash3\"]"))
+                .thenReturn("[\"hash2\"]");
+        ModelWrapperWebService webService = getModelWrapperWebService(client);
+
+        // Act
+        Collection<String> result =
+                webService.getMissingCovariateHashes(ROOT_URL, Arrays.asList("hash1", "hash2", "hash3"));
+
+        // Assert
+        assertThat(result).containsOnly("hash2");
+    }
+
+    @Test
+    public void getMissingCovariateHashesPropagatesWebServiceClientException() throws Exception {
+        // Arrange
+        WebServiceClient client = mock(WebServiceClient.class);
+        when(client.makePostRequestWithJSON(anyString(), anyString())).thenThrow(new WebServiceClientException(""));
+        ModelWrapperWebService webService = getModelWrapperWebService(client);
+
+        // Act
+        catchException(webService).getMissingCovariateHashes(ROOT_URL, Arrays.asList("hash1"));
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+    }
+
+    @Test
+    public void getModelRunQueueStatusWithTypicalParameters() throws Exception {
+        // Arrange
+        String expectedUrl = "http://localhost:8080/ModelWrapper/model/status";
+        WebServiceClient client = mock(WebServiceClient.class);
+        when(client.makeGetRequest(expectedUrl)).thenReturn(
+                "{\"maxConcurrentRuns\":2,\"maxQueuedRuns\":20,\"runningRuns\":[\"a\",\"b\"],\"queuedRuns\":[\"c\"]}");
+        ModelWrapperWebService webService = getModelWrapperWebService(client);
+
+        // Act
+        JsonModelRunQueueStatus result = webService.getModelRunQueueStatus(ROOT_URL);
+
+        // Assert
+        assertThat(result.getMaxConcurrentRuns()).isEqualTo(2);
+        assertThat(result.getMaxQueuedRuns()).isEqualTo(20);
+        assertThat(result.getRunningRuns()).containsExactly("a", "b");
+        assertThat(result.getQueuedRuns()).containsExactly("c");
+    }
+
+    @Test
+    public void getModelRunQueueStatusPropagatesWebServiceClientException() throws Exception {
+        // Arrange
+        WebServiceClient client = mock(WebServiceClient.class);
+        when(client.makeGetRequest(anyString())).thenThrow(new WebServiceClientException(""));
+        ModelWrapperWebService webService = getModelWrapperWebService(client);
+
+        // Act
+        catchException(webService).getModelRunQueueStatus(ROOT_URL);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+    }
+
+    private ModelRunPackage createMockPackage() {
+        ModelRunPackage mockZip = mock(ModelRunPackage.class);
+        when(mockZip.getFileName()).thenReturn("run.zip");
+        return mockZip;
+    }
+
+    private ModelWrapperWebService getModelWrapperWebService(String expectedUrl, ModelRunPackage expectedRequestBody, String responseJson) throws IOException, ZipException {
         WebServiceClient client = mock(WebServiceClient.class);
 
-        when(client.makePostRequestWithBinary(expectedUrl, expectedRequestBody)).thenReturn(responseJson);
+        when(client.makePostRequestWithStream(expectedUrl, "run.zip", expectedRequestBody)).thenReturn(responseJson);
         return getModelWrapperWebService(client);
     }
 
     private ModelWrapperWebService getModelWrapperWebService(WebServiceClient client) {
-        return new ModelWrapperWebService(client);
+        return new ModelWrapperWebService(client, new AbraidJsonObjectMapper());
     }
 }
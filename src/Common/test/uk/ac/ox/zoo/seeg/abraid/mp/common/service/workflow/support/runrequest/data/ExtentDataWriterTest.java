@@ -4,6 +4,7 @@ import org.apache.commons.io.FileUtils;
 import org.geotools.coverage.grid.io.GridCoverage2DReader;
 import org.geotools.factory.Hints;
 import org.geotools.gce.geotiff.GeoTiffReader;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -16,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -33,12 +35,19 @@ public class ExtentDataWriterTest {
     @Rule
     public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
 
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
     @Test
     public void writeShouldProduceCorrectOutputAndSetAnyUnknownValuesToNoData() throws Exception {
         // Arrange
         File sourceRaster = new File(SMALL_RASTER);
         File result = Paths.get(testFolder.newFolder().toString(), "foo.tif").toFile();
-        ExtentDataWriter target = new ExtentDataWriterImpl();
+        ExtentDataWriter target = new ExtentDataWriterImpl(pool);
         Collection<AdminUnitDiseaseExtentClass> extent = Arrays.asList(
             createMockAdminUnitDiseaseExtentClass(1, -100),
             createMockAdminUnitDiseaseExtentClass(2, -50),
@@ -82,7 +91,7 @@ public class ExtentDataWriterTest {
         File sourceRaster = testFolder.newFile();
         FileUtils.writeStringToFile(sourceRaster, "nonsense", "UTF-8");
         File result = Paths.get(testFolder.newFolder().toString(), "foo.asc").toFile();
-        ExtentDataWriter target = new ExtentDataWriterImpl();
+        ExtentDataWriter target = new ExtentDataWriterImpl(pool);
         Collection<AdminUnitDiseaseExtentClass> extent = new ArrayList<>();
 
         // Act
@@ -98,7 +107,7 @@ public class ExtentDataWriterTest {
         File sourceRaster = testFolder.newFile();
         FileUtils.writeStringToFile(sourceRaster, SMALL_RASTER, "UTF-8");
         File result = testFolder.newFolder(); // already exists as a directory
-        ExtentDataWriter target = new ExtentDataWriterImpl();
+        ExtentDataWriter target = new ExtentDataWriterImpl(pool);
         Collection<AdminUnitDiseaseExtentClass> extent = new ArrayList<>();
 
         // Act
@@ -0,0 +1,44 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the FileHashUtils class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class FileHashUtilsTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void calculateSha256ReturnsCorrectHash() throws Exception {
+        // Arrange
+        File file = testFolder.newFile();
+        FileUtils.writeStringToFile(file, "abc");
+
+        // Act
+        String result = FileHashUtils.calculateSha256(file);
+
+        // Assert
+        assertThat(result).isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    public void calculateSha256ReturnsCorrectHashForEmptyFile() throws Exception {
+        // Arrange
+        File file = testFolder.newFile();
+
+        // Act
+        String result = FileHashUtils.calculateSha256(file);
+
+        // Assert
+        assertThat(result).isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+    }
+}
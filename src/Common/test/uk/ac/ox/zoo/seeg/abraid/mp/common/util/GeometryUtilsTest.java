@@ -335,6 +335,65 @@ public class GeometryUtilsTest {
         assertThat(closestPoint).isNull();
     }
 
+    @Test
+    public void findClosestPointOnIndexedGeometryGivesSameResultsAsNonIndexedGeometry() {
+        // Arrange
+        Geometry geometry = GeometryUtils.createMultiPolygon(getSquare(), getFivePointedPolygon());
+        NearestPointIndex geometryIndex = new NearestPointIndex(geometry);
+        List<Point> points = Arrays.asList(GeometryUtils.createPoint(15, 15), GeometryUtils.createPoint(20, 20),
+                GeometryUtils.createPoint(26, 24), GeometryUtils.createPoint(25, 11),
+                GeometryUtils.createPoint(15, -89.9), GeometryUtils.createPoint(7.12345, 3.98765));
+
+        for (Point point : points) {
+            // Act
+            Point closestPoint = GeometryUtils.findClosestPointOnGeometry(geometryIndex, point);
+
+            // Assert
+            assertThat(closestPoint.equalsExact(GeometryUtils.findClosestPointOnGeometry(geometry, point))).isTrue();
+        }
+    }
+
+    @Test
+    public void findClosestPointOnIndexedGeometrySnapsOutsidePointWithCorrectRounding() {
+        // Arrange
+        Geometry geometry = GeometryUtils.createPolygon(false, 10.000003, 10.000002, 10, 20, 20, 20, 20, 10,
+                10.000003, 10.000002);
+        Point point = GeometryUtils.createPoint(9, 9);
+        Point expectedCorrectClosestPoint = GeometryUtils.createPoint(10.00001, 10.00001);
+
+        // Act
+        Point closestPoint = GeometryUtils.findClosestPointOnGeometry(new NearestPointIndex(geometry), point);
+
+        // Assert
+        assertThat(closestPoint.equalsExact(expectedCorrectClosestPoint)).isTrue();
+    }
+
+    @Test
+    public void findClosestPointOnIndexedGeometryReturnsNullIfClosestPointCannotBeFound() {
+        // Arrange
+        Geometry geometry = GeometryUtils.createPolygon(false, 10.000003, 10.000003, 10.000003, 10.000006,
+                10.000006, 10.000006, 10.000006, 10.000003, 10.000003, 10.000003);
+        Point point = GeometryUtils.createPoint(9, 9);
+
+        // Act
+        Point closestPoint = GeometryUtils.findClosestPointOnGeometry(new NearestPointIndex(geometry), point);
+
+        // Assert
+        assertThat(closestPoint).isNull();
+    }
+
+    @Test
+    public void findClosestPointOnIndexedGeometryReturnsNullForEmptyGeometry() {
+        // Arrange
+        NearestPointIndex geometryIndex = new NearestPointIndex(GeometryUtils.createMultiPolygon());
+
+        // Act
+        Point closestPoint = GeometryUtils.findClosestPointOnGeometry(geometryIndex, GeometryUtils.createPoint(9, 9));
+
+        // Assert
+        assertThat(closestPoint).isNull();
+    }
+
     // Asserted exception is in the @Test annotation - cannot use catchException() for static methods
     @Test(expected = IllegalArgumentException.class)
     public void createPolygonThrowsExceptionIfNumberParametersIsOdd() {
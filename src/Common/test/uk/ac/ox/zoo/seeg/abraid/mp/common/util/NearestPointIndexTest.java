@@ -0,0 +1,140 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.operation.distance.DistanceOp;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the NearestPointIndex class.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class NearestPointIndexTest {
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    @Test
+    public void findNearestCoordinateReturnsSameCoordinateIfInsideGeometry() {
+        // Arrange
+        NearestPointIndex target = new NearestPointIndex(getSquareWithHole());
+        Coordinate coordinate = new Coordinate(12, 18);
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(coordinate);
+
+        // Assert
+        assertThat(result).isEqualTo(coordinate);
+    }
+
+    @Test
+    public void findNearestCoordinateReturnsSameCoordinateIfOnBoundary() {
+        // Arrange
+        NearestPointIndex target = new NearestPointIndex(getSquareWithHole());
+        Coordinate coordinate = new Coordinate(15, 14);
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(coordinate);
+
+        // Assert
+        assertThat(result).isEqualTo(coordinate);
+    }
+
+    @Test
+    public void findNearestCoordinateSnapsCoordinateInHoleToHoleBoundary() {
+        // Arrange
+        NearestPointIndex target = new NearestPointIndex(getSquareWithHole());
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(new Coordinate(15, 15.5));
+
+        // Assert
+        assertThat(result).isEqualTo(new Coordinate(15, 16));
+    }
+
+    @Test
+    public void findNearestCoordinateSnapsOutsideCoordinateToShell() {
+        // Arrange
+        NearestPointIndex target = new NearestPointIndex(getSquareWithHole());
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(new Coordinate(25, 11));
+
+        // Assert
+        assertThat(result).isEqualTo(new Coordinate(20, 11));
+    }
+
+    @Test
+    public void findNearestCoordinateReturnsNullForEmptyGeometry() {
+        // Arrange
+        NearestPointIndex target = new NearestPointIndex(GeometryUtils.createMultiPolygon());
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(new Coordinate(1, 1));
+
+        // Assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    public void findNearestCoordinateGivesSameResultsAsDistanceOpForDetailedGeometry() {
+        // Arrange
+        Random random = new Random(42);
+        Geometry geometry = GEOMETRY_FACTORY.createMultiPolygon(new Polygon[] {
+                createCoastline(random, 0, 0, 10, 20000), createCoastline(random, 25, 5, 3, 5000), getSquareWithHole()
+        });
+        NearestPointIndex target = new NearestPointIndex(geometry);
+
+        for (int i = 0; i < 2000; i++) {
+            Coordinate coordinate = new Coordinate(-20 + random.nextDouble() * 60, -20 + random.nextDouble() * 45);
+
+            // Act
+            Coordinate result = target.findNearestCoordinate(coordinate);
+
+            // Assert
+            Coordinate expectedResult = DistanceOp.nearestPoints(geometry, GEOMETRY_FACTORY.createPoint(coordinate))[0];
+            assertThat(result).isEqualTo(expectedResult);
+        }
+    }
+
+    @Test
+    public void findNearestCoordinateResolvesTiesInSameWayAsDistanceOp() {
+        // Arrange - a U shape, with the coordinate in the notch equidistant from both of its sides
+        Geometry geometry = GeometryUtils.createPolygon(0, 0, 0, 10, 1, 10, 1, 2, 3, 2, 3, 10, 4, 10, 4, 0, 0, 0);
+        NearestPointIndex target = new NearestPointIndex(geometry);
+        Coordinate coordinate = new Coordinate(2, 9);
+
+        // Act
+        Coordinate result = target.findNearestCoordinate(coordinate);
+
+        // Assert
+        assertThat(result).isEqualTo(DistanceOp.nearestPoints(geometry, GEOMETRY_FACTORY.createPoint(coordinate))[0]);
+        assertThat(result).isEqualTo(new Coordinate(1, 9));
+    }
+
+    private Polygon getSquareWithHole() {
+        Polygon shell = GeometryUtils.createPolygon(10, 10, 10, 20, 20, 20, 20, 10, 10, 10);
+        Polygon hole = GeometryUtils.createPolygon(14, 14, 14, 16, 16, 16, 16, 14, 14, 14);
+        return GEOMETRY_FACTORY.createPolygon((LinearRing) shell.getExteriorRing(),
+                new LinearRing[] {(LinearRing) hole.getExteriorRing()});
+    }
+
+    // A star-shaped polygon with a randomly varying radius, to resemble a detailed coastline
+    private Polygon createCoastline(Random random, double centreX, double centreY, double radius, int vertices) {
+        Coordinate[] coordinates = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double vertexRadius = radius * (0.8 + 0.2 * random.nextDouble());
+            coordinates[i] = new Coordinate(centreX + vertexRadius * Math.cos(angle),
+                    centreY + vertexRadius * Math.sin(angle));
+        }
+        coordinates[vertices] = coordinates[0];
+        return GEOMETRY_FACTORY.createPolygon(GEOMETRY_FACTORY.createLinearRing(coordinates), null);
+    }
+}
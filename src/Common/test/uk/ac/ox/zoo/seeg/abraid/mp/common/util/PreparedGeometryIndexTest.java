@@ -0,0 +1,101 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the PreparedGeometryIndex class.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class PreparedGeometryIndexTest {
+    @Test
+    public void findFirstIntersectingReturnsLowestKeyOfGeometriesContainingPoint() {
+        // Arrange
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(createGeometries());
+
+        // Act
+        Integer result = target.findFirstIntersecting(GeometryUtils.createPoint(5, 5));
+
+        // Assert
+        assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    public void findFirstIntersectingIncludesPointOnBorder() {
+        // Arrange
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(createGeometries());
+
+        // Act
+        Integer result = target.findFirstIntersecting(GeometryUtils.createPoint(20, 15));
+
+        // Assert
+        assertThat(result).isEqualTo(7);
+    }
+
+    @Test
+    public void findFirstIntersectingReturnsNullIfPointWithinEnvelopeButNotGeometry() {
+        // Arrange
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(createGeometries());
+
+        // Act
+        Integer result = target.findFirstIntersecting(GeometryUtils.createPoint(29, 11));
+
+        // Assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    public void intersectsAnyReturnsExpectedResults() {
+        // Arrange
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(createGeometries());
+
+        // Act and assert
+        assertThat(target.intersectsAny(GeometryUtils.createPoint(1, 1))).isTrue();
+        assertThat(target.intersectsAny(GeometryUtils.createPoint(21, 19))).isTrue();
+        assertThat(target.intersectsAny(GeometryUtils.createPoint(29, 11))).isFalse();
+        assertThat(target.intersectsAny(GeometryUtils.createPoint(-50, 50))).isFalse();
+    }
+
+    @Test
+    public void ignoresNullAndEmptyGeometries() {
+        // Arrange
+        Map<Integer, Geometry> geometries = createGeometries();
+        geometries.put(1, null);
+        geometries.put(4, GeometryUtils.createMultiPolygon());
+
+        // Act
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(geometries);
+
+        // Assert
+        assertThat(target.size()).isEqualTo(3);
+        assertThat(target.findFirstIntersecting(GeometryUtils.createPoint(5, 5))).isEqualTo(2);
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        // Arrange
+        PreparedGeometryIndex<Integer> target = new PreparedGeometryIndex<>(new HashMap<Integer, MultiPolygon>());
+
+        // Act and assert
+        assertThat(target.size()).isEqualTo(0);
+        assertThat(target.findFirstIntersecting(GeometryUtils.createPoint(5, 5))).isNull();
+        assertThat(target.intersectsAny(GeometryUtils.createPoint(5, 5))).isFalse();
+    }
+
+    private Map<Integer, Geometry> createGeometries() {
+        Map<Integer, Geometry> geometries = new HashMap<>();
+        // Two overlapping squares
+        geometries.put(3, GeometryUtils.createMultiPolygon(GeometryUtils.createPolygon(0, 0, 0, 10, 10, 10, 10, 0, 0, 0)));
+        geometries.put(2, GeometryUtils.createMultiPolygon(GeometryUtils.createPolygon(2, 2, 2, 8, 8, 8, 8, 2, 2, 2)));
+        // A triangle whose envelope is much larger than its area
+        geometries.put(7, GeometryUtils.createMultiPolygon(GeometryUtils.createPolygon(20, 10, 20, 20, 30, 20, 20, 10)));
+        return geometries;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the ZipStreamUtils class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ZipStreamUtilsTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void readEntryAsStringReadsOnlyTheCurrentEntry() throws Exception {
+        // Arrange
+        ZipInputStream zip = createZip("first.txt", "first", "second.txt", "second");
+        zip.getNextEntry();
+
+        // Act
+        String result = ZipStreamUtils.readEntryAsString(zip);
+
+        // Assert
+        assertThat(result).isEqualTo("first");
+        assertThat(zip.getNextEntry().getName()).isEqualTo("second.txt");
+    }
+
+    @Test
+    public void extractRemainingEntriesExtractsFilesAndDirectories() throws Exception {
+        // Arrange
+        ZipInputStream zip = createZip("first.txt", "first", "sub/", null, "sub/dir/second.txt", "second");
+        zip.getNextEntry();
+        File directory = testFolder.newFolder();
+
+        // Act
+        ZipStreamUtils.extractRemainingEntries(zip, directory);
+
+        // Assert
+        assertThat(Paths.get(directory.toString(), "first.txt").toFile()).doesNotExist();
+        assertThat(Paths.get(directory.toString(), "sub").toFile()).isDirectory();
+        assertThat(Paths.get(directory.toString(), "sub", "dir", "second.txt").toFile()).hasContent("second");
+    }
+
+    @Test(expected = IOException.class)
+    public void extractRemainingEntriesRejectsEntriesOutsideOfDirectory() throws Exception {
+        // Arrange
+        ZipInputStream zip = createZip("../escaped.txt", "escaped");
+        File directory = testFolder.newFolder();
+
+        // Act
+        ZipStreamUtils.extractRemainingEntries(zip, directory);
+    }
+
+    private ZipInputStream createZip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                if (namesAndContents[i + 1] != null) {
+                    zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+        return new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
@@ -4,7 +4,9 @@ import org.apache.commons.lang.math.DoubleRange;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import static com.googlecode.catchexception.CatchException.catchException;
@@ -72,6 +74,87 @@ public class BinningRasterSummaryCollatorTest {
         assertThat(result).hasSize(5);
     }
 
+    @Test
+    public void collatorGetsCorrectResultForOverlappingBins() throws IOException {
+        // Arrange
+        DoubleRange wideBin = new DoubleRange(0, 10);
+        DoubleRange narrowBin = new DoubleRange(2, 4);
+        DoubleRange highBin = new DoubleRange(8, 12);
+        BinningRasterSummaryCollator target = new BinningRasterSummaryCollator(Arrays.asList(
+                highBin, narrowBin, wideBin
+        ));
+
+        // Act
+        target.addValues(new double[] {3, 9, 11, 12, 0}, 5);
+        Map<DoubleRange, Integer> result = target.getSummary();
+
+        // Assert
+        assertThat(result.get(wideBin)).isEqualTo(3);
+        assertThat(result.get(narrowBin)).isEqualTo(0);
+        assertThat(result.get(highBin)).isEqualTo(2);
+        assertThat(result).hasSize(3);
+    }
+
+    @Test
+    public void collatorGetsCorrectResultForManyAdjacentBins() throws IOException {
+        // Arrange
+        List<DoubleRange> bins = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            bins.add(new DoubleRange(i * 0.1, (i + 1) * 0.1));
+        }
+        BinningRasterSummaryCollator target = new BinningRasterSummaryCollator(bins);
+
+        // Act
+        for (int i = 0; i <= 1000; i++) {
+            target.addValue(i * 0.01);
+        }
+        Map<DoubleRange, Integer> result = target.getSummary();
+
+        // Assert
+        assertThat(result.get(bins.get(0))).isEqualTo(11); // 0 to 0.1 inclusive
+        for (int i = 1; i < 100; i++) {
+            double minimum = bins.get(i).getMinimumDouble();
+            double maximum = bins.get(i).getMaximumDouble();
+            int expectation = 0;
+            for (int j = 0; j <= 1000; j++) {
+                double value = j * 0.01;
+                if (value > minimum && value <= maximum) {
+                    expectation++;
+                }
+            }
+            assertThat(result.get(bins.get(i))).isEqualTo(expectation);
+        }
+        assertThat(result).hasSize(100);
+    }
+
+    @Test
+    public void collatorThrowsIfValueBetweenBins() throws IOException {
+        // Arrange
+        BinningRasterSummaryCollator target = new BinningRasterSummaryCollator(Arrays.asList(
+                new DoubleRange(0, 1), new DoubleRange(2, 3)
+        ));
+
+        // Act
+        catchException(target).addValue(1.5);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void collatorThrowsIfValueIsNaN() throws IOException {
+        // Arrange
+        BinningRasterSummaryCollator target = new BinningRasterSummaryCollator(Arrays.asList(
+                new DoubleRange(0, 1), new DoubleRange(1, 2)
+        ));
+
+        // Act
+        catchException(target).addValue(Double.NaN);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
     @Test
     public void collatorThrowsIfValueOutsideAllBins() throws IOException {
         // Arrange
@@ -85,4 +168,30 @@ public class BinningRasterSummaryCollatorTest {
         // Assert
         assertThat(caughtException()).isInstanceOf(IOException.class);
     }
+
+    @Test
+    public void collatorGetsCorrectResultFromMergedPartials() throws IOException {
+        // Arrange
+        DoubleRange lowBin = new DoubleRange(0, 3.5);
+        DoubleRange middleBin = new DoubleRange(3.5, 7);
+        DoubleRange highBin = new DoubleRange(7, 10);
+        BinningRasterSummaryCollator target = new BinningRasterSummaryCollator(Arrays.asList(
+                lowBin, middleBin, highBin
+        ));
+        BinningRasterSummaryCollator partial1 = (BinningRasterSummaryCollator) target.createPartial();
+        BinningRasterSummaryCollator partial2 = (BinningRasterSummaryCollator) target.createPartial();
+
+        // Act
+        partial1.addValues(new double[] {7, 7, 5}, 3);
+        partial2.addValues(new double[] {9, 2, 3}, 3);
+        target.merge(partial1);
+        target.merge(partial2);
+        Map<DoubleRange, Integer> result = target.getSummary();
+
+        // Assert
+        assertThat(result.get(lowBin)).isEqualTo(2);
+        assertThat(result.get(middleBin)).isEqualTo(3);
+        assertThat(result.get(highBin)).isEqualTo(1);
+        assertThat(result).hasSize(3);
+    }
 }
@@ -30,4 +30,23 @@ public class RangeRasterSummaryCollatorTest {
         assertThat(result.getMaximumDouble()).isEqualTo(9);
         assertThat(result.getMinimumDouble()).isEqualTo(2);
     }
+
+    @Test
+    public void collatorGetsCorrectResultFromMergedPartials() throws IOException {
+        // Arrange
+        RangeRasterSummaryCollator target = new RangeRasterSummaryCollator();
+        RangeRasterSummaryCollator partial1 = (RangeRasterSummaryCollator) target.createPartial();
+        RangeRasterSummaryCollator partial2 = (RangeRasterSummaryCollator) target.createPartial();
+
+        // Act
+        partial1.addValues(new double[] {7, 7, 5}, 3);
+        partial2.addValues(new double[] {9, 2, 3, 1}, 3); // The final value should be ignored
+        target.merge(partial1);
+        target.merge(partial2);
+        DoubleRange result = target.getSummary();
+
+        // Assert
+        assertThat(result.getMaximumDouble()).isEqualTo(9);
+        assertThat(result.getMinimumDouble()).isEqualTo(2);
+    }
 }
@@ -0,0 +1,147 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Tests the RasterCache class (and the CachedRasters it creates).
+ * Copyright (c) 2015 University of Oxford
+ */
+public class RasterCacheTest {
+    // 720 x 240 doubles (~1.3MB), cell size 0.5, lower left corner (-180, -60)
+    private static final String LARGE_RASTER_FILENAME =
+            "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata/test_raster_large_double.tif";
+    private static final String ADMIN_RASTER_FILENAME =
+            "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata/admin_raster_large_double.tif";
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void getReturnsRasterWithCorrectValues() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(100);
+
+        // Act
+        CachedRaster raster = cache.get(new File(LARGE_RASTER_FILENAME));
+
+        // Assert
+        assertThat(raster.getWidth()).isEqualTo(720);
+        assertThat(raster.getHeight()).isEqualTo(240);
+        assertThat(raster.getSizeInBytes()).isEqualTo(720 * 240 * 8);
+        assertThat(raster.getValueAtPosition(-180 + 0.00005, -60 + 0.00005)).isEqualTo(0.89, offset(0.0000005));
+        assertThat(raster.getValueAtPosition(179.5 + 0.00005, 59.5 + 0.00005)).isEqualTo(0.79, offset(0.0000005));
+        assertThat(raster.getValueAtPosition(-180 + 2.5, 60 - 5.5)).isEqualTo(RasterUtils.NO_DATA_VALUE);
+        assertThat(raster.getValueAtPosition(180 + 0.00005, 60 + 0.00005)).isNull();
+        assertThat(raster.getValueAtPosition(-180 - 0.00005, 0)).isNull();
+    }
+
+    @Test
+    public void getReturnsSameRasterForUnchangedFile() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(100);
+        File file = new File(ADMIN_RASTER_FILENAME);
+
+        // Act
+        CachedRaster raster1 = cache.get(file);
+        CachedRaster raster2 = cache.get(file);
+
+        // Assert
+        assertThat(raster2).isSameAs(raster1);
+    }
+
+    @Test
+    public void getReloadsRasterIfFileHasChanged() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(100);
+        File file = copyToTestFolder(LARGE_RASTER_FILENAME, "raster.tif");
+        CachedRaster raster1 = cache.get(file);
+        assertThat(file.setLastModified(file.lastModified() - 10000)).isTrue();
+
+        // Act
+        CachedRaster raster2 = cache.get(file);
+
+        // Assert
+        assertThat(raster2).isNotSameAs(raster1);
+        assertThat(cache.get(file)).isSameAs(raster2);
+    }
+
+    @Test
+    public void invalidateRemovesRaster() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(100);
+        File file = new File(LARGE_RASTER_FILENAME);
+        CachedRaster raster1 = cache.get(file);
+
+        // Act
+        cache.invalidate(file);
+        CachedRaster raster2 = cache.get(file);
+
+        // Assert
+        assertThat(raster2).isNotSameAs(raster1);
+    }
+
+    @Test
+    public void invalidateAllRemovesAllRasters() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(100);
+        File file1 = new File(LARGE_RASTER_FILENAME);
+        File file2 = new File(ADMIN_RASTER_FILENAME);
+        CachedRaster raster1 = cache.get(file1);
+        CachedRaster raster2 = cache.get(file2);
+
+        // Act
+        cache.invalidateAll();
+
+        // Assert
+        assertThat(cache.get(file1)).isNotSameAs(raster1);
+        assertThat(cache.get(file2)).isNotSameAs(raster2);
+    }
+
+    @Test
+    public void getEvictsLeastRecentlyUsedRasterWhenFull() throws Exception {
+        // Arrange - space for two copies of the raster, but not three
+        RasterCache cache = new RasterCache(3);
+        File file1 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster1.tif");
+        File file2 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster2.tif");
+        File file3 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster3.tif");
+        CachedRaster raster1 = cache.get(file1);
+        CachedRaster raster2 = cache.get(file2);
+        cache.get(file1); // Make raster2 the least recently used
+
+        // Act
+        cache.get(file3);
+
+        // Assert
+        assertThat(cache.get(file1)).isSameAs(raster1);
+        assertThat(cache.get(file2)).isNotSameAs(raster2);
+    }
+
+    @Test
+    public void getDoesNotRetainRasterLargerThanCache() throws Exception {
+        // Arrange
+        RasterCache cache = new RasterCache(1);
+        File file = new File(LARGE_RASTER_FILENAME);
+
+        // Act
+        CachedRaster raster1 = cache.get(file);
+        CachedRaster raster2 = cache.get(file);
+
+        // Assert
+        assertThat(raster1.getValueAtPosition(-180 + 0.00005, -60 + 0.00005)).isEqualTo(0.89, offset(0.0000005));
+        assertThat(raster2).isNotSameAs(raster1);
+    }
+
+    private File copyToTestFolder(String source, String name) throws Exception {
+        File file = new File(testFolder.getRoot(), name);
+        FileUtils.copyFile(new File(source), file);
+        return file;
+    }
+}
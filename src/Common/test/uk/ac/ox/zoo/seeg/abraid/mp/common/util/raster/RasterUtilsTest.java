@@ -4,23 +4,28 @@ import com.vividsolutions.jts.geom.Coordinate;
 import org.apache.commons.io.FileUtils;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.geometry.jts.JTS;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 
 import javax.media.jai.PlanarImage;
-import java.awt.image.Raster;
+import java.awt.*;
 import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
 import static org.mockito.Mockito.*;
 
 /**
@@ -33,6 +38,13 @@ public class RasterUtilsTest {
     @Rule
     public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
 
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
     @Test
     public void transformRasterAppliesCorrectTransform() throws Exception {
         // Arrange
@@ -46,13 +58,9 @@ public class RasterUtilsTest {
         // Act
         RasterUtils.transformRaster(rasterFile, outputFile, new File[]{refFile}, new RasterTransformation() {
             @Override
-            public void transform(WritableRaster raster, Raster[] referenceRasters) {
-                for (int i = 0; i < raster.getWidth(); i++) {
-                    for (int j = 0; j < raster.getHeight(); j++) {
-                        double rasterValue = raster.getSampleDouble(i, j, 0);
-                        double referenceValue = referenceRasters[0].getSampleDouble(i, j, 0);
-                        raster.setSample(i, j, 0, rasterValue * referenceValue);
-                    }
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = values[i] * referenceValues[0][i];
                 }
             }
         });
@@ -64,6 +72,37 @@ public class RasterUtilsTest {
         assertThat(refFile.delete()).isTrue(); // Verify file locks released
     }
 
+    @Test
+    public void transformRasterPassesAlignedBlocksWhichCoverTheRaster() throws Exception {
+        // Arrange
+        File rasterFile = new File(TEST_DATA_PATH, "raster.tif");
+        File outputFile = testFolder.newFile();
+        final List<Rectangle> blocks = new ArrayList<>();
+
+        // Act
+        RasterUtils.transformRaster(rasterFile, outputFile, new File[]{rasterFile, rasterFile}, new RasterTransformation() {
+            @Override
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                blocks.add(bounds);
+                assertThat(values).hasSize(bounds.width * bounds.height);
+                assertThat(referenceValues).hasSize(2);
+                assertThat(referenceValues[0]).isEqualTo(values);
+                assertThat(referenceValues[1]).isEqualTo(values);
+            }
+        });
+
+        // Assert
+        Rectangle covered = new Rectangle(blocks.get(0));
+        int area = 0;
+        for (Rectangle block : blocks) {
+            covered.add(block);
+            area += block.width * block.height;
+        }
+        assertThat(covered).isEqualTo(new Rectangle(0, 0, 72, 29));
+        assertThat(area).isEqualTo(72 * 29);
+        assertThat(outputFile).hasContentEqualTo(rasterFile);
+    }
+
     @Test
     public void transformRasterThrowsIfOperationThrows() throws Exception {
         // Arrange
@@ -80,7 +119,8 @@ public class RasterUtilsTest {
             public Void call() throws Exception {
                 RasterUtils.transformRaster(rasterFile, outputFile, new File[] {refFile}, new RasterTransformation() {
                     @Override
-                    public void transform(WritableRaster raster, Raster[] referenceRasters) throws IOException {
+                    public void transform(double[] values, double[][] referenceValues, Rectangle bounds)
+                            throws IOException {
                         throw new IOException();
                     }
                 });
@@ -93,6 +133,94 @@ public class RasterUtilsTest {
         assertThat(caughtException()).isInstanceOf(IOException.class);
     }
 
+    @Test
+    public void transformRasterInParallelAppliesCorrectTransform() throws Exception {
+        // Arrange
+        File expectation = new File(TEST_DATA_PATH, "expected.tif");
+        File rasterFile = testFolder.newFile();
+        File refFile = testFolder.newFile();
+        FileUtils.copyFile(new File(TEST_DATA_PATH, "raster.tif"), rasterFile);
+        FileUtils.copyFile(new File(TEST_DATA_PATH, "raster.tif"), refFile);
+        File outputFile = testFolder.newFile();
+
+        // Act
+        RasterUtils.transformRaster(rasterFile, outputFile, new File[]{refFile}, new RasterTransformation() {
+            @Override
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = values[i] * referenceValues[0][i];
+                }
+            }
+        }, pool);
+
+        // Assert
+        assertThat(outputFile).hasContentEqualTo(expectation);
+        assertThat(outputFile.delete()).isTrue(); // Verify file locks released
+        assertThat(rasterFile.delete()).isTrue(); // Verify file locks released
+        assertThat(refFile.delete()).isTrue(); // Verify file locks released
+    }
+
+    @Test
+    public void transformRasterInParallelThrowsIfOperationThrows() throws Exception {
+        // Arrange
+        final File rasterFile = new File(TEST_DATA_PATH, "raster.tif");
+        final File outputFile = testFolder.newFile();
+
+        // Act
+        Callable callable = new Callable() {
+            @Override
+            public Void call() throws Exception {
+                RasterUtils.transformRaster(rasterFile, outputFile, new File[0], new RasterTransformation() {
+                    @Override
+                    public void transform(double[] values, double[][] referenceValues, Rectangle bounds)
+                            throws IOException {
+                        throw new IOException();
+                    }
+                }, pool);
+                return null;
+            }
+        };
+        catchException(callable).call();
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void transformRasterInParallelGivesSameResultAsSerialForMultiTileRaster() throws Exception {
+        // Arrange
+        String supportTestDataPath = "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata";
+        File rasterFile = new File(supportTestDataPath, "test_raster_large_double.tif");
+        File refFile = new File(supportTestDataPath, "admin_raster_large_double.tif");
+        File serialOutputFile = testFolder.newFile();
+        File parallelOutputFile = testFolder.newFile();
+        final List<Rectangle> blocks = Collections.synchronizedList(new ArrayList<Rectangle>());
+        RasterTransformation transformation = new RasterTransformation() {
+            @Override
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                blocks.add(bounds);
+                for (int i = 0; i < values.length; i++) {
+                    if (referenceValues[0][i] == RasterUtils.NO_DATA_VALUE) {
+                        values[i] = RasterUtils.NO_DATA_VALUE;
+                    } else if (values[i] != RasterUtils.NO_DATA_VALUE) {
+                        values[i] = (values[i] * referenceValues[0][i]) + bounds.x + bounds.y + i;
+                    }
+                }
+            }
+        };
+
+        // Act
+        RasterUtils.transformRaster(rasterFile, serialOutputFile, new File[]{refFile}, transformation);
+        int serialBlockCount = blocks.size();
+        blocks.clear();
+        RasterUtils.transformRaster(rasterFile, parallelOutputFile, new File[]{refFile}, transformation, pool);
+
+        // Assert
+        assertThat(serialBlockCount).isGreaterThan(1);
+        assertThat(blocks).hasSize(serialBlockCount);
+        assertThat(parallelOutputFile).hasContentEqualTo(serialOutputFile);
+    }
+
     @Test
     public void summarizeRasterAppliesOperationCorrectly() throws Exception {
         // Arrange
@@ -104,8 +232,10 @@ public class RasterUtilsTest {
             private List<Double> values = new ArrayList<>();
 
             @Override
-            public void addValue(double value) throws IOException {
-                values.add(value);
+            public void addValues(double[] blockValues, int count) throws IOException {
+                for (int i = 0; i < count; i++) {
+                    values.add(blockValues[i]);
+                }
             }
 
             @Override
@@ -117,12 +247,44 @@ public class RasterUtilsTest {
         // Assert
         assertThat(values).hasSize(1881);
         assertThat(values.get(0)).isEqualTo(0.3600128307007253);
-        assertThat(values.get(10)).isEqualTo(0.3475194713100791);
-        assertThat(values.get(111)).isEqualTo(0.5636678296141326);
-        assertThat(values.get(1111)).isEqualTo(0);
+        assertThat(values.get(10)).isEqualTo(0.9116846753749996);
+        assertThat(values.get(111)).isEqualTo(0);
+        assertThat(values.get(1111)).isEqualTo(0.11698714620433748);
         assertThat(values.get(1880)).isEqualTo(0.7626093772705644);
     }
 
+    @Test
+    public void summarizeRasterInParallelGivesSameResultAsSerial() throws Exception {
+        // Arrange
+        File rasterFile = new File(TEST_DATA_PATH, "raster.tif");
+
+        // Act
+        Collection<Double> serialValues = RasterUtils.summarizeRaster(rasterFile, new ValuesRasterSummaryCollator());
+        Collection<Double> parallelValues =
+                RasterUtils.summarizeRaster(rasterFile, new ValuesRasterSummaryCollator(), pool);
+
+        // Assert
+        assertThat(parallelValues).isNotEmpty();
+        assertThat(parallelValues).containsExactlyElementsOf(serialValues);
+    }
+
+    @Test
+    public void calculateZonalStatisticsAveragesCorrectPixelsForEachZone() throws Exception {
+        // Arrange
+        String supportTestDataPath = "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata";
+        File valueRasterFile = new File(supportTestDataPath, "test_raster_large_double.tif");
+        File zoneRasterFile = new File(supportTestDataPath, "admin_raster_large_double.tif");
+
+        // Act
+        ZonalStatistics result = RasterUtils.calculateZonalStatistics(valueRasterFile, zoneRasterFile);
+
+        // Assert
+        assertThat(result.getMean(321)).isEqualTo(0.491874, offset(0.0000005));
+        assertThat(result.getMean(654)).isEqualTo(0.504699, offset(0.0000005)); // Half NODATA
+        assertThat(result.getMean(987)).isNull(); // No data in shape
+        assertThat(result.getMean(123)).isNull(); // Not present
+    }
+
     @Test
     public void summarizeRasterThrowsIfOperationThrowsDuringAdd() throws Exception {
         // Arrange
@@ -137,8 +299,7 @@ public class RasterUtilsTest {
                     private List<Double> values = new ArrayList<>();
 
                     @Override
-                    public void addValue(double value) throws IOException {
-                        values.add(value);
+                    public void addValues(double[] blockValues, int count) throws IOException {
                         throw new IOException();
                     }
 
@@ -170,8 +331,10 @@ public class RasterUtilsTest {
                     private List<Double> values = new ArrayList<>();
 
                     @Override
-                    public void addValue(double value) throws IOException {
-                        values.add(value);
+                    public void addValues(double[] blockValues, int count) throws IOException {
+                        for (int i = 0; i < count; i++) {
+                            values.add(blockValues[i]);
+                        }
                     }
 
                     @Override
@@ -280,6 +443,27 @@ public class RasterUtilsTest {
         }
     }
 
+    @Test
+    public void saveRasterSavesCorrectDataFromImage() throws Exception {
+        // Arrange
+        File rasterFile = new File(TEST_DATA_PATH, "raster.tif");
+        File outputFile = testFolder.newFile();
+        GridCoverage2D raster = null;
+        try {
+            raster = RasterUtils.loadRaster(rasterFile);
+
+            // Act
+            RasterUtils.saveRaster(outputFile, raster.getRenderedImage(), raster.getGridGeometry().getEnvelope2D(), raster.getSampleDimensions());
+
+            // Assert
+            assertThat(outputFile).hasContentEqualTo(rasterFile);
+            assertThat(outputFile.delete()).isTrue(); // Verify file locks released
+        } finally {
+            // Cleanup
+            RasterUtils.disposeRaster(raster);
+        }
+    }
+
     @Test
     public void saveRasterThrowsForInvalidFile() throws Exception {
         // Arrange
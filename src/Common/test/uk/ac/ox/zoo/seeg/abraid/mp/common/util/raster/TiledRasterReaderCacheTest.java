@@ -0,0 +1,235 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Tests the TiledRasterReaderCache class (and the TiledRasterReaders it creates).
+ * Copyright (c) 2015 University of Oxford
+ */
+public class TiledRasterReaderCacheTest {
+    // 720 x 240 doubles (~1.3MB), cell size 0.5, lower left corner (-180, -60)
+    private static final String LARGE_RASTER_FILENAME =
+            "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata/test_raster_large_double.tif";
+    private static final String ADMIN_RASTER_FILENAME =
+            "Common/test/uk/ac/ox/zoo/seeg/abraid/mp/common/service/workflow/support/testdata/admin_raster_large_double.tif";
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void getReturnsReaderWithCorrectValues() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+
+        // Act
+        TiledRasterReader reader = cache.get(new File(LARGE_RASTER_FILENAME));
+
+        // Assert
+        assertThat(reader.getWidth()).isEqualTo(720);
+        assertThat(reader.getHeight()).isEqualTo(240);
+        assertThat(reader.getValueAtPosition(-180 + 0.00005, -60 + 0.00005)).isEqualTo(0.89, offset(0.0000005));
+        assertThat(reader.getValueAtPosition(179.5 + 0.00005, 59.5 + 0.00005)).isEqualTo(0.79, offset(0.0000005));
+        assertThat(reader.getValueAtPosition(-180 + 2.5, 60 - 5.5)).isEqualTo(RasterUtils.NO_DATA_VALUE);
+        assertThat(reader.getValueAtPosition(180 + 0.00005, 60 + 0.00005)).isNull();
+        assertThat(reader.getValueAtPosition(-180 - 0.00005, 0)).isNull();
+    }
+
+    @Test
+    public void readerGivesSameValuesAsCachedRaster() throws Exception {
+        // Arrange
+        File file = new File(ADMIN_RASTER_FILENAME);
+        CachedRaster expected = new RasterCache(100).get(file);
+        // Space for only a few decoded tiles, so that tiles are evicted and decoded again during the lookups
+        TiledRasterReader reader = new TiledRasterReaderCache(10, 0).get(file);
+
+        // Act & Assert
+        for (double latitude = -89.75; latitude < 90; latitude += 0.5) {
+            for (double longitude = -179.75; longitude < 180; longitude += 0.5) {
+                assertThat(reader.getValueAtPosition(longitude, latitude))
+                        .isEqualTo(expected.getValueAtPosition(longitude, latitude));
+            }
+        }
+    }
+
+    @Test
+    public void getReturnsSameReaderForUnchangedFile() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = new File(ADMIN_RASTER_FILENAME);
+
+        // Act
+        TiledRasterReader reader1 = cache.get(file);
+        TiledRasterReader reader2 = cache.get(file);
+
+        // Assert
+        assertThat(reader2).isSameAs(reader1);
+    }
+
+    @Test
+    public void getReopensReaderIfFileHasChanged() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = copyToTestFolder(LARGE_RASTER_FILENAME, "raster.tif");
+        TiledRasterReader reader1 = cache.get(file);
+        assertThat(file.setLastModified(file.lastModified() - 10000)).isTrue();
+
+        // Act
+        TiledRasterReader reader2 = cache.get(file);
+
+        // Assert
+        assertThat(reader2).isNotSameAs(reader1);
+        assertThat(cache.get(file)).isSameAs(reader2);
+    }
+
+    @Test
+    public void invalidateRemovesReader() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = new File(LARGE_RASTER_FILENAME);
+        TiledRasterReader reader1 = cache.get(file);
+
+        // Act
+        cache.invalidate(file);
+        TiledRasterReader reader2 = cache.get(file);
+
+        // Assert
+        assertThat(reader2).isNotSameAs(reader1);
+    }
+
+    @Test
+    public void invalidateAllowsFileToBeDeleted() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = copyToTestFolder(LARGE_RASTER_FILENAME, "raster.tif");
+        cache.get(file).getValueAtPosition(0, 0);
+
+        // Act
+        cache.invalidate(file);
+
+        // Assert
+        assertThat(file.delete()).isTrue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidatedReaderCanNotBeUsed() throws Exception {
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = new File(LARGE_RASTER_FILENAME);
+        TiledRasterReader reader = cache.get(file);
+        cache.invalidate(file);
+        reader.getValueAtPosition(0, 0);
+    }
+
+    @Test
+    public void invalidateAllRemovesAllReaders() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file1 = new File(LARGE_RASTER_FILENAME);
+        File file2 = new File(ADMIN_RASTER_FILENAME);
+        TiledRasterReader reader1 = cache.get(file1);
+        TiledRasterReader reader2 = cache.get(file2);
+
+        // Act
+        cache.invalidateAll();
+
+        // Assert
+        assertThat(cache.get(file1)).isNotSameAs(reader1);
+        assertThat(cache.get(file2)).isNotSameAs(reader2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getClosesReadersForChangedFilesWhenOpeningAnotherReader() throws Exception {
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file1 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster1.tif");
+        File file2 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster2.tif");
+        TiledRasterReader reader1 = cache.get(file1);
+        reader1.getValueAtPosition(0, 0);
+        assertThat(file1.setLastModified(file1.lastModified() - 10000)).isTrue(); // e.g. replaced or deleted
+        cache.get(file2);
+        reader1.getValueAtPosition(0, 0);
+    }
+
+    @Test
+    public void getClosesLeastRecentlyUsedReaderWhenFull() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(2, 100);
+        File file1 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster1.tif");
+        File file2 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster2.tif");
+        File file3 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster3.tif");
+        TiledRasterReader reader1 = cache.get(file1);
+        TiledRasterReader reader2 = cache.get(file2);
+        cache.get(file1); // Make reader2 the least recently used
+
+        // Act
+        cache.get(file3);
+
+        // Assert
+        assertThat(cache.get(file1)).isSameAs(reader1);
+        assertThat(cache.get(file2)).isNotSameAs(reader2);
+    }
+
+    @Test
+    public void getValueAtPositionReturnsCorrectValues() throws Exception {
+        // Arrange
+        TiledRasterReaderCache cache = new TiledRasterReaderCache(10, 100);
+        File file = new File(LARGE_RASTER_FILENAME);
+
+        // Act
+        Double value = cache.getValueAtPosition(file, -180 + 0.00005, -60 + 0.00005);
+        Double outsideValue = cache.getValueAtPosition(file, 180 + 0.00005, 60 + 0.00005);
+
+        // Assert
+        assertThat(value).isEqualTo(0.89, offset(0.0000005));
+        assertThat(outsideValue).isNull();
+    }
+
+    @Test
+    public void getValueAtPositionIsSafeWhileReadersAreConcurrentlyEvicted() throws Exception {
+        // Arrange
+        // Space for only one open raster, so that each lookup evicts (and closes) the reader used by the previous one
+        final TiledRasterReaderCache cache = new TiledRasterReaderCache(1, 100);
+        final File file1 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster1.tif");
+        final File file2 = copyToTestFolder(LARGE_RASTER_FILENAME, "raster2.tif");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Double>> results = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < 100; i++) {
+                final File file = (i % 2 == 0) ? file1 : file2;
+                results.add(executor.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() throws Exception {
+                        return cache.getValueAtPosition(file, -180 + 0.00005, -60 + 0.00005);
+                    }
+                }));
+            }
+
+            // Assert
+            for (Future<Double> result : results) {
+                assertThat(result.get()).isEqualTo(0.89, offset(0.0000005));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private File copyToTestFolder(String source, String name) throws Exception {
+        File file = new File(testFolder.getRoot(), name);
+        FileUtils.copyFile(new File(source), file);
+        return file;
+    }
+}
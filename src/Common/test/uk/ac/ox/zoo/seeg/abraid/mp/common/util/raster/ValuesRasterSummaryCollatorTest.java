@@ -29,4 +29,22 @@ public class ValuesRasterSummaryCollatorTest {
         // Assert
         assertThat(result).containsOnly(7d, 5d, 9d, 2d, 3d);
     }
+
+    @Test
+    public void collatorGetsCorrectResultFromMergedPartials() throws IOException {
+        // Arrange
+        ValuesRasterSummaryCollator target = new ValuesRasterSummaryCollator();
+        ValuesRasterSummaryCollator partial1 = (ValuesRasterSummaryCollator) target.createPartial();
+        ValuesRasterSummaryCollator partial2 = (ValuesRasterSummaryCollator) target.createPartial();
+
+        // Act
+        partial1.addValues(new double[] {7, 7, 5}, 3);
+        partial2.addValues(new double[] {9, 5, 2, 3}, 4);
+        target.merge(partial1);
+        target.merge(partial2);
+        Collection<Double> result = target.getSummary();
+
+        // Assert
+        assertThat(result).containsExactly(7d, 5d, 9d, 2d, 3d);
+    }
 }
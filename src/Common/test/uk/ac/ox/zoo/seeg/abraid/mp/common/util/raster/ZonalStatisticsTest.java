@@ -0,0 +1,91 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ZonalStatistics.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ZonalStatisticsTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    @Test
+    public void getMeanReturnsCorrectResultPerZone() {
+        // Arrange
+        ZonalStatistics target = new ZonalStatistics();
+
+        // Act
+        target.addValue(1, 0.2);
+        target.addValue(2, 0.5);
+        target.addValue(1, 0.4);
+        target.addValue(1, 0.9);
+
+        // Assert
+        assertThat(target.getMean(1)).isEqualTo(0.5);
+        assertThat(target.getMean(2)).isEqualTo(0.5);
+    }
+
+    @Test
+    public void getMeanReturnsNullForUnknownZone() {
+        // Arrange
+        ZonalStatistics target = new ZonalStatistics();
+        target.addValue(1, 0.2);
+
+        // Act
+        Double result = target.getMean(3);
+
+        // Assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    public void writeToFileAndReadFromFileRoundTripsExactly() throws Exception {
+        // Arrange
+        ZonalStatistics target = new ZonalStatistics();
+        target.addValue(123, 0.1234567890123);
+        target.addValue(123, 0.3);
+        target.addValue(456, 1.0 / 3.0);
+        File file = testFolder.newFile();
+
+        // Act
+        target.writeToFile(file);
+        ZonalStatistics result = ZonalStatistics.readFromFile(file);
+
+        // Assert
+        assertThat(result.getMean(123)).isEqualTo(target.getMean(123));
+        assertThat(result.getMean(456)).isEqualTo(target.getMean(456));
+        assertThat(result.getMean(789)).isNull();
+    }
+
+    @Test
+    public void readFromFileThrowsForMalformedFile() throws Exception {
+        // Arrange
+        final File file = testFolder.newFile();
+        FileUtils.writeStringToFile(file, "123,0.5\n");
+
+        // Act
+        Callable callable = new Callable() {
+            @Override
+            public Void call() throws Exception {
+                ZonalStatistics.readFromFile(file);
+                return null;
+            }
+        };
+        catchException(callable).call();
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+}
@@ -5,7 +5,10 @@ import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static com.googlecode.catchexception.CatchException.catchException;
@@ -123,4 +126,82 @@ public class JsonParserTest {
         DateTime expected = new DateTime("1967-11-22T11:22:33+0400");
         assertThat(person.getDateOfBirth().getMillis()).isEqualTo(expected.getMillis());
     }
+
+    @Test
+    public void createArrayReaderReadsElementsOneAtATime() throws IOException {
+        // Arrange
+        String json = "[ { \"name\": \"Boris Becker\", \"age\": 46, \"dateOfBirth\": \"1967-11-22 11:22:33+0400\" }, " +
+                "{ \"name\": \"Pete Sampras\", \"age\": 42 } ]";
+        JsonParser parser = new JsonParser(DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ssZ"));
+
+        // Act
+        try (JsonArrayReader<JsonParserTestPerson> reader =
+                     parser.createArrayReader(toStream(json), JsonParserTestPerson.class)) {
+            JsonParserTestPerson person1 = reader.readNext();
+            JsonParserTestPerson person2 = reader.readNext();
+            JsonParserTestPerson person3 = reader.readNext();
+
+            // Assert
+            assertThat(person1.getName()).isEqualTo("Boris Becker");
+            assertThat(person1.getDateOfBirth().getMillis())
+                    .isEqualTo(new DateTime("1967-11-22T11:22:33+0400").getMillis());
+            assertThat(person2.getName()).isEqualTo("Pete Sampras");
+            assertThat(person2.getAge()).isEqualTo(42);
+            assertThat(person3).isNull();
+            assertThat(reader.readNext()).isNull();
+        }
+    }
+
+    @Test
+    public void createArrayReaderReadsEmptyArrayAndNullAsNoElements() throws IOException {
+        // Arrange
+        JsonParser parser = new JsonParser();
+
+        // Act
+        try (JsonArrayReader<JsonParserTestPerson> emptyArrayReader =
+                     parser.createArrayReader(toStream("[]"), JsonParserTestPerson.class);
+             JsonArrayReader<JsonParserTestPerson> nullReader =
+                     parser.createArrayReader(toStream("null"), JsonParserTestPerson.class)) {
+            // Assert
+            assertThat(emptyArrayReader.readNext()).isNull();
+            assertThat(nullReader.readNext()).isNull();
+        }
+    }
+
+    @Test
+    public void createArrayReaderThrowsExceptionIfJsonIsNotAnArray() throws IOException {
+        // Arrange
+        String json = "{ \"name\": \"Boris Becker\", \"age\": 46 }";
+        JsonParser parser = new JsonParser();
+
+        // Act
+        try (JsonArrayReader<JsonParserTestPerson> reader =
+                     parser.createArrayReader(toStream(json), JsonParserTestPerson.class)) {
+            catchException(reader).readNext();
+        }
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(JsonParserException.class);
+    }
+
+    @Test
+    public void createArrayReaderThrowsExceptionIfElementIsInvalid() throws IOException {
+        // Arrange
+        String json = "[ { \"name\": \"Boris Becker\", \"age\": 46 }, { \"name\": \"Pete Sampras\", \"age\" 42 } ]";
+        JsonParser parser = new JsonParser();
+
+        // Act
+        try (JsonArrayReader<JsonParserTestPerson> reader =
+                     parser.createArrayReader(toStream(json), JsonParserTestPerson.class)) {
+            reader.readNext();
+            catchException(reader).readNext();
+        }
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(JsonParserException.class);
+    }
+
+    private InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -74,6 +74,14 @@ public class RasterFilePathFactoryTest {
         assertThat(file.getParent()).isEqualTo(resultsDirectory);
     }
 
+    @Test
+    public void getFullMeanPredictionZonalStatisticsFileReturnsCorrectFile() throws IOException {
+        ModelRun modelRun = new ModelRun("testname", createMockDiseaseGroup(87), "host", DateTime.now(), DateTime.now(), DateTime.now());
+        File file = builder.getFullMeanPredictionZonalStatisticsFile(modelRun, 1);
+        assertThat(file.getName()).isEqualTo("testname_mean_full_admin1.csv");
+        assertThat(file.getParent()).isEqualTo(resultsDirectory);
+    }
+
     @Test
     public void getExtentAdminRasterFileReturnsCorrectFile() throws IOException {
         File file = builder.getAdminRaster(0);
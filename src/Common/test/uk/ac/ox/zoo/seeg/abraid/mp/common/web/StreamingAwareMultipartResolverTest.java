@@ -0,0 +1,47 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the StreamingAwareMultipartResolver class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class StreamingAwareMultipartResolverTest {
+    @Test
+    public void isMultipartReturnsFalseForStreamedPaths() {
+        // Arrange
+        StreamingAwareMultipartResolver target = new StreamingAwareMultipartResolver();
+        target.setStreamedPaths(Arrays.asList("/api/model/run"));
+
+        // Act
+        boolean result = target.isMultipart(createMultipartRequest("/api/model/run"));
+
+        // Assert
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    public void isMultipartReturnsTrueForOtherPaths() {
+        // Arrange
+        StreamingAwareMultipartResolver target = new StreamingAwareMultipartResolver();
+        target.setStreamedPaths(Arrays.asList("/api/model/run"));
+
+        // Act
+        boolean result = target.isMultipart(createMultipartRequest("/api/model/other"));
+
+        // Assert
+        assertThat(result).isTrue();
+    }
+
+    private MockHttpServletRequest createMultipartRequest(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/modelwrapper" + path);
+        request.setContextPath("/modelwrapper");
+        request.setContentType("multipart/form-data; boundary=boundary");
+        return request;
+    }
+}
@@ -1,15 +1,23 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.common.web;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.apache.commons.lang.exception.ExceptionUtils.indexOfType;
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -61,6 +69,7 @@ public class WebServiceClientTest {
 
         // Assert
         assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+        assertThat(((WebServiceClientException) caughtException()).getStatusCode()).isEqualTo(404);
     }
 
     @Test
@@ -75,6 +84,32 @@ public class WebServiceClientTest {
         assertThat(response).containsIgnoringCase("google");
     }
 
+    @Test
+    public void makeGetRequestToFileThrowsExceptionIfUnknownPage() throws IOException {
+        // Arrange
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+        File file = testFolder.newFile();
+
+        // Act
+        catchException(client).makeGetRequestToFile("http://www.google.co.uk/kjhdfgoiunewrpoimclsd", file);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+    }
+
+    @Test
+    public void makeGetRequestToFileSuccessfullyWritesResponseToFile() throws IOException {
+        // Arrange
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+        File file = testFolder.newFile();
+
+        // Act
+        client.makeGetRequestToFile(GET_URL, file);
+
+        // Assert
+        assertThat(FileUtils.readFileToString(file)).containsIgnoringCase("google");
+    }
+
     @Test
     public void makePostRequestWithJSONThrowsExceptionIfUnknownHost() {
         // Arrange
@@ -230,6 +265,72 @@ public class WebServiceClientTest {
         assertThat(response).containsIgnoringCase("\"file\": \"" + bodyAsString + "\"");
     }
 
+    @Test
+    public void makePostRequestWithStreamThrowsExceptionIfMalformedURL() throws IOException {
+        // Arrange
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+
+        // Act
+        catchException(client).makePostRequestWithStream("this is malformed", "file.zip", getBodyWriter(null));
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+    }
+
+    @Test
+    public void makePostRequestWithStreamSuccessfullyPostsToValidURL() throws IOException {
+        // Arrange
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+        String bodyAsString = "Test body";
+
+        // Act
+        String response = client.makePostRequestWithStream(POST_URL, "file.zip", getBodyWriter(bodyAsString));
+
+        // Assert
+        assertThat(response).containsIgnoringCase("multipart/form-data");
+        assertThat(response).containsIgnoringCase("\"file\": \"" + bodyAsString + "\"");
+    }
+
+    @Test
+    public void makePostRequestWithStreamThrowsRequestBodyNotSentExceptionIfServerClosesConnectionEarly()
+            throws IOException {
+        // Arrange
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // Reject the request without reading its body
+                exchange.getResponseHeaders().add("Connection", "close");
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+        String url = String.format("http://localhost:%d/", server.getAddress().getPort());
+
+        try {
+            // Act
+            catchException(client).makePostRequestWithStream(url, "file.zip", new RequestBodyWriter() {
+                @Override
+                public void writeTo(OutputStream outputStream) throws IOException {
+                    Random random = new Random(0);
+                    byte[] chunk = new byte[64 * 1024];
+                    for (int i = 0; i < 320; i++) {
+                        random.nextBytes(chunk);
+                        outputStream.write(chunk);
+                    }
+                }
+            });
+
+            // Assert
+            assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+            assertThat(indexOfType(caughtException(), RequestBodyNotSentException.class)).isNotEqualTo(-1);
+        } finally {
+            server.stop(0);
+        }
+    }
+
     @Test
     public void makeGetRequestWithBasicAuth() throws IOException {
         // Arrange
@@ -254,6 +355,15 @@ public class WebServiceClientTest {
         assertThat(response).containsIgnoringCase("\"url\": \"https://httpbin.org/get\"");
     }
 
+    private RequestBodyWriter getBodyWriter(final String content) {
+        return new RequestBodyWriter() {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                IOUtils.write(content == null ? "1234" : content, outputStream);
+            }
+        };
+    }
+
     private File getFile(String content) throws IOException {
         File file = testFolder.newFile();
         FileUtils.writeStringToFile(file, content == null ? "1234" : content);
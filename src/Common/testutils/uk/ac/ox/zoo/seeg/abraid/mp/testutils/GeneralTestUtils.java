@@ -2,12 +2,20 @@ package uk.ac.ox.zoo.seeg.abraid.mp.testutils;
 
 import org.apache.log4j.Logger;
 import org.mockito.ArgumentCaptor;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Contains general test utilities.
@@ -68,6 +76,63 @@ public final class GeneralTestUtils {
         return GeneralTestUtils.captorForClass(clazz);
     }
 
+    /**
+     * Creates a CloseableIterator over the specified list, such as could be returned by a scrolling DAO method.
+     * @param list The list.
+     * @param <T> Type of the list elements
+     * @return A new CloseableIterator, for which close() does nothing.
+     */
+    public static <T> CloseableIterator<T> createCloseableIterator(List<T> list) {
+        final Iterator<T> iterator = list.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Creates a mock HttpServletResponse, whose output stream writes to the specified stream.
+     * @param stream The stream to which the response's output is written.
+     * @return The mock HttpServletResponse.
+     * @throws IOException Not thrown (declared by HttpServletResponse.getOutputStream).
+     */
+    public static HttpServletResponse createMockHttpServletResponse(final ByteArrayOutputStream stream)
+            throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                stream.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        return response;
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> Class<List<T>> getListClass() {
         return (Class<List<T>>) (Class) List.class;
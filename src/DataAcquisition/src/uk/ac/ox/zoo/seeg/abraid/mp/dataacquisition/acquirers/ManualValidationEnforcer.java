@@ -2,19 +2,19 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers;
 
 import ch.lambdaj.group.Group;
 import org.apache.log4j.Logger;
+import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrenceStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import static ch.lambdaj.Lambda.*;
 import static ch.lambdaj.collection.LambdaCollections.with;
-import static org.hamcrest.Matchers.equalTo;
 
 /**
  * Marks some occurrences that receive a machine weighting as needing manual review. This is to ensure that the data
@@ -43,6 +43,15 @@ public class ManualValidationEnforcer {
         this.diseaseService = diseaseService;
     }
 
+    /**
+     * Creates an empty sample of newly acquired occurrences, for use with addRandomSubsetToManualValidation. The
+     * sample is large enough to hold the maximum number of occurrences that can be put into the IN_REVIEW state.
+     * @return The sample.
+     */
+    public ManualValidationSample createSample() {
+        return new ManualValidationSample(maxToValidatorPerDiseasePerAcquisition);
+    }
+
     /**
      * Adds a random subset of specified occurrences to the IN_REVIEW status if they are: part of any automatic disease,
      * are in the state READY (got a machine weighting) and are model eligible. The number of occurrences put into the
@@ -50,14 +59,13 @@ public class ManualValidationEnforcer {
      * @param occurrences The newly acquired occurrences to adjust.
      */
     public void addRandomSubsetToManualValidation(Set<DiseaseOccurrence> occurrences) {
-        // Work with a cloned list of occurrences of interest
-        Set<DiseaseOccurrence> occurrencesOfInterest = with(new HashSet<>(occurrences))
-            // Don't put occurrences for not setup diseases on the validator
-            .retain(having(on(DiseaseOccurrence.class).getDiseaseGroup().isAutomaticModelRunsEnabled(), equalTo(true)))
-            // Occurrences for automatic diseases, with status ready after acquisition, must have received an MW
-            .retain(having(on(DiseaseOccurrence.class).getStatus(), equalTo(DiseaseOccurrenceStatus.READY)))
-            // Don't put large countries on the validator
-            .retain(having(on(DiseaseOccurrence.class).getLocation().isModelEligible(), equalTo(true)));
+        // Work with a list of the occurrences of interest, rather than the specified set
+        List<DiseaseOccurrence> occurrencesOfInterest = new ArrayList<>();
+        for (DiseaseOccurrence occurrence : occurrences) {
+            if (isCandidateForManualValidation(occurrence)) {
+                occurrencesOfInterest.add(occurrence);
+            }
+        }
 
         // Group the model eligible occurrences by disease group and status
         Group<DiseaseOccurrence> groups = with(occurrencesOfInterest).group(
@@ -68,13 +76,51 @@ public class ManualValidationEnforcer {
             Collections.shuffle(occurrencesOfInterestForSingleDisease);
 
             int numberToAdd = calculateNumberOfOccurrenceToAdjust(occurrencesOfInterestForSingleDisease.size());
+            addToManualValidation(occurrencesOfInterestForSingleDisease.subList(0, numberToAdd));
+            LOGGER.info(String.format(MESSAGE, ((DiseaseGroup) group.key()).getId(), group.getSize(), numberToAdd));
+        }
+    }
+
+    /**
+     * Adds a random subset of the sampled occurrences to the IN_REVIEW status, as for the set of occurrences above.
+     * The number of occurrences put into the IN_REVIEW state is based on the number of candidates that were added to
+     * the sample, rather than the sample size.
+     * @param sample The sample of newly acquired occurrences.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void addRandomSubsetToManualValidation(ManualValidationSample sample) {
+        for (int diseaseGroupId : sample.getDiseaseGroupIds()) {
+            int candidateCount = sample.getCandidateCount(diseaseGroupId);
+            List<Integer> sampledOccurrenceIds = sample.getSampledOccurrenceIds(diseaseGroupId);
+            Collections.shuffle(sampledOccurrenceIds);
 
-            for (int i = 0; i < numberToAdd; i++) {
-                DiseaseOccurrence occurrence = occurrencesOfInterestForSingleDisease.get(i);
-                occurrence.setStatus(DiseaseOccurrenceStatus.IN_REVIEW);
-                diseaseService.saveDiseaseOccurrence(occurrence);
+            // The sample holds at least as many occurrences as can be added
+            int numberToAdd = calculateNumberOfOccurrenceToAdjust(candidateCount);
+            if (numberToAdd > 0) {
+                addToManualValidation(diseaseService.getDiseaseOccurrencesById(
+                        sampledOccurrenceIds.subList(0, numberToAdd)));
             }
-            LOGGER.info(String.format(MESSAGE, ((DiseaseGroup) group.key()).getId(), group.getSize(), numberToAdd));
+            LOGGER.info(String.format(MESSAGE, diseaseGroupId, candidateCount, numberToAdd));
+        }
+    }
+
+    /**
+     * Determines whether a newly acquired occurrence could be put into the IN_REVIEW state.
+     * @param occurrence The newly acquired occurrence.
+     * @return True if the occurrence is part of any automatic disease, is in the state READY and is model eligible.
+     */
+    static boolean isCandidateForManualValidation(DiseaseOccurrence occurrence) {
+        // Don't put occurrences for not setup diseases on the validator. Occurrences for automatic diseases, with
+        // status ready after acquisition, must have received an MW. Don't put large countries on the validator.
+        return occurrence.getDiseaseGroup().isAutomaticModelRunsEnabled() &&
+                occurrence.getStatus() == DiseaseOccurrenceStatus.READY &&
+                occurrence.getLocation().isModelEligible();
+    }
+
+    private void addToManualValidation(List<DiseaseOccurrence> occurrences) {
+        for (DiseaseOccurrence occurrence : occurrences) {
+            occurrence.setStatus(DiseaseOccurrenceStatus.IN_REVIEW);
+            diseaseService.saveDiseaseOccurrence(occurrence);
         }
     }
 
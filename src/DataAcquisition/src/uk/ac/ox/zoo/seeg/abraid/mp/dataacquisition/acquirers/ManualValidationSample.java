@@ -0,0 +1,89 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers;
+
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+
+import java.util.*;
+
+/**
+ * A running count of the newly acquired occurrences that are candidates for manual review, and a bounded random
+ * sample of them, per disease group. This allows ManualValidationEnforcer to choose a random subset of the candidates
+ * without every acquired occurrence being held in memory until the end of the acquisition. Only the IDs of the
+ * occurrences are kept, as the occurrences may have been saved in earlier transactions.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ManualValidationSample {
+    private final int maxSampleSizePerDiseaseGroup;
+    private final Random random;
+
+    private final Map<Integer, Integer> candidateCounts = new LinkedHashMap<>();
+    private final Map<Integer, List<Integer>> sampledOccurrenceIds = new HashMap<>();
+
+    public ManualValidationSample(int maxSampleSizePerDiseaseGroup) {
+        this(maxSampleSizePerDiseaseGroup, new Random());
+    }
+
+    ManualValidationSample(int maxSampleSizePerDiseaseGroup, Random random) {
+        this.maxSampleSizePerDiseaseGroup = maxSampleSizePerDiseaseGroup;
+        this.random = random;
+    }
+
+    /**
+     * Adds a saved occurrence to the sample, if it is a candidate for manual review.
+     * @param occurrence The newly acquired occurrence.
+     */
+    public void add(DiseaseOccurrence occurrence) {
+        if (!ManualValidationEnforcer.isCandidateForManualValidation(occurrence)) {
+            return;
+        }
+
+        Integer diseaseGroupId = occurrence.getDiseaseGroup().getId();
+        Integer count = candidateCounts.get(diseaseGroupId);
+        count = (count == null) ? 1 : count + 1;
+        candidateCounts.put(diseaseGroupId, count);
+
+        List<Integer> sample = sampledOccurrenceIds.get(diseaseGroupId);
+        if (sample == null) {
+            sample = new ArrayList<>();
+            sampledOccurrenceIds.put(diseaseGroupId, sample);
+        }
+
+        // Reservoir sampling, so that each candidate is equally likely to be in the sample
+        if (sample.size() < maxSampleSizePerDiseaseGroup) {
+            sample.add(occurrence.getId());
+        } else {
+            int index = random.nextInt(count);
+            if (index < maxSampleSizePerDiseaseGroup) {
+                sample.set(index, occurrence.getId());
+            }
+        }
+    }
+
+    /**
+     * Gets the IDs of the disease groups that have candidates for manual review.
+     * @return The disease group IDs.
+     */
+    public Set<Integer> getDiseaseGroupIds() {
+        return Collections.unmodifiableSet(candidateCounts.keySet());
+    }
+
+    /**
+     * Gets the number of candidates for manual review that have been added for a disease group.
+     * @param diseaseGroupId The disease group ID.
+     * @return The number of candidates.
+     */
+    public int getCandidateCount(int diseaseGroupId) {
+        Integer count = candidateCounts.get(diseaseGroupId);
+        return (count == null) ? 0 : count;
+    }
+
+    /**
+     * Gets the IDs of a random sample of the candidates for manual review for a disease group. The sample holds all
+     * of the candidates, up to the maximum sample size.
+     * @param diseaseGroupId The disease group ID.
+     * @return The sampled occurrence IDs.
+     */
+    public List<Integer> getSampledOccurrenceIds(int diseaseGroupId) {
+        List<Integer> sample = sampledOccurrenceIds.get(diseaseGroupId);
+        return (sample == null) ? new ArrayList<Integer>() : new ArrayList<>(sample);
+    }
+}
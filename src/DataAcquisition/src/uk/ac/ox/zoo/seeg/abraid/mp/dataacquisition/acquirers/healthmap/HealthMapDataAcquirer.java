@@ -3,19 +3,23 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Provenance;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonArrayReader;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DataAcquisitionException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationEnforcer;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationSample;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Acquires data from HealthMap.
@@ -29,12 +33,20 @@ public class HealthMapDataAcquirer {
     private static final String FILE_ERROR_MESSAGE = "Could not read file \"%s\"";
     private static final String JSON_ERROR_MESSAGE = "Could not read JSON from file \"%s\"";
     private static final String RETRIEVING_FROM_FILE_MESSAGE = "Retrieving HealthMap data from file \"%s\"";
+    private static final String TEMPORARY_FILE_ERROR_MESSAGE =
+            "Could not create temporary file for HealthMap web service response: %s";
+    private static final String INVALID_CHUNK_SIZE_MESSAGE = "Streaming chunk size must be at least 1 (was %d)";
+    private static final String TOTAL_COUNT_MESSAGE = "Saved %d HealthMap disease occurrence(s) in %d chunk(s)";
 
     private final HealthMapWebService healthMapWebService;
     private final HealthMapDataConverter healthMapDataConverter;
     private final HealthMapLookupData healthMapLookupData;
     private final ManualValidationEnforcer manualValidationEnforcer;
 
+    // If specified, HealthMap JSON is read as a stream and converted in chunks of this number of locations (each in
+    // its own transaction), rather than being read into memory as a whole before conversion.
+    private Integer streamingChunkSize = null;
+
     public HealthMapDataAcquirer(HealthMapWebService healthMapWebService,
                                  HealthMapDataConverter healthMapDataConverter,
                                  HealthMapLookupData healthMapLookupData,
@@ -45,16 +57,29 @@ public class HealthMapDataAcquirer {
         this.manualValidationEnforcer = manualValidationEnforcer;
     }
 
+    /**
+     * Sets the streaming chunk size.
+     * @param streamingChunkSize If specified, HealthMap JSON is read as a stream and converted in chunks of this
+     * number of locations. Otherwise it is read into memory as a whole before conversion.
+     */
+    public void setStreamingChunkSize(Integer streamingChunkSize) {
+        if (streamingChunkSize != null && streamingChunkSize < 1) {
+            throw new IllegalArgumentException(String.format(INVALID_CHUNK_SIZE_MESSAGE, streamingChunkSize));
+        }
+        this.streamingChunkSize = streamingChunkSize;
+    }
+
     /**
      * Acquires HealthMap data from the HealthMap web service.
      */
     public void acquireDataFromWebService() {
         DateTime startDate = getStartDate();
         DateTime endDate = getEndDate(startDate);
-        List<HealthMapLocation> healthMapLocations = retrieveDataFromWebService(startDate, endDate);
-        Set<DiseaseOccurrence> occurrences = convert(healthMapLocations, endDate);
-        if (occurrences != null) {
-            manualValidationEnforcer.addRandomSubsetToManualValidation(occurrences);
+        if (streamingChunkSize != null) {
+            acquireStreamFromWebService(startDate, endDate);
+        } else {
+            List<HealthMapLocation> healthMapLocations = retrieveDataFromWebService(startDate, endDate);
+            convert(healthMapLocations, endDate);
         }
     }
 
@@ -64,10 +89,32 @@ public class HealthMapDataAcquirer {
      */
     public void acquireDataFromFile(String jsonFileName) {
         LOGGER.info(String.format(RETRIEVING_FROM_FILE_MESSAGE, jsonFileName));
-        List<HealthMapLocation> healthMapLocations = retrieveDataFromFile(jsonFileName);
-        Set<DiseaseOccurrence> occurrences = convert(healthMapLocations, null);
-        if (occurrences != null) {
-            manualValidationEnforcer.addRandomSubsetToManualValidation(occurrences);
+        if (streamingChunkSize != null) {
+            convertStream(new File(jsonFileName), null);
+        } else {
+            List<HealthMapLocation> healthMapLocations = retrieveDataFromFile(jsonFileName);
+            convert(healthMapLocations, null);
+        }
+    }
+
+    private void acquireStreamFromWebService(DateTime startDate, DateTime endDate) {
+        // The response is written to a temporary file rather than being converted as it is received, so that the
+        // connection to HealthMap is not held open for the duration of the conversion
+        File jsonFile = createTemporaryFile();
+        try {
+            retrieveDataFromWebService(startDate, endDate, jsonFile);
+            convertStream(jsonFile, endDate);
+        } finally {
+            FileUtils.deleteQuietly(jsonFile);
+        }
+    }
+
+    private File createTemporaryFile() {
+        try {
+            return Files.createTempFile("healthmap", ".json").toFile();
+        } catch (IOException e) {
+            LOGGER.fatal(String.format(TEMPORARY_FILE_ERROR_MESSAGE, e.getMessage()), e);
+            throw new DataAcquisitionException(e.getMessage(), e);
         }
     }
 
@@ -80,6 +127,15 @@ public class HealthMapDataAcquirer {
         }
     }
 
+    private void retrieveDataFromWebService(DateTime startDate, DateTime endDate, File jsonFile) {
+        try {
+            healthMapWebService.sendRequestToFile(startDate, endDate, jsonFile);
+        } catch (WebServiceClientException e) {
+            LOGGER.fatal(String.format(WEB_SERVICE_ERROR_MESSAGE, e.getMessage()), e);
+            throw new DataAcquisitionException(e.getMessage(), e);
+        }
+    }
+
     private List<HealthMapLocation> retrieveDataFromFile(String jsonFileName) {
         String json;
         try {
@@ -97,13 +153,54 @@ public class HealthMapDataAcquirer {
         }
     }
 
-    private Set<DiseaseOccurrence> convert(List<HealthMapLocation> healthMapLocations, DateTime endDate) {
+    private void convert(List<HealthMapLocation> healthMapLocations, DateTime endDate) {
         if (healthMapLocations != null) {
-            Set<DiseaseOccurrence> occurrences = healthMapDataConverter.convert(healthMapLocations, endDate);
-            healthMapLookupData.clearLookups();
-            return occurrences;
+            ManualValidationSample manualValidationSample = manualValidationEnforcer.createSample();
+            healthMapDataConverter.convert(healthMapLocations, manualValidationSample);
+            completeConversion(endDate, manualValidationSample);
         }
-        return null;
+    }
+
+    private void convertStream(File jsonFile, DateTime endDate) {
+        try (InputStream inputStream = new FileInputStream(jsonFile);
+             JsonArrayReader<HealthMapLocation> reader = healthMapWebService.createLocationReader(inputStream)) {
+            // Each chunk is committed before the next is read, so only one chunk is held in memory (including in the
+            // Hibernate session) at a time
+            ManualValidationSample manualValidationSample = manualValidationEnforcer.createSample();
+            int occurrenceCount = 0;
+            int chunkCount = 0;
+            List<HealthMapLocation> chunk = readChunk(reader);
+            while (!chunk.isEmpty()) {
+                occurrenceCount += healthMapDataConverter.convert(chunk, manualValidationSample);
+                chunkCount++;
+                chunk = readChunk(reader);
+            }
+            LOGGER.info(String.format(TOTAL_COUNT_MESSAGE, occurrenceCount, chunkCount));
+            completeConversion(endDate, manualValidationSample);
+        } catch (IOException e) {
+            LOGGER.fatal(String.format(FILE_ERROR_MESSAGE, e.getMessage()), e);
+            throw new DataAcquisitionException(e.getMessage(), e);
+        } catch (JsonParserException e) {
+            LOGGER.fatal(String.format(JSON_ERROR_MESSAGE, e.getMessage()), e);
+            throw new DataAcquisitionException(e.getMessage(), e);
+        }
+    }
+
+    private List<HealthMapLocation> readChunk(JsonArrayReader<HealthMapLocation> reader) {
+        List<HealthMapLocation> chunk = new ArrayList<>();
+        HealthMapLocation healthMapLocation;
+        while (chunk.size() < streamingChunkSize && (healthMapLocation = reader.readNext()) != null) {
+            chunk.add(healthMapLocation);
+        }
+        return chunk;
+    }
+
+    private void completeConversion(DateTime endDate, ManualValidationSample manualValidationSample) {
+        manualValidationEnforcer.addRandomSubsetToManualValidation(manualValidationSample);
+        // The end date is written last, so that a retrieval that fails part way through is repeated in full
+        healthMapDataConverter.writeLastRetrievalEndDate(endDate);
+        // The transactions have ended, so the lookup objects must not be used by the next acquisition
+        healthMapLookupData.clearLookups();
     }
 
     /**
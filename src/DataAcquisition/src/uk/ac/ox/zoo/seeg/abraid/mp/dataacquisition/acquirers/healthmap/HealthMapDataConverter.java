@@ -2,12 +2,14 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Provenance;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.AlertService;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DataAcquisitionException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DiseaseOccurrenceDataAcquirer;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationSample;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapAlert;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
@@ -45,33 +47,53 @@ public class HealthMapDataConverter {
     }
 
     /**
-     * Converts a list of HealthMap locations into ABRAID objects, and saves them to the database.
-     * Returns the occurrences for test purposes.
+     * Converts a list of HealthMap locations into ABRAID objects, and saves them to the database. This is done in its
+     * own transaction, so that a large retrieval can be converted and committed in chunks (one list at a time). The
+     * saved occurrences are added to the specified sample rather than being returned, so that they need not be held
+     * in memory once the transaction has ended.
      *
      * @param healthMapLocations A list of HealthMap locations.
-     * @param endDate The end date for this HealthMap retrieval.
-     * @return The saved occurrences.
+     * @param manualValidationSample The sample of saved occurrences for ManualValidationEnforcer.
+     * @return The number of saved occurrences.
      */
-    public Set<DiseaseOccurrence> convert(List<HealthMapLocation> healthMapLocations, DateTime endDate) {
+    @Transactional(rollbackFor = Exception.class)
+    public int convert(List<HealthMapLocation> healthMapLocations, ManualValidationSample manualValidationSample) {
         LOGGER.info(String.format(CONVERSION_MESSAGE, healthMapLocations.size(),
                 countHealthMapAlerts(healthMapLocations), countGeoNamesIdOccurrences(healthMapLocations)));
 
-        Set<DiseaseOccurrence> occurrences = convertHealthMapLocations(healthMapLocations);
-        writeLastRetrievalEndDate(endDate);
+        // The lookups may hold objects from an earlier transaction (e.g. the previous chunk's), which must not be saved
+        lookupData.clearLookups();
 
-        LOGGER.info(String.format(COUNT_MESSAGE, occurrences.size(), countUniqueLocations(occurrences)));
-        return occurrences;
-    }
-
-    private Set<DiseaseOccurrence> convertHealthMapLocations(List<HealthMapLocation> healthMapLocations) {
-        Set<DiseaseOccurrence> convertedOccurrences = new HashSet<>();
+        Set<DiseaseOccurrence> occurrences = new HashSet<>();
+        // Look up all GeoNames IDs at once, rather than one at a time during conversion
+        locationConverter.prefetchGeoNames(healthMapLocations);
         for (HealthMapLocation healthMapLocation : healthMapLocations) {
             Location location = locationConverter.convert(healthMapLocation);
             if (location != null) {
-                convertHealthMapAlert(healthMapLocation, location, convertedOccurrences);
+                convertHealthMapAlert(healthMapLocation, location, occurrences);
             }
         }
-        return convertedOccurrences;
+
+        for (DiseaseOccurrence occurrence : occurrences) {
+            manualValidationSample.add(occurrence);
+        }
+        LOGGER.info(String.format(COUNT_MESSAGE, occurrences.size(), countUniqueLocations(occurrences)));
+        return occurrences.size();
+    }
+
+    /**
+     * Writes the end date of a HealthMap retrieval, so that the next retrieval starts from there. This must only be
+     * done once all of the retrieved HealthMap locations have been converted. If the retrieval fails part way through,
+     * it is then repeated in full, and the alerts that were saved before the failure are not converted again.
+     *
+     * @param retrievalEndDate The end date for this HealthMap retrieval.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void writeLastRetrievalEndDate(DateTime retrievalEndDate) {
+        lookupData.clearLookups();
+        Provenance provenance = lookupData.getHealthMapProvenance();
+        provenance.setLastRetrievalEndDate(retrievalEndDate);
+        alertService.saveProvenance(provenance);
     }
 
     private void convertHealthMapAlert(HealthMapLocation healthMapLocation, Location location,
@@ -92,12 +114,6 @@ public class HealthMapDataConverter {
         }
     }
 
-    private void writeLastRetrievalEndDate(DateTime retrievalDate) {
-        Provenance provenance = lookupData.getHealthMapProvenance();
-        provenance.setLastRetrievalEndDate(retrievalDate);
-        alertService.saveProvenance(provenance);
-    }
-
     private int countHealthMapAlerts(List<HealthMapLocation> healthMapLocations) {
         int count = 0;
         for (HealthMapLocation healthMapLocation : healthMapLocations) {
@@ -7,9 +7,12 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapCountry;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LocationPrecision;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.LocationService;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
-import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.GeoNamesWebService;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.GeoNameCache;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Converts a HealthMap location into an ABRAID location.
@@ -22,22 +25,34 @@ public class HealthMapLocationConverter {
             "Ignoring HealthMap location in country \"%s\" as it is not of interest";
     private static final String GEONAMES_FCODE_NOT_IN_DATABASE_MESSAGE =
             "Feature code \"%s\" is not in the ABRAID database (GeoName ID %d) - attempting to use place_basic_type";
-    private static final String GEONAMES_ID_NOT_FOUND_MESSAGE =
-            "GeoNames ID %d was not found by the GeoNames web service - attempting to use place_basic_type";
     private static final String PLACE_BASIC_TYPE_NOT_FOUND_MESSAGE =
             "place_basic_type is missing - ignoring location (place name \"%s\")";
-    private static final String GEONAMES_ID_HAS_NO_FEATURE_CODE_MESSAGE =
-            "GeoNames ID %d was returned by the GeoNames web service but has no feature code";
+    private static final String GEONAMES_ID_NOT_RESOLVED_MESSAGE =
+            "GeoNames ID %d could not be resolved - attempting to use place_basic_type";
 
-    private LocationService locationService;
     private HealthMapLookupData lookupData;
-    private GeoNamesWebService geoNamesWebService;
+    private GeoNameCache geoNameCache;
 
-    public HealthMapLocationConverter(LocationService locationService, HealthMapLookupData lookupData,
-                                      GeoNamesWebService geoNamesWebService) {
-        this.locationService = locationService;
+    public HealthMapLocationConverter(HealthMapLookupData lookupData, GeoNameCache geoNameCache) {
         this.lookupData = lookupData;
-        this.geoNamesWebService = geoNamesWebService;
+        this.geoNameCache = geoNameCache;
+    }
+
+    /**
+     * Resolves the GeoNames IDs of the specified HealthMap locations in bulk, so that converting the locations does
+     * not look up each ID individually. Only the locations that would be converted are considered, so that no
+     * GeoNames lookups are made for locations that will be ignored.
+     * @param healthMapLocations The HealthMap locations.
+     */
+    public void prefetchGeoNames(List<HealthMapLocation> healthMapLocations) {
+        Set<Integer> geoNameIds = new LinkedHashSet<>();
+        for (HealthMapLocation healthMapLocation : healthMapLocations) {
+            if (healthMapLocation.getGeoNameId() != null && isValid(healthMapLocation) &&
+                    isInCountryOfInterest(healthMapLocation)) {
+                geoNameIds.add(healthMapLocation.getGeoNameId());
+            }
+        }
+        geoNameCache.prefetch(geoNameIds);
     }
 
     /**
@@ -56,8 +71,7 @@ public class HealthMapLocationConverter {
     }
 
     private boolean validate(HealthMapLocation healthMapLocation) {
-        String validationMessage =
-                new HealthMapLocationValidator(healthMapLocation, lookupData.getCountryMap()).validate();
+        String validationMessage = getValidationMessage(healthMapLocation);
         if (validationMessage != null) {
             LOGGER.warn(validationMessage);
             return false;
@@ -65,11 +79,24 @@ public class HealthMapLocationConverter {
         return true;
     }
 
+    private boolean isValid(HealthMapLocation healthMapLocation) {
+        return getValidationMessage(healthMapLocation) == null;
+    }
+
+    private String getValidationMessage(HealthMapLocation healthMapLocation) {
+        return new HealthMapLocationValidator(healthMapLocation, lookupData.getCountryMap()).validate();
+    }
+
+    private boolean isInCountryOfInterest(HealthMapLocation healthMapLocation) {
+        HealthMapCountry healthMapCountry = lookupData.getCountryMap().get(healthMapLocation.getCountryId());
+        return !CollectionUtils.isEmpty(healthMapCountry.getCountries());
+    }
+
     private Location createLocation(HealthMapLocation healthMapLocation) {
         Location location = null;
 
         HealthMapCountry healthMapCountry = lookupData.getCountryMap().get(healthMapLocation.getCountryId());
-        if (CollectionUtils.isEmpty(healthMapCountry.getCountries())) {
+        if (!isInCountryOfInterest(healthMapLocation)) {
             LOGGER.warn(String.format(IGNORING_COUNTRY_MESSAGE, healthMapCountry.getName()));
         } else {
             location = new Location();
@@ -103,9 +130,11 @@ public class HealthMapLocationConverter {
     }
 
     private void addPrecisionUsingGeoNames(Location location, int geoNameId) {
-        GeoName geoName = getGeoName(geoNameId);
+        GeoName geoName = geoNameCache.get(geoNameId);
 
-        if (geoName != null) {
+        if (geoName == null) {
+            LOGGER.warn(String.format(GEONAMES_ID_NOT_RESOLVED_MESSAGE, geoNameId));
+        } else {
             String featureCode = geoName.getFeatureCode();
             LocationPrecision precision = lookupData.getGeoNamesMap().get(featureCode);
             if (precision == null) {
@@ -148,34 +177,4 @@ public class HealthMapLocationConverter {
 
         return false;
     }
-
-    private GeoName getGeoName(int geoNameId) {
-        // Determine whether we already have this GeoName in our database
-        GeoName geoName = locationService.getGeoNameById(geoNameId);
-
-        if (geoName == null) {
-            // We do not, so look it up using the GeoNames web service
-            uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName geoNameDTO =
-                    geoNamesWebService.getById(geoNameId);
-
-            if (geoNameDTO != null) {
-                if (StringUtils.hasText(geoNameDTO.getFeatureCode())) {
-                    geoName = createAndSaveGeoName(geoNameDTO);
-                } else {
-                    LOGGER.warn(String.format(GEONAMES_ID_HAS_NO_FEATURE_CODE_MESSAGE, geoNameId));
-                }
-            } else {
-                LOGGER.warn(String.format(GEONAMES_ID_NOT_FOUND_MESSAGE, geoNameId));
-            }
-        }
-
-        return geoName;
-    }
-
-    private GeoName createAndSaveGeoName(
-            uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName geoNameDTO) {
-        GeoName geoName = new GeoName(geoNameDTO.getGeoNameId(), geoNameDTO.getFeatureCode());
-        locationService.saveGeoName(geoName);
-        return geoName;
-    }
 }
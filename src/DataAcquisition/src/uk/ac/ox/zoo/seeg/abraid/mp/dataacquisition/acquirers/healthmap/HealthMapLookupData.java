@@ -106,11 +106,13 @@ public class HealthMapLookupData {
     }
 
     /**
-     * Clear the lookups whose data may be used in a SQL statement.
+     * Clear the lookups whose data may be used in a SQL statement (including the disease groups of the diseases and
+     * sub-diseases, which are saved with each occurrence).
      * This avoids stale Hibernate objects across transactions.
      */
     public void clearLookups() {
         diseaseMap = null;
+        subDiseaseMap = null;
         feedMap = null;
         healthMapProvenance = null;
     }
@@ -6,6 +6,7 @@ import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.springframework.util.StringUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonArrayReader;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParser;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
@@ -13,6 +14,8 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
 import javax.ws.rs.core.UriBuilder;
+import java.io.File;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -130,15 +133,27 @@ public class HealthMapWebService {
      */
     public List<HealthMapLocation> sendRequest(DateTime startDate, DateTime endDate)
             throws WebServiceClientException, JsonParserException {
-        String formattedStartDate = formatDateWithNullProtection(startDate);
-        String formattedEndDate = formatDateWithNullProtection(endDate);
+        String json = webServiceClient.makeGetRequest(createRequestUrl(startDate, endDate));
+        return parseJson(json);
+    }
 
-        String url = buildUrl(formattedStartDate, formattedEndDate);
+    /**
+     * Sends a request to the HealthMap web service, and writes the JSON response to a file as it is received. The file
+     * can then be read using createLocationReader.
+     * @param startDate The start of the date range for HealthMap alert retrieval.
+     * @param endDate The end of the date range for HealthMap alert retrieval.
+     * @param file The file to write the JSON response to.
+     * @throws WebServiceClientException If the web service call fails.
+     */
+    public void sendRequestToFile(DateTime startDate, DateTime endDate, File file) throws WebServiceClientException {
+        webServiceClient.makeGetRequestToFile(createRequestUrl(startDate, endDate), file);
+    }
 
+    private String createRequestUrl(DateTime startDate, DateTime endDate) {
+        String formattedStartDate = formatDateWithNullProtection(startDate);
+        String formattedEndDate = formatDateWithNullProtection(endDate);
         LOGGER.info(String.format(CALLING_WEB_SERVICE_MESSAGE, formattedStartDate, formattedEndDate));
-        String json = webServiceClient.makeGetRequest(url);
-
-        return parseJson(json);
+        return buildUrl(formattedStartDate, formattedEndDate);
     }
 
     private String buildUrl(String startDate, String endDate) {
@@ -172,6 +187,18 @@ public class HealthMapWebService {
         return parser.parse(json, new TypeReference<List<HealthMapLocation>>() { });
     }
 
+    /**
+     * Creates a reader that parses HealthMap JSON from a stream one location at a time, so that the whole response is
+     * never held in memory.
+     * @param inputStream The stream containing the HealthMap JSON. This is closed when the reader is closed.
+     * @return The reader.
+     * @throws JsonParserException If the stream could not be read.
+     */
+    public JsonArrayReader<HealthMapLocation> createLocationReader(InputStream inputStream)
+            throws JsonParserException {
+        return new JsonParser(dateTimeFormatter).createArrayReader(inputStream, HealthMapLocation.class);
+    }
+
     private String formatDateWithNullProtection(DateTime date) {
         return (date != null) ? dateTimeFormatter.print(date) : null;
     }
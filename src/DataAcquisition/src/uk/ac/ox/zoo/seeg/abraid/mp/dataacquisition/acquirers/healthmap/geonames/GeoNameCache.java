@@ -0,0 +1,187 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.springframework.util.StringUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.UnresolvedGeoName;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.LocationService;
+
+import java.util.*;
+
+/**
+ * Resolves GeoNames IDs into GeoNames, so that the GeoNames web service is only called for IDs that have never been
+ * seen before. IDs are resolved using (in order):
+ * 1. The GeoNames and unresolved GeoNames already held in memory.
+ * 2. The database's geoname and unresolved_geoname tables, which are a persistent cache of previous lookups. The
+ *    geoname table can also be loaded in bulk from a GeoNames dump file (see import_geonames_dump.sql in the database
+ *    component), so that the web service is only needed for GeoNames that are newer than the dump.
+ * 3. The GeoNames web service.
+ * The results of step 3 are saved to the database. An ID that could not be resolved (because the GeoName does
+ * not exist or has no feature code) is not looked up again until its entry is older than the unresolved time-to-live.
+ *
+ * Call prefetch() with all the IDs in a batch of data before resolving them individually, so that the database is
+ * queried once for the whole batch rather than once per ID.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class GeoNameCache {
+    private static final Logger LOGGER = Logger.getLogger(GeoNameCache.class);
+    private static final String PREFETCH_MESSAGE = "Prefetched %d GeoNames ID(s): %d from the database, %d from the " +
+            "GeoNames web service (%d other ID(s) were already cached)";
+    private static final String GEONAMES_ID_NOT_FOUND_MESSAGE =
+            "GeoNames ID %d was not found by the GeoNames web service";
+    private static final String GEONAMES_ID_HAS_NO_FEATURE_CODE_MESSAGE =
+            "GeoNames ID %d was returned by the GeoNames web service but has no feature code";
+    private static final String WEB_SERVICE_FAILED_MESSAGE =
+            "%d GeoNames ID(s) were not looked up as the GeoNames web service returned an error";
+
+    // The number of IDs in each database query, to keep the size of the IN clause reasonable
+    private static final int QUERY_BATCH_SIZE = 1000;
+    private static final int DEFAULT_UNRESOLVED_TIME_TO_LIVE_DAYS = 30;
+
+    private final LocationService locationService;
+    private final GeoNamesWebService geoNamesWebService;
+    private int unresolvedTimeToLiveDays = DEFAULT_UNRESOLVED_TIME_TO_LIVE_DAYS;
+
+    private final Map<Integer, GeoName> resolvedGeoNames = new HashMap<>();
+    private final Map<Integer, DateTime> unresolvedGeoNameLookupDates = new HashMap<>();
+    // IDs whose lookup failed in this process (e.g. the web service's rate limit was exceeded). These are not saved.
+    private final Set<Integer> failedGeoNameIds = new HashSet<>();
+
+    public GeoNameCache(LocationService locationService, GeoNamesWebService geoNamesWebService) {
+        this.locationService = locationService;
+        this.geoNamesWebService = geoNamesWebService;
+    }
+
+    public void setUnresolvedTimeToLiveDays(int unresolvedTimeToLiveDays) {
+        this.unresolvedTimeToLiveDays = unresolvedTimeToLiveDays;
+    }
+
+    /**
+     * Gets a GeoName by ID. If the ID has not been prefetched, it is resolved now.
+     * @param geoNameId The GeoNames ID.
+     * @return The GeoName, or null if the ID could not be resolved.
+     */
+    public GeoName get(int geoNameId) {
+        if (!isCached(geoNameId) && !failedGeoNameIds.contains(geoNameId)) {
+            prefetch(Collections.singleton(geoNameId));
+        }
+        return resolvedGeoNames.get(geoNameId);
+    }
+
+    /**
+     * Resolves all of the specified GeoNames IDs that are not already cached, so that subsequent calls to get() for
+     * these IDs do not leave the process.
+     * @param geoNameIds The GeoNames IDs. Duplicates and nulls are ignored.
+     */
+    public void prefetch(Collection<Integer> geoNameIds) {
+        Set<Integer> uncachedIds = new LinkedHashSet<>();
+        int alreadyCachedCount = 0;
+        for (Integer geoNameId : new LinkedHashSet<>(geoNameIds)) {
+            if (geoNameId != null) {
+                if (isCached(geoNameId)) {
+                    alreadyCachedCount++;
+                } else {
+                    uncachedIds.add(geoNameId);
+                }
+            }
+        }
+
+        if (!uncachedIds.isEmpty()) {
+            failedGeoNameIds.removeAll(uncachedIds);
+            int databaseCount = fetchFromDatabase(uncachedIds);
+            int webServiceCount = fetchFromWebService(uncachedIds);
+            LOGGER.info(String.format(PREFETCH_MESSAGE, databaseCount + webServiceCount,
+                    databaseCount, webServiceCount, alreadyCachedCount));
+        }
+    }
+
+    private boolean isCached(int geoNameId) {
+        if (resolvedGeoNames.containsKey(geoNameId)) {
+            return true;
+        }
+        DateTime lookupDate = unresolvedGeoNameLookupDates.get(geoNameId);
+        return lookupDate != null && !hasExpired(lookupDate);
+    }
+
+    private boolean hasExpired(DateTime lookupDate) {
+        return lookupDate.plusDays(unresolvedTimeToLiveDays).isBeforeNow();
+    }
+
+    // Each of the fetch methods removes the IDs that it fetches from uncachedIds, and returns the number fetched
+    private int fetchFromDatabase(Set<Integer> uncachedIds) {
+        int count = 0;
+        for (List<Integer> batch : partition(uncachedIds)) {
+            for (GeoName geoName : locationService.getGeoNamesByIds(batch)) {
+                resolvedGeoNames.put(geoName.getId(), geoName);
+                uncachedIds.remove(geoName.getId());
+                count++;
+            }
+        }
+
+        for (List<Integer> batch : partition(uncachedIds)) {
+            for (UnresolvedGeoName unresolvedGeoName : locationService.getUnresolvedGeoNamesByIds(batch)) {
+                // An expired entry remains uncached, so that the ID is looked up again
+                if (!hasExpired(unresolvedGeoName.getLookupDate())) {
+                    unresolvedGeoNameLookupDates.put(unresolvedGeoName.getId(), unresolvedGeoName.getLookupDate());
+                    uncachedIds.remove(unresolvedGeoName.getId());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int fetchFromWebService(Set<Integer> uncachedIds) {
+        int count = 0;
+        Iterator<Integer> iterator = uncachedIds.iterator();
+        while (iterator.hasNext()) {
+            int geoNameId = iterator.next();
+            uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName geoNameDTO =
+                    geoNamesWebService.getByIdIncludingStatus(geoNameId);
+
+            if (geoNameDTO.getStatus() == null) {
+                if (StringUtils.hasText(geoNameDTO.getFeatureCode())) {
+                    saveResolvedGeoName(new GeoName(geoNameId, geoNameDTO.getFeatureCode()));
+                } else {
+                    LOGGER.warn(String.format(GEONAMES_ID_HAS_NO_FEATURE_CODE_MESSAGE, geoNameId));
+                    saveUnresolvedGeoName(geoNameId);
+                }
+            } else if (GeoNamesWebService.isDoesNotExistStatus(geoNameDTO.getStatus())) {
+                LOGGER.warn(String.format(GEONAMES_ID_NOT_FOUND_MESSAGE, geoNameId));
+                saveUnresolvedGeoName(geoNameId);
+            } else {
+                // Any other error (e.g. the rate limit has been exceeded) is likely to affect every remaining ID, so
+                // stop here. The IDs are not saved as unresolved, so they will be looked up again next time.
+                failedGeoNameIds.addAll(uncachedIds);
+                LOGGER.warn(String.format(WEB_SERVICE_FAILED_MESSAGE, uncachedIds.size()));
+                break;
+            }
+
+            iterator.remove();
+            count++;
+        }
+        return count;
+    }
+
+    private void saveResolvedGeoName(GeoName geoName) {
+        locationService.saveGeoName(geoName);
+        resolvedGeoNames.put(geoName.getId(), geoName);
+    }
+
+    private void saveUnresolvedGeoName(int geoNameId) {
+        DateTime lookupDate = DateTime.now();
+        locationService.saveUnresolvedGeoName(new UnresolvedGeoName(geoNameId, lookupDate));
+        unresolvedGeoNameLookupDates.put(geoNameId, lookupDate);
+    }
+
+    private static List<List<Integer>> partition(Collection<Integer> ids) {
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += QUERY_BATCH_SIZE) {
+            batches.add(new ArrayList<>(idList.subList(i, Math.min(i + QUERY_BATCH_SIZE, idList.size()))));
+        }
+        return batches;
+    }
+}
@@ -64,6 +64,21 @@ public class GeoNamesWebService {
      * @throws JsonParserException If the web service's JSON response cannot be parsed.
      */
     public GeoName getById(int geoNameId) throws WebServiceClientException, JsonParserException {
+        GeoName geoName = getByIdIncludingStatus(geoNameId);
+        return (geoName.getStatus() != null) ? null : geoName;
+    }
+
+    /**
+     * Gets a GeoName by ID, as returned by the web service. Unlike getById, this returns the web service's status if
+     * the response indicated an error, so that the caller can distinguish between a GeoName that does not exist and
+     * a failed request (e.g. because a rate limit has been exceeded).
+     * @param geoNameId The GeoName ID.
+     * @return The GeoName with the requested ID. If the web service response indicated an error, the GeoName's status
+     * is set.
+     * @throws WebServiceClientException If the web service call fails.
+     * @throws JsonParserException If the web service's JSON response cannot be parsed.
+     */
+    public GeoName getByIdIncludingStatus(int geoNameId) throws WebServiceClientException, JsonParserException {
         String url = buildUrl(geoNameId);
         String json = webServiceClient.makeGetRequest(url);
         GeoName geoName = parseJson(json);
@@ -74,16 +89,23 @@ public class GeoNamesWebService {
                     status.getMessage(), url);
 
             // Log a warning if the GeoName does not exist, otherwise log an error
-            if (status.getValue() == GEONAME_DOES_NOT_EXIST_STATUS_CODE) {
+            if (isDoesNotExistStatus(status)) {
                 LOGGER.warn(errorMessage);
             } else {
                 LOGGER.error(errorMessage);
             }
-
-            return null;
-        } else {
-            return geoName;
         }
+
+        return geoName;
+    }
+
+    /**
+     * Determines whether a web service status indicates that the requested GeoName does not exist.
+     * @param status The web service status.
+     * @return True if the status indicates that the GeoName does not exist, otherwise false.
+     */
+    public static boolean isDoesNotExistStatus(GeoNameStatus status) {
+        return status != null && status.getValue() == GEONAME_DOES_NOT_EXIST_STATUS_CODE;
     }
 
     private String buildUrl(int geoNameId) {
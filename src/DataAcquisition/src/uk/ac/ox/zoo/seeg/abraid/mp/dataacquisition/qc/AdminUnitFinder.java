@@ -1,12 +1,14 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.qc;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.index.SpatialIndex;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitQC;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LocationPrecision;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Finds the admin1 or admin2 that is associated with a location.
@@ -38,6 +40,19 @@ public class AdminUnitFinder {
     private String message;
     private boolean passed = true;
 
+    /**
+     * Finds the closest admin unit associated with the specified location, as below. Only the admin units whose
+     * centroids are within the maximum admin unit size of the location are considered, and these are found using the
+     * spatial index rather than by checking every admin unit.
+     *
+     * @param location The location. Must be ADMIN1 or ADMIN2.
+     * @param adminUnitCentroidIndex A spatial index of the admin units' centroids, whose items are the admin units.
+     */
+    public void findClosestAdminUnit(Location location, SpatialIndex adminUnitCentroidIndex) {
+        validateLocation(location);
+        findClosestAdminUnit(location, findCandidateAdminUnits(location.getGeom(), adminUnitCentroidIndex));
+    }
+
     /**
      * Finds the closest admin unit associated with the specified location. To do this, we find the distance between
      * each admin unit's centroid and the specified location, ignoring distances that are greater than the maximum
@@ -146,6 +161,46 @@ public class AdminUnitFinder {
                (wrappedDifference(location.getY(), adminUnitCentroid.getY(), MAX_LATITUDE) > MAX_ADMIN_UNIT_HEIGHT);
     }
 
+    private List<AdminUnitQC> findCandidateAdminUnits(Point location, SpatialIndex adminUnitCentroidIndex) {
+        // The search envelopes are those that cannot be excluded by isDistanceBeyondMaximumAdminUnitSize, taking into
+        // account the wrapping of longitudes and latitudes
+        Set<AdminUnitQC> candidates = new HashSet<>();
+        for (double[] longitudeRange : getSearchRanges(location.getX(), MAX_ADMIN_UNIT_WIDTH, MAX_LONGITUDE)) {
+            for (double[] latitudeRange : getSearchRanges(location.getY(), MAX_ADMIN_UNIT_HEIGHT, MAX_LATITUDE)) {
+                Envelope envelope = new Envelope(longitudeRange[0], longitudeRange[1], latitudeRange[0],
+                        latitudeRange[1]);
+                for (Object adminUnit : adminUnitCentroidIndex.query(envelope)) {
+                    candidates.add((AdminUnitQC) adminUnit);
+                }
+            }
+        }
+
+        // Sort the candidates so that ties are resolved consistently
+        List<AdminUnitQC> sortedCandidates = new ArrayList<>(candidates);
+        Collections.sort(sortedCandidates, new Comparator<AdminUnitQC>() {
+            @Override
+            public int compare(AdminUnitQC adminUnit1, AdminUnitQC adminUnit2) {
+                return adminUnit1.getGaulCode().compareTo(adminUnit2.getGaulCode());
+            }
+        });
+        return sortedCandidates;
+    }
+
+    private List<double[]> getSearchRanges(double value, double maximumSize, double maximumValue) {
+        // The range around the value, plus the part of the range that wraps around from the other end of the axis
+        List<double[]> ranges = new ArrayList<>();
+        ranges.add(new double[] {value - maximumSize, value + maximumSize});
+        double wrappedStart = value + maximumValue * 2 - maximumSize;
+        if (wrappedStart <= maximumValue) {
+            ranges.add(new double[] {wrappedStart, maximumValue});
+        }
+        double wrappedEnd = value - maximumValue * 2 + maximumSize;
+        if (wrappedEnd >= -maximumValue) {
+            ranges.add(new double[] {-maximumValue, wrappedEnd});
+        }
+        return ranges;
+    }
+
     private double wrappedDifference(double a, double b, double maximumDifference) {
         double difference = Math.abs(a - b);
         return (difference > maximumDifference) ? (maximumDifference * 2 - difference) : difference;
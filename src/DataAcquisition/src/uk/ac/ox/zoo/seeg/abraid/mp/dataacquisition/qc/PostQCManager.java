@@ -63,13 +63,15 @@ public class PostQCManager {
      * @param location The location.
      */
     private void assignCountry(Location location) {
-        Country country = geometryService.findCountryThatContainsPoint(location.getGeom());
+        // Uses the in-memory spatial index rather than querying the database for each location
+        Integer countryGaulCode = qcLookupData.getCountryIndex().findFirstIntersecting(location.getGeom());
+        Country country = (countryGaulCode == null) ? null : qcLookupData.getCountryMap().get(countryGaulCode);
         location.setCountry(country);
     }
 
     private void failQCIfNotOnLand(Location location) {
         // A sanity check - this should only happen if, after QC stage 2, the point is adjusted to be off land
-        if (!geometryService.doesLandSeaBorderContainPoint(location.getGeom())) {
+        if (!qcLookupData.getLandSeaBorderIndex().intersectsAny(location.getGeom())) {
             location.setHasPassedQc(false);
         }
     }
@@ -1,12 +1,18 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.qc;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.index.SpatialIndex;
+import com.vividsolutions.jts.index.strtree.STRtree;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitQC;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Country;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapCountry;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LandSeaBorder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.PreparedGeometryIndex;
 
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +33,12 @@ public class QCLookupData {
     private MultiPolygon landSeaBorders;
     private Map<Integer, HealthMapCountry> healthMapCountryMap;
     private Map<Integer, MultiPolygon> healthMapCountryGeometryMap;
+    private SpatialIndex adminUnitCentroidIndex;
+    private PreparedGeometryIndex<Integer> countryIndex;
+    private PreparedGeometryIndex<Integer> landSeaBorderIndex;
+    private NearestPointIndex landSeaBorderNearestPointIndex;
+    private Map<Integer, NearestPointIndex> countryNearestPointIndexMap = new HashMap<>();
+    private Map<Integer, NearestPointIndex> healthMapCountryNearestPointIndexMap = new HashMap<>();
 
     private GeometryService geometryService;
 
@@ -56,6 +68,24 @@ public class QCLookupData {
         return adminUnitsMap;
     }
 
+    /**
+     * Gets a spatial index of the administrative units' centroids. The items in the index are the administrative
+     * units.
+     * @return A spatial index of the administrative units' centroids.
+     */
+    public SpatialIndex getAdminUnitCentroidIndex() {
+        if (adminUnitCentroidIndex == null) {
+            STRtree index = new STRtree();
+            for (AdminUnitQC adminUnit : getAdminUnits()) {
+                Coordinate centroid = new Coordinate(adminUnit.getCentroidLongitude(), adminUnit.getCentroidLatitude());
+                index.insert(new Envelope(centroid), adminUnit);
+            }
+            index.build();
+            adminUnitCentroidIndex = index;
+        }
+        return adminUnitCentroidIndex;
+    }
+
     /**
      * Gets a list of countries, indexed by gaul code.
      * @return A list of countries, indexed by gaul code.
@@ -86,6 +116,17 @@ public class QCLookupData {
         return countryGeometryMap;
     }
 
+    /**
+     * Gets a spatial index of the country geometries, keyed by GAUL code.
+     * @return A spatial index of the country geometries, keyed by GAUL code.
+     */
+    public PreparedGeometryIndex<Integer> getCountryIndex() {
+        if (countryIndex == null) {
+            countryIndex = new PreparedGeometryIndex<>(getCountryGeometryMap());
+        }
+        return countryIndex;
+    }
+
     /**
      * Gets a multipolygon representing the concatenation of the land-sea borders.
      * @return A multipolygon representing the concatenation of the land-sea borders.
@@ -99,6 +140,34 @@ public class QCLookupData {
         return landSeaBorders;
     }
 
+    /**
+     * Gets the land-sea borders, indexed for finding the nearest point on the borders.
+     * @return The land-sea borders, indexed for finding the nearest point on the borders.
+     */
+    public NearestPointIndex getLandSeaBorderNearestPointIndex() {
+        if (landSeaBorderNearestPointIndex == null) {
+            landSeaBorderNearestPointIndex = new NearestPointIndex(getLandSeaBorders());
+        }
+        return landSeaBorderNearestPointIndex;
+    }
+
+    /**
+     * Gets a spatial index of the land-sea border geometries. Each geometry is indexed separately, so that only the
+     * borders near to a point are tested.
+     * @return A spatial index of the land-sea border geometries.
+     */
+    public PreparedGeometryIndex<Integer> getLandSeaBorderIndex() {
+        if (landSeaBorderIndex == null) {
+            List<LandSeaBorder> landSeaBorderList = geometryService.getAllLandSeaBorders();
+            Map<Integer, MultiPolygon> landSeaBorderMap = new HashMap<>();
+            for (int i = 0; i < landSeaBorderList.size(); i++) {
+                landSeaBorderMap.put(i, landSeaBorderList.get(i).getGeom());
+            }
+            landSeaBorderIndex = new PreparedGeometryIndex<>(landSeaBorderMap);
+        }
+        return landSeaBorderIndex;
+    }
+
     /**
      * Gets a list of HealthMap countries, indexed by HealthMap country ID.
      * @return A list of HealthMap countries, indexed by HealthMap country ID.
@@ -136,4 +205,34 @@ public class QCLookupData {
 
         return healthMapCountryGeometryMap;
     }
+
+    /**
+     * Gets the geometry of the specified country, indexed for finding the nearest point on the geometry. Each
+     * country is indexed when first requested.
+     * @param gaulCode The country's GAUL code.
+     * @return The indexed geometry, or null if the country has no geometry.
+     */
+    public NearestPointIndex getCountryNearestPointIndex(Integer gaulCode) {
+        return getNearestPointIndex(countryNearestPointIndexMap, getCountryGeometryMap(), gaulCode);
+    }
+
+    /**
+     * Gets the geometry of the GAUL countries associated with the specified HealthMap country, indexed for finding
+     * the nearest point on the geometry. Each HealthMap country is indexed when first requested.
+     * @param healthMapCountryId The HealthMap country ID.
+     * @return The indexed geometry, or null if the HealthMap country has no associated geometries.
+     */
+    public NearestPointIndex getHealthMapCountryNearestPointIndex(Integer healthMapCountryId) {
+        return getNearestPointIndex(healthMapCountryNearestPointIndexMap, getHealthMapCountryGeometryMap(),
+                healthMapCountryId);
+    }
+
+    private static NearestPointIndex getNearestPointIndex(Map<Integer, NearestPointIndex> indexMap,
+                                                          Map<Integer, MultiPolygon> geometryMap, Integer key) {
+        if (!indexMap.containsKey(key)) {
+            MultiPolygon geometry = geometryMap.get(key);
+            indexMap.put(key, (geometry == null) ? null : new NearestPointIndex(geometry));
+        }
+        return indexMap.get(key);
+    }
 }
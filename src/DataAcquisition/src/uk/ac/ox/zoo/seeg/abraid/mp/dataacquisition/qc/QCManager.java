@@ -1,11 +1,11 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.qc;
 
-import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import org.springframework.util.StringUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitQC;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LocationPrecision;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
 
 /**
  * The Quality Control (QC) manager. Performs quality control on a location.
@@ -56,7 +56,7 @@ public class QCManager {
             // Location is an admin1 or admin2, so find the closest admin unit to the location
             // (as long as it is close enough - see class AdminUnitFinder for details)
             AdminUnitFinder adminUnitFinder = new AdminUnitFinder();
-            adminUnitFinder.findClosestAdminUnit(location, qcLookupData.getAdminUnits());
+            adminUnitFinder.findClosestAdminUnit(location, qcLookupData.getAdminUnitCentroidIndex());
 
             AdminUnitQC closestAdminUnit = adminUnitFinder.getClosestAdminUnit();
             if (closestAdminUnit != null) {
@@ -84,7 +84,7 @@ public class QCManager {
         } else {
             // Ensure that the location is on land. If not, snap to land if within the maximum distance away.
             Snapper snapper = new Snapper(STAGE_2_GEOMETRY_DESCRIPTION, STAGE_2_MAXIMUM_DISTANCE);
-            applySnapperToLocation(snapper, location, qcLookupData.getLandSeaBorders());
+            applySnapperToLocation(snapper, location, qcLookupData.getLandSeaBorderNearestPointIndex());
             message = snapper.getMessage();
             passed = snapper.hasPassed();
         }
@@ -100,7 +100,7 @@ public class QCManager {
         boolean passed = false;
         String message = NO_COUNTRIES_MESSAGE;
 
-        MultiPolygon countryGeometry = getCountryGeometryForLocation(location);
+        NearestPointIndex countryGeometry = getCountryGeometryForLocation(location);
         if (countryGeometry != null) {
             Snapper snapper = new Snapper(STAGE_3_GEOMETRY_DESCRIPTION, STAGE_3_MAXIMUM_DISTANCE);
             applySnapperToLocation(snapper, location, countryGeometry);
@@ -117,7 +117,7 @@ public class QCManager {
         return (precision == LocationPrecision.ADMIN1) || (precision == LocationPrecision.ADMIN2);
     }
 
-    private void applySnapperToLocation(Snapper snapper, Location location, MultiPolygon geometry) {
+    private void applySnapperToLocation(Snapper snapper, Location location, NearestPointIndex geometry) {
         if (geometry != null) {
             snapper.ensureWithinGeometry(location, geometry);
             Point closestPoint = snapper.getClosestPoint();
@@ -128,13 +128,13 @@ public class QCManager {
         }
     }
 
-    private MultiPolygon getCountryGeometryForLocation(Location location) {
-        MultiPolygon countryGeometry = null;
+    private NearestPointIndex getCountryGeometryForLocation(Location location) {
+        NearestPointIndex countryGeometry = null;
 
         if (location.getHealthMapCountryId() != null) {
-            countryGeometry = qcLookupData.getHealthMapCountryGeometryMap().get(location.getHealthMapCountryId());
+            countryGeometry = qcLookupData.getHealthMapCountryNearestPointIndex(location.getHealthMapCountryId());
         } else if (location.getCountryGaulCode() != null) {
-            countryGeometry = qcLookupData.getCountryGeometryMap().get(location.getCountryGaulCode());
+            countryGeometry = qcLookupData.getCountryNearestPointIndex(location.getCountryGaulCode());
         }
 
         return countryGeometry;
@@ -4,6 +4,7 @@ import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
 
 /**
  * Ensures that the location is within the specified geometry.
@@ -38,9 +39,40 @@ public class Snapper {
      */
     public void ensureWithinGeometry(Location location, MultiPolygon geometry) {
         validateLocation(location);
+        Point locationPoint = location.getGeom();
+        checkClosestPoint(locationPoint, GeometryUtils.findClosestPointOnGeometry(geometry, locationPoint));
+    }
 
+    /**
+     * Ensures that the location is within the indexed geometry, as above. This is much quicker than passing in the
+     * geometry itself if the geometry has many vertices (e.g. detailed coastlines).
+     * @param location The location.
+     * @param geometryIndex The indexed geometry.
+     */
+    public void ensureWithinGeometry(Location location, NearestPointIndex geometryIndex) {
+        validateLocation(location);
         Point locationPoint = location.getGeom();
-        closestPoint = GeometryUtils.findClosestPointOnGeometry(geometry, locationPoint);
+        checkClosestPoint(locationPoint, GeometryUtils.findClosestPointOnGeometry(geometryIndex, locationPoint));
+    }
+
+    public Point getClosestPoint() {
+        return closestPoint;
+    }
+
+    /**
+     * Returns whether or not the location has passed this QC stage.
+     * @return Whether or not the location has passed this QC stage.
+     */
+    public boolean hasPassed() {
+        return passed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    private void checkClosestPoint(Point locationPoint, Point closestPointOnGeometry) {
+        closestPoint = closestPointOnGeometry;
         if (closestPoint == null) {
             message = CANNOT_BE_SNAPPED_MESSAGE;
             passed = false;
@@ -60,22 +92,6 @@ public class Snapper {
         }
     }
 
-    public Point getClosestPoint() {
-        return closestPoint;
-    }
-
-    /**
-     * Returns whether or not the location has passed this QC stage.
-     * @return Whether or not the location has passed this QC stage.
-     */
-    public boolean hasPassed() {
-        return passed;
-    }
-
-    public String getMessage() {
-        return message;
-    }
-
     private void validateLocation(Location location) {
         if (location.getGeom() == null) {
             throw new IllegalArgumentException("Location must have a point");
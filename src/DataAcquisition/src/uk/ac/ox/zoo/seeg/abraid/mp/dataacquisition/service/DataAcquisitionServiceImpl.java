@@ -1,7 +1,9 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.service;
 
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ReportingService;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.csv.CsvDataAcquirer;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.HealthMapDataAcquirer;
 
@@ -16,27 +18,37 @@ import java.util.List;
 public class DataAcquisitionServiceImpl implements DataAcquisitionService {
     private HealthMapDataAcquirer healthMapDataAcquirer;
     private CsvDataAcquirer csvDataAcquirer;
+    private ReportingService reportingService;
 
-    public DataAcquisitionServiceImpl(HealthMapDataAcquirer healthMapDataAcquirer, CsvDataAcquirer csvDataAcquirer) {
+    public DataAcquisitionServiceImpl(HealthMapDataAcquirer healthMapDataAcquirer, CsvDataAcquirer csvDataAcquirer,
+                                      ReportingService reportingService) {
         this.healthMapDataAcquirer = healthMapDataAcquirer;
         this.csvDataAcquirer = csvDataAcquirer;
+        this.reportingService = reportingService;
     }
 
     /**
-     * Acquires HealthMap data from the HealthMap web service.
+     * Acquires HealthMap data from the HealthMap web service, and then adds the new occurrences to the HealthMap report
+     * rollup. This does not run in a single transaction, as the HealthMap data can be converted and committed in
+     * chunks.
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void acquireHealthMapDataFromWebService() {
         healthMapDataAcquirer.acquireDataFromWebService();
+        reportingService.updateHealthMapReportRollup();
     }
 
     /**
-     * Acquires HealthMap data from a file.
+     * Acquires HealthMap data from a file, and then adds the new occurrences to the HealthMap report rollup. This does
+     * not run in a single transaction, as the HealthMap data can be converted and committed in chunks.
      * @param jsonFileName The name of a file that contains HealthMap JSON.
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void acquireHealthMapDataFromFile(String jsonFileName) {
         healthMapDataAcquirer.acquireDataFromFile(jsonFileName);
+        reportingService.updateHealthMapReportRollup();
     }
 
     /**
@@ -18,6 +18,7 @@ import static ch.lambdaj.Lambda.group;
 import static ch.lambdaj.Lambda.on;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.*;
 
 /**
@@ -208,4 +209,93 @@ public class ManualValidationEnforcerTest {
         assertThat(occurrences).hasSize(3);
     }
 
+    @Test
+    public void addRandomSubsetToManualValidationFromSampleAdjustsTheCorrectNumberOfOccurrences() {
+        // Arrange
+        DiseaseGroup disease = mockDisease(true);
+        when(disease.getId()).thenReturn(87);
+        Map<Integer, DiseaseOccurrence> occurrences = new HashMap<>();
+        for (int id = 1; id <= 10; id++) {
+            DiseaseOccurrence occurrence = mockOccurrence(true, disease, DiseaseOccurrenceStatus.READY);
+            when(occurrence.getId()).thenReturn(id);
+            occurrences.put(id, occurrence);
+        }
+        DiseaseService diseaseService = mockDiseaseService(occurrences);
+        ManualValidationEnforcer target = new ManualValidationEnforcer(1, 0.5, 3, diseaseService);
+        ManualValidationSample sample = target.createSample();
+        for (DiseaseOccurrence occurrence : occurrences.values()) {
+            sample.add(occurrence);
+        }
+
+        // Act
+        target.addRandomSubsetToManualValidation(sample);
+
+        // Assert
+        // The number of occurrences is based on all 10 candidates (capped at 3), not on the size of the sample
+        assertThat(toReview).hasSize(3);
+        assertThat(new HashSet<>(toReview)).hasSize(3);
+        for (DiseaseOccurrence occurrence : toReview) {
+            assertThat(sample.getSampledOccurrenceIds(87)).contains(occurrence.getId());
+        }
+    }
+
+    @Test
+    public void addRandomSubsetToManualValidationFromSampleAdjustsPerDisease() {
+        // Arrange
+        DiseaseGroup disease1 = mockDisease(true);
+        when(disease1.getId()).thenReturn(1);
+        DiseaseGroup disease2 = mockDisease(true);
+        when(disease2.getId()).thenReturn(2);
+        Map<Integer, DiseaseOccurrence> occurrences = new HashMap<>();
+        for (int id = 1; id <= 5; id++) {
+            DiseaseOccurrence occurrence = mockOccurrence(true, (id <= 2) ? disease1 : disease2,
+                    DiseaseOccurrenceStatus.READY);
+            when(occurrence.getId()).thenReturn(id);
+            occurrences.put(id, occurrence);
+        }
+        DiseaseService diseaseService = mockDiseaseService(occurrences);
+        ManualValidationEnforcer target = new ManualValidationEnforcer(1, 0.51, 3, diseaseService);
+        ManualValidationSample sample = target.createSample();
+        for (DiseaseOccurrence occurrence : occurrences.values()) {
+            sample.add(occurrence);
+        }
+
+        // Act
+        target.addRandomSubsetToManualValidation(sample);
+
+        // Assert
+        assertThat(toReview).hasSize(3);
+        Group<DiseaseOccurrence> byDisease = group(toReview, by(on(DiseaseOccurrence.class).getDiseaseGroup()));
+        assertThat(byDisease.find(disease1)).hasSize(1);
+        assertThat(byDisease.find(disease2)).hasSize(2);
+    }
+
+    @Test
+    public void addRandomSubsetToManualValidationFromEmptySampleDoesNotLoadOccurrences() {
+        // Arrange
+        DiseaseService diseaseService = mockDiseaseService();
+        ManualValidationEnforcer target = new ManualValidationEnforcer(1, 1, 1, diseaseService);
+
+        // Act
+        target.addRandomSubsetToManualValidation(target.createSample());
+
+        // Assert
+        assertThat(toReview).hasSize(0);
+        verify(diseaseService, never()).getDiseaseOccurrencesById(anyListOf(Integer.class));
+    }
+
+    private DiseaseService mockDiseaseService(final Map<Integer, DiseaseOccurrence> occurrences) {
+        DiseaseService mock = mockDiseaseService();
+        when(mock.getDiseaseOccurrencesById(anyListOf(Integer.class))).thenAnswer(new Answer<List<DiseaseOccurrence>>() {
+            @Override
+            public List<DiseaseOccurrence> answer(InvocationOnMock invocationOnMock) throws Throwable {
+                List<DiseaseOccurrence> result = new ArrayList<>();
+                for (Object id : (List<?>) invocationOnMock.getArguments()[0]) {
+                    result.add(occurrences.get(id));
+                }
+                return result;
+            }
+        });
+        return mock;
+    }
 }
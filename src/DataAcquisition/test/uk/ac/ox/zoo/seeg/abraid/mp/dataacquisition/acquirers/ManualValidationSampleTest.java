@@ -0,0 +1,80 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers;
+
+import org.junit.Test;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrenceStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for ManualValidationSample.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ManualValidationSampleTest {
+    @Test
+    public void addCountsAllCandidatesButOnlySamplesUpToTheMaximumPerDiseaseGroup() {
+        // Arrange
+        DiseaseGroup disease1 = mockDisease(1, true);
+        DiseaseGroup disease2 = mockDisease(2, true);
+        ManualValidationSample sample = new ManualValidationSample(3, new Random(0));
+
+        // Act
+        for (int id = 1; id <= 100; id++) {
+            sample.add(mockOccurrence(id, disease1, DiseaseOccurrenceStatus.READY, true));
+        }
+        sample.add(mockOccurrence(101, disease2, DiseaseOccurrenceStatus.READY, true));
+
+        // Assert
+        assertThat(sample.getDiseaseGroupIds()).containsOnly(1, 2);
+        assertThat(sample.getCandidateCount(1)).isEqualTo(100);
+        assertThat(sample.getSampledOccurrenceIds(1)).hasSize(3).doesNotHaveDuplicates();
+        for (int id : sample.getSampledOccurrenceIds(1)) {
+            assertThat(id).isGreaterThanOrEqualTo(1).isLessThanOrEqualTo(100);
+        }
+        assertThat(sample.getCandidateCount(2)).isEqualTo(1);
+        assertThat(sample.getSampledOccurrenceIds(2)).containsOnly(101);
+    }
+
+    @Test
+    public void addIgnoresOccurrencesThatAreNotCandidatesForManualValidation() {
+        // Arrange
+        DiseaseGroup automaticDisease = mockDisease(1, true);
+        DiseaseGroup nonAutomaticDisease = mockDisease(2, false);
+        ManualValidationSample sample = new ManualValidationSample(3);
+
+        // Act
+        sample.add(mockOccurrence(1, nonAutomaticDisease, DiseaseOccurrenceStatus.READY, true));
+        sample.add(mockOccurrence(2, automaticDisease, DiseaseOccurrenceStatus.IN_REVIEW, true));
+        sample.add(mockOccurrence(3, automaticDisease, DiseaseOccurrenceStatus.READY, false));
+
+        // Assert
+        assertThat(sample.getDiseaseGroupIds()).isEmpty();
+        assertThat(sample.getCandidateCount(1)).isEqualTo(0);
+        assertThat(sample.getSampledOccurrenceIds(1)).isEmpty();
+    }
+
+    private DiseaseGroup mockDisease(int id, boolean isAuto) {
+        DiseaseGroup mock = mock(DiseaseGroup.class);
+        when(mock.getId()).thenReturn(id);
+        when(mock.isAutomaticModelRunsEnabled()).thenReturn(isAuto);
+        return mock;
+    }
+
+    private DiseaseOccurrence mockOccurrence(int id, DiseaseGroup diseaseGroup, DiseaseOccurrenceStatus status,
+                                             boolean isEligible) {
+        DiseaseOccurrence mock = mock(DiseaseOccurrence.class);
+        Location location = mock(Location.class);
+        when(location.isModelEligible()).thenReturn(isEligible);
+        when(mock.getId()).thenReturn(id);
+        when(mock.getDiseaseGroup()).thenReturn(diseaseGroup);
+        when(mock.getLocation()).thenReturn(location);
+        when(mock.getStatus()).thenReturn(status);
+        return mock;
+    }
+}
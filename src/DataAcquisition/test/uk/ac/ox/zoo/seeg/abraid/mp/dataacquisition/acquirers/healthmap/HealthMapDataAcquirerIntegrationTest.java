@@ -3,18 +3,16 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DataAcquisitionException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationEnforcer;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationSample;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -31,6 +29,7 @@ public class HealthMapDataAcquirerIntegrationTest {
     private HealthMapDataConverter dataConverter;
     private HealthMapLookupData lookupData;
     private ManualValidationEnforcer manualValidationEnforcer;
+    private ManualValidationSample manualValidationSample;
 
     @Before
     public void resetMocks() {
@@ -38,6 +37,8 @@ public class HealthMapDataAcquirerIntegrationTest {
         dataConverter = mock(HealthMapDataConverter.class);
         lookupData = mock(HealthMapLookupData.class);
         manualValidationEnforcer = mock(ManualValidationEnforcer.class);
+        manualValidationSample = mock(ManualValidationSample.class);
+        when(manualValidationEnforcer.createSample()).thenReturn(manualValidationSample);
     }
 
     @Test
@@ -51,7 +52,8 @@ public class HealthMapDataAcquirerIntegrationTest {
         dataAcquisition.acquireDataFromFile(fileName);
 
         // Assert
-        verify(dataConverter).convert(eq(locations), eq((DateTime) null));
+        verify(dataConverter).convert(eq(locations), same(manualValidationSample));
+        verify(dataConverter).writeLastRetrievalEndDate(isNull(DateTime.class));
     }
 
     @Test
@@ -65,7 +67,7 @@ public class HealthMapDataAcquirerIntegrationTest {
         catchException(dataAcquisition).acquireDataFromFile(fileName);
 
         // Assert
-        verify(dataConverter, never()).convert(eq(locations), eq((DateTime) null));
+        verify(dataConverter, never()).convert(eq(locations), any(ManualValidationSample.class));
         assertThat(caughtException()).isInstanceOf(DataAcquisitionException.class);
         assertThat(caughtException().getCause()).isInstanceOf(JsonParserException.class);
     }
@@ -81,7 +83,7 @@ public class HealthMapDataAcquirerIntegrationTest {
         catchException(dataAcquisition).acquireDataFromFile(fileName);
 
         // Assert
-        verify(dataConverter, never()).convert(eq(locations), eq((DateTime) null));
+        verify(dataConverter, never()).convert(eq(locations), any(ManualValidationSample.class));
         assertThat(caughtException()).isInstanceOf(DataAcquisitionException.class);
         assertThat(caughtException().getCause()).isInstanceOf(IOException.class);
     }
@@ -91,14 +93,14 @@ public class HealthMapDataAcquirerIntegrationTest {
         // Arrange
         String fileName = "DataAcquisition/test/uk/ac/ox/zoo/seeg/abraid/mp/dataacquisition/acquirers/healthmap/healthmap_json_empty.txt";
         List<HealthMapLocation> locations = new ArrayList<>();
-        Set<DiseaseOccurrence> occurrences = new HashSet<>();
-        when(dataConverter.convert(eq(locations), eq((DateTime) null))).thenReturn(occurrences);
+
         // Act
         HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
         dataAcquisition.acquireDataFromFile(fileName);
 
         // Assert
-        verify(manualValidationEnforcer).addRandomSubsetToManualValidation(same(occurrences));
+        verify(dataConverter).convert(eq(locations), same(manualValidationSample));
+        verify(manualValidationEnforcer).addRandomSubsetToManualValidation(same(manualValidationSample));
     }
 
     @Test
@@ -112,9 +114,8 @@ public class HealthMapDataAcquirerIntegrationTest {
         catchException(dataAcquisition).acquireDataFromFile(fileName);
 
         // Assert
-        verify(dataConverter, never()).convert(eq(locations), eq((DateTime) null)); // null occurrences
-
-        // Assert
-        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(anySetOf(DiseaseOccurrence.class));
+        verify(dataConverter, never()).convert(eq(locations), any(ManualValidationSample.class));
+        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(any(ManualValidationSample.class));
+        verify(dataConverter, never()).writeLastRetrievalEndDate(any(DateTime.class));
     }
 }
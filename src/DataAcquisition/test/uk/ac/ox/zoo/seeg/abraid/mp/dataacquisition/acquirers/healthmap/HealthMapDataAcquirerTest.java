@@ -3,18 +3,25 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Provenance;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonArrayReader;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DataAcquisitionException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationEnforcer;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationSample;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
+import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -28,10 +35,14 @@ import static org.mockito.Mockito.*;
  * Copyright (c) 2014 University of Oxford
  */
 public class HealthMapDataAcquirerTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
     private HealthMapWebService webService;
     private HealthMapDataConverter dataConverter;
     private HealthMapLookupData lookupData;
     private ManualValidationEnforcer manualValidationEnforcer;
+    private ManualValidationSample manualValidationSample;
 
     @Before
     public void resetMocks() {
@@ -39,6 +50,8 @@ public class HealthMapDataAcquirerTest {
         dataConverter = mock(HealthMapDataConverter.class);
         lookupData = mock(HealthMapLookupData.class);
         manualValidationEnforcer = mock(ManualValidationEnforcer.class);
+        manualValidationSample = mock(ManualValidationSample.class);
+        when(manualValidationEnforcer.createSample()).thenReturn(manualValidationSample);
     }
 
     @Test
@@ -60,7 +73,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -85,7 +98,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -108,7 +121,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -134,7 +147,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -159,7 +172,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -185,7 +198,7 @@ public class HealthMapDataAcquirerTest {
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
+        verifyConversion(endDate, locations);
     }
 
     @Test
@@ -207,8 +220,7 @@ public class HealthMapDataAcquirerTest {
         catchException(dataAcquisition).acquireDataFromWebService();
 
         // Assert
-        //noinspection unchecked
-        verify(dataConverter, never()).convert(anyList(), any(DateTime.class));
+        verifyNoConversion();
         assertThat(caughtException()).isInstanceOf(DataAcquisitionException.class);
         assertThat(caughtException().getCause()).isInstanceOf(WebServiceClientException.class);
     }
@@ -221,21 +233,21 @@ public class HealthMapDataAcquirerTest {
         DateTime endDate = DateTime.now();
         Provenance provenance = new Provenance();
         List<HealthMapLocation> locations = new ArrayList<>();
-        Set<DiseaseOccurrence> occurrences = new HashSet<>();
 
         when(webService.getDefaultStartDate()).thenReturn(defaultStartDate);
         when(webService.getEndDateDaysAfterStartDate()).thenReturn(null);
         when(lookupData.getHealthMapProvenance()).thenReturn(provenance);
         when(webService.sendRequest(eq(defaultStartDate), eq(endDate))).thenReturn(locations);
-        when(dataConverter.convert(same(locations), eq(endDate))).thenReturn(occurrences);
 
         // Act
         HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
         dataAcquisition.acquireDataFromWebService();
 
         // Assert
-        verify(dataConverter).convert(same(locations), eq(endDate));
-        verify(manualValidationEnforcer).addRandomSubsetToManualValidation(same(occurrences));
+        InOrder inOrder = inOrder(dataConverter, manualValidationEnforcer);
+        inOrder.verify(dataConverter).convert(same(locations), same(manualValidationSample));
+        inOrder.verify(manualValidationEnforcer).addRandomSubsetToManualValidation(same(manualValidationSample));
+        inOrder.verify(dataConverter).writeLastRetrievalEndDate(eq(endDate));
     }
 
     @Test
@@ -251,14 +263,149 @@ public class HealthMapDataAcquirerTest {
         when(webService.getEndDateDaysAfterStartDate()).thenReturn(null);
         when(lookupData.getHealthMapProvenance()).thenReturn(provenance);
         when(webService.sendRequest(eq(defaultStartDate), eq(endDate))).thenReturn(locations);
-        when(dataConverter.convert(same(locations), eq(endDate))).thenReturn(null);
+        when(dataConverter.convert(same(locations), same(manualValidationSample)))
+                .thenThrow(new RuntimeException("Conversion failed"));
+
+        // Act
+        HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
+        catchException(dataAcquisition).acquireDataFromWebService();
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(RuntimeException.class);
+        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(any(ManualValidationSample.class));
+        verify(dataConverter, never()).writeLastRetrievalEndDate(any(DateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void acquiresDataFromWebServiceAsStreamIfStreamingChunkSizeSet() throws Exception {
+        // Arrange
+        fixCurrentDateTime();
+        DateTime defaultStartDate = new DateTime("2004-02-01T01:02:03+0000");
+        DateTime endDate = DateTime.now();
+        HealthMapLocation location1 = new HealthMapLocation();
+        HealthMapLocation location2 = new HealthMapLocation();
+        HealthMapLocation location3 = new HealthMapLocation();
+        JsonArrayReader<HealthMapLocation> reader = mock(JsonArrayReader.class);
+        when(reader.readNext()).thenReturn(location1, location2, location3, null);
+
+        when(webService.getDefaultStartDate()).thenReturn(defaultStartDate);
+        when(webService.getEndDateDaysAfterStartDate()).thenReturn(null);
+        when(lookupData.getHealthMapProvenance()).thenReturn(new Provenance());
+        when(webService.createLocationReader(any(InputStream.class))).thenReturn(reader);
+
+        // Act
+        HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
+        dataAcquisition.setStreamingChunkSize(2);
+        dataAcquisition.acquireDataFromWebService();
+
+        // Assert
+        ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
+        verify(webService).sendRequestToFile(eq(defaultStartDate), eq(endDate), fileCaptor.capture());
+        verify(webService, never()).sendRequest(any(DateTime.class), any(DateTime.class));
+        verifyConversion(endDate, Arrays.asList(location1, location2), Arrays.asList(location3));
+        verify(lookupData).clearLookups();
+        // The temporary file is deleted afterwards
+        assertThat(fileCaptor.getValue()).doesNotExist();
+    }
+
+    @Test
+    public void doesNotAcquireDataAsStreamIfWebServiceRequestFails() throws Exception {
+        // Arrange
+        fixCurrentDateTime();
+        DateTime startDate = new DateTime("2004-02-01T01:02:03+0000");
+        DateTime endDate = DateTime.now();
+        Provenance provenance = new Provenance();
+        provenance.setLastRetrievalEndDate(startDate);
+
+        when(lookupData.getHealthMapProvenance()).thenReturn(provenance);
+        when(webService.getEndDateDaysAfterStartDate()).thenReturn(null);
+        doThrow(new WebServiceClientException("")).when(webService)
+                .sendRequestToFile(eq(startDate), eq(endDate), any(File.class));
 
         // Act
         HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
-        dataAcquisition.acquireDataFromWebService(); // null occurrences
+        dataAcquisition.setStreamingChunkSize(100);
+        catchException(dataAcquisition).acquireDataFromWebService();
+
+        // Assert
+        verifyNoConversion();
+        assertThat(caughtException()).isInstanceOf(DataAcquisitionException.class);
+        assertThat(caughtException().getCause()).isInstanceOf(WebServiceClientException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void acquiresDataFromFileAsStreamIfStreamingChunkSizeSet() throws Exception {
+        // Arrange
+        File file = testFolder.newFile();
+        HealthMapLocation location = new HealthMapLocation();
+        JsonArrayReader<HealthMapLocation> reader = mock(JsonArrayReader.class);
+        when(reader.readNext()).thenReturn(location, null);
+        when(webService.createLocationReader(any(InputStream.class))).thenReturn(reader);
+
+        // Act
+        HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
+        dataAcquisition.setStreamingChunkSize(50);
+        dataAcquisition.acquireDataFromFile(file.getPath());
 
         // Assert
-        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(anySetOf(DiseaseOccurrence.class));
+        verifyConversion(null, Arrays.asList(location));
+        verify(reader).close();
+        assertThat(file).exists();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void doesNotCompleteAcquisitionFromFileAsStreamIfJsonIsInvalid() throws Exception {
+        // Arrange
+        File file = testFolder.newFile();
+        HealthMapLocation location1 = new HealthMapLocation();
+        HealthMapLocation location2 = new HealthMapLocation();
+        JsonArrayReader<HealthMapLocation> reader = mock(JsonArrayReader.class);
+        when(reader.readNext()).thenReturn(location1, location2).thenThrow(new JsonParserException("Invalid JSON"));
+        when(webService.createLocationReader(any(InputStream.class))).thenReturn(reader);
+
+        // Act
+        HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
+        dataAcquisition.setStreamingChunkSize(2);
+        catchException(dataAcquisition).acquireDataFromFile(file.getPath());
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(DataAcquisitionException.class);
+        assertThat(caughtException().getCause()).isInstanceOf(JsonParserException.class);
+        // The first chunk has been committed, but the acquisition is not completed
+        verify(dataConverter).convert(eq(Arrays.asList(location1, location2)), same(manualValidationSample));
+        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(any(ManualValidationSample.class));
+        verify(dataConverter, never()).writeLastRetrievalEndDate(any(DateTime.class));
+    }
+
+    @Test
+    public void setStreamingChunkSizeThrowsExceptionIfLessThanOne() {
+        // Arrange
+        HealthMapDataAcquirer dataAcquisition = new HealthMapDataAcquirer(webService, dataConverter, lookupData, manualValidationEnforcer);
+
+        // Act
+        catchException(dataAcquisition).setStreamingChunkSize(0);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @SafeVarargs
+    private final void verifyConversion(DateTime endDate, List<HealthMapLocation>... chunks) {
+        InOrder inOrder = inOrder(dataConverter, manualValidationEnforcer);
+        for (List<HealthMapLocation> chunk : chunks) {
+            inOrder.verify(dataConverter).convert(eq(chunk), same(manualValidationSample));
+        }
+        inOrder.verify(manualValidationEnforcer).addRandomSubsetToManualValidation(same(manualValidationSample));
+        inOrder.verify(dataConverter).writeLastRetrievalEndDate(eq(endDate));
+    }
+
+    private void verifyNoConversion() {
+        verify(dataConverter, never()).convert(anyListOf(HealthMapLocation.class), any(ManualValidationSample.class));
+        verify(dataConverter, never()).writeLastRetrievalEndDate(any(DateTime.class));
+        verify(manualValidationEnforcer, never()).addRandomSubsetToManualValidation(any(ManualValidationSample.class));
     }
 
     private void fixCurrentDateTime() {
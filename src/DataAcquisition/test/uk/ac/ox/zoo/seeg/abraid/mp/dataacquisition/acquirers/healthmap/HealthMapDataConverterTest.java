@@ -3,18 +3,19 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Provenance;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.AlertService;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.DiseaseOccurrenceDataAcquirer;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.ManualValidationSample;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapAlert;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -30,6 +31,7 @@ public class HealthMapDataConverterTest {
     private HealthMapLookupData healthMapLookupData;
     private HealthMapDataConverter healthMapDataConverter;
     private DiseaseOccurrenceDataAcquirer diseaseOccurrenceDataAcquirer;
+    private ManualValidationSample manualValidationSample;
 
     private Provenance healthMapProvenance;
 
@@ -40,6 +42,7 @@ public class HealthMapDataConverterTest {
         alertConverter = mock(HealthMapAlertConverter.class);
         healthMapLookupData = mock(HealthMapLookupData.class);
         diseaseOccurrenceDataAcquirer = mock(DiseaseOccurrenceDataAcquirer.class);
+        manualValidationSample = mock(ManualValidationSample.class);
         healthMapDataConverter = new HealthMapDataConverter(locationConverter, alertConverter,
                 alertService, healthMapLookupData,
                 diseaseOccurrenceDataAcquirer);
@@ -52,13 +55,13 @@ public class HealthMapDataConverterTest {
     public void convertNoLocations() {
         // Arrange
         List<HealthMapLocation> locations = new ArrayList<>();
-        DateTime retrievalEndDate = DateTime.now();
 
         // Act
-        healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -75,8 +78,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation2.setAlerts(Arrays.asList(healthMapAlert3, healthMapAlert4));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1, healthMapLocation2);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -102,12 +103,15 @@ public class HealthMapDataConverterTest {
         mockConvertAndAcquire(healthMapAlert4, location2, diseaseOccurrence4, true);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence1, diseaseOccurrence2, diseaseOccurrence3,
+        assertSavedOccurrences(count, diseaseOccurrence1, diseaseOccurrence2, diseaseOccurrence3,
                 diseaseOccurrence4);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        verifyLastRetrievalEndDateNotWritten();
+        InOrder inOrder = inOrder(locationConverter);
+        inOrder.verify(locationConverter).prefetchGeoNames(locations);
+        inOrder.verify(locationConverter).convert(healthMapLocation1);
     }
 
     @Test
@@ -124,8 +128,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation2.setAlerts(Arrays.asList(healthMapAlert3, healthMapAlert4));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1, healthMapLocation2);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -151,11 +153,11 @@ public class HealthMapDataConverterTest {
         mockConvertAndAcquire(healthMapAlert4, location2, diseaseOccurrence4, true);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence1, diseaseOccurrence4);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count, diseaseOccurrence1, diseaseOccurrence4);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -172,8 +174,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation2.setAlerts(Arrays.asList(healthMapAlert3, healthMapAlert4));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1, healthMapLocation2);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is not successfully converted into location1
         when(locationConverter.convert(healthMapLocation1)).thenReturn(null);
 
@@ -190,11 +190,11 @@ public class HealthMapDataConverterTest {
         mockConvertAndAcquire(healthMapAlert4, location2, diseaseOccurrence4, true);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence3, diseaseOccurrence4);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count, diseaseOccurrence3, diseaseOccurrence4);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -211,8 +211,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation2.setAlerts(Arrays.asList(healthMapAlert3, healthMapAlert4));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1, healthMapLocation2);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -229,11 +227,11 @@ public class HealthMapDataConverterTest {
         mockConvertAndAcquire(healthMapAlert2, location1, diseaseOccurrence2, true);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence1, diseaseOccurrence2);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count, diseaseOccurrence1, diseaseOccurrence2);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -244,8 +242,6 @@ public class HealthMapDataConverterTest {
         HealthMapLocation healthMapLocation2 = new HealthMapLocation();
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1, healthMapLocation2);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -255,11 +251,11 @@ public class HealthMapDataConverterTest {
         when(locationConverter.convert(healthMapLocation2)).thenReturn(location2);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertThat(actualOccurrences).isEmpty();
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -272,8 +268,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation1.setAlerts(Arrays.asList(healthMapAlert1, healthMapAlert2));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -286,11 +280,11 @@ public class HealthMapDataConverterTest {
         when(alertConverter.convert(healthMapAlert2, location1)).thenReturn(new ArrayList<DiseaseOccurrence>());
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence1);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count, diseaseOccurrence1);
+        verifyLastRetrievalEndDateNotWritten();
     }
 
     @Test
@@ -302,8 +296,6 @@ public class HealthMapDataConverterTest {
         healthMapLocation1.setAlerts(Arrays.asList(healthMapAlert1));
         List<HealthMapLocation> locations = Arrays.asList(healthMapLocation1);
 
-        DateTime retrievalEndDate = DateTime.now();
-
         // healthMapLocation1 is successfully converted into location1
         Location location1 = new Location();
         when(locationConverter.convert(healthMapLocation1)).thenReturn(location1);
@@ -320,11 +312,24 @@ public class HealthMapDataConverterTest {
         when(alertConverter.convert(healthMapAlert1, location1)).thenReturn(occurrences);
 
         // Act
-        Set<DiseaseOccurrence> actualOccurrences = healthMapDataConverter.convert(locations, retrievalEndDate);
+        int count = healthMapDataConverter.convert(locations, manualValidationSample);
 
         // Assert
-        assertSavedOccurrences(actualOccurrences, diseaseOccurrence1, diseaseOccurrence3);
-        verifyWriteLastRetrievalEndDate(retrievalEndDate);
+        assertSavedOccurrences(count, diseaseOccurrence1, diseaseOccurrence3);
+        verifyLastRetrievalEndDateNotWritten();
+    }
+
+    @Test
+    public void writeLastRetrievalEndDate() {
+        // Arrange
+        DateTime retrievalEndDate = DateTime.now();
+
+        // Act
+        healthMapDataConverter.writeLastRetrievalEndDate(retrievalEndDate);
+
+        // Assert
+        assertThat(healthMapProvenance.getLastRetrievalEndDate()).isEqualTo(retrievalEndDate);
+        verify(alertService).saveProvenance(same(healthMapProvenance));
     }
 
     private void mockConvertAndAcquire(HealthMapAlert healthMapAlert, Location location,
@@ -342,16 +347,17 @@ public class HealthMapDataConverterTest {
         }
     }
 
-    // Ensure that the saved occurrences are as expected.
-    // NB - this only works as expected if the disease occurrences have different content (e.g. the IDs are different)
-    private void assertSavedOccurrences(Set<DiseaseOccurrence> actualOccurrences,
-                                        DiseaseOccurrence... expectedOccurrences) {
-        assertThat(actualOccurrences.size()).isEqualTo(expectedOccurrences.length);
-        assertThat(actualOccurrences).containsAll(Arrays.asList(expectedOccurrences));
+    // Ensure that the saved occurrences (and only those) are counted and added to the manual validation sample
+    private void assertSavedOccurrences(int actualCount, DiseaseOccurrence... expectedOccurrences) {
+        assertThat(actualCount).isEqualTo(expectedOccurrences.length);
+        for (DiseaseOccurrence expectedOccurrence : expectedOccurrences) {
+            verify(manualValidationSample).add(same(expectedOccurrence));
+        }
+        verify(manualValidationSample, times(expectedOccurrences.length)).add(any(DiseaseOccurrence.class));
     }
 
-    private void verifyWriteLastRetrievalEndDate(DateTime retrievalEndDate) {
-        assertThat(healthMapProvenance.getLastRetrievalEndDate()).isEqualTo(retrievalEndDate);
-        verify(alertService).saveProvenance(same(healthMapProvenance));
+    private void verifyLastRetrievalEndDateNotWritten() {
+        assertThat(healthMapProvenance.getLastRetrievalEndDate()).isNull();
+        verify(alertService, never()).saveProvenance(any(Provenance.class));
     }
 }
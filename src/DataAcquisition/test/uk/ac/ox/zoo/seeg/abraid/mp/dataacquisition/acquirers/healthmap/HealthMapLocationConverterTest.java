@@ -2,21 +2,13 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 
 import org.junit.Before;
 import org.junit.Test;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Country;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapCountry;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LocationPrecision;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.LocationService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
-import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.GeoNamesWebService;
-import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.GeoNameCache;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -33,17 +25,15 @@ public class HealthMapLocationConverterTest {
     private HealthMapCountry mappedHealthMapCountry;
     private HealthMapCountry unMappedHealthMapCountry;
 
-    private LocationService locationService;
     private HealthMapLookupData lookupData;
-    private GeoNamesWebService geoNamesWebService;
+    private GeoNameCache geoNameCache;
     private HealthMapLocationConverter converter;
 
     @Before
     public void setUp() {
-        locationService = mock(LocationService.class);
         lookupData = mock(HealthMapLookupData.class);
-        geoNamesWebService = mock(GeoNamesWebService.class);
-        converter = new HealthMapLocationConverter(locationService, lookupData, geoNamesWebService);
+        geoNameCache = mock(GeoNameCache.class);
+        converter = new HealthMapLocationConverter(lookupData, geoNameCache);
 
         setUpCountryMap();
         setUpGeoNamesMap();
@@ -81,10 +71,7 @@ public class HealthMapLocationConverterTest {
         HealthMapLocation healthMapLocation = createDefaultHealthMapCountryLocation();
         healthMapLocation.setGeoNameId(geoNameId.toString());
 
-        uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName geoName = new
-                uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName(geoNameId, featureCode);
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(geoName);
-
+        when(geoNameCache.get(geoNameId)).thenReturn(new GeoName(geoNameId, featureCode));
 
         // Act
         Location location = converter.convert(healthMapLocation);
@@ -152,16 +139,13 @@ public class HealthMapLocationConverterTest {
     }
 
     @Test
-    public void addPrecisionToNewLocationWithGeoNameIdReturnedByDatabase() {
+    public void addPrecisionToNewLocationWithGeoNameIdResolvedByCache() {
         // Arrange
         Integer geoNameId = 123;
         String featureCode = "PPL";
         HealthMapLocation healthMapLocation = createDefaultHealthMapLocation();
         healthMapLocation.setGeoNameId(geoNameId.toString());
-
-        uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName geoName = new
-                uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName(geoNameId, featureCode);
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(geoName);
+        when(geoNameCache.get(geoNameId)).thenReturn(new GeoName(geoNameId, featureCode));
 
         // Act
         Location location = converter.convert(healthMapLocation);
@@ -169,31 +153,6 @@ public class HealthMapLocationConverterTest {
         // Assert
         assertThat(location.getGeoNameId()).isEqualTo(geoNameId);
         assertThat(location.getPrecision()).isEqualTo(LocationPrecision.PRECISE);
-        verify(geoNamesWebService, never()).getById(geoNameId);
-    }
-
-    @Test
-    public void addPrecisionToNewLocationWithGeoNameIdReturnedByWebService() {
-        // Arrange
-        Integer geoNameId = 123;
-        String featureCode = "PPL";
-        HealthMapLocation healthMapLocation = createDefaultHealthMapLocation();
-        healthMapLocation.setGeoNameId(geoNameId.toString());
-
-        GeoName geoNameDTO = new GeoName(geoNameId, featureCode);
-        uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName geoName = new
-                uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName(geoNameId, featureCode);
-
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(null);
-        when(geoNamesWebService.getById(geoNameId)).thenReturn(geoNameDTO);
-
-        // Act
-        Location location = converter.convert(healthMapLocation);
-
-        // Assert
-        assertThat(location.getGeoNameId()).isEqualTo(geoNameId);
-        assertThat(location.getPrecision()).isEqualTo(LocationPrecision.PRECISE);
-        verify(locationService).saveGeoName(eq(geoName));
     }
 
     @Test
@@ -203,13 +162,7 @@ public class HealthMapLocationConverterTest {
         String featureCode = "ISL";
         HealthMapLocation healthMapLocation = createDefaultHealthMapLocation();
         healthMapLocation.setGeoNameId(geoNameId.toString());
-
-        GeoName geoNameDTO = new GeoName(geoNameId, featureCode);
-        uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName geoName = new
-                uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName(geoNameId, featureCode);
-
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(null);
-        when(geoNamesWebService.getById(geoNameId)).thenReturn(geoNameDTO);
+        when(geoNameCache.get(geoNameId)).thenReturn(new GeoName(geoNameId, featureCode));
 
         // Act
         Location location = converter.convert(healthMapLocation);
@@ -217,18 +170,15 @@ public class HealthMapLocationConverterTest {
         // Assert
         assertThat(location.getGeoNameId()).isEqualTo(geoNameId);
         assertThat(location.getPrecision()).isEqualTo(LocationPrecision.ADMIN1);
-        verify(locationService).saveGeoName(eq(geoName));
     }
 
     @Test
-    public void addPrecisionToNewLocationWithGeoNameNotFound() {
+    public void addPrecisionToNewLocationWithGeoNameIdNotResolvedByCache() {
         // Arrange
         Integer geoNameId = 123;
         HealthMapLocation healthMapLocation = createDefaultHealthMapLocation();
         healthMapLocation.setGeoNameId(geoNameId.toString());
-
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(null);
-        when(geoNamesWebService.getById(geoNameId)).thenReturn(null);
+        when(geoNameCache.get(geoNameId)).thenReturn(null);
 
         // Act
         Location location = converter.convert(healthMapLocation);
@@ -236,28 +186,6 @@ public class HealthMapLocationConverterTest {
         // Assert
         assertThat(location.getGeoNameId()).isEqualTo(geoNameId);
         assertThat(location.getPrecision()).isEqualTo(LocationPrecision.ADMIN1);
-        verify(locationService, never()).saveGeoName(any(uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName.class));
-    }
-
-    @Test
-    public void addPrecisionToNewLocationWithGeoNameReturnedByWebServiceButNoFeatureCode() {
-        // Arrange
-        Integer geoNameId = 123;
-        String featureCode = "";
-        HealthMapLocation healthMapLocation = createDefaultHealthMapLocation();
-        healthMapLocation.setGeoNameId(geoNameId.toString());
-
-        GeoName geoNameDTO = new GeoName(geoNameId, featureCode);
-        when(locationService.getGeoNameById(geoNameId)).thenReturn(null);
-        when(geoNamesWebService.getById(geoNameId)).thenReturn(geoNameDTO);
-
-        // Act
-        Location location = converter.convert(healthMapLocation);
-
-        // Assert
-        assertThat(location.getGeoNameId()).isEqualTo(geoNameId);
-        assertThat(location.getPrecision()).isEqualTo(LocationPrecision.ADMIN1);
-        verify(locationService, never()).saveGeoName(any(uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName.class));
     }
 
     @Test
@@ -300,6 +228,31 @@ public class HealthMapLocationConverterTest {
         assertThat(location).isNull();
     }
 
+    @Test
+    public void prefetchGeoNamesOnlyPrefetchesIdsOfLocationsThatWillBeConverted() {
+        // Arrange
+        HealthMapLocation location1 = createDefaultHealthMapLocation();
+        location1.setGeoNameId("123");
+        HealthMapLocation location2 = createDefaultHealthMapLocation();
+        location2.setGeoNameId("456");
+        HealthMapLocation locationWithDuplicateId = createDefaultHealthMapLocation();
+        locationWithDuplicateId.setGeoNameId("123");
+        HealthMapLocation locationWithoutId = createDefaultHealthMapLocation();
+        HealthMapLocation invalidLocation = new HealthMapLocation();
+        invalidLocation.setGeoNameId("789");
+        HealthMapLocation locationInCountryNotOfInterest = createDefaultHealthMapLocation();
+        locationInCountryNotOfInterest.setGeoNameId("999");
+        locationInCountryNotOfInterest.setCountry(unMappedHealthMapCountry.getName());
+        locationInCountryNotOfInterest.setCountryId(unMappedHealthMapCountry.getId().toString());
+
+        // Act
+        converter.prefetchGeoNames(Arrays.asList(location1, location2, locationWithDuplicateId, locationWithoutId,
+                invalidLocation, locationInCountryNotOfInterest));
+
+        // Assert
+        verify(geoNameCache).prefetch(new LinkedHashSet<>(Arrays.asList(123, 456)));
+    }
+
     private HealthMapLocation createDefaultHealthMapLocation() {
         HealthMapLocation location = new HealthMapLocation();
         location.setLongitude("20");
@@ -2,18 +2,24 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap;
 
 import org.joda.time.DateTime;
 import org.junit.Test;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonArrayReader;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParserException;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapAlert;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.domain.HealthMapLocation;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -393,6 +399,52 @@ public class HealthMapWebServiceTest {
         assertThat(alert.getDiseaseIds()).containsExactly(84, null, 64);
     }
 
+    @Test
+    public void sendRequestToFileWritesResponseToFile() {
+        // Arrange
+        DateTime startDate = new DateTime("2004-02-01T01:02:03+0000");
+        DateTime endDate = new DateTime("2005-06-07T08:09:10+0000");
+        String url = getHealthMapBaseUrl() + addStartDate("2004-02-01%2001:02:03%2B0000") +
+                addEndDate("2005-06-07%2008:09:10%2B0000");
+        WebServiceClient client = mock(WebServiceClient.class);
+        HealthMapWebService webService = getHealthMapWebService(client);
+        File file = new File("test.json");
+
+        // Act
+        webService.sendRequestToFile(startDate, endDate, file);
+
+        // Assert
+        verify(client).makeGetRequestToFile(url, file);
+    }
+
+    @Test
+    public void createLocationReaderParsesHealthMapJsonOneLocationAtATime() throws IOException {
+        // Arrange
+        String json = "[" +
+                "{\"country\": \"China\", \"geonameid\": \"1795565\", \"alerts\": [" +
+                "{\"link\": \"http://healthmap.org/ln.php?2161280\", \"date\": \"2014-01-07 05:00:00-0500\"}]}," +
+                "{\"country\": \"Argentina\", \"alerts\": []}" +
+                "]";
+        HealthMapWebService webService = getHealthMapWebService(null);
+
+        // Act
+        try (JsonArrayReader<HealthMapLocation> reader = webService.createLocationReader(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            HealthMapLocation location1 = reader.readNext();
+            HealthMapLocation location2 = reader.readNext();
+
+            // Assert
+            assertThat(location1.getCountry()).isEqualTo("China");
+            assertThat(location1.getGeoNameId()).isEqualTo(1795565);
+            assertThat(location1.getAlerts()).hasSize(1);
+            assertThat(location1.getAlerts().get(0).getAlertId()).isEqualTo(2161280);
+            assertThatDatesAreEqual(location1.getAlerts().get(0).getDate(),
+                    new DateTime("2014-01-07T05:00:00-0500"));
+            assertThat(location2.getCountry()).isEqualTo("Argentina");
+            assertThat(reader.readNext()).isNull();
+        }
+    }
+
     private String getHealthMapBaseUrl() {
         return "http://healthmap.org/HMapi.php?auth=testauthcode&striphtml=false";
     }
@@ -0,0 +1,198 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.GeoName;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.UnresolvedGeoName;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.LocationService;
+import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoNameStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the GeoNameCache class.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class GeoNameCacheTest {
+    private static final int DOES_NOT_EXIST_STATUS_CODE = 15;
+    private static final int RATE_LIMIT_EXCEEDED_STATUS_CODE = 19;
+
+    private LocationService locationService;
+    private GeoNamesWebService geoNamesWebService;
+    private GeoNameCache cache;
+
+    @Before
+    public void setUp() {
+        locationService = mock(LocationService.class);
+        geoNamesWebService = mock(GeoNamesWebService.class);
+        cache = new GeoNameCache(locationService, geoNamesWebService);
+        when(locationService.getGeoNamesByIds(anyCollectionOf(Integer.class))).thenReturn(new ArrayList<GeoName>());
+        when(locationService.getUnresolvedGeoNamesByIds(anyCollectionOf(Integer.class)))
+                .thenReturn(new ArrayList<UnresolvedGeoName>());
+    }
+
+    @Test
+    public void prefetchUsesGeoNamesFromDatabaseWithoutCallingWebService() {
+        // Arrange
+        GeoName geoName = new GeoName(123, "PPL");
+        when(locationService.getGeoNamesByIds(Arrays.asList(123, 456))).thenReturn(Arrays.asList(geoName));
+        when(locationService.getUnresolvedGeoNamesByIds(Arrays.asList(456)))
+                .thenReturn(Arrays.asList(new UnresolvedGeoName(456, DateTime.now().minusDays(1))));
+
+        // Act
+        cache.prefetch(Arrays.asList(123, 456, 123, null));
+
+        // Assert
+        assertThat(cache.get(123)).isSameAs(geoName);
+        assertThat(cache.get(456)).isNull();
+        verify(locationService, times(1)).getGeoNamesByIds(anyCollectionOf(Integer.class));
+        verify(locationService, times(1)).getUnresolvedGeoNamesByIds(anyCollectionOf(Integer.class));
+        verifyNoMoreInteractions(geoNamesWebService);
+    }
+
+    @Test
+    public void prefetchLooksUpExpiredUnresolvedGeoNameAgain() {
+        // Arrange
+        cache.setUnresolvedTimeToLiveDays(30);
+        when(locationService.getUnresolvedGeoNamesByIds(Arrays.asList(123)))
+                .thenReturn(Arrays.asList(new UnresolvedGeoName(123, DateTime.now().minusDays(31))));
+        mockWebServiceResponse(123, "PPL");
+
+        // Act
+        cache.prefetch(Arrays.asList(123));
+
+        // Assert
+        assertThat(cache.get(123)).isEqualTo(new GeoName(123, "PPL"));
+        verify(locationService).saveGeoName(new GeoName(123, "PPL"));
+    }
+
+    @Test
+    public void prefetchSavesGeoNameWithoutFeatureCodeAsUnresolved() {
+        // Arrange
+        mockWebServiceResponse(123, "");
+
+        // Act
+        cache.prefetch(Arrays.asList(123));
+
+        // Assert
+        assertThat(cache.get(123)).isNull();
+        verifySavedUnresolvedGeoName(123);
+        verify(locationService, never()).saveGeoName(any(GeoName.class));
+    }
+
+    @Test
+    public void prefetchSavesGeoNameThatDoesNotExistAsUnresolved() {
+        // Arrange
+        mockWebServiceStatus(123, DOES_NOT_EXIST_STATUS_CODE);
+
+        // Act
+        cache.prefetch(Arrays.asList(123));
+
+        // Assert
+        assertThat(cache.get(123)).isNull();
+        verifySavedUnresolvedGeoName(123);
+        verify(geoNamesWebService, times(1)).getByIdIncludingStatus(123);
+    }
+
+    @Test
+    public void prefetchStopsCallingWebServiceAfterOtherErrorAndDoesNotSaveRemainingIds() {
+        // Arrange
+        mockWebServiceResponse(123, "PPL");
+        mockWebServiceStatus(456, RATE_LIMIT_EXCEEDED_STATUS_CODE);
+
+        // Act
+        cache.prefetch(Arrays.asList(123, 456, 789));
+
+        // Assert
+        assertThat(cache.get(123)).isEqualTo(new GeoName(123, "PPL"));
+        assertThat(cache.get(456)).isNull();
+        assertThat(cache.get(789)).isNull();
+        verify(geoNamesWebService, never()).getByIdIncludingStatus(789);
+        verify(locationService, never()).saveUnresolvedGeoName(any(UnresolvedGeoName.class));
+    }
+
+    @Test
+    public void prefetchRetriesFailedIdsWhenExplicitlyPrefetchedAgain() {
+        // Arrange
+        mockWebServiceStatus(123, RATE_LIMIT_EXCEEDED_STATUS_CODE);
+        cache.prefetch(Arrays.asList(123));
+        mockWebServiceResponse(123, "PPL");
+
+        // Act
+        cache.prefetch(Arrays.asList(123));
+
+        // Assert
+        assertThat(cache.get(123)).isEqualTo(new GeoName(123, "PPL"));
+    }
+
+    @Test
+    public void getResolvesUncachedIdOnceOnly() {
+        // Arrange
+        mockWebServiceResponse(123, "PPL");
+
+        // Act
+        GeoName geoName1 = cache.get(123);
+        GeoName geoName2 = cache.get(123);
+
+        // Assert
+        assertThat(geoName1).isEqualTo(new GeoName(123, "PPL"));
+        assertThat(geoName2).isSameAs(geoName1);
+        verify(locationService, times(1)).getGeoNamesByIds(anyCollectionOf(Integer.class));
+        verify(geoNamesWebService, times(1)).getByIdIncludingStatus(anyInt());
+    }
+
+    @Test
+    public void prefetchQueriesDatabaseInBatches() {
+        // Arrange
+        List<Integer> geoNameIds = new ArrayList<>();
+        for (int i = 1; i <= 2500; i++) {
+            geoNameIds.add(i);
+        }
+        when(geoNamesWebService.getByIdIncludingStatus(anyInt()))
+                .thenReturn(new uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName(
+                        1, "PPL"));
+
+        // Act
+        cache.prefetch(geoNameIds);
+
+        // Assert
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(locationService, times(3)).getGeoNamesByIds(captor.capture());
+        assertThat(captor.getAllValues().get(0)).hasSize(1000);
+        assertThat(captor.getAllValues().get(2)).hasSize(500);
+    }
+
+    private void mockWebServiceResponse(int geoNameId, String featureCode) {
+        when(geoNamesWebService.getByIdIncludingStatus(geoNameId)).thenReturn(
+                new uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName(
+                        geoNameId, featureCode));
+    }
+
+    private void mockWebServiceStatus(int geoNameId, int statusCode) {
+        GeoNameStatus status = new GeoNameStatus();
+        status.setValue(statusCode);
+        uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName geoNameDTO =
+                new uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.geonames.domain.GeoName();
+        geoNameDTO.setStatus(status);
+        when(geoNamesWebService.getByIdIncludingStatus(geoNameId)).thenReturn(geoNameDTO);
+    }
+
+    private void verifySavedUnresolvedGeoName(int geoNameId) {
+        ArgumentCaptor<UnresolvedGeoName> captor = ArgumentCaptor.forClass(UnresolvedGeoName.class);
+        verify(locationService).saveUnresolvedGeoName(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo(geoNameId);
+        assertThat(captor.getValue().getLookupDate()).isNotNull();
+    }
+}
@@ -77,6 +77,42 @@ public class GeoNamesWebServiceTest {
         assertThat(geoName).isNull();
     }
 
+    @Test
+    public void getByIdIncludingStatusReturnsDoesNotExistStatusForNonExistentGeoName() {
+        // Arrange
+        int geoNameId = 898337123;
+        String json = "{\"status\":{\"message\":\"this geonameid does not exist\",\"value\":15}}";
+
+        String url = getGeoNamesUrl(geoNameId);
+        WebServiceClient client = getMockWebServiceClient(url, json);
+        GeoNamesWebService webService = getGeoNamesWebService(client);
+
+        // Act
+        GeoName geoName = webService.getByIdIncludingStatus(geoNameId);
+
+        // Assert
+        assertThat(geoName.getStatus().getValue()).isEqualTo(15);
+        assertThat(GeoNamesWebService.isDoesNotExistStatus(geoName.getStatus())).isTrue();
+    }
+
+    @Test
+    public void getByIdIncludingStatusReturnsOtherErrorStatus() {
+        // Arrange
+        int geoNameId = 898337123;
+        String json = "{\"status\":{\"message\":\"hourly limit of credits exceeded\",\"value\":19}}";
+
+        String url = getGeoNamesUrl(geoNameId);
+        WebServiceClient client = getMockWebServiceClient(url, json);
+        GeoNamesWebService webService = getGeoNamesWebService(client);
+
+        // Act
+        GeoName geoName = webService.getByIdIncludingStatus(geoNameId);
+
+        // Assert
+        assertThat(geoName.getStatus().getValue()).isEqualTo(19);
+        assertThat(GeoNamesWebService.isDoesNotExistStatus(geoName.getStatus())).isFalse();
+    }
+
     @Test
     public void webServiceClientThrewException() {
         // Arrange
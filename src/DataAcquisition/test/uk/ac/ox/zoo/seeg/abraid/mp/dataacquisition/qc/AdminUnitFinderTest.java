@@ -1,9 +1,11 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.qc;
 
+import com.vividsolutions.jts.index.SpatialIndex;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitQC;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LocationPrecision;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,6 +14,8 @@ import java.util.List;
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests the AdminUnitFinder class.
@@ -149,6 +153,86 @@ public class AdminUnitFinderTest {
         assertThat(adminUnitFinder.hasPassed()).isFalse();
     }
 
+    @Test
+    public void findsClosestAdminUnitUsingSpatialIndex() {
+        // Arrange
+        Location location = new Location("Hampshire", -1.25, 51, LocationPrecision.ADMIN2);
+        SpatialIndex index = createCentroidIndex(createAdminUnits());
+        AdminUnitFinder adminUnitFinder = new AdminUnitFinder();
+
+        // Act
+        adminUnitFinder.findClosestAdminUnit(location, index);
+
+        // Assert
+        assertThat(adminUnitFinder.getClosestAdminUnit()).isNotNull();
+        assertThat(adminUnitFinder.getClosestAdminUnit().getName()).isEqualTo("Hampshire");
+        assertThat(adminUnitFinder.getMessage()).isEqualTo("closest distance is 12.48% of the square root of the area");
+        assertThat(adminUnitFinder.hasPassed()).isTrue();
+    }
+
+    @Test
+    public void findsNoAdminUnitUsingSpatialIndexIfNoneCloseEnough() {
+        // Arrange
+        Location location = new Location("Oxfordshire", -1.25, 51.833333, LocationPrecision.ADMIN2);
+        SpatialIndex index = createCentroidIndex(createAdminUnits());
+        AdminUnitFinder adminUnitFinder = new AdminUnitFinder();
+
+        // Act
+        adminUnitFinder.findClosestAdminUnit(location, index);
+
+        // Assert
+        assertThat(adminUnitFinder.getClosestAdminUnit()).isNull();
+        assertThat(adminUnitFinder.getMessage()).isEqualTo("closest distance is 128.21% of the square root of the " +
+                "area (GAUL code 40096: \"Berkshire\")");
+        assertThat(adminUnitFinder.hasPassed()).isFalse();
+    }
+
+    @Test
+    public void findsClosestAdminUnitUsingSpatialIndexAcrossTheAntimeridian() {
+        // Arrange
+        Location location = new Location("Taveuni, Fiji", 179.95, -16.85, LocationPrecision.ADMIN2);
+        AdminUnitQC taveuni = new AdminUnitQC(1, '2', "Taveuni", -179.97, -16.85, 1000);
+        AdminUnitQC vanuaLevu = new AdminUnitQC(2, '2', "Vanua Levu", 179.3, -16.6, 5587);
+        SpatialIndex index = createCentroidIndex(Arrays.asList(taveuni, vanuaLevu));
+        AdminUnitFinder adminUnitFinder = new AdminUnitFinder();
+
+        // Act
+        adminUnitFinder.findClosestAdminUnit(location, index);
+
+        // Assert
+        assertThat(adminUnitFinder.getClosestAdminUnit()).isSameAs(taveuni);
+    }
+
+    @Test
+    public void findClosestAdminUnitGivesSameResultsUsingSpatialIndexAndList() {
+        // Arrange
+        List<AdminUnitQC> adminUnits = createAdminUnits();
+        SpatialIndex index = createCentroidIndex(adminUnits);
+
+        for (double longitude = -180; longitude <= 180; longitude += 0.5) {
+            for (double latitude = -90; latitude <= 90; latitude += 0.5) {
+                Location location = new Location("", longitude, latitude, LocationPrecision.ADMIN1);
+                AdminUnitFinder listFinder = new AdminUnitFinder();
+                AdminUnitFinder indexFinder = new AdminUnitFinder();
+
+                // Act
+                listFinder.findClosestAdminUnit(location, adminUnits);
+                indexFinder.findClosestAdminUnit(location, index);
+
+                // Assert
+                assertThat(indexFinder.getClosestAdminUnit()).isSameAs(listFinder.getClosestAdminUnit());
+                assertThat(indexFinder.getMessage()).isEqualTo(listFinder.getMessage());
+                assertThat(indexFinder.hasPassed()).isEqualTo(listFinder.hasPassed());
+            }
+        }
+    }
+
+    private SpatialIndex createCentroidIndex(List<AdminUnitQC> adminUnits) {
+        GeometryService geometryService = mock(GeometryService.class);
+        when(geometryService.getAllAdminUnitQCs()).thenReturn(adminUnits);
+        return new QCLookupData(geometryService).getAdminUnitCentroidIndex();
+    }
+
     private List<AdminUnitQC> createAdminUnits() {
         // Five US states and five English counties
         return Arrays.asList(
@@ -1,7 +1,10 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.qc;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.index.SpatialIndex;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.AdminUnitQC;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Country;
@@ -9,6 +12,8 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapCountry;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.LandSeaBorder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.PreparedGeometryIndex;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -115,6 +120,55 @@ public class QCLookupDataTest {
         assertThat(actualMultiPolygon.equalsExact(expectedMultiPolygon));
     }
 
+    @Test
+    public void getAdminUnitCentroidIndex() {
+        // Arrange
+        AdminUnitQC adminUnit1 = new AdminUnitQC(1, '1', "a", 1, 2, 0);
+        AdminUnitQC adminUnit2 = new AdminUnitQC(3, '1', "b", 10, 20, 0);
+        when(geometryService.getAllAdminUnitQCs()).thenReturn(Arrays.asList(adminUnit1, adminUnit2));
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        SpatialIndex index = lookupData.getAdminUnitCentroidIndex();
+
+        // Assert
+        assertThat(index.query(new Envelope(0, 5, 0, 5))).containsOnly(adminUnit1);
+        assertThat(index.query(new Envelope(0, 50, 0, 50))).containsOnly(adminUnit1, adminUnit2);
+        assertThat(index.query(new Envelope(-5, 0, -5, 0))).isEmpty();
+    }
+
+    @Test
+    public void getCountryIndex() {
+        // Arrange
+        when(geometryService.getAllCountries()).thenReturn(getCountries());
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        PreparedGeometryIndex<Integer> index = lookupData.getCountryIndex();
+
+        // Assert
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.findFirstIntersecting(GeometryUtils.createPoint(2, 2))).isEqualTo(1);
+        assertThat(index.findFirstIntersecting(GeometryUtils.createPoint(15, 15))).isEqualTo(2);
+        assertThat(index.findFirstIntersecting(GeometryUtils.createPoint(30, 30))).isNull();
+    }
+
+    @Test
+    public void getLandSeaBorderIndex() {
+        // Arrange
+        when(geometryService.getAllLandSeaBorders()).thenReturn(getLandSeaBorderList());
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        PreparedGeometryIndex<Integer> index = lookupData.getLandSeaBorderIndex();
+
+        // Assert
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.intersectsAny(GeometryUtils.createPoint(2, 2))).isTrue();
+        assertThat(index.intersectsAny(GeometryUtils.createPoint(10, 15))).isTrue();
+        assertThat(index.intersectsAny(GeometryUtils.createPoint(5, 5))).isFalse();
+    }
+
     @Test
     public void getHealthMapCountryGeometryMap() {
         // Arrange
@@ -135,6 +189,51 @@ public class QCLookupDataTest {
         assertThat(healthMapCountryGeometryMap.get(3).equals(expectedGeometry2)).isTrue();
     }
 
+    @Test
+    public void getLandSeaBorderNearestPointIndex() {
+        // Arrange
+        when(geometryService.getAllLandSeaBorders()).thenReturn(getLandSeaBorderList());
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        NearestPointIndex index = lookupData.getLandSeaBorderNearestPointIndex();
+
+        // Assert
+        assertThat(index.findNearestCoordinate(new Coordinate(2, 2))).isEqualTo(new Coordinate(2, 2));
+        assertThat(index.findNearestCoordinate(new Coordinate(25, 15))).isEqualTo(new Coordinate(20, 15));
+        assertThat(lookupData.getLandSeaBorderNearestPointIndex()).isSameAs(index);
+    }
+
+    @Test
+    public void getCountryNearestPointIndex() {
+        // Arrange
+        when(geometryService.getAllCountries()).thenReturn(getCountries());
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        NearestPointIndex index = lookupData.getCountryNearestPointIndex(2);
+
+        // Assert
+        assertThat(index.findNearestCoordinate(new Coordinate(5, 15))).isEqualTo(new Coordinate(10, 15));
+        assertThat(lookupData.getCountryNearestPointIndex(2)).isSameAs(index);
+        assertThat(lookupData.getCountryNearestPointIndex(4)).isNull();
+    }
+
+    @Test
+    public void getHealthMapCountryNearestPointIndex() {
+        // Arrange
+        when(geometryService.getAllHealthMapCountries()).thenReturn(getHealthMapCountries());
+
+        // Act
+        QCLookupData lookupData = new QCLookupData(geometryService);
+        NearestPointIndex index = lookupData.getHealthMapCountryNearestPointIndex(3);
+
+        // Assert
+        assertThat(index.findNearestCoordinate(new Coordinate(25, 15))).isEqualTo(new Coordinate(20, 15));
+        assertThat(lookupData.getHealthMapCountryNearestPointIndex(3)).isSameAs(index);
+        assertThat(lookupData.getHealthMapCountryNearestPointIndex(2)).isNull();
+    }
+
     private List<HealthMapCountry> getHealthMapCountries() {
         Country country1 = new Country(1, "Triangle", GeometryUtils.createMultiPolygon(getTriangle()));
         Country country2 = new Country(2, "Square", GeometryUtils.createMultiPolygon(getSquare()));
@@ -5,6 +5,7 @@ import com.vividsolutions.jts.geom.Polygon;
 import org.junit.Test;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.Location;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.NearestPointIndex;
 
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
@@ -129,6 +130,54 @@ public class SnapperTest {
         assertThat(snapper.getClosestPoint()).isNull();
     }
 
+    @Test
+    public void locationJustOutsideIndexedGeometries() {
+        // Arrange
+        Location location = new Location(100, 100.04);
+        Snapper snapper = new Snapper("land", 5);
+
+        // Act
+        snapper.ensureWithinGeometry(location, new NearestPointIndex(getGeometry()));
+
+        // Assert
+        assertThat(snapper.getMessage()).isEqualTo("location (100.00000,100.04000) snapped to land (distance 4.466km)");
+        assertThat(snapper.hasPassed()).isTrue();
+        assertThat(snapper.getClosestPoint()).isNotNull();
+        assertThat(snapper.getClosestPoint().getX()).isEqualTo(100);
+        assertThat(snapper.getClosestPoint().getY()).isEqualTo(100);
+    }
+
+    @Test
+    public void locationInsideIndexedGeometry() {
+        // Arrange
+        Location location = new Location(117, 115);
+        Snapper snapper = new Snapper("country", 5);
+
+        // Act
+        snapper.ensureWithinGeometry(location, new NearestPointIndex(getGeometry()));
+
+        // Assert
+        assertThat(snapper.getMessage()).isEqualTo("location already within country");
+        assertThat(snapper.hasPassed()).isTrue();
+        assertThat(snapper.getClosestPoint().equalsExact(location.getGeom())).isTrue();
+    }
+
+    @Test
+    public void locationWellOutsideIndexedGeometries() {
+        // Arrange
+        Location location = new Location(150, 150);
+        Snapper snapper = new Snapper("land", 5);
+
+        // Act
+        snapper.ensureWithinGeometry(location, new NearestPointIndex(getGeometry()));
+
+        // Assert
+        assertThat(snapper.getMessage()).isEqualTo("location too distant from land (closest point is " +
+                "(120.00000,120.00000) at distance 4015.703km)");
+        assertThat(snapper.hasPassed()).isFalse();
+        assertThat(snapper.getClosestPoint()).isNull();
+    }
+
     private MultiPolygon getGeometry() {
         Polygon bigSquare = GeometryUtils.createPolygon(5, 5, 100, 5, 100, 100, 5, 100, 5, 5);
         Polygon smallTriangle = GeometryUtils.createPolygon(110, 110, 120, 120, 120, 105, 110, 110);
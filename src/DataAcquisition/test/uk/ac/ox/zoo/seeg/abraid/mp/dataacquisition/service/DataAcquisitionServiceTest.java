@@ -2,7 +2,9 @@ package uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.service;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ReportingService;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.csv.CsvDataAcquirer;
 import uk.ac.ox.zoo.seeg.abraid.mp.dataacquisition.acquirers.healthmap.HealthMapDataAcquirer;
 
@@ -16,25 +18,31 @@ public class DataAcquisitionServiceTest {
     private DataAcquisitionService service;
     private HealthMapDataAcquirer healthMapDataAcquirer;
     private CsvDataAcquirer csvDataAcquirer;
+    private ReportingService reportingService;
 
     @Before
     public void setUp() {
         healthMapDataAcquirer = mock(HealthMapDataAcquirer.class);
         csvDataAcquirer = mock(CsvDataAcquirer.class);
-        service = new DataAcquisitionServiceImpl(healthMapDataAcquirer, csvDataAcquirer);
+        reportingService = mock(ReportingService.class);
+        service = new DataAcquisitionServiceImpl(healthMapDataAcquirer, csvDataAcquirer, reportingService);
     }
 
     @Test
     public void acquireHealthMapDataFromWebService() {
         service.acquireHealthMapDataFromWebService();
-        verify(healthMapDataAcquirer).acquireDataFromWebService();
+        InOrder inOrder = inOrder(healthMapDataAcquirer, reportingService);
+        inOrder.verify(healthMapDataAcquirer).acquireDataFromWebService();
+        inOrder.verify(reportingService).updateHealthMapReportRollup();
     }
 
     @Test
     public void acquireHealthMapDataFromFile() {
         String fileName = "test.json";
         service.acquireHealthMapDataFromFile(fileName);
-        verify(healthMapDataAcquirer).acquireDataFromFile(eq(fileName));
+        InOrder inOrder = inOrder(healthMapDataAcquirer, reportingService);
+        inOrder.verify(healthMapDataAcquirer).acquireDataFromFile(eq(fileName));
+        inOrder.verify(reportingService).updateHealthMapReportRollup();
     }
 
     @Test
@@ -42,6 +50,7 @@ public class DataAcquisitionServiceTest {
         byte[] csv = "1, 2, 3".getBytes();
         service.acquireCsvData(csv, false, true, null);
         verify(csvDataAcquirer).acquireDataFromCsv(eq(csv), eq(false), eq(true), (DiseaseGroup) isNull());
+        verify(reportingService, never()).updateHealthMapReportRollup();
     }
 
     @Test
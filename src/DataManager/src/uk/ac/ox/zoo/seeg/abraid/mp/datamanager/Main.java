@@ -7,8 +7,11 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DataAcquisitionManager;
 import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DiseaseProcessManager;
+import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DiseaseProcessPipeline;
+import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DiseaseProcessStage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -32,15 +35,18 @@ public class Main {
     private final DiseaseService diseaseService;
     private final DataAcquisitionManager dataAcquisitionManager;
     private final DiseaseProcessManager diseaseProcessManager;
+    private final DiseaseProcessPipeline diseaseProcessPipeline;
     private final String applicationVersion;
 
     public Main(DiseaseService diseaseService,
                 DataAcquisitionManager dataAcquisitionManager,
                 DiseaseProcessManager diseaseProcessManager,
+                DiseaseProcessPipeline diseaseProcessPipeline,
                 String applicationVersion) {
         this.diseaseService = diseaseService;
         this.dataAcquisitionManager = dataAcquisitionManager;
         this.diseaseProcessManager = diseaseProcessManager;
+        this.diseaseProcessPipeline = diseaseProcessPipeline;
         this.applicationVersion = applicationVersion;
     }
 
@@ -92,8 +98,7 @@ public class Main {
         updateExpertsWeightings();
         processOccurrencesOnDataValidator(diseaseGroupIdsForAutomaticModelRuns);
         runDataAcquisition(dataAcquisitionArgs);
-        updateDiseaseExtents(diseaseGroupIdsForAutomaticModelRuns);
-        requestModelRuns(diseaseGroupIdsForAutomaticModelRuns);
+        updateDiseaseExtentsAndRequestModelRuns(diseaseGroupIdsForAutomaticModelRuns);
         logFinished();
     }
 
@@ -131,18 +136,24 @@ public class Main {
 
     /**
      * Process any occurrences currently on the validator, for each disease group that has automatic model runs enabled.
+     * The disease groups are processed concurrently.
      * @param diseaseGroupIdsForAutomaticModelRuns The id of all disease groups to act on.
      */
     private void processOccurrencesOnDataValidator(List<Integer> diseaseGroupIdsForAutomaticModelRuns) {
-        for (Integer diseaseGroupId : diseaseGroupIdsForAutomaticModelRuns) {
-            try {
+        DiseaseProcessStage processOccurrencesStage = new DiseaseProcessStage("process occurrences on the validator") {
+            @Override
+            public void run(int diseaseGroupId) {
                 diseaseProcessManager.processOccurrencesOnDataValidator(diseaseGroupId);
-            } catch (Exception e) { ///CHECKSTYLE:SUPPRESS EmptyBlock
+            }
+
+            @Override
+            public void handleFailure(int diseaseGroupId, Exception e) {
                 // Exception is thrown to roll back the transaction if the process step fails.
                 // Logging has probably already been done by this point, but best to log it again for safety.
                 logError("process occurrence on the validator", e);
             }
-        }
+        };
+        diseaseProcessPipeline.run(diseaseGroupIdsForAutomaticModelRuns, Arrays.asList(processOccurrencesStage));
     }
 
     /**
@@ -161,38 +172,53 @@ public class Main {
     }
 
     /**
-     * Updates the disease extents if required, for each disease group that has automatic model runs enabled.
+     * Updates the disease extent and then requests a model run (each if required), for each disease group that has
+     * automatic model runs enabled. The disease groups are processed concurrently.
      * @param diseaseGroupIdsForAutomaticModelRuns The id of all disease groups to act on.
      */
-    private void updateDiseaseExtents(List<Integer> diseaseGroupIdsForAutomaticModelRuns) {
-        List<Integer> diseaseGroupIdsForAutomaticModelRunsClone = new ArrayList<>(diseaseGroupIdsForAutomaticModelRuns);
-        for (Integer diseaseGroupId : diseaseGroupIdsForAutomaticModelRunsClone) {
-            try {
+    private void updateDiseaseExtentsAndRequestModelRuns(List<Integer> diseaseGroupIdsForAutomaticModelRuns) {
+        // If extent generation fails for a disease, the pipeline does not attempt a model run today for that disease
+        DiseaseProcessStage updateDiseaseExtentStage = new DiseaseProcessStage("update disease extent") {
+            @Override
+            public void run(int diseaseGroupId) {
                 diseaseProcessManager.updateDiseaseExtents(diseaseGroupId);
-            } catch (Exception e) { ///CHECKSTYLE:SUPPRESS EmptyBlock
+            }
+
+            @Override
+            public void handleFailure(int diseaseGroupId, Exception e) {
                 // Exception is thrown to roll back the transaction if the process step fails.
                 // Logging has probably already been done by this point, but best to log it again for safety.
                 logError(String.format("update disease extent for ID=%s (if required)", diseaseGroupId), e);
+            }
+        };
+        DiseaseProcessStage requestModelRunStage = new DiseaseProcessStage("request model run") {
+            @Override
+            public void run(int diseaseGroupId) {
+                diseaseProcessManager.requestModelRun(diseaseGroupId);
+            }
 
-                // If extent generation fails for a disease, we should not attempt a model run today for that disease
-                diseaseGroupIdsForAutomaticModelRuns.remove(diseaseGroupId);
+            @Override
+            public void handleFailure(int diseaseGroupId, Exception e) {
+                // Exception is thrown to roll back the transaction if the process step fails.
+                // Logging has probably already been done by this point, but best to log it again for safety.
+                logError(String.format("request model run for ID=%s (if required)", diseaseGroupId), e);
             }
-        }
+        };
+        prefetchGatekeeperMetrics(diseaseGroupIdsForAutomaticModelRuns);
+        diseaseProcessPipeline.run(diseaseGroupIdsForAutomaticModelRuns,
+                Arrays.asList(updateDiseaseExtentStage, requestModelRunStage));
     }
 
     /**
-     * Requests a model run if required, for each disease group that has automatic model runs enabled.
+     * Fetches the metrics used to decide whether to update each disease extent and request each model run, for all
+     * of the disease groups at once. If this fails, the metrics are instead queried separately for each disease group.
      * @param diseaseGroupIdsForAutomaticModelRuns The id of all disease groups to act on.
      */
-    private void requestModelRuns(List<Integer> diseaseGroupIdsForAutomaticModelRuns) {
-        for (Integer diseaseGroupId : diseaseGroupIdsForAutomaticModelRuns) {
-            try {
-                diseaseProcessManager.requestModelRun(diseaseGroupId);
-            } catch (Exception e) { ///CHECKSTYLE:SUPPRESS EmptyBlock
-                // Exception is thrown to roll back the transaction if the process step fails.
-                // Logging has probably already been done by this point, but best to log it again for safety.
-                logError(String.format("request model run for ID=%s (if required)", diseaseGroupId), e);
-            }
+    private void prefetchGatekeeperMetrics(List<Integer> diseaseGroupIdsForAutomaticModelRuns) {
+        try {
+            diseaseProcessManager.prefetchGatekeeperMetrics(diseaseGroupIdsForAutomaticModelRuns);
+        } catch (Exception e) { ///CHECKSTYLE:SUPPRESS EmptyBlock
+            logError("fetch the metrics for extent generation and model runs", e);
         }
     }
 
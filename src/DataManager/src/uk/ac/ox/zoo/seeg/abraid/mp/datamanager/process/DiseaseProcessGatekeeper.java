@@ -4,10 +4,17 @@ import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroupTriggerMetrics;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Determines whether the steps in the daily disease process should execute.
+ * The metrics for the decisions can be fetched for all disease groups at once (see prefetchTriggerMetrics), otherwise
+ * they are queried separately for each disease group.
  * Copyright (c) 2014 University of Oxford
  */
 public class DiseaseProcessGatekeeper {
@@ -27,13 +34,35 @@ public class DiseaseProcessGatekeeper {
     private static final String NOT_STARTING_EXTENT_GENERATION = "Extent generation will not be executed";
     private static final String STARTING_MODEL_RUN = "Starting model run";
     private static final String NOT_STARTING_MODEL_RUN = "Model run will not be executed";
+    private static final String PREFETCHED_TRIGGER_METRICS = "Prefetched trigger metrics for %d disease group(s)";
 
     private DiseaseService diseaseService;
+    private final Map<Integer, DiseaseGroupTriggerMetrics> triggerMetrics = new ConcurrentHashMap<>();
 
     public DiseaseProcessGatekeeper(DiseaseService diseaseService) {
         this.diseaseService = diseaseService;
     }
 
+    /**
+     * Fetches the metrics used to decide whether to generate the extent and request a model run, for all of the
+     * specified disease groups using a single query. These replace any previously fetched metrics.
+     * @param diseaseGroupIds The ids of the disease groups.
+     */
+    public void prefetchTriggerMetrics(Collection<Integer> diseaseGroupIds) {
+        triggerMetrics.clear();
+        triggerMetrics.putAll(diseaseService.getTriggerMetricsForDiseaseGroups(diseaseGroupIds));
+        LOGGER.info(String.format(PREFETCHED_TRIGGER_METRICS, triggerMetrics.size()));
+    }
+
+    /**
+     * Discards the prefetched metrics for a disease group, so that they are queried again when next needed. This must
+     * be called when the disease group's extent changes.
+     * @param diseaseGroupId The id of the disease group.
+     */
+    public void discardTriggerMetrics(int diseaseGroupId) {
+        triggerMetrics.remove(diseaseGroupId);
+    }
+
     /**
      * Determines whether model run should be carried out.
      * NB. This method is only ever called for disease groups that have automatic model runs enabled, as a result of
@@ -134,13 +163,32 @@ public class DiseaseProcessGatekeeper {
     }
 
     private long getDistinctLocationsCount(DateTime lastProcessTimestamp, DiseaseGroup diseaseGroup) {
+        DiseaseGroupTriggerMetrics metrics = getPrefetchedTriggerMetrics(diseaseGroup);
+        if (metrics != null && isSameTimestamp(metrics.getLastModelRunPrepDate(), lastProcessTimestamp)) {
+            return metrics.getNewLocationCount();
+        }
         return diseaseService.getDistinctLocationsCountForTriggeringModelRun(
                 diseaseGroup, lastProcessTimestamp);
     }
 
     private boolean extentHasChanged(DateTime lastProcessTimestamp, DiseaseGroup diseaseGroup) {
-        DateTime lastChangeTimestamp =
+        DiseaseGroupTriggerMetrics metrics = getPrefetchedTriggerMetrics(diseaseGroup);
+        DateTime lastChangeTimestamp = (metrics != null) ? metrics.getLatestExtentClassChangeDate() :
                 diseaseService.getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(diseaseGroup.getId());
         return lastChangeTimestamp != null && lastChangeTimestamp.isAfter(lastProcessTimestamp);
     }
+
+    private DiseaseGroupTriggerMetrics getPrefetchedTriggerMetrics(DiseaseGroup diseaseGroup) {
+        DiseaseGroupTriggerMetrics metrics = triggerMetrics.get(diseaseGroup.getId());
+        // The metrics are only valid while the last model run prep date is unchanged
+        if (metrics != null &&
+                isSameTimestamp(metrics.getLastModelRunPrepDate(), diseaseGroup.getLastModelRunPrepDate())) {
+            return metrics;
+        }
+        return null;
+    }
+
+    private static boolean isSameTimestamp(DateTime timestamp1, DateTime timestamp2) {
+        return (timestamp1 == null) ? (timestamp2 == null) : (timestamp2 != null && timestamp1.isEqual(timestamp2));
+    }
 }
@@ -4,6 +4,8 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseProcessType;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.ModelRunWorkflowService;
 
+import java.util.List;
+
 /**
  * Conditionally performs each step in the daily disease process.
  *
@@ -36,12 +38,23 @@ public class DiseaseProcessManager {
         modelRunWorkflowService.processOccurrencesOnDataValidator(diseaseGroupId, DiseaseProcessType.AUTOMATIC);
     }
 
+    /**
+     * Fetches the metrics used to decide whether to update the disease extent and request a model run, for all of the
+     * given disease groups at once.
+     * @param diseaseGroupIds The ids of the disease groups.
+     */
+    public void prefetchGatekeeperMetrics(List<Integer> diseaseGroupIds) {
+        diseaseProcessGatekeeper.prefetchTriggerMetrics(diseaseGroupIds);
+    }
+
     /**
      * Updates the disease extents if required, for a given disease group.
      * @param diseaseGroupId The id of the disease group.
      */
     public void updateDiseaseExtents(int diseaseGroupId) {
         if (diseaseProcessGatekeeper.extentShouldRun(diseaseGroupId)) {
+            // The new extent invalidates the prefetched metrics used to decide whether to request a model run
+            diseaseProcessGatekeeper.discardTriggerMetrics(diseaseGroupId);
             modelRunWorkflowService.generateDiseaseExtent(diseaseGroupId, DiseaseProcessType.AUTOMATIC);
         }
     }
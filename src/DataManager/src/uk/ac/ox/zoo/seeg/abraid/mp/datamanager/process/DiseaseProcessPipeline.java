@@ -0,0 +1,206 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Performs a sequence of stages for each disease group, processing independent disease groups concurrently on a
+ * bounded pool of worker threads. The stages are always performed in order for a given disease group, and a failure
+ * only affects the disease group for which it occurred. Each stage is responsible for its own transaction, so the
+ * work for a disease group is committed (or rolled back) independently of the others.
+ * With a single thread, the disease groups are processed in order on the calling thread.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public class DiseaseProcessPipeline {
+    private static final Logger LOGGER = Logger.getLogger(DiseaseProcessPipeline.class);
+    private static final String STARTED_MESSAGE = "Processing %d disease group(s) with %d thread(s): %s";
+    private static final String STAGE_COMPLETED_MESSAGE = "Disease group %d: '%s' completed in %d ms";
+    private static final String STAGE_FAILED_MESSAGE = "Disease group %d: '%s' failed after %d ms";
+    private static final String STAGE_SUMMARY_MESSAGE =
+            "'%s': %d disease group(s) processed, %d failed, %d ms in total, slowest %d ms (disease group %d)";
+    private static final String FINISHED_MESSAGE = "Processed %d disease group(s) in %d ms (%d completed all stages)";
+    private static final String INTERRUPTED_MESSAGE = "Interrupted while waiting for disease groups to be processed";
+
+    private final int threadCount;
+
+    public DiseaseProcessPipeline(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("At least 1 thread must be used to process the disease groups.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Performs the stages, in order, for each disease group. If a stage fails for a disease group, its remaining
+     * stages are skipped (the other disease groups are unaffected).
+     * @param diseaseGroupIds The ids of the disease groups.
+     * @param stages The stages to perform for each disease group.
+     * @return The ids of the disease groups for which every stage completed, in the order specified.
+     */
+    public List<Integer> run(List<Integer> diseaseGroupIds, List<DiseaseProcessStage> stages) {
+        long startTime = System.currentTimeMillis();
+        int poolSize = Math.max(1, Math.min(threadCount, diseaseGroupIds.size()));
+        LOGGER.info(String.format(STARTED_MESSAGE, diseaseGroupIds.size(), poolSize, getStageNames(stages)));
+
+        List<DiseaseGroupTask> tasks = new ArrayList<>();
+        for (Integer diseaseGroupId : diseaseGroupIds) {
+            tasks.add(new DiseaseGroupTask(diseaseGroupId, stages));
+        }
+        List<DiseaseGroupResult> results = (poolSize == 1) ? runSequentially(tasks) : runConcurrently(tasks, poolSize);
+
+        List<Integer> completedDiseaseGroupIds = new ArrayList<>();
+        for (DiseaseGroupResult result : results) {
+            if (result.hasCompleted()) {
+                completedDiseaseGroupIds.add(result.getDiseaseGroupId());
+            }
+        }
+        logStageSummaries(stages, results);
+        LOGGER.info(String.format(FINISHED_MESSAGE, diseaseGroupIds.size(),
+                System.currentTimeMillis() - startTime, completedDiseaseGroupIds.size()));
+        return completedDiseaseGroupIds;
+    }
+
+    private List<DiseaseGroupResult> runSequentially(List<DiseaseGroupTask> tasks) {
+        List<DiseaseGroupResult> results = new ArrayList<>();
+        for (DiseaseGroupTask task : tasks) {
+            results.add(task.call());
+        }
+        return results;
+    }
+
+    private List<DiseaseGroupResult> runConcurrently(List<DiseaseGroupTask> tasks, int poolSize) {
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<DiseaseGroupResult> results = new ArrayList<>();
+            for (Future<DiseaseGroupResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(INTERRUPTED_MESSAGE, e);
+        } catch (ExecutionException e) {
+            // Exceptions are handled within each task, so this is an Error (which is propagated as it would be if
+            // the disease groups were processed sequentially)
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void logStageSummaries(List<DiseaseProcessStage> stages, List<DiseaseGroupResult> results) {
+        for (int i = 0; i < stages.size(); i++) {
+            int processedCount = 0;
+            int failedCount = 0;
+            long totalDuration = 0;
+            long slowestDuration = 0;
+            Integer slowestDiseaseGroupId = null;
+            for (DiseaseGroupResult result : results) {
+                if (i < result.getDurations().size()) {
+                    long duration = result.getDurations().get(i);
+                    processedCount++;
+                    totalDuration += duration;
+                    if (slowestDiseaseGroupId == null || duration > slowestDuration) {
+                        slowestDuration = duration;
+                        slowestDiseaseGroupId = result.getDiseaseGroupId();
+                    }
+                    if (!result.hasCompleted() && i == result.getDurations().size() - 1) {
+                        failedCount++;
+                    }
+                }
+            }
+            if (processedCount > 0) {
+                LOGGER.info(String.format(STAGE_SUMMARY_MESSAGE, stages.get(i).getName(), processedCount,
+                        failedCount, totalDuration, slowestDuration, slowestDiseaseGroupId));
+            }
+        }
+    }
+
+    private static List<String> getStageNames(List<DiseaseProcessStage> stages) {
+        List<String> names = new ArrayList<>();
+        for (DiseaseProcessStage stage : stages) {
+            names.add(stage.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Performs the stages for a single disease group.
+     */
+    private static final class DiseaseGroupTask implements Callable<DiseaseGroupResult> {
+        private final int diseaseGroupId;
+        private final List<DiseaseProcessStage> stages;
+
+        private DiseaseGroupTask(int diseaseGroupId, List<DiseaseProcessStage> stages) {
+            this.diseaseGroupId = diseaseGroupId;
+            this.stages = stages;
+        }
+
+        @Override
+        public DiseaseGroupResult call() {
+            DiseaseGroupResult result = new DiseaseGroupResult(diseaseGroupId);
+            for (DiseaseProcessStage stage : stages) {
+                long startTime = System.currentTimeMillis();
+                try {
+                    stage.run(diseaseGroupId);
+                } catch (Exception e) {
+                    long duration = System.currentTimeMillis() - startTime;
+                    LOGGER.info(String.format(STAGE_FAILED_MESSAGE, diseaseGroupId, stage.getName(), duration));
+                    result.addDuration(duration);
+                    stage.handleFailure(diseaseGroupId, e);
+                    return result;
+                }
+                long duration = System.currentTimeMillis() - startTime;
+                LOGGER.info(String.format(STAGE_COMPLETED_MESSAGE, diseaseGroupId, stage.getName(), duration));
+                result.addDuration(duration);
+            }
+            result.setCompleted();
+            return result;
+        }
+    }
+
+    /**
+     * The outcome of performing the stages for a single disease group.
+     */
+    private static final class DiseaseGroupResult {
+        private final int diseaseGroupId;
+        private final List<Long> durations = new ArrayList<>();
+        private boolean completed = false;
+
+        private DiseaseGroupResult(int diseaseGroupId) {
+            this.diseaseGroupId = diseaseGroupId;
+        }
+
+        public int getDiseaseGroupId() {
+            return diseaseGroupId;
+        }
+
+        // The duration (in ms) of each stage that was attempted, in order
+        public List<Long> getDurations() {
+            return durations;
+        }
+
+        public void addDuration(long duration) {
+            durations.add(duration);
+        }
+
+        public boolean hasCompleted() {
+            return completed;
+        }
+
+        public void setCompleted() {
+            completed = true;
+        }
+    }
+}
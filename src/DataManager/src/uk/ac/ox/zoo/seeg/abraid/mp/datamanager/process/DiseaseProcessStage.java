@@ -0,0 +1,38 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process;
+
+/**
+ * A step of the daily disease process that is performed separately for each disease group, by a
+ * DiseaseProcessPipeline.
+ *
+ * Copyright (c) 2015 University of Oxford
+ */
+public abstract class DiseaseProcessStage {
+    private final String name;
+
+    protected DiseaseProcessStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the stage, for use in log messages.
+     * @return The name of the stage.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Performs the stage for a disease group. This may be called concurrently for different disease groups, so it
+     * must only act on the specified disease group, in its own transaction.
+     * @param diseaseGroupId The id of the disease group.
+     */
+    public abstract void run(int diseaseGroupId);
+
+    /**
+     * Handles the failure of the stage for a disease group. The remaining stages will not be performed for the
+     * disease group.
+     * @param diseaseGroupId The id of the disease group.
+     * @param e The exception that caused the failure.
+     */
+    public abstract void handleFailure(int diseaseGroupId, Exception e);
+}
@@ -3,13 +3,10 @@ package uk.ac.ox.zoo.seeg.abraid.mp.datamanager;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.Polygon;
 import net.lingala.zip4j.exception.ZipException;
-import org.apache.commons.io.FileUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
 import org.junit.Before;
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
@@ -21,7 +18,10 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.dao.GeoNameDao;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModelRunWorkflowException;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest.CovariateManifest;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.runrequest.ModelRunPackage;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RequestBodyWriter;
 
 import java.io.File;
 import java.io.IOException;
@@ -55,9 +55,6 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
 
     private static final String EXPECTED_PREDICTION_FAILURE_RESPONSE = "No prediction";
 
-    @Rule
-    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
-
     @Autowired
     private ApplicationContext applicationContext;
 
@@ -89,6 +86,8 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
                 .thenReturn(new File(ADMIN_RASTER_FILENAME));
         when(rasterFilePathFactory.getAdminRaster(2))
                 .thenReturn(new File(ADMIN_RASTER_FILENAME));
+        when(webServiceClient.makeGetRequest(startsWith(MODELWRAPPER_URL_PREFIX + "/model/status")))
+                .thenReturn("{\"maxConcurrentRuns\":1,\"maxQueuedRuns\":20,\"runningRuns\":[],\"queuedRuns\":[]}");
     }
 
     @Test
@@ -98,7 +97,7 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
         mockHealthMapRequest();
         mockGeoNamesRequests();
         mockCovariateList();
-        File expectedZip = mockPackageBuilder();
+        ModelRunPackage expectedZip = mockPackageBuilder();
         mockModelWrapperRequest();
         mockMachineWeightingPredictorRequest();
         createAndSaveTestModelRun(diseaseGroupId);
@@ -143,7 +142,7 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
         mockCovariateList();
         mockGeoNamesRequests();
         mockModelWrapperRequest();
-        File expectedZip = mockPackageBuilder();
+        ModelRunPackage expectedZip = mockPackageBuilder();
         mockMachineWeightingPredictorRequest();
         createAndSaveTestModelRun(87);
         insertTestDiseaseExtent(87, GeometryUtils.createMultiPolygon(getFivePointedPolygon()), GeometryUtils.createMultiPolygon(getShiftedFivePointedPolygon()));
@@ -170,7 +169,7 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
         insertTestDiseaseExtent(87, GeometryUtils.createMultiPolygon(getFivePointedPolygon()), GeometryUtils.createMultiPolygon(getShiftedFivePointedPolygon()));
         setDiseaseGroupParametersToEnsureHelperReturnsOccurrences(87);
         setFixedCountryAreas();
-        when(webServiceClient.makePostRequestWithBinary(startsWith(MODELWRAPPER_URL_PREFIX), any(File.class)))
+        when(webServiceClient.makePostRequestWithStream(startsWith(MODELWRAPPER_URL_PREFIX), anyString(), any(RequestBodyWriter.class)))
                 .thenThrow(new ModelRunWorkflowException("Test message"));
 
         // Act
@@ -221,7 +220,7 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
         assertThat(occurrence.getStatus()).isEqualTo(DiseaseOccurrenceStatus.READY);
     }
 
-    private void assertThatModelWrapperWebServiceWasCalledCorrectly(File expectedZip) throws IOException, ZipException {
+    private void assertThatModelWrapperWebServiceWasCalledCorrectly(ModelRunPackage expectedZip) throws IOException, ZipException {
         // Assert that the model wrapper web service has been called once for dengue (disease group 87), with
         // the specified number of occurrence points and disease extent classes
         verify(modelRunPackageBuilder, atLeastOnce()).buildPackage(
@@ -231,14 +230,15 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
                 argThat(new ListSizeMatcher<AdminUnitDiseaseExtentClass>(451)),
                 argThat(new ListSizeMatcher<DiseaseOccurrence>(5)),
                 argThat(new ListSizeMatcher<CovariateFile>(0)),
-                eq(System.getProperty("user.home") + "/AppData/Local/abraid/covariates"));
+                argThat(new CovariateManifestDirectoryMatcher(
+                        System.getProperty("user.home") + "/AppData/Local/abraid/covariates")));
 
         verify(modelWrapperWebService, atLeastOnce()).startRun(
                 URI.create(MODELWRAPPER_URL_PREFIX), expectedZip
         );
 
-        verify(webServiceClient, atLeastOnce()).makePostRequestWithBinary(
-                startsWith(MODELWRAPPER_URL_PREFIX), eq(expectedZip));
+        verify(webServiceClient, atLeastOnce()).makePostRequestWithStream(
+                startsWith(MODELWRAPPER_URL_PREFIX), eq("expected.zip"), same(expectedZip));
     }
 
     private void assertThatRelevantDiseaseOccurrencesHaveFinalWeightings() {
@@ -280,20 +280,23 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
     }
 
     private void mockModelWrapperRequest() {
-        when(webServiceClient.makePostRequestWithBinary(startsWith(MODELWRAPPER_URL_PREFIX), any(File.class)))
+        when(webServiceClient.makePostRequestWithStream(startsWith(MODELWRAPPER_URL_PREFIX), anyString(), any(RequestBodyWriter.class)))
                 .thenReturn("{\"modelRunName\":\"testname\"}");
+        when(webServiceClient.makePostRequestWithJSON(startsWith(MODELWRAPPER_URL_PREFIX), anyString()))
+                .thenReturn("[]");
     }
 
-    private File mockPackageBuilder() throws IOException {
-        File zip = testFolder.newFile();
-        FileUtils.writeStringToFile(zip, "Expected content");
+    private ModelRunPackage mockPackageBuilder() throws IOException {
+        ModelRunPackage zip = mock(ModelRunPackage.class);
+        when(zip.getFileName()).thenReturn("expected.zip");
         when(modelRunPackageBuilder.buildPackage(startsWith("deng_"),
                 argThat(new DiseaseGroupIdMatcher(87)),
                 argThat(new ListSizeMatcher<DiseaseOccurrence>(27)),
                 argThat(new ListSizeMatcher<AdminUnitDiseaseExtentClass>(451)),
                 argThat(new ListSizeMatcher<DiseaseOccurrence>(5)),
                 argThat(new ListSizeMatcher<CovariateFile>(0)),
-                eq(System.getProperty("user.home") + "/AppData/Local/abraid/covariates"))
+                argThat(new CovariateManifestDirectoryMatcher(
+                        System.getProperty("user.home") + "/AppData/Local/abraid/covariates")))
         ).thenReturn(zip);
         return zip;
     }
@@ -519,6 +522,22 @@ public class MainIntegrationTest extends AbstractWebServiceClientIntegrationTest
         }
     }
 
+    /**
+     * Matches a CovariateManifest by covariate directory.
+     */
+    private class CovariateManifestDirectoryMatcher extends ArgumentMatcher<CovariateManifest> {
+        private String expectedDirectory;
+
+        public CovariateManifestDirectoryMatcher(String expectedDirectory) {
+            this.expectedDirectory = expectedDirectory;
+        }
+
+        @Override
+        public boolean matches(Object actualManifest) {
+            return expectedDirectory.equals(((CovariateManifest) actualManifest).getCovariateDirectory());
+        }
+    }
+
     /**
      * Used to assert the size of a list that is passed in as a parameter.
      */
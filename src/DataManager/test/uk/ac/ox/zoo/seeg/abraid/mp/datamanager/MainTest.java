@@ -5,6 +5,7 @@ import org.mockito.InOrder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DataAcquisitionManager;
 import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DiseaseProcessManager;
+import uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process.DiseaseProcessPipeline;
 
 import java.util.Arrays;
 
@@ -26,7 +27,8 @@ public class MainTest {
         when(diseaseService.getDiseaseGroupIdsForAutomaticModelRuns()).thenReturn(Arrays.asList(3, 6, 21));
         InOrder inOrder = inOrder(dataAcquisitionManager, processManager);
 
-        Main target = new Main(diseaseService, dataAcquisitionManager, processManager, "version");
+        Main target = new Main(diseaseService, dataAcquisitionManager, processManager,
+                new DiseaseProcessPipeline(1), "version");
 
         // Act
         target.runMain(args);
@@ -40,13 +42,13 @@ public class MainTest {
         inOrder.verify(processManager).processOccurrencesOnDataValidator(21);
         // 3
         inOrder.verify(dataAcquisitionManager).runDataAcquisition(args);
-        // 4
+        inOrder.verify(processManager).prefetchGatekeeperMetrics(Arrays.asList(3, 6, 21));
+        // 4 & 5 (for each disease group in turn)
         inOrder.verify(processManager).updateDiseaseExtents(3);
-        inOrder.verify(processManager).updateDiseaseExtents(6);
-        inOrder.verify(processManager).updateDiseaseExtents(21);
-        // 5
         inOrder.verify(processManager).requestModelRun(3);
+        inOrder.verify(processManager).updateDiseaseExtents(6);
         inOrder.verify(processManager).requestModelRun(6);
+        inOrder.verify(processManager).updateDiseaseExtents(21);
         inOrder.verify(processManager).requestModelRun(21);
     }
 
@@ -65,7 +67,8 @@ public class MainTest {
         doThrow(new RuntimeException()).when(processManager).requestModelRun(3);
         InOrder inOrder = inOrder(dataAcquisitionManager, processManager);
 
-        Main target = new Main(diseaseService, dataAcquisitionManager, processManager, "version");
+        Main target = new Main(diseaseService, dataAcquisitionManager, processManager,
+                new DiseaseProcessPipeline(1), "version");
 
         // Act
         target.runMain(args);
@@ -79,13 +82,45 @@ public class MainTest {
         inOrder.verify(processManager).processOccurrencesOnDataValidator(21);
         // 3
         inOrder.verify(dataAcquisitionManager).runDataAcquisition(args);
-        // 4
+        inOrder.verify(processManager).prefetchGatekeeperMetrics(Arrays.asList(3, 6, 21));
+        // 4 & 5 (for each disease group in turn)
         inOrder.verify(processManager).updateDiseaseExtents(3);
-        inOrder.verify(processManager).updateDiseaseExtents(6);
-        inOrder.verify(processManager).updateDiseaseExtents(21);
-        // 5
         inOrder.verify(processManager).requestModelRun(3);
+        inOrder.verify(processManager).updateDiseaseExtents(6);
         verify(processManager, never()).requestModelRun(6); // Skipped due to exception during updateDiseaseExtents(6)
+        inOrder.verify(processManager).updateDiseaseExtents(21);
         inOrder.verify(processManager).requestModelRun(21);
     }
+
+    @Test
+    public void runMainProcessesDiseaseGroupsConcurrentlyButSkipsModelRunForFailedExtent() throws Exception {
+        // Arrange
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        DataAcquisitionManager dataAcquisitionManager = mock(DataAcquisitionManager.class);
+        DiseaseProcessManager processManager = mock(DiseaseProcessManager.class);
+        String[] args = new String[] {"a", "b", "c"};
+        when(diseaseService.getDiseaseGroupIdsForAutomaticModelRuns()).thenReturn(Arrays.asList(3, 6, 21));
+        doThrow(new RuntimeException()).when(processManager).updateDiseaseExtents(6);
+        InOrder inOrder = inOrder(dataAcquisitionManager, processManager);
+
+        Main target = new Main(diseaseService, dataAcquisitionManager, processManager,
+                new DiseaseProcessPipeline(3), "version");
+
+        // Act
+        target.runMain(args);
+
+        // Assert
+        // Each step is performed for every disease group before the data acquisition
+        inOrder.verify(processManager).updateExpertsWeightings();
+        inOrder.verify(processManager, times(3)).processOccurrencesOnDataValidator(anyInt());
+        inOrder.verify(dataAcquisitionManager).runDataAcquisition(args);
+        inOrder.verify(processManager).prefetchGatekeeperMetrics(Arrays.asList(3, 6, 21));
+        for (int diseaseGroupId : Arrays.asList(3, 6, 21)) {
+            verify(processManager).processOccurrencesOnDataValidator(diseaseGroupId);
+            verify(processManager).updateDiseaseExtents(diseaseGroupId);
+        }
+        verify(processManager).requestModelRun(3);
+        verify(processManager, never()).requestModelRun(6); // Skipped due to exception during updateDiseaseExtents(6)
+        verify(processManager).requestModelRun(21);
+    }
 }
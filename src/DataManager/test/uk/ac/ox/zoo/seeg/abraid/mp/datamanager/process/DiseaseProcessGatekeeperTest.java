@@ -8,12 +8,17 @@ import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroup;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseGroupTriggerMetrics;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
 
 /**
  * Tests the DiseaseProcessGatekeeper.
@@ -187,6 +192,102 @@ public class DiseaseProcessGatekeeperTest {
         expectExtentShouldNotToRun(false, false, true);
     }
 
+    @Test
+    public void modelShouldRunUsesPrefetchedTriggerMetrics() throws Exception {
+        // Arrange
+        setLastModelRunPrepDate(false);
+        setMinNewLocations(10, true);
+        prefetchTriggerMetrics(diseaseGroup.getLastModelRunPrepDate(), 10, null);
+
+        // Act
+        boolean result = diseaseProcessGatekeeper.modelShouldRun(DISEASE_GROUP_ID);
+
+        // Assert
+        assertThat(result).isTrue();
+        verify(diseaseService, never()).getDistinctLocationsCountForTriggeringModelRun(
+                any(DiseaseGroup.class), any(DateTime.class));
+        verify(diseaseService, never()).getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(anyInt());
+    }
+
+    @Test
+    public void modelShouldRunWhenPrefetchedExtentClassChangeDateIsAfterLastModelRunPrepDate() throws Exception {
+        // Arrange
+        setLastModelRunPrepDate(false);
+        setMinNewLocations(10, false);
+        prefetchTriggerMetrics(diseaseGroup.getLastModelRunPrepDate(), 10, DateTime.now());
+
+        // Act
+        boolean result = diseaseProcessGatekeeper.modelShouldRun(DISEASE_GROUP_ID);
+
+        // Assert
+        assertThat(result).isTrue();
+        verify(diseaseService, never()).getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(anyInt());
+    }
+
+    @Test
+    public void extentShouldRunUsesPrefetchedTriggerMetrics() throws Exception {
+        // Arrange
+        setLastExtentGenerationDate(false);
+        setLastModelRunPrepDate(false);
+        setMinNewLocations(10, false);
+        prefetchTriggerMetrics(diseaseGroup.getLastModelRunPrepDate(), 10, null);
+
+        // Act
+        boolean result = diseaseProcessGatekeeper.extentShouldRun(DISEASE_GROUP_ID);
+
+        // Assert
+        assertThat(result).isFalse();
+        verify(diseaseService, never()).getDistinctLocationsCountForTriggeringModelRun(
+                any(DiseaseGroup.class), any(DateTime.class));
+    }
+
+    @Test
+    public void modelShouldRunIgnoresPrefetchedTriggerMetricsForDifferentLastModelRunPrepDate() throws Exception {
+        // Arrange
+        setLastModelRunPrepDate(false);
+        setMinNewLocations(10, false);
+        prefetchTriggerMetrics(DateTime.now().minusDays(3), 20, DateTime.now());
+        when(diseaseService.getDistinctLocationsCountForTriggeringModelRun(diseaseGroup, diseaseGroup.getLastModelRunPrepDate()))
+                .thenReturn(10L);
+
+        // Act
+        boolean result = diseaseProcessGatekeeper.modelShouldRun(DISEASE_GROUP_ID);
+
+        // Assert
+        assertThat(result).isFalse();
+        verify(diseaseService).getDistinctLocationsCountForTriggeringModelRun(diseaseGroup, diseaseGroup.getLastModelRunPrepDate());
+        verify(diseaseService).getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(DISEASE_GROUP_ID);
+    }
+
+    @Test
+    public void modelShouldRunIgnoresDiscardedTriggerMetrics() throws Exception {
+        // Arrange
+        setLastModelRunPrepDate(false);
+        setMinNewLocations(10, false);
+        prefetchTriggerMetrics(diseaseGroup.getLastModelRunPrepDate(), 20, DateTime.now());
+        when(diseaseService.getDistinctLocationsCountForTriggeringModelRun(diseaseGroup, diseaseGroup.getLastModelRunPrepDate()))
+                .thenReturn(10L);
+
+        // Act
+        diseaseProcessGatekeeper.discardTriggerMetrics(DISEASE_GROUP_ID);
+        boolean result = diseaseProcessGatekeeper.modelShouldRun(DISEASE_GROUP_ID);
+
+        // Assert
+        assertThat(result).isFalse();
+        verify(diseaseService).getDistinctLocationsCountForTriggeringModelRun(diseaseGroup, diseaseGroup.getLastModelRunPrepDate());
+        verify(diseaseService).getLatestDiseaseExtentClassChangeDateByDiseaseGroupId(DISEASE_GROUP_ID);
+    }
+
+    private void prefetchTriggerMetrics(DateTime lastModelRunPrepDate, long newLocationCount,
+                                        DateTime latestExtentClassChangeDate) {
+        DiseaseGroupTriggerMetrics metrics = new DiseaseGroupTriggerMetrics(
+                DISEASE_GROUP_ID, lastModelRunPrepDate, newLocationCount, latestExtentClassChangeDate);
+        List<Integer> diseaseGroupIds = Arrays.asList(DISEASE_GROUP_ID);
+        when(diseaseService.getTriggerMetricsForDiseaseGroups(diseaseGroupIds))
+                .thenReturn(Collections.singletonMap(DISEASE_GROUP_ID, metrics));
+        diseaseProcessGatekeeper.prefetchTriggerMetrics(diseaseGroupIds);
+    }
+
     private void expectModelShouldRun(Boolean weekHasElapsed, Boolean hasExtentChanged, Boolean newLocationCountOverThreshold) {
         // Arrange and Act
         boolean result = arrangeAndAct(weekHasElapsed, hasExtentChanged, newLocationCountOverThreshold);
@@ -2,9 +2,13 @@ package uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process;
 
 import org.joda.time.DateTime;
 import org.junit.Test;
+import org.mockito.InOrder;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseProcessType;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.ModelRunWorkflowService;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
@@ -56,7 +60,9 @@ public class DiseaseProcessManagerTest {
         target.updateDiseaseExtents(diseaseGroupId);
 
         // Assert
-        verify(modelRunWorkflowService).generateDiseaseExtent(diseaseGroupId, DiseaseProcessType.AUTOMATIC);
+        InOrder inOrder = inOrder(diseaseProcessGatekeeper, modelRunWorkflowService);
+        inOrder.verify(diseaseProcessGatekeeper).discardTriggerMetrics(diseaseGroupId);
+        inOrder.verify(modelRunWorkflowService).generateDiseaseExtent(diseaseGroupId, DiseaseProcessType.AUTOMATIC);
     }
 
     @Test
@@ -73,6 +79,22 @@ public class DiseaseProcessManagerTest {
 
         // Assert
         verify(modelRunWorkflowService, never()).generateDiseaseExtent(anyInt(), any(DiseaseProcessType.class));
+        verify(diseaseProcessGatekeeper, never()).discardTriggerMetrics(anyInt());
+    }
+
+    @Test
+    public void prefetchGatekeeperMetricsCallsGatekeeper() throws Exception {
+        // Arrange
+        List<Integer> diseaseGroupIds = Arrays.asList(1, 2);
+        ModelRunWorkflowService modelRunWorkflowService = mock(ModelRunWorkflowService.class);
+        DiseaseProcessGatekeeper diseaseProcessGatekeeper = mock(DiseaseProcessGatekeeper.class);
+        DiseaseProcessManager target = new DiseaseProcessManager(diseaseProcessGatekeeper, modelRunWorkflowService);
+
+        // Act
+        target.prefetchGatekeeperMetrics(diseaseGroupIds);
+
+        // Assert
+        verify(diseaseProcessGatekeeper).prefetchTriggerMetrics(diseaseGroupIds);
     }
 
     @Test
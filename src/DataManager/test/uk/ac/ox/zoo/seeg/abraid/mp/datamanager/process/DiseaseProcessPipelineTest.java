@@ -0,0 +1,142 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.datamanager.process;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the DiseaseProcessPipeline class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class DiseaseProcessPipelineTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionIfThreadCountIsLessThanOne() {
+        new DiseaseProcessPipeline(0);
+    }
+
+    @Test
+    public void runPerformsStagesInOrderForEachDiseaseGroupInOrderWithOneThread() {
+        // Arrange
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        DiseaseProcessPipeline pipeline = new DiseaseProcessPipeline(1);
+
+        // Act
+        List<Integer> completed = pipeline.run(Arrays.asList(3, 6, 21),
+                Arrays.asList(createStage("a", calls, null), createStage("b", calls, null)));
+
+        // Assert
+        assertThat(calls).containsExactly("a3", "b3", "a6", "b6", "a21", "b21");
+        assertThat(completed).containsExactly(3, 6, 21);
+    }
+
+    @Test
+    public void runPerformsStagesInOrderForEachDiseaseGroupWithSeveralThreads() {
+        // Arrange
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        DiseaseProcessPipeline pipeline = new DiseaseProcessPipeline(2);
+
+        // Act
+        List<Integer> completed = pipeline.run(Arrays.asList(3, 6, 21),
+                Arrays.asList(createStage("a", calls, null), createStage("b", calls, null)));
+
+        // Assert
+        assertThat(calls).containsOnly("a3", "b3", "a6", "b6", "a21", "b21");
+        for (int diseaseGroupId : Arrays.asList(3, 6, 21)) {
+            assertThat(calls.indexOf("a" + diseaseGroupId)).isLessThan(calls.indexOf("b" + diseaseGroupId));
+        }
+        assertThat(completed).containsExactly(3, 6, 21);
+    }
+
+    @Test
+    public void runProcessesDiseaseGroupsConcurrently() {
+        // Arrange
+        final CountDownLatch latch = new CountDownLatch(3);
+        final List<Integer> awaited = Collections.synchronizedList(new ArrayList<Integer>());
+        DiseaseProcessStage stage = new DiseaseProcessStage("wait for all") {
+            @Override
+            public void run(int diseaseGroupId) {
+                // Only succeeds if all three disease groups are being processed at the same time
+                latch.countDown();
+                try {
+                    if (latch.await(10, TimeUnit.SECONDS)) {
+                        awaited.add(diseaseGroupId);
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void handleFailure(int diseaseGroupId, Exception e) {
+            }
+        };
+        DiseaseProcessPipeline pipeline = new DiseaseProcessPipeline(3);
+
+        // Act
+        List<Integer> completed = pipeline.run(Arrays.asList(3, 6, 21), Arrays.asList(stage));
+
+        // Assert
+        assertThat(awaited).containsOnly(3, 6, 21);
+        assertThat(completed).containsExactly(3, 6, 21);
+    }
+
+    @Test
+    public void runSkipsRemainingStagesOnlyForDiseaseGroupThatFailed() {
+        // Arrange
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        DiseaseProcessPipeline pipeline = new DiseaseProcessPipeline(2);
+
+        // Act
+        List<Integer> completed = pipeline.run(Arrays.asList(3, 6, 21),
+                Arrays.asList(createFailingStage("a", 6, calls, failures), createStage("b", calls, failures)));
+
+        // Assert
+        assertThat(calls).containsOnly("a3", "b3", "a6", "a21", "b21");
+        assertThat(failures).containsExactly("a6");
+        assertThat(completed).containsExactly(3, 21);
+    }
+
+    @Test
+    public void runWithNoDiseaseGroupsDoesNothing() {
+        // Arrange
+        List<String> calls = new ArrayList<>();
+        DiseaseProcessPipeline pipeline = new DiseaseProcessPipeline(4);
+
+        // Act
+        List<Integer> completed = pipeline.run(new ArrayList<Integer>(), Arrays.asList(createStage("a", calls, null)));
+
+        // Assert
+        assertThat(calls).isEmpty();
+        assertThat(completed).isEmpty();
+    }
+
+    private DiseaseProcessStage createStage(String name, List<String> calls, List<String> failures) {
+        return createFailingStage(name, null, calls, failures);
+    }
+
+    private DiseaseProcessStage createFailingStage(final String name, final Integer failingDiseaseGroupId,
+                                                   final List<String> calls, final List<String> failures) {
+        return new DiseaseProcessStage(name) {
+            @Override
+            public void run(int diseaseGroupId) {
+                calls.add(name + diseaseGroupId);
+                if (failingDiseaseGroupId != null && failingDiseaseGroupId == diseaseGroupId) {
+                    throw new RuntimeException("Test failure");
+                }
+            }
+
+            @Override
+            public void handleFailure(int diseaseGroupId, Exception e) {
+                failures.add(name + diseaseGroupId);
+            }
+        };
+    }
+}
@@ -8,6 +8,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.DiseaseOccurrenceValidationService;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -77,11 +78,14 @@ public class BatchingHandlerHelper {
     public void continueBatchingInitialisation(Integer diseaseGroupId, DateTime batchingInitialisationDate) {
         if (batchingInitialisationDate != null) {
             List<DiseaseOccurrence> occurrences = getDiseaseOccurrencesForBatchingInitialisation(diseaseGroupId);
+            List<DiseaseOccurrence> initialisedOccurrences = new ArrayList<>();
             for (DiseaseOccurrence diseaseOccurrence : occurrences) {
                 if (!batchingInitialisationDate.isAfter(diseaseOccurrence.getCreatedDate())) {
                     initialiseOccurrenceForBatching(diseaseOccurrence);
+                    initialisedOccurrences.add(diseaseOccurrence);
                 }
             }
+            diseaseService.saveDiseaseOccurrences(initialisedOccurrences);
         }
     }
 
@@ -106,6 +110,7 @@ public class BatchingHandlerHelper {
             for (DiseaseOccurrence occurrence : occurrences) {
                 initialiseOccurrenceForBatching(occurrence);
             }
+            diseaseService.saveDiseaseOccurrences(occurrences);
         }
 
         return batchingInitialisationDate;
@@ -145,15 +150,12 @@ public class BatchingHandlerHelper {
         occurrence.setStatus(DiseaseOccurrenceStatus.AWAITING_BATCHING);
         occurrence.setFinalWeighting(null);
         occurrence.setFinalWeightingExcludingSpatial(null);
-        diseaseService.saveDiseaseOccurrence(occurrence);
     }
 
     private void setValidationParametersForOccurrencesBatch(List<DiseaseOccurrence> occurrences) {
         if (occurrences.size() > 0) {
             diseaseOccurrenceValidationService.addValidationParameters(occurrences);
-            for (DiseaseOccurrence occurrence : occurrences) {
-                diseaseService.saveDiseaseOccurrence(occurrence);
-            }
+            diseaseService.saveDiseaseOccurrences(occurrences);
         }
     }
 
@@ -6,7 +6,6 @@ import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
 import net.lingala.zip4j.io.ZipInputStream;
 import net.lingala.zip4j.model.FileHeader;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
@@ -20,19 +19,27 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.CovariateService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ValidationParameterCacheService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.ZonalStatistics;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.JsonParser;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.ModelOutputConstants;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RasterFilePathFactory;
 import uk.ac.ox.zoo.seeg.abraid.mp.modeloutputhandler.geoserver.GeoserverRestService;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import static ch.lambdaj.Lambda.*;
 import static ch.lambdaj.collection.LambdaCollections.with;
@@ -53,12 +60,24 @@ public class MainHandler {
     private static final String STATISTICS_CSV = "validation statistics csv";
     private static final String RELATIVE_INFLUENCE_CSV = "relative influence csv";
     private static final String EFFECT_CURVES_CSV = "effect curves csv";
+    private static final String STAGE_SAVE = "save %s";
+    private static final String STAGE_MASK = "mask %s";
+    private static final String STAGE_PUBLISH = "publish %s";
+    private static final String STAGE_ZONAL_STATISTICS = "save zonal statistics";
+    private static final String TIMING_LINE = "%s: %d ms%n";
+    private static final String LOG_OUTPUTS_HANDLED = "Handled outputs for model run \"%s\" in %d ms";
     private static final String LOG_SAVING_FILE =
             "Saving %s (%s bytes) for model run \"%s\"";
     private static final String LOG_COULD_NOT_SAVE =
             "Could not save %s for model run \"%s\"";
     private static final String RASTER_FILE_ALREADY_EXISTS =
             "Raster file \"%s\" already exists";
+    private static final String ZIP_ENTRY_CORRUPT =
+            "File %s in model run outputs does not match its recorded checksum or size";
+    private static final String LOG_COULD_NOT_DELETE_PARTIAL_FILE =
+            "Could not delete partially extracted raster file \"%s\"";
+    private static final String LOG_COULD_NOT_DELETE_OUTPUT_FILE =
+            "Could not delete output file \"%s\" of rejected model outputs";
     private static final String UNKNOWN_COVARIATE_FILE_REFERENCED =
             "Unknown covariate file referenced \"%s\"";
     private static final String FAILED_TO_CREATE_DIRECTORY_FOR_OUTPUT_RASTERS =
@@ -68,6 +87,14 @@ public class MainHandler {
             "Will reattempt deletion when the next model run for disease group '%d' completes.";
     private static final String DELETED_OUTDATED_RASTER =
             "Deleted outdated 'full' raster file '%s'";
+    private static final String LOG_SAVING_ZONAL_STATISTICS =
+            "Saving admin level %s zonal statistics for model run \"%s\"";
+    private static final String LOG_COULD_NOT_SAVE_ZONAL_STATISTICS =
+            "Could not save admin level %s zonal statistics for model run \"%s\". " +
+            "Environmental suitability will be calculated from the admin raster instead.";
+    private static final LocationPrecision[] ADMIN_LEVEL_PRECISIONS = new LocationPrecision[] {
+            LocationPrecision.COUNTRY, LocationPrecision.ADMIN1, LocationPrecision.ADMIN2
+    };
 
     private static final Charset UTF8 = StandardCharsets.UTF_8;
     private static final String COVARIATE_DIR = "covariates/";
@@ -78,19 +105,22 @@ public class MainHandler {
     private final RasterFilePathFactory rasterFilePathFactory;
     private final ModelOutputRasterMaskingHelper modelOutputRasterMaskingHelper;
     private ValidationParameterCacheService cacheService;
+    private final StageGraphExecutor stageGraphExecutor;
 
     public MainHandler(ModelRunService modelRunService,
                        CovariateService covariateService,
                        GeoserverRestService geoserver,
                        RasterFilePathFactory rasterFilePathFactory,
                        ModelOutputRasterMaskingHelper modelOutputRasterMaskingHelper,
-                       ValidationParameterCacheService cacheService) {
+                       ValidationParameterCacheService cacheService,
+                       StageGraphExecutor stageGraphExecutor) {
         this.modelRunService = modelRunService;
         this.covariateService = covariateService;
         this.geoserver = geoserver;
         this.rasterFilePathFactory = rasterFilePathFactory;
         this.modelOutputRasterMaskingHelper = modelOutputRasterMaskingHelper;
         this.cacheService = cacheService;
+        this.stageGraphExecutor = stageGraphExecutor;
     }
 
     /**
@@ -102,6 +132,7 @@ public class MainHandler {
      */
     @Transactional(rollbackFor = Exception.class)
     public ModelRun handleOutputs(File modelRunZipFile) throws ZipException, IOException {
+        long startTime = System.currentTimeMillis();
         ZipFile zipFile = new ZipFile(modelRunZipFile);
 
         // Handle the model run metadata
@@ -110,28 +141,59 @@ public class MainHandler {
 
         boolean areOutputsMandatory = (modelRun.getStatus() == ModelRunStatus.COMPLETED);
 
-        // Extract outputs
+        // Extract the (small) csv outputs into memory
         byte[] validationStatisticsFile =
                 extract(zipFile, ModelOutputConstants.VALIDATION_STATISTICS_FILENAME, areOutputsMandatory);
         byte[] relativeInfluenceFile =
                 extract(zipFile, ModelOutputConstants.RELATIVE_INFLUENCE_FILENAME, areOutputsMandatory);
         byte[] effectCurvesFile =
                 extract(zipFile, ModelOutputConstants.EFFECT_CURVES_FILENAME, areOutputsMandatory);
-        byte[] meanPredictionRaster =
-                extract(zipFile, ModelOutputConstants.MEAN_PREDICTION_RASTER_FILENAME, areOutputsMandatory);
-        byte[] predUncertaintyRaster =
-                extract(zipFile, ModelOutputConstants.PREDICTION_UNCERTAINTY_RASTER_FILENAME, areOutputsMandatory);
-        byte[] extentInputRaster =
-                extract(zipFile, ModelOutputConstants.EXTENT_INPUT_RASTER_FILENAME, areOutputsMandatory);
-
-        // Handle outputs
-        handleValidationStatisticsFile(modelRun, validationStatisticsFile);
-        handleRelativeInfluenceFile(modelRun, relativeInfluenceFile);
-        handleEffectCurvesFile(modelRun, effectCurvesFile);
-        handleExtentInputRaster(modelRun, extentInputRaster);
-        handleMeanPredictionRaster(modelRun, meanPredictionRaster);
-        handlePredictionUncertaintyRaster(modelRun, predUncertaintyRaster);
+        // Find the raster outputs, which are streamed from the zip to their final locations as they are handled
+        FileHeader meanPredictionRaster =
+                findEntry(zipFile, ModelOutputConstants.MEAN_PREDICTION_RASTER_FILENAME, areOutputsMandatory);
+        FileHeader predUncertaintyRaster =
+                findEntry(zipFile, ModelOutputConstants.PREDICTION_UNCERTAINTY_RASTER_FILENAME, areOutputsMandatory);
+        FileHeader extentInputRaster =
+                findEntry(zipFile, ModelOutputConstants.EXTENT_INPUT_RASTER_FILENAME, areOutputsMandatory);
+
+        // Handle outputs. The rasters are saved and masked by the stage graph's pool, concurrently with the ingestion
+        // of the csv outputs, which stays on this thread so that it is within this transaction.
+        List<File> newOutputFiles = getOutputFilesNotYetWritten(modelRun);
+        StageGraph stages = stageGraphExecutor.createGraph();
+        StageGraph.Stage csvStage =
+                addCsvStages(stages, modelRun, validationStatisticsFile, relativeInfluenceFile, effectCurvesFile);
+        StageGraph.Stage extentStage = addExtentInputRasterStage(stages, modelRun, zipFile, extentInputRaster);
+        StageGraph.Stage meanMaskStage =
+                addMeanPredictionRasterStages(stages, modelRun, zipFile, meanPredictionRaster, extentStage);
+        StageGraph.Stage uncertaintyMaskStage =
+                addPredictionUncertaintyRasterStages(stages, modelRun, zipFile, predUncertaintyRaster, extentStage);
+        if (modelRun.getStatus() == ModelRunStatus.COMPLETED) {
+            // The rasters are only published once all of the other outputs have been handled, so that nothing is
+            // published for a model run whose outputs are rejected
+            StageGraph.Stage[] handlingStages = {csvStage, meanMaskStage, uncertaintyMaskStage};
+            addPublishRasterStage(stages, modelRun, PREDICTION_RASTER,
+                    rasterFilePathFactory.getMaskedMeanPredictionRasterFile(modelRun), handlingStages);
+            addPublishRasterStage(stages, modelRun, UNCERTAINTY_RASTER,
+                    rasterFilePathFactory.getMaskedPredictionUncertaintyRasterFile(modelRun), handlingStages);
+        }
+
+        try {
+            stages.awaitCompletion();
+        } catch (IOException e) {
+            // The other stages have run to completion, so remove the files that they wrote (the database changes are
+            // rolled back) so that the outputs can be handled again
+            deleteOutputFiles(newOutputFiles);
+            throw e;
+        }
+
+        if (meanPredictionRaster != null) {
+            cacheService.clearEnvironmentalSuitabilityCacheForDisease(modelRun.getDiseaseGroupId());
+        }
 
+        modelRun.setOutputHandlingTimings(formatTimings(stages.getTimings()));
+        modelRunService.saveModelRun(modelRun);
+        LOGGER.info(String.format(
+                LOG_OUTPUTS_HANDLED, modelRun.getName(), System.currentTimeMillis() - startTime));
         return modelRun;
     }
 
@@ -175,10 +237,13 @@ public class MainHandler {
 
         boolean result = true;
         for (ModelRun runToDelete : runsToDelete) {
-            File[] filesToDelete = new File[] {
-                rasterFilePathFactory.getFullMeanPredictionRasterFile(runToDelete),
-                rasterFilePathFactory.getFullPredictionUncertaintyRasterFile(runToDelete)
-            };
+            List<File> filesToDelete = new ArrayList<>();
+            filesToDelete.add(rasterFilePathFactory.getFullMeanPredictionRasterFile(runToDelete));
+            filesToDelete.add(rasterFilePathFactory.getFullPredictionUncertaintyRasterFile(runToDelete));
+            for (LocationPrecision precision : ADMIN_LEVEL_PRECISIONS) {
+                filesToDelete.add(rasterFilePathFactory.getFullMeanPredictionZonalStatisticsFile(
+                        runToDelete, precision.getModelValue()));
+            }
             for (File fileToDelete : filesToDelete) {
                 if (fileToDelete.exists()) {
                     if (!fileToDelete.delete()) {
@@ -309,90 +374,216 @@ public class MainHandler {
         }
     }
 
-    private void handleMeanPredictionRaster(ModelRun modelRun, byte[] raster) throws IOException {
-        if (raster != null) {
-            try {
-                LOGGER.info(String.format(LOG_SAVING_FILE, PREDICTION_RASTER, raster.length, modelRun.getName()));
+    private StageGraph.Stage addCsvStages(StageGraph stages, final ModelRun modelRun, final byte[] validationStatisticsFile,
+                              final byte[] relativeInfluenceFile, final byte[] effectCurvesFile) {
+        // Each csv is saved in turn, so that the first failure prevents the others from being saved
+        StageGraph.Stage statisticsStage = stages.addCallingThreadStage(
+                String.format(STAGE_SAVE, STATISTICS_CSV), new StageGraph.Action() {
+                    @Override
+                    public void run() throws Exception {
+                        handleValidationStatisticsFile(modelRun, validationStatisticsFile);
+                    }
+                });
+        StageGraph.Stage relativeInfluenceStage = stages.addCallingThreadStage(
+                String.format(STAGE_SAVE, RELATIVE_INFLUENCE_CSV), new StageGraph.Action() {
+                    @Override
+                    public void run() throws Exception {
+                        handleRelativeInfluenceFile(modelRun, relativeInfluenceFile);
+                    }
+                }, statisticsStage);
+        return stages.addCallingThreadStage(
+                String.format(STAGE_SAVE, EFFECT_CURVES_CSV), new StageGraph.Action() {
+                    @Override
+                    public void run() throws Exception {
+                        handleEffectCurvesFile(modelRun, effectCurvesFile);
+                    }
+                }, relativeInfluenceStage);
+    }
 
-                File fullFile = rasterFilePathFactory.getFullMeanPredictionRasterFile(modelRun);
-                saveRaster(fullFile, raster);
+    private StageGraph.Stage addExtentInputRasterStage(StageGraph stages, ModelRun modelRun, ZipFile zipFile,
+                                                       FileHeader raster) {
+        if (raster == null) {
+            return null;
+        }
+        File file = rasterFilePathFactory.getExtentInputRasterFile(modelRun);
+        return addSaveRasterStage(stages, modelRun, EXTENT_RASTER, file, zipFile, raster);
+    }
 
-                File maskedFile = rasterFilePathFactory.getMaskedMeanPredictionRasterFile(modelRun);
-                File maskFile = rasterFilePathFactory.getExtentInputRasterFile(modelRun);
-                modelOutputRasterMaskingHelper.maskRaster(maskedFile, fullFile, maskFile, 0);
+    private StageGraph.Stage addMeanPredictionRasterStages(StageGraph stages, final ModelRun modelRun,
+                                                           ZipFile zipFile, FileHeader raster,
+                                                           StageGraph.Stage extentStage) {
+        if (raster == null) {
+            return null;
+        }
 
-                if (modelRun.getStatus() == ModelRunStatus.COMPLETED) {
-                    geoserver.publishGeoTIFF(maskedFile);
-                }
+        final File fullFile = rasterFilePathFactory.getFullMeanPredictionRasterFile(modelRun);
+        StageGraph.Stage saveStage = addSaveRasterStage(stages, modelRun, PREDICTION_RASTER, fullFile, zipFile,
+                raster);
 
-                cacheService.clearEnvironmentalSuitabilityCacheForDisease(modelRun.getDiseaseGroupId());
-            } catch (Exception e) {
-                throw new IOException(String.format(LOG_COULD_NOT_SAVE, PREDICTION_RASTER, modelRun.getName()), e);
+        stages.addStage(STAGE_ZONAL_STATISTICS, new StageGraph.Action() {
+            @Override
+            public void run() throws Exception {
+                saveZonalStatistics(modelRun, fullFile);
             }
+        }, saveStage);
+
+        File maskedFile = rasterFilePathFactory.getMaskedMeanPredictionRasterFile(modelRun);
+        return addMaskRasterStage(stages, modelRun, PREDICTION_RASTER, maskedFile, fullFile, 0,
+                saveStage, extentStage);
+    }
+
+    private StageGraph.Stage addPredictionUncertaintyRasterStages(StageGraph stages, ModelRun modelRun,
+                                                                  ZipFile zipFile, FileHeader raster,
+                                                                  StageGraph.Stage extentStage) {
+        if (raster == null) {
+            return null;
         }
+        File fullFile = rasterFilePathFactory.getFullPredictionUncertaintyRasterFile(modelRun);
+        StageGraph.Stage saveStage = addSaveRasterStage(stages, modelRun, UNCERTAINTY_RASTER, fullFile, zipFile,
+                raster);
+
+        File maskedFile = rasterFilePathFactory.getMaskedPredictionUncertaintyRasterFile(modelRun);
+        return addMaskRasterStage(stages, modelRun, UNCERTAINTY_RASTER, maskedFile, fullFile,
+                RasterUtils.UNKNOWN_VALUE, saveStage, extentStage);
     }
 
-    private void handlePredictionUncertaintyRaster(ModelRun modelRun, byte[] raster) throws IOException {
-        if (raster != null) {
-            try {
-                LOGGER.info(String.format(LOG_SAVING_FILE, UNCERTAINTY_RASTER, raster.length, modelRun.getName()));
+    private StageGraph.Stage addSaveRasterStage(StageGraph stages, final ModelRun modelRun, final String rasterName,
+                                                final File file, final ZipFile zipFile, final FileHeader raster) {
+        // Each raster is read from the zip with its own input stream, so they can be extracted concurrently
+        return stages.addStage(String.format(STAGE_SAVE, rasterName),
+                new RasterStageAction(modelRun, rasterName) {
+                    @Override
+                    protected void runStage() throws Exception {
+                        LOGGER.info(String.format(
+                                LOG_SAVING_FILE, rasterName, raster.getUncompressedSize(), modelRun.getName()));
+                        saveRaster(file, zipFile, raster);
+                    }
+                });
+    }
 
-                File fullFile = rasterFilePathFactory.getFullPredictionUncertaintyRasterFile(modelRun);
-                saveRaster(fullFile, raster);
+    private StageGraph.Stage addMaskRasterStage(StageGraph stages, ModelRun modelRun, String rasterName,
+                                                final File maskedFile, final File fullFile, final int extentMaskValue,
+                                                StageGraph.Stage saveStage, StageGraph.Stage extentStage) {
+        final File maskFile = rasterFilePathFactory.getExtentInputRasterFile(modelRun);
+        return stages.addStage(String.format(STAGE_MASK, rasterName),
+                new RasterStageAction(modelRun, rasterName) {
+                    @Override
+                    protected void runStage() throws Exception {
+                        modelOutputRasterMaskingHelper.maskRaster(maskedFile, fullFile, maskFile, extentMaskValue);
+                    }
+                }, saveStage, extentStage);
+    }
 
-                File maskedFile = rasterFilePathFactory.getMaskedPredictionUncertaintyRasterFile(modelRun);
-                File maskFile = rasterFilePathFactory.getExtentInputRasterFile(modelRun);
-                modelOutputRasterMaskingHelper.maskRaster(maskedFile, fullFile, maskFile, RasterUtils.UNKNOWN_VALUE);
+    private void addPublishRasterStage(StageGraph stages, ModelRun modelRun, String rasterName,
+                                       final File maskedFile, StageGraph.Stage... dependencies) {
+        stages.addStage(String.format(STAGE_PUBLISH, rasterName),
+                new RasterStageAction(modelRun, rasterName) {
+                    @Override
+                    protected void runStage() throws Exception {
+                        geoserver.publishGeoTIFF(maskedFile);
+                    }
+                }, dependencies);
+    }
 
-                if (modelRun.getStatus() == ModelRunStatus.COMPLETED) {
-                    geoserver.publishGeoTIFF(maskedFile);
-                }
-            } catch (Exception e) {
-                throw new IOException(String.format(LOG_COULD_NOT_SAVE, UNCERTAINTY_RASTER, modelRun.getName()), e);
+    private List<File> getOutputFilesNotYetWritten(ModelRun modelRun) {
+        List<File> outputFiles = new ArrayList<>();
+        outputFiles.add(rasterFilePathFactory.getExtentInputRasterFile(modelRun));
+        outputFiles.add(rasterFilePathFactory.getFullMeanPredictionRasterFile(modelRun));
+        outputFiles.add(rasterFilePathFactory.getMaskedMeanPredictionRasterFile(modelRun));
+        outputFiles.add(rasterFilePathFactory.getFullPredictionUncertaintyRasterFile(modelRun));
+        outputFiles.add(rasterFilePathFactory.getMaskedPredictionUncertaintyRasterFile(modelRun));
+        for (LocationPrecision precision : ADMIN_LEVEL_PRECISIONS) {
+            outputFiles.add(rasterFilePathFactory.getFullMeanPredictionZonalStatisticsFile(
+                    modelRun, precision.getModelValue()));
+        }
+
+        List<File> filesNotYetWritten = new ArrayList<>();
+        for (File outputFile : outputFiles) {
+            if (!outputFile.exists()) {
+                filesNotYetWritten.add(outputFile);
+            }
+        }
+        return filesNotYetWritten;
+    }
+
+    private void deleteOutputFiles(List<File> outputFiles) {
+        for (File outputFile : outputFiles) {
+            if (outputFile.exists() && !outputFile.delete()) {
+                LOGGER.warn(String.format(LOG_COULD_NOT_DELETE_OUTPUT_FILE, outputFile.getAbsolutePath()));
             }
         }
     }
 
-    private void handleExtentInputRaster(ModelRun modelRun, byte[] raster) throws IOException {
-        if (raster != null) {
+    private static String formatTimings(Map<String, Long> timings) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> timing : timings.entrySet()) {
+            builder.append(String.format(TIMING_LINE, timing.getKey(), timing.getValue()));
+        }
+        return builder.toString();
+    }
+
+    private void saveZonalStatistics(ModelRun modelRun, File fullFile) {
+        // The per admin unit averages are an optimisation for the DataManager's environmental suitability lookups,
+        // so failure to create them should not prevent the model outputs from being saved
+        for (LocationPrecision precision : ADMIN_LEVEL_PRECISIONS) {
+            int level = precision.getModelValue();
             try {
-                LOGGER.info(String.format(LOG_SAVING_FILE, EXTENT_RASTER, raster.length, modelRun.getName()));
-                File file = rasterFilePathFactory.getExtentInputRasterFile(modelRun);
-                saveRaster(file, raster);
+                LOGGER.info(String.format(LOG_SAVING_ZONAL_STATISTICS, level, modelRun.getName()));
+                File adminRaster = rasterFilePathFactory.getAdminRaster(level);
+                ZonalStatistics statistics = RasterUtils.calculateZonalStatistics(fullFile, adminRaster);
+                statistics.writeToFile(rasterFilePathFactory.getFullMeanPredictionZonalStatisticsFile(modelRun, level));
             } catch (Exception e) {
-                throw new IOException(String.format(LOG_COULD_NOT_SAVE, EXTENT_RASTER, modelRun.getName()), e);
+                LOGGER.warn(String.format(LOG_COULD_NOT_SAVE_ZONAL_STATISTICS, level, modelRun.getName()), e);
             }
         }
     }
 
-    private File saveRaster(File file, byte[] raster) throws IOException {
+    private File saveRaster(File file, ZipFile zipFile, FileHeader raster) throws ZipException, IOException {
         if (file.exists()) {
             throw new IOException(String.format(RASTER_FILE_ALREADY_EXISTS, file));
         }
 
-        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+        // The rasters are saved concurrently, so another stage may create the directory first
+        if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
             throw new IOException(String.format(
                     FAILED_TO_CREATE_DIRECTORY_FOR_OUTPUT_RASTERS, file.getParentFile().getAbsolutePath()));
         }
 
-        FileUtils.writeByteArrayToFile(file, raster);
+        // Stream the entry to a temporary file alongside the raster, so that a failed or corrupt extraction does not
+        // leave a partial raster in place (which would block the outputs from being handled again)
+        File tempFile = File.createTempFile(file.getName(), ".part", file.getParentFile());
+        try {
+            extractToFile(zipFile, raster, tempFile);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                LOGGER.warn(String.format(LOG_COULD_NOT_DELETE_PARTIAL_FILE, tempFile.getAbsolutePath()));
+            }
+        }
         return file;
     }
 
-    private byte[] extract(ZipFile zipFile, String file, boolean isFileMandatory) throws ZipException, IOException {
-        // Files in the zip are flattened, so remove the folder prefix if there is one
-        String fileName = getFileNameFromPath(file);
+    private void extractToFile(ZipFile zipFile, FileHeader header, File file) throws ZipException, IOException {
+        CheckedInputStream checkedStream = null;
+        long size;
+        try (ZipInputStream inputStream = zipFile.getInputStream(header);
+             OutputStream outputStream = new FileOutputStream(file)) {
+            checkedStream = new CheckedInputStream(inputStream, new CRC32());
+            size = IOUtils.copyLarge(checkedStream, outputStream);
+        }
 
+        // Verify the extracted content against the digest (and size) recorded in the zip
+        if (size != header.getUncompressedSize() || checkedStream.getChecksum().getValue() != header.getCrc32()) {
+            throw new IOException(String.format(ZIP_ENTRY_CORRUPT, header.getFileName()));
+        }
+    }
+
+    private byte[] extract(ZipFile zipFile, String file, boolean isFileMandatory) throws ZipException, IOException {
         // Extract from zip
-        FileHeader header = zipFile.getFileHeader(fileName);
+        FileHeader header = findEntry(zipFile, file, isFileMandatory);
         if (header == null) {
-            if (isFileMandatory) {
-                // Mandatory file not found - throw exception
-                throw new IllegalArgumentException(String.format("File %s missing from model run outputs", fileName));
-            } else {
-                // Optional file not found - return null
-                return null;
-            }
+            // Optional file not found - return null
+            return null;
         } else {
             try (ZipInputStream inputStream = zipFile.getInputStream(header)) {
                 return IOUtils.toByteArray(inputStream);
@@ -400,6 +591,18 @@ public class MainHandler {
         }
     }
 
+    private FileHeader findEntry(ZipFile zipFile, String file, boolean isFileMandatory) throws ZipException {
+        // Files in the zip are flattened, so remove the folder prefix if there is one
+        String fileName = getFileNameFromPath(file);
+
+        FileHeader header = zipFile.getFileHeader(fileName);
+        if (header == null && isFileMandatory) {
+            // Mandatory file not found - throw exception
+            throw new IllegalArgumentException(String.format("File %s missing from model run outputs", fileName));
+        }
+        return header;
+    }
+
     private String getFileNameFromPath(String file) {
         return Paths.get(file).getFileName().toString();
     }
@@ -411,4 +614,28 @@ public class MainHandler {
         }
         return modelRun;
     }
+
+    /**
+     * A stage action that handles a raster output, and reports any failure as a failure to save that raster.
+     */
+    private abstract static class RasterStageAction implements StageGraph.Action {
+        private final ModelRun modelRun;
+        private final String rasterName;
+
+        protected RasterStageAction(ModelRun modelRun, String rasterName) {
+            this.modelRun = modelRun;
+            this.rasterName = rasterName;
+        }
+
+        @Override
+        public void run() throws Exception {
+            try {
+                runStage();
+            } catch (Exception e) {
+                throw new IOException(String.format(LOG_COULD_NOT_SAVE, rasterName, modelRun.getName()), e);
+            }
+        }
+
+        protected abstract void runStage() throws Exception;
+    }
 }
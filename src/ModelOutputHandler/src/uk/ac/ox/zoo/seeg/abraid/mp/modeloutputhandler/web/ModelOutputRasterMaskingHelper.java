@@ -6,10 +6,10 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterTransformation;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
 
-import java.awt.image.Raster;
-import java.awt.image.WritableRaster;
+import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Helper class to perform the masking transformation on model output rasters.
@@ -22,10 +22,13 @@ public class ModelOutputRasterMaskingHelper {
 
     private final int extentAbsenceValue;
     private final WaterBodiesMaskRasterFileLocator waterBodiesMaskRasterFileLocator;
+    private final ForkJoinPool rasterProcessingPool;
 
     public ModelOutputRasterMaskingHelper(DiseaseService diseaseService,
-                                          WaterBodiesMaskRasterFileLocator waterBodiesMaskRasterFileLocator) {
+                                          WaterBodiesMaskRasterFileLocator waterBodiesMaskRasterFileLocator,
+                                          ForkJoinPool rasterProcessingPool) {
         this.waterBodiesMaskRasterFileLocator = waterBodiesMaskRasterFileLocator;
+        this.rasterProcessingPool = rasterProcessingPool;
         this.extentAbsenceValue = diseaseService.getDiseaseExtentClass(DiseaseExtentClass.ABSENCE).getWeighting();
     }
 
@@ -42,36 +45,33 @@ public class ModelOutputRasterMaskingHelper {
     public void maskRaster(final File targetFile, final File sourceRasterFile,
                            final File extentRasterFile, final int extentMaskValue) throws IOException {
         File[] referenceRasterFiles = new File[] {extentRasterFile, waterBodiesMaskRasterFileLocator.getFile()};
+        LOGGER.info(LOG_TRANSFORMING_RASTER_DATA);
         RasterUtils.transformRaster(sourceRasterFile, targetFile, referenceRasterFiles, new RasterTransformation() {
             @Override
-            public void transform(WritableRaster raster, Raster[] referenceRasters) throws IOException {
-                transformRaster(raster, referenceRasters[0], extentMaskValue, referenceRasters[1]);
+            public void transform(double[] values, double[][] referenceValues, Rectangle bounds) {
+                transformRaster(values, referenceValues[0], extentMaskValue, referenceValues[1]);
             }
-        });
+        }, rasterProcessingPool);
     }
 
-    private void transformRaster(WritableRaster raster, Raster extentRaster, int extentMaskValue,
-                                 Raster waterBodiesMaskRaster) {
-        LOGGER.info(LOG_TRANSFORMING_RASTER_DATA);
-
-        for (int i = 0; i < raster.getWidth(); i++) {
-            for (int j = 0; j < raster.getHeight(); j++) {
-                int rasterValue = raster.getSample(i, j, 0);
-                if (rasterValue != RasterUtils.NO_DATA_VALUE) {
-                    int waterBodiesValue = waterBodiesMaskRaster.getSample(i, j, 0);
-                    if (waterBodiesValue != RasterUtils.NO_DATA_VALUE) {
-                        // Make sure water bodies aren't predicted
-                        raster.setSample(i, j, 0, RasterUtils.NO_DATA_VALUE);
-                    } else {
-                        int extentValue = extentRaster.getSample(i, j, 0);
-                        if (extentValue == extentAbsenceValue) {
-                            // Make sure absence regions aren't predicted
-                            raster.setSample(i, j, 0, extentMaskValue);
-                        } else if (extentValue == RasterUtils.NO_DATA_VALUE) {
-                            // Make sure that areas that we consider to be sea are treated as sea.
-                            // This accounts for the mis-match in extent/admin rasters grids vs the covariates.
-                            raster.setSample(i, j, 0, RasterUtils.NO_DATA_VALUE);
-                        }
+    private void transformRaster(double[] values, double[] extentValues, int extentMaskValue,
+                                 double[] waterBodiesMaskValues) {
+        for (int i = 0; i < values.length; i++) {
+            int rasterValue = (int) values[i];
+            if (rasterValue != RasterUtils.NO_DATA_VALUE) {
+                int waterBodiesValue = (int) waterBodiesMaskValues[i];
+                if (waterBodiesValue != RasterUtils.NO_DATA_VALUE) {
+                    // Make sure water bodies aren't predicted
+                    values[i] = RasterUtils.NO_DATA_VALUE;
+                } else {
+                    int extentValue = (int) extentValues[i];
+                    if (extentValue == extentAbsenceValue) {
+                        // Make sure absence regions aren't predicted
+                        values[i] = extentMaskValue;
+                    } else if (extentValue == RasterUtils.NO_DATA_VALUE) {
+                        // Make sure that areas that we consider to be sea are treated as sea.
+                        // This accounts for the mis-match in extent/admin rasters grids vs the covariates.
+                        values[i] = RasterUtils.NO_DATA_VALUE;
                     }
                 }
             }
@@ -0,0 +1,259 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modeloutputhandler.web;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A graph of dependent stages (e.g. of model output handling). Each stage is started as soon as all of the stages
+ * that it depends on have succeeded, so independent stages run concurrently. Stages are either run in the pool of the
+ * StageGraphExecutor that created the graph, or on the thread that awaits the graph's completion (e.g. for database
+ * work that must stay within the caller's transaction). If a stage fails, the stages that depend on it (directly or
+ * indirectly) are skipped, but all other stages still run to completion. The duration of each stage is recorded.
+ * Created via StageGraphExecutor.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class StageGraph {
+    private static final Logger LOGGER = Logger.getLogger(StageGraph.class);
+    private static final String LOG_STAGE_COMPLETED = "Stage \"%s\" completed in %d ms";
+    private static final String LOG_STAGE_FAILED = "Stage \"%s\" failed after %d ms";
+    private static final String LOG_STAGE_SKIPPED = "Stage \"%s\" skipped as stage \"%s\" did not succeed";
+    private static final String UNKNOWN_DEPENDENCY = "Stage \"%s\" depends on a stage of a different graph";
+    private static final String STAGE_FAILED = "Stage \"%s\" failed";
+    private static final String INTERRUPTED = "Interrupted while waiting for stages to complete";
+
+    /**
+     * The work done by a stage.
+     */
+    public interface Action {
+        /**
+         * Performs the work of the stage.
+         * @throws Exception if the stage fails.
+         */
+        void run() throws Exception;
+    }
+
+    private final StageGraphExecutor executor;
+    private final List<Stage> stages = new ArrayList<>();
+    private int unfinishedStageCount = 0;
+
+    StageGraph(StageGraphExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a stage that runs in the executor's pool, as soon as all of its dependencies have succeeded.
+     * @param name The name of the stage (used for logging and timings).
+     * @param action The work done by the stage.
+     * @param dependencies The stages (of this graph) that must succeed before this stage starts. Null dependencies
+     * (e.g. optional stages that were not added) are ignored.
+     * @return The stage, for use as a dependency of later stages.
+     */
+    public Stage addStage(String name, Action action, Stage... dependencies) {
+        return add(name, action, false, dependencies);
+    }
+
+    /**
+     * Adds a stage that runs on the thread that calls awaitCompletion, as soon as all of its dependencies have
+     * succeeded.
+     * @param name The name of the stage (used for logging and timings).
+     * @param action The work done by the stage.
+     * @param dependencies The stages (of this graph) that must succeed before this stage starts. Null dependencies
+     * (e.g. optional stages that were not added) are ignored.
+     * @return The stage, for use as a dependency of later stages.
+     */
+    public Stage addCallingThreadStage(String name, Action action, Stage... dependencies) {
+        return add(name, action, true, dependencies);
+    }
+
+    /**
+     * Runs the calling thread stages as they become ready, and waits for all other stages to finish (succeed, fail or
+     * be skipped).
+     * @throws IOException the failure of the first stage (in the order that the stages were added) that failed, if
+     * any. The failure is thrown as is if it is an IOException, otherwise it is the cause.
+     */
+    public void awaitCompletion() throws IOException {
+        Stage stage;
+        while ((stage = takeReadyCallingThreadStage()) != null) {
+            stage.run();
+        }
+
+        for (Stage added : getStages()) {
+            if (added.status == Status.FAILED) {
+                if (added.failure instanceof IOException) {
+                    throw (IOException) added.failure;
+                }
+                throw new IOException(String.format(STAGE_FAILED, added.name), added.failure);
+            }
+        }
+    }
+
+    /**
+     * Gets the durations of the stages that have run (succeeded or failed), in the order that the stages were added.
+     * @return The stage durations in milliseconds, keyed by stage name.
+     */
+    public synchronized Map<String, Long> getTimings() {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        for (Stage stage : stages) {
+            if (stage.status == Status.SUCCEEDED || stage.status == Status.FAILED) {
+                timings.put(stage.name, stage.durationInMilliseconds);
+            }
+        }
+        return timings;
+    }
+
+    private synchronized Stage add(String name, Action action, boolean runOnCallingThread, Stage... dependencies) {
+        Stage stage = new Stage(name, action, runOnCallingThread);
+        for (Stage dependency : dependencies) {
+            if (dependency != null && !stages.contains(dependency)) {
+                throw new IllegalArgumentException(String.format(UNKNOWN_DEPENDENCY, name));
+            }
+        }
+        stages.add(stage);
+        unfinishedStageCount++;
+
+        for (Stage dependency : dependencies) {
+            if (dependency != null && (dependency.status == Status.FAILED || dependency.status == Status.SKIPPED)) {
+                skip(stage, dependency);
+                return stage;
+            } else if (dependency != null && dependency.status != Status.SUCCEEDED) {
+                dependency.dependents.add(stage);
+                stage.unfinishedDependencyCount++;
+            }
+        }
+        if (stage.unfinishedDependencyCount == 0) {
+            makeReady(stage);
+        }
+        return stage;
+    }
+
+    private synchronized List<Stage> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    private synchronized Stage takeReadyCallingThreadStage() throws IOException {
+        while (unfinishedStageCount > 0) {
+            for (Stage stage : stages) {
+                if (stage.status == Status.READY) {
+                    stage.status = Status.RUNNING;
+                    return stage;
+                }
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(INTERRUPTED, e);
+            }
+        }
+        return null;
+    }
+
+    private void makeReady(final Stage stage) {
+        if (stage.runOnCallingThread) {
+            stage.status = Status.READY;
+            notifyAll();
+        } else {
+            stage.status = Status.RUNNING;
+            try {
+                executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        stage.run();
+                        return null;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor has been shut down
+                finish(stage, 0, e);
+            }
+        }
+    }
+
+    private synchronized void finish(Stage stage, long durationInMilliseconds, Throwable failure) {
+        stage.durationInMilliseconds = durationInMilliseconds;
+        stage.failure = failure;
+        stage.status = (failure == null) ? Status.SUCCEEDED : Status.FAILED;
+        unfinishedStageCount--;
+
+        for (Stage dependent : stage.dependents) {
+            if (dependent.status == Status.WAITING) {
+                if (failure == null) {
+                    dependent.unfinishedDependencyCount--;
+                    if (dependent.unfinishedDependencyCount == 0) {
+                        makeReady(dependent);
+                    }
+                } else {
+                    skip(dependent, stage);
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    private void skip(Stage stage, Stage cause) {
+        LOGGER.warn(String.format(LOG_STAGE_SKIPPED, stage.name, cause.name));
+        stage.status = Status.SKIPPED;
+        unfinishedStageCount--;
+        for (Stage dependent : stage.dependents) {
+            if (dependent.status == Status.WAITING) {
+                skip(dependent, stage);
+            }
+        }
+    }
+
+    /**
+     * The lifecycle of a stage.
+     */
+    private enum Status {
+        WAITING, READY, RUNNING, SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * A stage of the graph.
+     */
+    public final class Stage {
+        private final String name;
+        private final Action action;
+        private final boolean runOnCallingThread;
+        private final List<Stage> dependents = new ArrayList<>();
+        private int unfinishedDependencyCount = 0;
+        private Status status = Status.WAITING;
+        private long durationInMilliseconds;
+        private Throwable failure;
+
+        private Stage(String name, Action action, boolean runOnCallingThread) {
+            this.name = name;
+            this.action = action;
+            this.runOnCallingThread = runOnCallingThread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void run() {
+            long startTime = System.currentTimeMillis();
+            Throwable stageFailure = null;
+            try {
+                action.run();
+            } catch (Throwable e) {
+                stageFailure = e;
+            }
+
+            long duration = System.currentTimeMillis() - startTime;
+            if (stageFailure == null) {
+                LOGGER.info(String.format(LOG_STAGE_COMPLETED, name, duration));
+            } else {
+                LOGGER.error(String.format(LOG_STAGE_FAILED, name, duration), stageFailure);
+            }
+            finish(this, duration, stageFailure);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modeloutputhandler.web;
+
+import org.apache.log4j.Logger;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractAsynchronousActionHandler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Owns the thread pool in which the stages of StageGraphs are run. Stages are only submitted to the pool once their
+ * dependencies have succeeded, so no pool thread is held waiting for another stage.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class StageGraphExecutor extends AbstractAsynchronousActionHandler {
+    private static final Logger LOGGER = Logger.getLogger(StageGraphExecutor.class);
+
+    public StageGraphExecutor(int threadPoolSize) {
+        super(threadPoolSize, LOGGER);
+    }
+
+    /**
+     * Creates a new, empty, graph of stages to run in this executor's pool.
+     * @return The graph.
+     */
+    public StageGraph createGraph() {
+        return new StageGraph(this);
+    }
+
+    <T> Future<T> submit(Callable<T> task) {
+        return submitAsynchronousTask(task);
+    }
+}
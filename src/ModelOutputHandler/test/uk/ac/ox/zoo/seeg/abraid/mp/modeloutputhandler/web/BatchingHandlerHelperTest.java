@@ -57,7 +57,7 @@ public class BatchingHandlerHelperTest {
         verify(diseaseService, never()).getDiseaseOccurrencesByDiseaseGroupId(anyInt());
         verify(diseaseService, never()).getDiseaseOccurrencesForBatching(anyInt(), any(DateTime.class), any(DateTime.class));
         verify(diseaseOccurrenceValidationService, never()).addValidationParameters(anyListOf(DiseaseOccurrence.class));
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        verify(diseaseService, never()).saveDiseaseOccurrences(anyCollectionOf(DiseaseOccurrence.class));
         verify(modelRunService, never()).saveModelRun(any(ModelRun.class));
     }
 
@@ -81,7 +81,7 @@ public class BatchingHandlerHelperTest {
         verify(diseaseService, never()).getDiseaseOccurrencesByDiseaseGroupId(anyInt());
         verify(diseaseService, never()).getDiseaseOccurrencesForBatching(anyInt(), any(DateTime.class), any(DateTime.class));
         verify(diseaseOccurrenceValidationService, never()).addValidationParameters(anyListOf(DiseaseOccurrence.class));
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        verify(diseaseService, never()).saveDiseaseOccurrences(anyCollectionOf(DiseaseOccurrence.class));
         verify(modelRunService, never()).saveModelRun(any(ModelRun.class));
     }
 
@@ -114,8 +114,7 @@ public class BatchingHandlerHelperTest {
 
         // Assert
         assertThat(batchingInitialisationDate).isEqualTo(DateTime.now());
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence1));
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence2));
+        verify(diseaseService).saveDiseaseOccurrences(same(occurrences));
         assertThat(occurrence1.getFinalWeighting()).isNull();
         assertThat(occurrence2.getFinalWeightingExcludingSpatial()).isNull();
     }
@@ -140,7 +139,7 @@ public class BatchingHandlerHelperTest {
         assertThat(batchingInitialisationDate).isNull();
         verify(modelRunService).hasBatchingEverCompleted(eq(diseaseGroupId));
         verify(diseaseService, never()).getDiseaseOccurrencesByDiseaseGroupId(anyInt());
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        verify(diseaseService, never()).saveDiseaseOccurrences(anyCollectionOf(DiseaseOccurrence.class));
     }
 
     @Test
@@ -161,7 +160,7 @@ public class BatchingHandlerHelperTest {
         verify(modelRunService, never()).hasBatchingEverCompleted(anyInt());
         verify(diseaseService, never()).getDiseaseOccurrencesForBatching(anyInt(), any(DateTime.class), any(DateTime.class));
         verify(diseaseOccurrenceValidationService, never()).addValidationParameters(anyListOf(DiseaseOccurrence.class));
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        verify(diseaseService, never()).saveDiseaseOccurrences(anyCollectionOf(DiseaseOccurrence.class));
         verify(modelRunService, never()).saveModelRun(any(ModelRun.class));
     }
 
@@ -191,7 +190,8 @@ public class BatchingHandlerHelperTest {
         verify(diseaseService).getDiseaseOccurrencesForBatching(
                 eq(diseaseGroupId), eq(batchStartDate), eq(batchEndDate));
         verify(diseaseOccurrenceValidationService, never()).addValidationParameters(anyListOf(DiseaseOccurrence.class));
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        // Batching initialisation found no occurrences
+        verify(diseaseService).saveDiseaseOccurrences(new ArrayList<DiseaseOccurrence>());
         verify(modelRunService).saveModelRun(modelRun);
     }
 
@@ -225,8 +225,7 @@ public class BatchingHandlerHelperTest {
         verify(diseaseService).getDiseaseOccurrencesForBatching(
                 eq(diseaseGroupId), eq(batchStartDate), eq(batchEndDate));
         verify(diseaseOccurrenceValidationService).addValidationParameters(same(occurrences));
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence1));
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence2));
+        verify(diseaseService).saveDiseaseOccurrences(same(occurrences));
         verify(modelRunService).saveModelRun(modelRun);
     }
 
@@ -241,7 +240,7 @@ public class BatchingHandlerHelperTest {
         // Assert
         verify(diseaseService, never()).getDiseaseOccurrencesByDiseaseGroupIdAndStatuses(anyInt(),
                 any(DiseaseOccurrenceStatus.class));
-        verify(diseaseService, never()).saveDiseaseOccurrence(any(DiseaseOccurrence.class));
+        verify(diseaseService, never()).saveDiseaseOccurrences(anyCollectionOf(DiseaseOccurrence.class));
     }
 
     @Test
@@ -262,9 +261,7 @@ public class BatchingHandlerHelperTest {
         assertThat(occurrence2.getStatus()).isEqualTo(DiseaseOccurrenceStatus.AWAITING_BATCHING);
         assertThat(occurrence3.getStatus()).isEqualTo(DiseaseOccurrenceStatus.AWAITING_BATCHING);
 
-        verify(diseaseService, never()).saveDiseaseOccurrence(same(occurrence1));
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence2));
-        verify(diseaseService).saveDiseaseOccurrence(same(occurrence3));
+        verify(diseaseService).saveDiseaseOccurrences(Arrays.asList(occurrence2, occurrence3));
     }
 
     private ModelRun createModelRun(int diseaseGroupId, ModelRunStatus status) {
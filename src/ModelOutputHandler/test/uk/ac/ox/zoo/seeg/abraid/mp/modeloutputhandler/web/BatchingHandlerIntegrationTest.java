@@ -4,6 +4,8 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
 import org.junit.Test;
 import org.kubek2k.springockito.annotations.ReplaceWithMock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
@@ -21,6 +23,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractSpringIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.SpringockitoWebContextLoader;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 import static ch.lambdaj.Lambda.*;
@@ -28,6 +31,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
@@ -81,6 +86,14 @@ public class BatchingHandlerIntegrationTest extends AbstractSpringIntegrationTes
 
         // As this is the first batch, there was no training data available, so no prediction can be made.
         when(machineWeightingPredictor.findMachineWeighting(any(DiseaseOccurrence.class))).thenReturn(null);
+        when(machineWeightingPredictor.findMachineWeightings(anyInt(), anyListOf(DiseaseOccurrence.class)))
+                .thenAnswer(new Answer<List<Double>>() {
+                    @Override
+                    public List<Double> answer(InvocationOnMock invocation) throws Throwable {
+                        List<?> occurrences = (List<?>) invocation.getArguments()[1];
+                        return Collections.nCopies(occurrences.size(), (Double) null);
+                    }
+                });
 
         // Act
         batchingHandler.handle(modelRun);
@@ -4,6 +4,7 @@ import ch.lambdaj.Lambda;
 import ch.lambdaj.function.convert.Converter;
 import freemarker.template.TemplateException;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
@@ -35,13 +36,20 @@ import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractSpringIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.SpringockitoWebContextLoader;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.extractProperty;
@@ -160,6 +168,14 @@ public class MainControllerIntegrationTest extends AbstractSpringIntegrationTest
         assertThatRasterWrittenToFile(run, "prediction_uncertainty.tif", "uncertainty");
         assertThatRasterPublishedToGeoserver(run, "uncertainty");
         assertThatRasterWrittenToFile(run, "extent.tif", "extent");
+        assertThat(run.getOutputHandlingTimings())
+                .contains("save validation statistics csv: ")
+                .contains("save extent raster: ")
+                .contains("save zonal statistics: ")
+                .contains("mask prediction raster: ")
+                .contains("publish prediction raster: ")
+                .contains("mask uncertainty raster: ")
+                .contains("publish uncertainty raster: ");
     }
 
     @Test
@@ -234,6 +250,43 @@ public class MainControllerIntegrationTest extends AbstractSpringIntegrationTest
                 .andExpect(content().string("Model outputs handler failed with error \"Probably not a zip file or a corrupted zip file\". See ModelOutputHandler server logs for more details."));
     }
 
+    @Test
+    public void handleModelOutputsRejectsCorruptRasterWithoutLeavingPartialFile() throws Exception {
+        // Arrange
+        insertModelRun(TEST_MODEL_RUN_NAME);
+        byte[] body = corruptEntry(loadTestFile("valid_completed_outputs.zip"), "extent.tif");
+
+        // Act and assert
+        this.mockMvc
+                .perform(buildPost(body))
+                .andExpect(status().isInternalServerError());
+
+        // Assert
+        ModelRun run = modelRunDao.getByName(TEST_MODEL_RUN_NAME);
+        assertThat(run.getStatus()).isEqualTo(ModelRunStatus.FAILED);
+        assertThatRasterFileDoesNotExist(run, "extent");
+        assertThat(testFolder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void handleModelOutputsRejectsInvalidCsvWithoutLeavingOrPublishingRasters() throws Exception {
+        // Arrange
+        insertModelRun(TEST_MODEL_RUN_NAME);
+        byte[] body = replaceEntry(loadTestFile("valid_completed_outputs.zip"), "relative_influence.csv",
+                "\"name\",\"mean\",\"2.5%\",\"97.5%\"\n\"id999999\",\"1\",\"1\",\"1\"\n".getBytes());
+
+        // Act and assert
+        this.mockMvc
+                .perform(buildPost(body))
+                .andExpect(status().isInternalServerError());
+
+        // Assert
+        ModelRun run = modelRunDao.getByName(TEST_MODEL_RUN_NAME);
+        assertThat(run.getStatus()).isEqualTo(ModelRunStatus.FAILED);
+        assertThatNoRastersPublishedToGeoserver();
+        assertThat(testFolder.getRoot().list()).isEmpty();
+    }
+
     private MockHttpServletRequestBuilder buildPost(byte[] data) {
         MockMultipartFile file = new MockMultipartFile("file", data);
         return fileUpload(OUTPUT_HANDLER_PATH).file(file);
@@ -352,6 +405,60 @@ public class MainControllerIntegrationTest extends AbstractSpringIntegrationTest
         return FileUtils.readFileToByteArray(new File(TEST_DATA_PATH, fileName));
     }
 
+    private byte[] corruptEntry(byte[] zip, String entryName) throws IOException {
+        // Rewrite the zip with uncompressed entries, then change a byte of the named entry's content, so that it no
+        // longer matches the checksum recorded in the zip
+        byte[] content = null;
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip));
+             ZipOutputStream output = new ZipOutputStream(rewritten)) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                byte[] entryContent = IOUtils.toByteArray(input);
+                CRC32 crc = new CRC32();
+                crc.update(entryContent);
+                ZipEntry storedEntry = new ZipEntry(entry.getName());
+                storedEntry.setMethod(ZipEntry.STORED);
+                storedEntry.setSize(entryContent.length);
+                storedEntry.setCrc(crc.getValue());
+                output.putNextEntry(storedEntry);
+                output.write(entryContent);
+                output.closeEntry();
+                if (entry.getName().equals(entryName)) {
+                    content = entryContent;
+                }
+            }
+        }
+
+        byte[] corrupted = rewritten.toByteArray();
+        corrupted[indexOf(corrupted, content) + (content.length / 2)] ^= 1;
+        return corrupted;
+    }
+
+    private byte[] replaceEntry(byte[] zip, String entryName, byte[] content) throws IOException {
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip));
+             ZipOutputStream output = new ZipOutputStream(rewritten)) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                byte[] entryContent = IOUtils.toByteArray(input);
+                output.putNextEntry(new ZipEntry(entry.getName()));
+                output.write(entry.getName().equals(entryName) ? content : entryContent);
+                output.closeEntry();
+            }
+        }
+        return rewritten.toByteArray();
+    }
+
+    private int indexOf(byte[] array, byte[] target) {
+        for (int i = 0; i <= array.length - target.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(array, i, i + target.length), target)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
     private void assertThatRasterWrittenToFile(ModelRun run, String expectedFileName, String type) throws IOException {
         File expectedFile = Paths.get(TEST_DATA_PATH, expectedFileName).toFile();
         File actualFile = Paths.get(testFolder.getRoot().getAbsolutePath(), run.getName() + "_" + type + ".tif").toFile();
@@ -1,5 +1,6 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.modeloutputhandler.web;
 
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -8,6 +9,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.raster.RasterUtils;
 
 import java.io.File;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -23,6 +25,13 @@ public class ModelOutputRasterMaskingHelperTest {
     @Rule
     public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
 
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
     @Test
     public void maskRasterCorrectlyAppliesExtentAndWaterBodiesMask() throws Exception {
         // Arrange
@@ -44,7 +53,7 @@ public class ModelOutputRasterMaskingHelperTest {
         when(mockAbsenceDiseaseExtentClass.getWeighting()).thenReturn(-100);
 
         ModelOutputRasterMaskingHelper target =
-                new ModelOutputRasterMaskingHelper(mockDiseaseService, mockWaterBodiesMaskRasterFileLocator);
+                new ModelOutputRasterMaskingHelper(mockDiseaseService, mockWaterBodiesMaskRasterFileLocator, pool);
 
         // Act
         target.maskRaster(outputMeanRasterFile, inputMeanRasterFile, extentRasterFile, 0);
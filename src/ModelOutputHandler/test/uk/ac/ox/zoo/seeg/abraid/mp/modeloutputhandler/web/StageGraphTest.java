@@ -0,0 +1,235 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modeloutputhandler.web;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the StageGraph class (and the StageGraphExecutor that runs it).
+ * Copyright (c) 2015 University of Oxford
+ */
+public class StageGraphTest {
+    private static final int TIMEOUT_IN_SECONDS = 10;
+
+    private final StageGraphExecutor executor = new StageGraphExecutor(4);
+    private final List<String> runStages = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void cleanup() {
+        executor.cleanup();
+    }
+
+    @Test
+    public void independentStagesRunConcurrently() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        // Each stage waits for the other to start, so they can only succeed if they run at the same time
+        final CountDownLatch latch = new CountDownLatch(2);
+        StageGraph.Action action = new StageGraph.Action() {
+            @Override
+            public void run() throws Exception {
+                latch.countDown();
+                if (!latch.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IOException("Stages did not run concurrently");
+                }
+            }
+        };
+        graph.addStage("a", action);
+        graph.addStage("b", action);
+
+        // Act
+        graph.awaitCompletion();
+
+        // Assert
+        assertThat(graph.getTimings().keySet()).containsExactly("a", "b");
+    }
+
+    @Test
+    public void stagesRunOnlyAfterTheirDependenciesHaveSucceeded() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        StageGraph.Stage a = graph.addStage("a", new RecordingAction("a"));
+        StageGraph.Stage b = graph.addStage("b", new RecordingAction("b"), a);
+        StageGraph.Stage c = graph.addCallingThreadStage("c", new RecordingAction("c"), a);
+        graph.addStage("d", new RecordingAction("d"), b, c);
+
+        // Act
+        graph.awaitCompletion();
+
+        // Assert
+        assertThat(runStages).hasSize(4);
+        assertThat(runStages.get(0)).isEqualTo("a");
+        assertThat(runStages.subList(1, 3)).contains("b", "c");
+        assertThat(runStages.get(3)).isEqualTo("d");
+    }
+
+    @Test
+    public void callingThreadStagesRunOnTheThreadThatAwaitsCompletion() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        final List<Thread> threads = new ArrayList<>();
+        StageGraph.Action action = new StageGraph.Action() {
+            @Override
+            public void run() throws Exception {
+                threads.add(Thread.currentThread());
+            }
+        };
+        StageGraph.Stage a = graph.addStage("a", new RecordingAction("a"));
+        graph.addCallingThreadStage("b", action, a);
+        graph.addCallingThreadStage("c", action);
+
+        // Act
+        graph.awaitCompletion();
+
+        // Assert
+        assertThat(threads).containsExactly(Thread.currentThread(), Thread.currentThread());
+    }
+
+    @Test
+    public void failedStageSkipsItsDependentsButNotOtherStages() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        IOException failure = new IOException("Test failure");
+        StageGraph.Stage a = graph.addStage("a", new FailingAction(failure));
+        StageGraph.Stage b = graph.addStage("b", new RecordingAction("b"), a);
+        graph.addCallingThreadStage("c", new RecordingAction("c"), b);
+        graph.addStage("d", new RecordingAction("d"));
+
+        // Act
+        try {
+            graph.awaitCompletion();
+            fail("Expected exception");
+        } catch (IOException e) {
+            // Assert
+            assertThat(e).isSameAs(failure);
+        }
+        assertThat(runStages).containsExactly("d");
+        assertThat(graph.getTimings().keySet()).containsOnly("a", "d");
+    }
+
+    @Test
+    public void stageAddedAfterItsDependencyFailedIsSkipped() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        StageGraph.Stage a = graph.addCallingThreadStage("a", new FailingAction(new IOException()));
+        try {
+            graph.awaitCompletion();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        // Act
+        graph.addCallingThreadStage("b", new RecordingAction("b"), a);
+
+        // Assert
+        assertThat(runStages).isEmpty();
+    }
+
+    @Test
+    public void failureThatIsNotAnIOExceptionIsThrownAsTheCause() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        RuntimeException failure = new RuntimeException("Test failure");
+        graph.addStage("a", new FailingAction(failure));
+
+        // Act
+        try {
+            graph.awaitCompletion();
+            fail("Expected exception");
+        } catch (IOException e) {
+            // Assert
+            assertThat(e.getMessage()).isEqualTo("Stage \"a\" failed");
+            assertThat(e.getCause()).isSameAs(failure);
+        }
+    }
+
+    @Test
+    public void nullDependenciesAreIgnored() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        graph.addStage("a", new RecordingAction("a"), (StageGraph.Stage) null);
+
+        // Act
+        graph.awaitCompletion();
+
+        // Assert
+        assertThat(runStages).containsExactly("a");
+    }
+
+    @Test
+    public void awaitCompletionReturnsImmediatelyForEmptyGraph() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+
+        // Act
+        graph.awaitCompletion();
+
+        // Assert
+        assertThat(graph.getTimings()).isEmpty();
+    }
+
+    @Test
+    public void stagesFailIfExecutorHasBeenShutDown() throws Exception {
+        // Arrange
+        StageGraph graph = executor.createGraph();
+        executor.cleanup();
+
+        // Act
+        graph.addStage("a", new RecordingAction("a"));
+
+        // Assert
+        try {
+            graph.awaitCompletion();
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertThat(runStages).isEmpty();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addStageThrowsExceptionForDependencyOfAnotherGraph() throws Exception {
+        StageGraph.Stage other = executor.createGraph().addCallingThreadStage("a", new RecordingAction("a"));
+        executor.createGraph().addStage("b", new RecordingAction("b"), other);
+    }
+
+    /**
+     * Records that the stage has run.
+     */
+    private class RecordingAction implements StageGraph.Action {
+        private final String name;
+
+        RecordingAction(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void run() throws Exception {
+            runStages.add(name);
+        }
+    }
+
+    /**
+     * Fails the stage.
+     */
+    private static class FailingAction implements StageGraph.Action {
+        private final Exception failure;
+
+        FailingAction(Exception failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() throws Exception {
+            throw failure;
+        }
+    }
+}
@@ -68,4 +68,17 @@ public interface ModelWrapperConfigurationService {
      * @return Whether the workspace for completed model runs should be deleted.
      */
     boolean getDeleteWorkspaces();
+
+    /**
+     * Gets the maximum number of model runs to execute concurrently. If not configured, this is derived from the
+     * processors and memory of the system, and the resources required by a single model run.
+     * @return The maximum number of concurrent model runs.
+     */
+    int getMaxConcurrentModelRuns();
+
+    /**
+     * Gets the maximum number of model runs that may wait for an execution slot, before new runs are refused.
+     * @return The maximum number of queued model runs.
+     */
+    int getMaxQueuedModelRuns();
 }
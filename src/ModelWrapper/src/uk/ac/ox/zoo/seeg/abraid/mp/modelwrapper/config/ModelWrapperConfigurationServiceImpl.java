@@ -34,6 +34,16 @@ public class ModelWrapperConfigurationServiceImpl
     private static final String R_MAX_DURATION_KEY = "r.max.duration";
     private static final String MODEL_OUTPUT_HANDLER_ROOT_URL_KEY = "model.output.handler.root.url";
     private static final String DELETE_WORKSPACES_KEY = "delete.success.workspaces";
+    private static final String MAX_CONCURRENT_RUNS_KEY = "model.max.concurrent.runs";
+    private static final String MAX_QUEUED_RUNS_KEY = "model.max.queued.runs";
+    private static final String RUN_CPUS_KEY = "model.run.cpus";
+    private static final String RUN_MEMORY_KEY = "model.run.memory";
+
+    private static final int DEFAULT_MAX_QUEUED_RUNS = 20;
+    // A model run uses several cores (the R code fits its ensemble in parallel) and several GB of memory
+    private static final int DEFAULT_RUN_CPUS = 8;
+    private static final int DEFAULT_RUN_MEMORY_MB = 8192;
+    private static final long BYTES_PER_MB = 1024 * 1024;
 
     private final OSChecker osChecker;
 
@@ -136,6 +146,40 @@ public class ModelWrapperConfigurationServiceImpl
         return getConfigFile().getBoolean(DELETE_WORKSPACES_KEY, true);
     }
 
+    /**
+     * Gets the maximum number of model runs to execute concurrently. If not configured, this is derived from the
+     * processors and memory of the system, and the resources required by a single model run.
+     * @return The maximum number of concurrent model runs.
+     */
+    @Override
+    public int getMaxConcurrentModelRuns() {
+        if (getConfigFile().containsKey(MAX_CONCURRENT_RUNS_KEY)) {
+            return Math.max(1, getConfigFile().getInt(MAX_CONCURRENT_RUNS_KEY));
+        } else {
+            return findDefaultMaxConcurrentModelRuns();
+        }
+    }
+
+    /**
+     * Gets the maximum number of model runs that may wait for an execution slot, before new runs are refused.
+     * @return The maximum number of queued model runs.
+     */
+    @Override
+    public int getMaxQueuedModelRuns() {
+        return Math.max(1, getConfigFile().getInt(MAX_QUEUED_RUNS_KEY, DEFAULT_MAX_QUEUED_RUNS));
+    }
+
+    private int findDefaultMaxConcurrentModelRuns() {
+        int runCpus = Math.max(1, getConfigFile().getInt(RUN_CPUS_KEY, DEFAULT_RUN_CPUS));
+        long runMemory = Math.max(1, getConfigFile().getInt(RUN_MEMORY_KEY, DEFAULT_RUN_MEMORY_MB)) * BYTES_PER_MB;
+        long maxRuns = osChecker.getProcessorCount() / runCpus;
+        long memory = osChecker.getPhysicalMemorySize();
+        if (memory >= 0) {
+            maxRuns = Math.min(maxRuns, memory / runMemory);
+        }
+        return (int) Math.max(1, maxRuns);
+    }
+
     private String findDefaultR() throws ConfigurationException {
         String rPath = osChecker.isWindows() ? DEFAULT_WINDOWS_R_PATH : DEFAULT_LINUX_R_PATH;
         File r = Paths.get(rPath).toFile();
@@ -0,0 +1,30 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A content-addressed (by SHA-256 hash) store of covariate files, so that covariate files only need to be sent to the
+ * ModelWrapper once, rather than in every model run package.
+ * Copyright (c) 2015 University of Oxford
+ */
+public interface CovariateStore {
+    /**
+     * Determines which of a set of covariate files are not held in the store.
+     * @param hashes The content hashes of the covariate files.
+     * @return The subset of the hashes that are not held in the store.
+     * @throws IllegalArgumentException Thrown if any of the hashes is not a valid SHA-256 hash.
+     */
+    Collection<String> findMissingHashes(Collection<String> hashes);
+
+    /**
+     * Provisions the covariate files of an extracted model run package, according to its covariate manifest.
+     * Covariate files that were included in the package are added to the store, and those that were not are linked
+     * (or copied) into the workspace from the store. Packages without a manifest are left unchanged.
+     * @param workspace The directory containing the extracted model run package.
+     * @throws IOException Thrown if the manifest is invalid, or a covariate file is neither included in the package
+     * nor held in the store.
+     */
+    void provisionCovariates(File workspace) throws IOException;
+}
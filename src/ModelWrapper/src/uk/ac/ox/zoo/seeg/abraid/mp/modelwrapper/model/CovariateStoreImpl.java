@@ -0,0 +1,140 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.log4j.Logger;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.FileHashUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.ModelWrapperConfigurationService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A content-addressed store of covariate files, held in the "covariates" subdirectory of the ModelWrapper's cache
+ * directory. Each file is named by its SHA-256 hash. Workspaces are given hard links to the stored files where
+ * possible, falling back to copies (e.g. if the workspace is on a different file system).
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CovariateStoreImpl implements CovariateStore {
+    private static final Logger LOGGER = Logger.getLogger(CovariateStoreImpl.class);
+    private static final String LOG_ADDING_COVARIATE = "Adding covariate file %s to the covariate store (%s)";
+    private static final String LOG_LINK_FAILED =
+            "Could not link covariate file %s from the covariate store, so it will be copied (%s)";
+    private static final String INVALID_HASH = "Invalid covariate file hash \"%s\"";
+    private static final String INVALID_PATH = "Invalid covariate file path \"%s\"";
+    private static final String HASH_MISMATCH =
+            "Covariate file %s does not match its hash in the covariate manifest (expected %s, actual %s)";
+    private static final String MISSING_COVARIATE =
+            "Covariate file %s (%s) was not included in the model run package and is not in the covariate store";
+
+    // The name of the covariate manifest (this is hardcoded because it is hardcoded in ModelRunPackageBuilder).
+    private static final String COVARIATE_MANIFEST_FILE_NAME = "covariates.json";
+    private static final String COVARIATES_DATA_DIRECTORY_NAME = "covariates";
+    private static final String STORE_SUBDIRECTORY = "covariates";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final ModelWrapperConfigurationService modelWrapperConfigurationService;
+    private final AbraidJsonObjectMapper objectMapper;
+
+    public CovariateStoreImpl(ModelWrapperConfigurationService modelWrapperConfigurationService,
+                              AbraidJsonObjectMapper objectMapper) {
+        this.modelWrapperConfigurationService = modelWrapperConfigurationService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Collection<String> findMissingHashes(Collection<String> hashes) {
+        List<String> missingHashes = new ArrayList<>();
+        for (String hash : hashes) {
+            if (!isValidHash(hash)) {
+                throw new IllegalArgumentException(String.format(INVALID_HASH, hash));
+            }
+            if (!getStoredFile(hash).exists()) {
+                missingHashes.add(hash);
+            }
+        }
+        return missingHashes;
+    }
+
+    @Override
+    public void provisionCovariates(File workspace) throws IOException {
+        File manifestFile = Paths.get(workspace.toString(), COVARIATE_MANIFEST_FILE_NAME).toFile();
+        if (!manifestFile.exists()) {
+            return;
+        }
+
+        Map<String, String> manifest =
+                objectMapper.readValue(manifestFile, new TypeReference<LinkedHashMap<String, String>>() { });
+        Path covariatesDirectory = Paths.get(workspace.toString(), COVARIATES_DATA_DIRECTORY_NAME).normalize();
+        for (Map.Entry<String, String> entry : manifest.entrySet()) {
+            String hash = entry.getValue();
+            if (!isValidHash(hash)) {
+                throw new IOException(String.format(INVALID_HASH, hash));
+            }
+            Path file = covariatesDirectory.resolve(entry.getKey()).normalize();
+            if (!file.startsWith(covariatesDirectory)) {
+                throw new IOException(String.format(INVALID_PATH, entry.getKey()));
+            }
+
+            if (file.toFile().exists()) {
+                addToStore(file, hash);
+            } else {
+                linkFromStore(file, hash);
+            }
+        }
+    }
+
+    private void addToStore(Path file, String expectedHash) throws IOException {
+        String actualHash = FileHashUtils.calculateSha256(file.toFile());
+        if (!actualHash.equals(expectedHash)) {
+            throw new IOException(String.format(HASH_MISMATCH, file, expectedHash, actualHash));
+        }
+
+        File storedFile = getStoredFile(expectedHash);
+        if (!storedFile.exists()) {
+            LOGGER.info(String.format(LOG_ADDING_COVARIATE, file, expectedHash));
+            Files.createDirectories(storedFile.getParentFile().toPath());
+            // Copy via a temporary file, so that a partially written file is never visible in the store
+            Path temporaryFile = Files.createTempFile(storedFile.getParentFile().toPath(), expectedHash, ".tmp");
+            try {
+                Files.copy(file, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaryFile, storedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Another model run has concurrently added the same file
+                LOGGER.debug(e);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+    }
+
+    private void linkFromStore(Path file, String hash) throws IOException {
+        File storedFile = getStoredFile(hash);
+        if (!storedFile.exists()) {
+            throw new IOException(String.format(MISSING_COVARIATE, file, hash));
+        }
+
+        Files.createDirectories(file.getParent());
+        try {
+            Files.createLink(file, storedFile.toPath());
+        } catch (IOException|UnsupportedOperationException e) {
+            LOGGER.debug(String.format(LOG_LINK_FAILED, file, e.getMessage()));
+            Files.copy(storedFile.toPath(), file);
+        }
+    }
+
+    private File getStoredFile(String hash) {
+        return Paths.get(modelWrapperConfigurationService.getCacheDirectory(), STORE_SUBDIRECTORY, hash).toFile();
+    }
+
+    private static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+}
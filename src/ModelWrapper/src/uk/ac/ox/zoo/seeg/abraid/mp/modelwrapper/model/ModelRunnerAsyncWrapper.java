@@ -1,8 +1,10 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model;
 
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfiguration;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * An interface to provide a means for triggering model runs where the workspace setup is done asynchronously.
@@ -14,6 +16,20 @@ public interface ModelRunnerAsyncWrapper {
      * @param configuration The model run configuration.
      * @param modelStatusReporter The status reporter to call with the results of the model or if the setup fails.
      * @return The process handler for the launched process.
+     * @throws RejectedExecutionException Thrown if the model run cannot be accepted, as the queue is full.
      */
     Future<ModelProcessHandler> startModel(RunConfiguration configuration, ModelStatusReporter modelStatusReporter);
+
+    /**
+     * Determines whether the queue of model runs waiting for an execution slot is full, so that new model runs
+     * would be refused.
+     * @return True if the queue is full, otherwise false.
+     */
+    boolean isQueueFull();
+
+    /**
+     * Gets the model runs that are running, and waiting to run.
+     * @return The status of the model run queue.
+     */
+    JsonModelRunQueueStatus getStatus();
 }
@@ -3,28 +3,52 @@ package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model;
 import org.apache.log4j.Logger;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.AbstractAsynchronousActionHandler;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRunStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.ModelWrapperConfigurationService;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Provides a means for triggering model runs where the workspace setup is done asynchronously.
+ * Provides a means for triggering model runs where the workspace setup is done asynchronously. Model runs are
+ * executed in a fixed number of slots, and wait in a bounded queue for a free slot.
  * Copyright (c) 2014 University of Oxford
  */
 public class ModelRunnerAsyncWrapperImpl extends AbstractAsynchronousActionHandler implements ModelRunnerAsyncWrapper {
     private static final Logger LOGGER = Logger.getLogger(ModelRunnerAsyncWrapperImpl.class);
     private static final String LOG_ERROR_DURING_THE_MODEL_SETUP =
             "An error occurred during the setup for model run: %s";
+    private static final String LOG_MODEL_RUN_SLOTS =
+            "Model runs will be executed in %d concurrent slot(s), with up to %d queued model run(s)";
+    private static final String QUEUE_FULL_MESSAGE = "Model run queue is full, refusing model run: %s";
 
     private static final String SETUP_FAILED_MESSAGE = "Model setup failed: %s";
-    private static final int THREAD_POOL_SIZE = 1;
 
     private final ModelRunner modelRunner;
+    private final int maxConcurrentRuns;
+    private final int maxQueuedRuns;
+    // Guarded by "this"
+    private final List<String> runningRuns = new ArrayList<>();
+    private final List<String> queuedRuns = new ArrayList<>();
 
-    public ModelRunnerAsyncWrapperImpl(ModelRunner modelRunner) {
-        super(THREAD_POOL_SIZE, LOGGER);
+    public ModelRunnerAsyncWrapperImpl(ModelRunner modelRunner,
+                                       ModelWrapperConfigurationService configurationService) {
+        this(modelRunner, configurationService.getMaxConcurrentModelRuns(),
+                configurationService.getMaxQueuedModelRuns());
+    }
+
+    private ModelRunnerAsyncWrapperImpl(ModelRunner modelRunner, int maxConcurrentRuns, int maxQueuedRuns) {
+        // The queue is bounded by the run accounting below, the pool's own bound just allows slack for the short
+        // period between a run being completed and its thread being freed
+        super(maxConcurrentRuns, maxConcurrentRuns + maxQueuedRuns, LOGGER);
         this.modelRunner = modelRunner;
+        this.maxConcurrentRuns = maxConcurrentRuns;
+        this.maxQueuedRuns = maxQueuedRuns;
+        LOGGER.info(String.format(LOG_MODEL_RUN_SLOTS, maxConcurrentRuns, maxQueuedRuns));
     }
 
     /**
@@ -32,24 +56,75 @@ public class ModelRunnerAsyncWrapperImpl extends AbstractAsynchronousActionHandl
      * @param configuration The model run configuration.
      * @param modelStatusReporter The status reporter to call with the results of the model or if the setup fails.
      * @return The process handler for the launched process.
+     * @throws RejectedExecutionException Thrown if the model run cannot be accepted, as the queue is full.
      */
     @Override
     public Future<ModelProcessHandler> startModel(final RunConfiguration configuration,
                                                   final ModelStatusReporter modelStatusReporter) {
-        return submitAsynchronousTask(new Callable<ModelProcessHandler>() {
-            @Override
-            public ModelProcessHandler call() throws Exception {
-                ModelProcessHandler handler = null;
-                try {
-                    handler = modelRunner.runModel(
-                            configuration, modelStatusReporter);
-                    handler.waitForCompletion();
-                } catch (Exception e) {
-                    LOGGER.error(String.format(LOG_ERROR_DURING_THE_MODEL_SETUP, configuration.getRunName()), e);
-                    modelStatusReporter.report(ModelRunStatus.FAILED, "", String.format(SETUP_FAILED_MESSAGE, e));
-                }
-                return handler;
+        final String runName = configuration.getRunName();
+        synchronized (this) {
+            if (isQueueFull()) {
+                throw new RejectedExecutionException(String.format(QUEUE_FULL_MESSAGE, runName));
             }
-        });
+            queuedRuns.add(runName);
+        }
+
+        try {
+            return submitAsynchronousTask(new Callable<ModelProcessHandler>() {
+                @Override
+                public ModelProcessHandler call() throws Exception {
+                    moveToRunning(runName);
+                    ModelProcessHandler handler = null;
+                    try {
+                        handler = modelRunner.runModel(
+                                configuration, modelStatusReporter);
+                        handler.waitForCompletion();
+                    } catch (Exception e) {
+                        LOGGER.error(String.format(LOG_ERROR_DURING_THE_MODEL_SETUP, runName), e);
+                        modelStatusReporter.report(ModelRunStatus.FAILED, "", String.format(SETUP_FAILED_MESSAGE, e));
+                    } finally {
+                        removeFromRunning(runName);
+                    }
+                    return handler;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            removeFromQueued(runName);
+            throw e;
+        }
+    }
+
+    /**
+     * Determines whether the queue of model runs waiting for an execution slot is full, so that new model runs
+     * would be refused.
+     * @return True if the queue is full, otherwise false.
+     */
+    @Override
+    public synchronized boolean isQueueFull() {
+        // Queued runs are only moved to running once their thread has started, so count both against the total
+        return runningRuns.size() + queuedRuns.size() >= maxConcurrentRuns + maxQueuedRuns;
+    }
+
+    /**
+     * Gets the model runs that are running, and waiting to run.
+     * @return The status of the model run queue.
+     */
+    @Override
+    public synchronized JsonModelRunQueueStatus getStatus() {
+        return new JsonModelRunQueueStatus(maxConcurrentRuns, maxQueuedRuns,
+                new ArrayList<>(runningRuns), new ArrayList<>(queuedRuns));
+    }
+
+    private synchronized void moveToRunning(String runName) {
+        queuedRuns.remove(runName);
+        runningRuns.add(runName);
+    }
+
+    private synchronized void removeFromRunning(String runName) {
+        runningRuns.remove(runName);
+    }
+
+    private synchronized void removeFromQueued(String runName) {
+        queuedRuns.remove(runName);
     }
 }
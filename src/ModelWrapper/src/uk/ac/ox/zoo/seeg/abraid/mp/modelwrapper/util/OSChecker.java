@@ -1,7 +1,7 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.util;
 
 /**
- * An interface to provide a means for determining the current system OS.
+ * An interface to provide a means for determining the current system OS and hardware.
  * Copyright (c) 2014 University of Oxford
  */
 public interface OSChecker {
@@ -10,4 +10,16 @@ public interface OSChecker {
      * @return True if on Windows, otherwise false.
      */
     boolean isWindows();
+
+    /**
+     * Gets the number of processors available to the JVM.
+     * @return The number of processors.
+     */
+    int getProcessorCount();
+
+    /**
+     * Gets the total amount of physical memory of the system.
+     * @return The amount of memory (in bytes), or -1 if it cannot be determined.
+     */
+    long getPhysicalMemorySize();
 }
@@ -2,8 +2,11 @@ package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.util;
 
 import org.apache.commons.exec.OS;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
 /**
- * Uses commons-exec to implement the OSChecker interface.
+ * Uses commons-exec and the JVM's management beans to implement the OSChecker interface.
  * Copyright (c) 2014 University of Oxford
  */
 public class OSCheckerImpl implements OSChecker {
@@ -15,4 +18,26 @@ public class OSCheckerImpl implements OSChecker {
     public boolean isWindows() {
         return OS.isFamilyWindows();
     }
+
+    /**
+     * Gets the number of processors available to the JVM.
+     * @return The number of processors.
+     */
+    @Override
+    public int getProcessorCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Gets the total amount of physical memory of the system.
+     * @return The amount of memory (in bytes), or -1 if it cannot be determined.
+     */
+    @Override
+    public long getPhysicalMemorySize() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+        }
+        return -1;
+    }
 }
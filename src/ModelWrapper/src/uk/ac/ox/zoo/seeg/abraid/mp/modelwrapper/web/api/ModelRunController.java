@@ -2,35 +2,52 @@ package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.web.api;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRun;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.ZipStreamUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.AbstractController;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.StreamingAwareMultipartResolver;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfiguration;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfigurationFactory;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.CovariateStore;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelOutputHandlerWebService;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelRunnerAsyncWrapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelStatusReporter;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelStatusReporterImpl;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
 /**
 * Controller for the ModelWrapper model run triggers.
@@ -43,70 +60,152 @@ public class ModelRunController extends AbstractController {
             "Queuing new background model run for disease group %d (model run name %s)";
     private static final String LOG_EXCEPTION_STARTING_MODEL_RUN = "Exception starting model run.";
     private static final String LOG_EXCEPTION_READING_MODEL_RUN_DATA = "Exception reading model run data.";
+    private static final String LOG_MODEL_RUN_QUEUE_FULL = "Model run queue is full, refusing model run %s.";
+    private static final String LOG_MODEL_RUN_QUEUE_FULL_BEFORE_READING =
+            "Model run queue is full, refusing model run before reading its data.";
+    private static final String LOG_COULD_NOT_DRAIN_REQUEST_BODY =
+            "Could not read the rest of a refused model run (%s).";
+    private static final String WORKSPACE_ALREADY_EXISTS = "Model run workspace already exists at %s";
+    private static final String LOG_RUN_DATA_TOO_LARGE = "Model run data is too large (%s).";
+    private static final String LOG_SPOOLING_RUN_PACKAGE =
+            "Model run package does not start with its metadata, so is being spooled to %s.";
+    private static final String RUN_DATA_TOO_LARGE = "Run data must not exceed %d bytes.";
+
+    // The name of the multipart request part that holds the model run package
+    private static final String RUN_PACKAGE_PART_NAME = "file";
+    // The name of the model run metadata, which should be the first entry of the model run package
+    private static final String METADATA_FILE_NAME = "metadata.json";
+    private static final String SPOOL_DIRECTORY_PREFIX = "runpackage";
+
+    // The maximum amount of a refused request's body that is read (and discarded) before the response is sent. Many
+    // clients (and containers) do not read the response until they have sent the whole body, so without this they see
+    // a reset connection, rather than the 503 response. Larger bodies are still cut off, with a reset connection.
+    private static final long MAX_DRAINED_REQUEST_SIZE = 100L * 1024 * 1024;
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
 
     private final RunConfigurationFactory runConfigurationFactory;
     private final ModelRunnerAsyncWrapper modelRunnerAsyncWrapper;
     private final ModelOutputHandlerWebService modelOutputHandlerWebService;
     private final AbraidJsonObjectMapper objectMapper;
+    private final CovariateStore covariateStore;
+    private final long maxUploadSize;
 
     @Autowired
     public ModelRunController(
             RunConfigurationFactory runConfigurationFactory,
             ModelRunnerAsyncWrapper modelRunnerAsyncWrapper,
             ModelOutputHandlerWebService modelOutputHandlerWebService,
-            AbraidJsonObjectMapper objectMapper) {
+            AbraidJsonObjectMapper objectMapper,
+            CovariateStore covariateStore,
+            StreamingAwareMultipartResolver multipartResolver) {
         this.runConfigurationFactory = runConfigurationFactory;
         this.modelRunnerAsyncWrapper = modelRunnerAsyncWrapper;
         this.modelOutputHandlerWebService = modelOutputHandlerWebService;
         this.objectMapper = objectMapper;
+        this.covariateStore = covariateStore;
+        this.maxUploadSize = multipartResolver.getMaxUploadSize();
     }
 
     /**
-     * Triggers a new model run with the given occurrences.
-     * @param file The run data to model as a zip file.
-     * @return 204 for success, 400 for invalid parameters or 500 if server cannot start model run.
+     * Determines which covariate files are not held in the covariate store, and so must be included in the next model
+     * run package.
+     * @param hashes The content hashes of the covariate files required by the model run.
+     * @return 200 with the subset of the hashes that are not held, or 400 for invalid hashes.
+     */
+    @RequestMapping(value = "/api/model/covariates/missing",
+            method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Collection<String>> getMissingCovariates(@RequestBody List<String> hashes) {
+        try {
+            return new ResponseEntity<>(covariateStore.findMissingHashes(hashes), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Triggers a new model run with the given occurrences. The run data is a multipart request containing a zip file,
+     * which is extracted directly into the model run's workspace as the request body arrives, if its first entry is its
+     * metadata (so that invalid requests are rejected before the bulk of the data is read). Packages that were built
+     * with their entries in another order are spooled to a temporary directory, then validated.
+     * @param request The request, containing the run data to model as a zip file.
+     * @return 204 for success, 400 for invalid parameters (or run data larger than the maximum upload size), 503 if
+     *         the model run queue is full or 500 if server cannot start model run.
      */
     @RequestMapping(value = "/api/model/run",
             method = RequestMethod.POST, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseBody
-    public ResponseEntity<JsonModelRunResponse> startRun(MultipartFile file) {
-        if (file == null || file.getSize() == 0) {
+    public ResponseEntity<JsonModelRunResponse> startRun(HttpServletRequest request) {
+        if (request == null || !ServletFileUpload.isMultipartContent(request)) {
             return createErrorResponse("Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
         }
 
-        JsonModelRun runData = null;
-        File tempDataDir = null;
-        try {
-            tempDataDir = saveRequestBodyToTemporaryDir(file);
-            runData = readMetadata(tempDataDir);
-        } catch (ZipException|JsonParseException|JsonMappingException e) {
-            return createErrorResponse("Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
-        } catch (IOException e) {
-            LOGGER.error(LOG_EXCEPTION_READING_MODEL_RUN_DATA, e);
-            return createErrorResponse("Could not read model run data. See server logs for more details.",
-                    HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-
-        if (runData == null || !runData.isValid() || !runData.getDisease().isValid()) {
-            return createErrorResponse("Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
+        // Refuse the run before reading any of its data, if it would not be accepted anyway
+        if (modelRunnerAsyncWrapper.isQueueFull()) {
+            LOGGER.warn(LOG_MODEL_RUN_QUEUE_FULL_BEFORE_READING);
+            return createQueueFullResponse(request);
         }
 
+        ZipInputStream runPackage = null;
+        File spooledRunPackage = null;
         try {
-            submitModelRun(runData, tempDataDir);
-        } catch (Exception e) {
-            LOGGER.error(LOG_EXCEPTION_STARTING_MODEL_RUN, e);
-            return createErrorResponse("Could not start model run. See server logs for more details.",
-                    HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+            String metadata = null;
+            JsonModelRun runData = null;
+            try {
+                runPackage = openRunPackage(request);
+                ZipEntry firstEntry = runPackage.getNextEntry();
+                if (firstEntry != null && METADATA_FILE_NAME.equals(firstEntry.getName())) {
+                    metadata = ZipStreamUtils.readEntryAsString(runPackage);
+                } else if (firstEntry != null) {
+                    spooledRunPackage = Files.createTempDirectory(SPOOL_DIRECTORY_PREFIX).toFile();
+                    spoolRunPackage(runPackage, firstEntry, spooledRunPackage);
+                    metadata = readSpooledMetadata(spooledRunPackage);
+                }
+                runData = (metadata == null) ? null : objectMapper.readValue(metadata, JsonModelRun.class);
+            } catch (FileUploadBase.SizeLimitExceededException|FileUploadBase.FileSizeLimitExceededException e) {
+                return createRunDataTooLargeResponse(e);
+            } catch (FileUploadException|ZipException|JsonParseException|JsonMappingException e) {
+                return createErrorResponse("Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
+            } catch (FileUploadBase.FileUploadIOException e) {
+                // The limits are checked as the request body is read, so can also be exceeded while reading metadata
+                return createRunDataTooLargeResponse(e);
+            } catch (IOException e) {
+                LOGGER.error(LOG_EXCEPTION_READING_MODEL_RUN_DATA, e);
+                return createErrorResponse("Could not read model run data. See server logs for more details.",
+                        HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+
+            if (runData == null || !runData.isValid() || !runData.getDisease().isValid()) {
+                return createErrorResponse("Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
+            }
 
-        return createSuccessResponse();
+            try {
+                submitModelRun(runData, metadata, runPackage, spooledRunPackage);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn(String.format(LOG_MODEL_RUN_QUEUE_FULL, runData.getRunName()));
+                return createQueueFullResponse(request);
+            } catch (FileUploadBase.FileUploadIOException e) {
+                return createRunDataTooLargeResponse(e);
+            } catch (Exception e) {
+                LOGGER.error(LOG_EXCEPTION_STARTING_MODEL_RUN, e);
+                return createErrorResponse("Could not start model run. See server logs for more details.",
+                        HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+
+            return createSuccessResponse();
+        } finally {
+            // A spooled package is moved into the workspace when the run is submitted, otherwise it is discarded
+            FileUtils.deleteQuietly(spooledRunPackage);
+        }
     }
 
-    private void submitModelRun(JsonModelRun runData, File tempDataDir) throws ConfigurationException, IOException {
+    private void submitModelRun(JsonModelRun runData, String metadata, ZipInputStream runPackage,
+                                File spooledRunPackage) throws ConfigurationException, IOException {
         RunConfiguration runConfiguration = runConfigurationFactory.createDefaultConfiguration(
                 runData.getRunName());
 
-        FileUtils.moveDirectory(tempDataDir, runConfiguration.getWorkingDirectoryPath().toFile());
+        extractRunPackage(metadata, runPackage, spooledRunPackage,
+                runConfiguration.getWorkingDirectoryPath().toFile());
 
         ModelStatusReporter modelStatusReporter = new ModelStatusReporterImpl(
                 runConfiguration.getRunName(),
@@ -119,35 +218,99 @@ public class ModelRunController extends AbstractController {
         LOGGER.info(String.format(LOG_QUEUING_NEW_BACKGROUND_MODEL_RUN, runData.getDisease().getId(),
                 runConfiguration.getRunName()));
 
-        modelRunnerAsyncWrapper.startModel(
-                runConfiguration, modelStatusReporter);
+        try {
+            modelRunnerAsyncWrapper.startModel(
+                    runConfiguration, modelStatusReporter);
+        } catch (RejectedExecutionException e) {
+            FileUtils.deleteQuietly(runConfiguration.getWorkingDirectoryPath().toFile());
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the model runs that are running, and waiting to run, on this ModelWrapper.
+     * @return 200 with the status of the model run queue.
+     */
+    @RequestMapping(value = "/api/model/status", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<JsonModelRunQueueStatus> getStatus() {
+        return new ResponseEntity<>(modelRunnerAsyncWrapper.getStatus(), HttpStatus.OK);
+    }
+
+    private ZipInputStream openRunPackage(HttpServletRequest request) throws IOException, FileUploadException {
+        ServletFileUpload upload = new ServletFileUpload();
+        upload.setSizeMax(maxUploadSize);
+        upload.setFileSizeMax(maxUploadSize);
+        FileItemIterator parts = upload.getItemIterator(request);
+        while (parts.hasNext()) {
+            FileItemStream part = parts.next();
+            if (!part.isFormField() && RUN_PACKAGE_PART_NAME.equals(part.getFieldName())) {
+                return new ZipInputStream(part.openStream());
+            }
+        }
+        throw new FileUploadException("Model run package not found in request");
+    }
+
+    private void spoolRunPackage(ZipInputStream runPackage, ZipEntry firstEntry, File spoolDirectory)
+            throws IOException {
+        LOGGER.warn(String.format(LOG_SPOOLING_RUN_PACKAGE, spoolDirectory));
+        ZipStreamUtils.extractEntry(runPackage, firstEntry, spoolDirectory);
+        ZipStreamUtils.extractRemainingEntries(runPackage, spoolDirectory);
     }
 
-    private JsonModelRun readMetadata(File tempDir) throws IOException {
-        File file = Paths.get(tempDir.toString(), "metadata.json").toFile();
-        String json = FileUtils.readFileToString(file);
-        return objectMapper.readValue(json, JsonModelRun.class);
+    private String readSpooledMetadata(File spoolDirectory) throws IOException {
+        File metadataFile = Paths.get(spoolDirectory.toString(), METADATA_FILE_NAME).toFile();
+        if (!metadataFile.isFile()) {
+            return null;
+        }
+        return FileUtils.readFileToString(metadataFile, StandardCharsets.UTF_8.name());
     }
 
-    private File saveRequestBodyToTemporaryDir(MultipartFile modelRunZip) throws IOException, ZipException {
-        File tempDataDir = null;
-        File zipFile = null;
+    private void extractRunPackage(String metadata, ZipInputStream runPackage, File spooledRunPackage,
+                                   File workingDirectory) throws IOException {
+        if (workingDirectory.exists()) {
+            throw new IOException(String.format(WORKSPACE_ALREADY_EXISTS, workingDirectory));
+        }
         try {
-            zipFile = Files.createTempFile("run", ".zip").toFile();
-            modelRunZip.transferTo(zipFile);
-            ZipFile zip = new ZipFile(zipFile);
-            tempDataDir = Files.createTempDirectory("run").toFile();
-            zip.extractAll(tempDataDir.toString());
-            return tempDataDir;
-        } catch (Exception e) {
-            if (tempDataDir != null && tempDataDir.exists()) {
-                FileUtils.deleteDirectory(tempDataDir);
+            if (spooledRunPackage != null) {
+                FileUtils.moveDirectory(spooledRunPackage, workingDirectory);
+            } else {
+                File metadataFile = Paths.get(workingDirectory.toString(), METADATA_FILE_NAME).toFile();
+                FileUtils.writeStringToFile(metadataFile, metadata, StandardCharsets.UTF_8.name());
+                ZipStreamUtils.extractRemainingEntries(runPackage, workingDirectory);
             }
+            covariateStore.provisionCovariates(workingDirectory);
+        } catch (IOException|RuntimeException e) {
+            FileUtils.deleteQuietly(workingDirectory);
             throw e;
-        } finally {
-            if (zipFile != null && zipFile.exists()) {
-                Files.delete(zipFile.toPath());
+        }
+    }
+
+    private ResponseEntity<JsonModelRunResponse> createRunDataTooLargeResponse(Exception e) {
+        LOGGER.warn(String.format(LOG_RUN_DATA_TOO_LARGE, e.getMessage()));
+        return createErrorResponse(String.format(RUN_DATA_TOO_LARGE, maxUploadSize), HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<JsonModelRunResponse> createQueueFullResponse(HttpServletRequest request) {
+        drainRequestBody(request);
+        // The rest of a larger body is not read, so the connection can not be reused
+        HttpHeaders headers = new HttpHeaders();
+        headers.setConnection("close");
+        return new ResponseEntity<>(new JsonModelRunResponse("Model run queue is full. Try again later."),
+                headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private void drainRequestBody(HttpServletRequest request) {
+        try {
+            InputStream body = request.getInputStream();
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            long drained = 0;
+            int count;
+            while (drained < MAX_DRAINED_REQUEST_SIZE && (count = body.read(buffer)) != -1) {
+                drained += count;
             }
+        } catch (IOException e) {
+            LOGGER.debug(String.format(LOG_COULD_NOT_DRAIN_REQUEST_BODY, e.getMessage()));
         }
     }
 
@@ -322,4 +322,100 @@ public class ModelWrapperConfigurationServiceTest {
         // Assert
         assertThat(result).isEqualTo(true);
     }
+
+    @Test
+    public void getMaxConcurrentModelRunsReturnsCorrectValue() throws Exception {
+        // Arrange
+        File testFile = testFolder.newFile();
+        writeStandardSimplePropertiesWithExtra(testFile, "initialValue1", "initialValue2", "model.max.concurrent.runs", "3");
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, mock(OSChecker.class));
+
+        // Act
+        int result = target.getMaxConcurrentModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(3);
+    }
+
+    @Test
+    public void getMaxConcurrentModelRunsReturnsDefaultLimitedByProcessors() throws Exception {
+        // Arrange
+        OSChecker osChecker = mock(OSChecker.class);
+        when(osChecker.getProcessorCount()).thenReturn(32);
+        when(osChecker.getPhysicalMemorySize()).thenReturn(256L * 1024 * 1024 * 1024);
+        File testFile = testFolder.newFile();
+        writeStandardSimpleProperties(testFile, "initialValue1", "initialValue2");
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, osChecker);
+
+        // Act
+        int result = target.getMaxConcurrentModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(4); // 32 cores / 8 per run
+    }
+
+    @Test
+    public void getMaxConcurrentModelRunsReturnsDefaultLimitedByMemory() throws Exception {
+        // Arrange
+        OSChecker osChecker = mock(OSChecker.class);
+        when(osChecker.getProcessorCount()).thenReturn(32);
+        when(osChecker.getPhysicalMemorySize()).thenReturn(16L * 1024 * 1024 * 1024);
+        File testFile = testFolder.newFile();
+        Map<String, String> pairs = new HashMap<String, String>();
+        pairs.put("model.run.cpus", "4");
+        pairs.put("model.run.memory", "4096");
+        writeStandardSimplePropertiesWithExtra(testFile, "initialValue1", "initialValue2", pairs);
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, osChecker);
+
+        // Act
+        int result = target.getMaxConcurrentModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(4); // 16GB / 4GB per run
+    }
+
+    @Test
+    public void getMaxConcurrentModelRunsReturnsAtLeastOne() throws Exception {
+        // Arrange
+        OSChecker osChecker = mock(OSChecker.class);
+        when(osChecker.getProcessorCount()).thenReturn(2);
+        when(osChecker.getPhysicalMemorySize()).thenReturn(-1L);
+        File testFile = testFolder.newFile();
+        writeStandardSimpleProperties(testFile, "initialValue1", "initialValue2");
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, osChecker);
+
+        // Act
+        int result = target.getMaxConcurrentModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(1);
+    }
+
+    @Test
+    public void getMaxQueuedModelRunsReturnsCorrectValue() throws Exception {
+        // Arrange
+        File testFile = testFolder.newFile();
+        writeStandardSimplePropertiesWithExtra(testFile, "initialValue1", "initialValue2", "model.max.queued.runs", "5");
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, mock(OSChecker.class));
+
+        // Act
+        int result = target.getMaxQueuedModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(5);
+    }
+
+    @Test
+    public void getMaxQueuedModelRunsReturnsCorrectDefaultValue() throws Exception {
+        // Arrange
+        File testFile = testFolder.newFile();
+        writeStandardSimpleProperties(testFile, "initialValue1", "initialValue2");
+        ModelWrapperConfigurationService target = new ModelWrapperConfigurationServiceImpl(testFile, mock(OSChecker.class));
+
+        // Act
+        int result = target.getMaxQueuedModelRuns();
+
+        // Assert
+        assertThat(result).isEqualTo(20);
+    }
 }
@@ -0,0 +1,149 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.FileHashUtils;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.ModelWrapperConfigurationService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the CovariateStoreImpl class.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class CovariateStoreTest {
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    private File cacheDirectory;
+    private CovariateStore target;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDirectory = testFolder.newFolder();
+        ModelWrapperConfigurationService configurationService = mock(ModelWrapperConfigurationService.class);
+        when(configurationService.getCacheDirectory()).thenReturn(cacheDirectory.getAbsolutePath());
+        target = new CovariateStoreImpl(configurationService, new AbraidJsonObjectMapper());
+    }
+
+    @Test
+    public void provisionCovariatesAddsIncludedFilesToStoreAndProvidesMissingFilesFromStore() throws Exception {
+        // Arrange - first run includes both files
+        File workspace1 = createWorkspace(true, true);
+        String hash1 = hash(workspace1, "a.tif");
+        String hash2 = hash(workspace1, "sub/b.tif");
+        assertThat(target.findMissingHashes(Arrays.asList(hash1, hash2))).containsOnly(hash1, hash2);
+        target.provisionCovariates(workspace1);
+
+        // Act - second run includes neither file
+        Collection<String> missingHashes = target.findMissingHashes(Arrays.asList(hash1, hash2));
+        File workspace2 = createWorkspace(false, false);
+        target.provisionCovariates(workspace2);
+
+        // Assert
+        assertThat(missingHashes).isEmpty();
+        assertThat(Paths.get(workspace2.toString(), "covariates", "a.tif").toFile()).hasContent("covariate a");
+        assertThat(Paths.get(workspace2.toString(), "covariates", "sub", "b.tif").toFile()).hasContent("covariate b");
+        FileUtils.deleteDirectory(workspace2);
+        assertThat(Paths.get(cacheDirectory.toString(), "covariates", hash1).toFile()).hasContent("covariate a");
+    }
+
+    @Test
+    public void provisionCovariatesThrowsIfFileIsNeitherIncludedNorStored() throws Exception {
+        // Arrange
+        File workspace = createWorkspace(true, false);
+
+        // Act
+        catchException(target).provisionCovariates(workspace);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void provisionCovariatesThrowsIfIncludedFileDoesNotMatchHash() throws Exception {
+        // Arrange
+        File workspace = createWorkspace(true, true);
+        FileUtils.writeStringToFile(Paths.get(workspace.toString(), "covariates", "a.tif").toFile(), "corrupt");
+
+        // Act
+        catchException(target).provisionCovariates(workspace);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+        assertThat(Paths.get(cacheDirectory.toString(), "covariates").toFile().list()).isNullOrEmpty();
+    }
+
+    @Test
+    public void provisionCovariatesThrowsForPathsOutsideOfWorkspace() throws Exception {
+        // Arrange
+        File workspace = testFolder.newFolder();
+        FileUtils.writeStringToFile(Paths.get(workspace.toString(), "covariates.json").toFile(),
+                "{\"../../a.tif\":\"" + FileHashUtils.calculateSha256(testFolder.newFile()) + "\"}");
+
+        // Act
+        catchException(target).provisionCovariates(workspace);
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void provisionCovariatesIgnoresWorkspacesWithoutManifest() throws Exception {
+        // Arrange
+        File workspace = testFolder.newFolder();
+
+        // Act
+        target.provisionCovariates(workspace);
+
+        // Assert
+        assertThat(workspace.list()).isEmpty();
+    }
+
+    @Test
+    public void findMissingHashesRejectsInvalidHashes() throws Exception {
+        // Act
+        catchException(target).findMissingHashes(Arrays.asList("../../something"));
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private File createWorkspace(boolean includeA, boolean includeB) throws IOException {
+        File source = testFolder.newFolder();
+        File a = Paths.get(source.toString(), "a.tif").toFile();
+        File b = Paths.get(source.toString(), "b.tif").toFile();
+        FileUtils.writeStringToFile(a, "covariate a");
+        FileUtils.writeStringToFile(b, "covariate b");
+
+        File workspace = testFolder.newFolder();
+        FileUtils.writeStringToFile(Paths.get(workspace.toString(), "covariates.json").toFile(), String.format(
+                "{\"a.tif\":\"%s\",\"sub/b.tif\":\"%s\"}",
+                FileHashUtils.calculateSha256(a), FileHashUtils.calculateSha256(b)));
+        if (includeA) {
+            FileUtils.copyFile(a, Paths.get(workspace.toString(), "covariates", "a.tif").toFile());
+        }
+        if (includeB) {
+            FileUtils.copyFile(b, Paths.get(workspace.toString(), "covariates", "sub", "b.tif").toFile());
+        }
+        return workspace;
+    }
+
+    private String hash(File workspace, String file) throws IOException {
+        return FileHashUtils.calculateSha256(Paths.get(workspace.toString(), "covariates", file).toFile());
+    }
+}
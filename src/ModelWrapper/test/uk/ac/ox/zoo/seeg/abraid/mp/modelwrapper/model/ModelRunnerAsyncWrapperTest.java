@@ -4,15 +4,22 @@ import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRunStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.ModelWrapperConfigurationService;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfiguration;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,7 +37,7 @@ public class ModelRunnerAsyncWrapperTest {
         ModelRunner mockModelRunner = mock(ModelRunner.class);
         when(mockModelRunner.runModel(expectedRunConfig, expectedModelStatusReporter)).thenReturn(expectedResult);
 
-        ModelRunnerAsyncWrapper target = new ModelRunnerAsyncWrapperImpl(mockModelRunner);
+        ModelRunnerAsyncWrapper target = createTarget(mockModelRunner, 1, 20);
 
         // Act
         Future<ModelProcessHandler> future = target.startModel(expectedRunConfig, expectedModelStatusReporter);
@@ -52,7 +59,7 @@ public class ModelRunnerAsyncWrapperTest {
         when(mockModelRunner.runModel(any(RunConfiguration.class), any(ModelStatusReporter.class)))
                 .thenThrow(new IOException("message"));
 
-        ModelRunnerAsyncWrapper target = new ModelRunnerAsyncWrapperImpl(mockModelRunner);
+        ModelRunnerAsyncWrapper target = createTarget(mockModelRunner, 1, 20);
 
         // Act
         Future<ModelProcessHandler> future = target.startModel(
@@ -115,7 +122,7 @@ public class ModelRunnerAsyncWrapperTest {
             }
         });
 
-        ModelRunnerAsyncWrapper target = new ModelRunnerAsyncWrapperImpl(mockModelRunner);
+        ModelRunnerAsyncWrapper target = createTarget(mockModelRunner, 1, 20);
 
         // Act
         actions.add("first run triggered");
@@ -133,4 +140,87 @@ public class ModelRunnerAsyncWrapperTest {
         future2.get();
         assertThat(actions).containsSequence("first run completed", "second run started", "second run completed");
     }
+
+    @Test
+    public void startModelRunsUpToTheConfiguredNumberOfModelsConcurrently() throws Exception {
+        // Arrange
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        ModelRunner mockModelRunner = mockBlockingModelRunner(bothStarted, release);
+        ModelRunnerAsyncWrapper target = createTarget(mockModelRunner, 2, 1);
+
+        // Act
+        Future<ModelProcessHandler> future1 = target.startModel(mockRunConfiguration("a"), mock(ModelStatusReporter.class));
+        Future<ModelProcessHandler> future2 = target.startModel(mockRunConfiguration("b"), mock(ModelStatusReporter.class));
+        bothStarted.await();
+
+        // Assert
+        JsonModelRunQueueStatus status = target.getStatus();
+        assertThat(status.getMaxConcurrentRuns()).isEqualTo(2);
+        assertThat(status.getMaxQueuedRuns()).isEqualTo(1);
+        assertThat(status.getRunningRuns()).containsOnly("a", "b");
+        assertThat(status.getQueuedRuns()).isEmpty();
+        release.countDown();
+        future1.get();
+        future2.get();
+        assertThat(target.getStatus().getRunningRuns()).isEmpty();
+    }
+
+    @Test
+    public void startModelRejectsModelRunsWhenTheQueueIsFull() throws Exception {
+        // Arrange
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ModelRunner mockModelRunner = mockBlockingModelRunner(firstStarted, release);
+        ModelRunnerAsyncWrapper target = createTarget(mockModelRunner, 1, 1);
+        RunConfiguration thirdRunConfig = mockRunConfiguration("c");
+
+        // Act
+        Future<ModelProcessHandler> future1 = target.startModel(mockRunConfiguration("a"), mock(ModelStatusReporter.class));
+        firstStarted.await();
+        Future<ModelProcessHandler> future2 = target.startModel(mockRunConfiguration("b"), mock(ModelStatusReporter.class));
+        catchException(target).startModel(thirdRunConfig, mock(ModelStatusReporter.class));
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(RejectedExecutionException.class);
+        assertThat(target.isQueueFull()).isTrue();
+        JsonModelRunQueueStatus status = target.getStatus();
+        assertThat(status.getRunningRuns()).containsOnly("a");
+        assertThat(status.getQueuedRuns()).containsOnly("b");
+        release.countDown();
+        future1.get();
+        future2.get();
+        assertThat(target.isQueueFull()).isFalse();
+        verify(mockModelRunner, never()).runModel(eq(thirdRunConfig), any(ModelStatusReporter.class));
+    }
+
+    private ModelRunner mockBlockingModelRunner(final CountDownLatch started, final CountDownLatch release)
+            throws Exception {
+        final ModelProcessHandler handler = mock(ModelProcessHandler.class);
+        when(handler.waitForCompletion()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocationOnMock) throws Throwable {
+                started.countDown();
+                release.await();
+                return 0;
+            }
+        });
+        ModelRunner mockModelRunner = mock(ModelRunner.class);
+        when(mockModelRunner.runModel(any(RunConfiguration.class), any(ModelStatusReporter.class)))
+                .thenReturn(handler);
+        return mockModelRunner;
+    }
+
+    private RunConfiguration mockRunConfiguration(String runName) {
+        RunConfiguration runConfiguration = mock(RunConfiguration.class);
+        when(runConfiguration.getRunName()).thenReturn(runName);
+        return runConfiguration;
+    }
+
+    private ModelRunnerAsyncWrapper createTarget(ModelRunner modelRunner, int maxConcurrentRuns, int maxQueuedRuns) {
+        ModelWrapperConfigurationService configurationService = mock(ModelWrapperConfigurationService.class);
+        when(configurationService.getMaxConcurrentModelRuns()).thenReturn(maxConcurrentRuns);
+        when(configurationService.getMaxQueuedModelRuns()).thenReturn(maxQueuedRuns);
+        return new ModelRunnerAsyncWrapperImpl(modelRunner, configurationService);
+    }
 }
@@ -14,4 +14,14 @@ public class OSCheckerTest {
     public void isWindowsReturnsCorrectResult() throws Exception {
         assertThat((new OSCheckerImpl().isWindows())).isEqualTo(OS.isFamilyWindows());
     }
+
+    @Test
+    public void getProcessorCountReturnsCorrectResult() throws Exception {
+        assertThat((new OSCheckerImpl().getProcessorCount())).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void getPhysicalMemorySizeReturnsPositiveResult() throws Exception {
+        assertThat((new OSCheckerImpl().getPhysicalMemorySize())).isGreaterThan(0);
+    }
 }
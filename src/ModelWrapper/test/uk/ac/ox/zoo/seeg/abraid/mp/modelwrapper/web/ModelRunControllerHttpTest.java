@@ -0,0 +1,143 @@
+package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.RequestBodyWriter;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.StreamingAwareMultipartResolver;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClient;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.WebServiceClientException;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfigurationFactory;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.CovariateStore;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelOutputHandlerWebService;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelRunnerAsyncWrapperImpl;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.web.api.ModelRunController;
+
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the responses of ModelRunController as they are received by a WebServiceClient, over a real HTTP connection.
+ * The server (the JDK's HTTP server) only reads a little of the request body that is left unread by the handler
+ * before closing the connection, as servlet containers do.
+ * Copyright (c) 2015 University of Oxford
+ */
+public class ModelRunControllerHttpTest {
+    // Much larger than the amount of unread request body that the server reads before closing the connection
+    private static final int LARGE_ENTRY_SIZE = 20 * 1024 * 1024;
+
+    private HttpServer server;
+    private ModelRunnerAsyncWrapperImpl modelRunnerAsyncWrapper;
+
+    @Before
+    public void setUp() throws Exception {
+        modelRunnerAsyncWrapper = mock(ModelRunnerAsyncWrapperImpl.class);
+        StreamingAwareMultipartResolver multipartResolver = new StreamingAwareMultipartResolver();
+        multipartResolver.setMaxUploadSize(1073741824L);
+        final ModelRunController controller = new ModelRunController(mock(RunConfigurationFactory.class),
+                modelRunnerAsyncWrapper, mock(ModelOutputHandlerWebService.class), new AbraidJsonObjectMapper(),
+                mock(CovariateStore.class), multipartResolver);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/model/run", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                writeResponse(exchange, controller.startRun(createServletRequest(exchange)));
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void startRunResponseIsReceivedByClientWhenTheQueueIsFull() throws Exception {
+        // Arrange
+        when(modelRunnerAsyncWrapper.isQueueFull()).thenReturn(true);
+        WebServiceClient client = new WebServiceClient(60000, 60000);
+        String url = String.format("http://localhost:%d/api/model/run", server.getAddress().getPort());
+
+        // Act
+        catchException(client).makePostRequestWithStream(url, "run.zip", new RequestBodyWriter() {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                writeLargeRunPackage(outputStream);
+            }
+        });
+
+        // Assert
+        assertThat(caughtException()).isInstanceOf(WebServiceClientException.class);
+        assertThat(((WebServiceClientException) caughtException()).getStatusCode()).isEqualTo(503);
+    }
+
+    private static void writeLargeRunPackage(OutputStream outputStream) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        zip.putNextEntry(new ZipEntry("metadata.json"));
+        zip.write("{\"disease\":{\"id\":1,\"name\":\"foo\",\"abbreviation\":\"f\"},\"runName\":\"foo\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("covariates/large"));
+        Random random = new Random(0); // Random, so that the entry is not compressed
+        byte[] chunk = new byte[64 * 1024];
+        for (int i = 0; i < LARGE_ENTRY_SIZE / chunk.length; i++) {
+            random.nextBytes(chunk);
+            zip.write(chunk);
+        }
+        zip.closeEntry();
+        zip.finish(); // The stream must not be closed
+    }
+
+    private static MockHttpServletRequest createServletRequest(final HttpExchange exchange) {
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                exchange.getRequestMethod(), exchange.getRequestURI().getPath()) {
+            private final ServletInputStream inputStream =
+                    new DelegatingServletInputStream(exchange.getRequestBody());
+
+            @Override
+            public ServletInputStream getInputStream() {
+                return inputStream;
+            }
+        };
+        request.setContentType(exchange.getRequestHeaders().getFirst("Content-Type"));
+        return request;
+    }
+
+    private static void writeResponse(HttpExchange exchange, ResponseEntity<JsonModelRunResponse> response)
+            throws IOException {
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            exchange.getResponseHeaders().put(header.getKey(), header.getValue());
+        }
+        String errorText = response.getBody().getErrorText();
+        byte[] body = ((errorText == null) ? "" : errorText).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(response.getStatusCode().value(), body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+        exchange.close();
+    }
+}
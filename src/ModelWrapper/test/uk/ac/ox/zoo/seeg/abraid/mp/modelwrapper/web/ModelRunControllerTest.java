@@ -1,31 +1,39 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.web;
 
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
-import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockHttpServletRequest;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelDisease;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRun;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunQueueStatus;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonModelRunResponse;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.web.StreamingAwareMultipartResolver;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.ExecutionRunConfiguration;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfiguration;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.config.run.RunConfigurationFactory;
+import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.CovariateStore;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelOutputHandlerWebService;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelRunnerAsyncWrapperImpl;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.model.ModelStatusReporter;
 import uk.ac.ox.zoo.seeg.abraid.mp.modelwrapper.web.api.ModelRunController;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -45,7 +53,7 @@ public class ModelRunControllerTest {
     public void startRunDoesNotAcceptNull() {
         // Arrange
         AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
-        ModelRunController target = new ModelRunController(mock(RunConfigurationFactory.class), mock(ModelRunnerAsyncWrapperImpl.class), mock(ModelOutputHandlerWebService.class), objectMapper);
+        ModelRunController target = new ModelRunController(mock(RunConfigurationFactory.class), mock(ModelRunnerAsyncWrapperImpl.class), mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
 
         // Act
         ResponseEntity result = target.startRun(null);
@@ -68,16 +76,20 @@ public class ModelRunControllerTest {
         when(mockConf.getWorkingDirectoryPath()).thenReturn(workspace.toPath());
         when(mockFactory.createDefaultConfiguration(anyString())).thenReturn(mockConf);
 
-        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper);
+        CovariateStore mockCovariateStore = mock(CovariateStore.class);
+        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper, mockCovariateStore, createMultipartResolver());
         when(objectMapper.readValue(eq("metadata"), eq(JsonModelRun.class))).thenReturn(new JsonModelRun(new JsonModelDisease(1, true, "foo", "foo"), runName));
 
         // Act
-        ResponseEntity result = target.startRun(fakeData());
+        ResponseEntity result = target.startRun(fakeRequest(fakeData()));
 
         // Assert
         // start model correctly
         verify(mockRunner).startModel(eq(mockConf), any(ModelStatusReporter.class));
+        // provisioned covariates
+        verify(mockCovariateStore).provisionCovariates(any(File.class));
         // extracted zip content correctly
+        assertThat(Paths.get(workspace.toString(), "metadata.json").toFile()).hasContent("metadata");
         assertThat(Paths.get(workspace.toString(), "r", "a").toFile()).exists();
         assertThat(Paths.get(workspace.toString(), "r", "a").toFile()).hasContent("c1");
         assertThat(Paths.get(workspace.toString(), "a", "c", "b").toFile()).exists();
@@ -87,21 +99,205 @@ public class ModelRunControllerTest {
     }
 
     @Test
-    public void startRunHandlesExceptions() throws IOException, ZipException {
+    public void startRunHandlesExceptions() throws IOException {
         // Arrange
         AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
-        ModelRunController target = new ModelRunController(null, null, null, objectMapper);
+        ModelRunController target = new ModelRunController(null, mock(ModelRunnerAsyncWrapperImpl.class), null, objectMapper, null, createMultipartResolver());
 
         when(objectMapper.readValue(eq("metadata"), eq(JsonModelRun.class))).thenReturn(new JsonModelRun(new JsonModelDisease(1, true, "foo", "foo"), "name"));
 
         // Act
-        ResponseEntity result = target.startRun(fakeData());
+        ResponseEntity result = target.startRun(fakeRequest(fakeData()));
 
         // Assert
         assertResponseEntity(result, "Could not start model run. See server logs for more details.",
                 HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @Test
+    public void startRunAcceptsPackagesWhichDoNotStartWithMetadata() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        String runName = "foo_2014-04-24-10-50-27_cd0efc75-42d3-4d96-94b4-287e28fbcdac";
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        RunConfiguration mockConf = mock(RunConfiguration.class);
+        ModelRunnerAsyncWrapperImpl mockRunner = mock(ModelRunnerAsyncWrapperImpl.class);
+        when(mockConf.getRunName()).thenReturn(runName);
+        File workspace = Paths.get(testFolder.getRoot().toString(), runName).toFile();
+        when(mockConf.getWorkingDirectoryPath()).thenReturn(workspace.toPath());
+        when(mockFactory.createDefaultConfiguration(runName)).thenReturn(mockConf);
+        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+        when(objectMapper.readValue(eq("metadata"), eq(JsonModelRun.class))).thenReturn(new JsonModelRun(new JsonModelDisease(1, true, "foo", "foo"), runName));
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("r/a", "c1");
+        entries.put("metadata.json", "metadata");
+        entries.put("a/c/b", "c2");
+
+        // Act
+        ResponseEntity result = target.startRun(fakeRequest(createZip(entries)));
+
+        // Assert
+        assertResponseEntity(result, null, HttpStatus.OK);
+        verify(mockRunner).startModel(eq(mockConf), any(ModelStatusReporter.class));
+        assertThat(Paths.get(workspace.toString(), "metadata.json").toFile()).hasContent("metadata");
+        assertThat(Paths.get(workspace.toString(), "r", "a").toFile()).hasContent("c1");
+        assertThat(Paths.get(workspace.toString(), "a", "c", "b").toFile()).hasContent("c2");
+    }
+
+    @Test
+    public void startRunRejectsPackagesWithoutMetadata() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        ModelRunController target = new ModelRunController(mockFactory, mock(ModelRunnerAsyncWrapperImpl.class), mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("r/a", "c1");
+
+        // Act
+        ResponseEntity result = target.startRun(fakeRequest(createZip(entries)));
+
+        // Assert
+        assertResponseEntity(result, "Run data must be provided and be valid.", HttpStatus.BAD_REQUEST);
+        verify(mockFactory, never()).createDefaultConfiguration(anyString());
+    }
+
+    @Test
+    public void startRunRejectsEntriesOutsideOfWorkspaceAndCleansUp() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        String runName = "foo_2014-04-24-10-50-27_cd0efc75-42d3-4d96-94b4-287e28fbcdac";
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        RunConfiguration mockConf = mock(RunConfiguration.class);
+        ModelRunnerAsyncWrapperImpl mockRunner = mock(ModelRunnerAsyncWrapperImpl.class);
+        File workspace = Paths.get(testFolder.getRoot().toString(), "workspaces", runName).toFile();
+        when(mockConf.getWorkingDirectoryPath()).thenReturn(workspace.toPath());
+        when(mockFactory.createDefaultConfiguration(anyString())).thenReturn(mockConf);
+        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+        when(objectMapper.readValue(eq("metadata"), eq(JsonModelRun.class))).thenReturn(new JsonModelRun(new JsonModelDisease(1, true, "foo", "foo"), runName));
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("metadata.json", "metadata");
+        entries.put("../escaped", "c1");
+
+        // Act
+        ResponseEntity result = target.startRun(fakeRequest(createZip(entries)));
+
+        // Assert
+        assertResponseEntity(result, "Could not start model run. See server logs for more details.",
+                HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(workspace).doesNotExist();
+        assertThat(Paths.get(testFolder.getRoot().toString(), "workspaces", "escaped").toFile()).doesNotExist();
+        verify(mockRunner, never()).startModel(any(RunConfiguration.class), any(ModelStatusReporter.class));
+    }
+
+    @Test
+    public void startRunRejectsModelRunsWhenTheQueueIsFull() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        ModelRunnerAsyncWrapperImpl mockRunner = mock(ModelRunnerAsyncWrapperImpl.class);
+        when(mockRunner.isQueueFull()).thenReturn(true);
+        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+
+        // Act
+        ResponseEntity result = target.startRun(fakeRequest(fakeData()));
+
+        // Assert
+        assertResponseEntity(result, "Model run queue is full. Try again later.", HttpStatus.SERVICE_UNAVAILABLE);
+        verify(objectMapper, never()).readValue(anyString(), eq(JsonModelRun.class));
+        verify(mockFactory, never()).createDefaultConfiguration(anyString());
+        verify(mockRunner, never()).startModel(any(RunConfiguration.class), any(ModelStatusReporter.class));
+        assertThat(result.getHeaders().getConnection()).containsOnly("close");
+    }
+
+    @Test
+    public void startRunCleansUpWorkspaceIfModelRunIsRejected() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        String runName = "foo_2014-04-24-10-50-27_cd0efc75-42d3-4d96-94b4-287e28fbcdac";
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        RunConfiguration mockConf = mock(RunConfiguration.class);
+        ModelRunnerAsyncWrapperImpl mockRunner = mock(ModelRunnerAsyncWrapperImpl.class);
+        when(mockRunner.startModel(any(RunConfiguration.class), any(ModelStatusReporter.class)))
+                .thenThrow(new RejectedExecutionException());
+        File workspace = Paths.get(testFolder.getRoot().toString(), runName).toFile();
+        when(mockConf.getRunName()).thenReturn(runName);
+        when(mockConf.getWorkingDirectoryPath()).thenReturn(workspace.toPath());
+        when(mockFactory.createDefaultConfiguration(anyString())).thenReturn(mockConf);
+        ModelRunController target = new ModelRunController(mockFactory, mockRunner, mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+        when(objectMapper.readValue(eq("metadata"), eq(JsonModelRun.class))).thenReturn(new JsonModelRun(new JsonModelDisease(1, true, "foo", "foo"), runName));
+
+        // Act
+        ResponseEntity result = target.startRun(fakeRequest(fakeData()));
+
+        // Assert
+        assertResponseEntity(result, "Model run queue is full. Try again later.", HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(workspace).doesNotExist();
+    }
+
+    @Test
+    public void startRunRejectsRunDataLargerThanMaximumUploadSize() throws Exception {
+        // Arrange
+        AbraidJsonObjectMapper objectMapper = mock(AbraidJsonObjectMapper.class);
+        RunConfigurationFactory mockFactory = mock(RunConfigurationFactory.class);
+        ModelRunController target = new ModelRunController(mockFactory, mock(ModelRunnerAsyncWrapperImpl.class), mock(ModelOutputHandlerWebService.class), objectMapper, mock(CovariateStore.class), createMultipartResolver());
+        MockHttpServletRequest request = fakeRequest(fakeData());
+        request.addHeader("Content-Length", "1073741825");
+
+        // Act
+        ResponseEntity result = target.startRun(request);
+
+        // Assert
+        assertResponseEntity(result, "Run data must not exceed 1073741824 bytes.", HttpStatus.BAD_REQUEST);
+        verify(mockFactory, never()).createDefaultConfiguration(anyString());
+    }
+
+    @Test
+    public void getStatusReturnsModelRunQueueStatus() {
+        // Arrange
+        ModelRunnerAsyncWrapperImpl mockRunner = mock(ModelRunnerAsyncWrapperImpl.class);
+        JsonModelRunQueueStatus expectedStatus = new JsonModelRunQueueStatus(2, 20, Arrays.asList("a"), Arrays.asList("b"));
+        when(mockRunner.getStatus()).thenReturn(expectedStatus);
+        ModelRunController target = new ModelRunController(null, mockRunner, null, null, null, createMultipartResolver());
+
+        // Act
+        ResponseEntity<JsonModelRunQueueStatus> result = target.getStatus();
+
+        // Assert
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody()).isSameAs(expectedStatus);
+    }
+
+    @Test
+    public void getMissingCovariatesReturnsHashesMissingFromStore() {
+        // Arrange
+        CovariateStore covariateStore = mock(CovariateStore.class);
+        List<String> hashes = Arrays.asList("a", "b");
+        when(covariateStore.findMissingHashes(hashes)).thenReturn(Arrays.asList("b"));
+        ModelRunController target = new ModelRunController(null, null, null, null, covariateStore, createMultipartResolver());
+
+        // Act
+        ResponseEntity<Collection<String>> result = target.getMissingCovariates(hashes);
+
+        // Assert
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody()).containsOnly("b");
+    }
+
+    @Test
+    public void getMissingCovariatesRejectsInvalidHashes() {
+        // Arrange
+        CovariateStore covariateStore = mock(CovariateStore.class);
+        List<String> hashes = Arrays.asList("../a");
+        when(covariateStore.findMissingHashes(hashes)).thenThrow(new IllegalArgumentException());
+        ModelRunController target = new ModelRunController(null, null, null, null, covariateStore, createMultipartResolver());
+
+        // Act
+        ResponseEntity<Collection<String>> result = target.getMissingCovariates(hashes);
+
+        // Assert
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     private void assertResponseEntity(ResponseEntity response,
                                       String expectedErrorText,
                                       HttpStatus expectedStatus) {
@@ -111,23 +307,43 @@ public class ModelRunControllerTest {
         assertThat(responseBody.getErrorText()).isEqualTo(expectedErrorText);
     }
 
-    private MockMultipartFile fakeData() throws IOException, ZipException {
-        File file = testFolder.newFile();
-        Files.delete(file.toPath());
-        ZipFile zipFile = new ZipFile(file);
-        File dir = testFolder.newFolder();
-        File metadata = Paths.get(dir.getAbsolutePath(), "metadata.json").toFile();
-        FileUtils.writeStringToFile(metadata, "metadata");
+    private StreamingAwareMultipartResolver createMultipartResolver() {
+        StreamingAwareMultipartResolver multipartResolver = new StreamingAwareMultipartResolver();
+        multipartResolver.setMaxUploadSize(1073741824L);
+        return multipartResolver;
+    }
+
+    private byte[] fakeData() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("metadata.json", "metadata");
         // Add some random files
-        File c1 = Paths.get(dir.getAbsolutePath(), "r", "a").toFile();
-        File c2 = Paths.get(dir.getAbsolutePath(), "a", "c", "b").toFile();
-        FileUtils.writeStringToFile(c1, "c1");
-        FileUtils.writeStringToFile(c2, "c2");
-        //Zip
-        ZipParameters zipParameters = new ZipParameters();
-        zipParameters.setIncludeRootFolder(false);
-        zipFile.createZipFileFromFolder(dir, zipParameters, false, 0);
-        MockMultipartFile mock = new MockMultipartFile("file", Files.newInputStream(zipFile.getFile().toPath()));
-        return mock;
+        entries.put("r/a", "c1");
+        entries.put("a/c/b", "c2");
+        return createZip(entries);
+    }
+
+    private byte[] createZip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private MockHttpServletRequest fakeRequest(byte[] zip) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--boundary\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"run.zip\"\r\n" +
+                "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(zip);
+        body.write("\r\n--boundary--\r\n".getBytes(StandardCharsets.US_ASCII));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/model/run");
+        request.setContentType("multipart/form-data; boundary=boundary");
+        request.setContent(body.toByteArray());
+        return request;
     }
 }
@@ -11,16 +11,22 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseExtentFeatureCollection;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollection;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollectionWriter;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ExpertService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.web.AbstractController;
 import uk.ac.ox.zoo.seeg.abraid.mp.publicsite.security.CurrentUserService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -45,14 +51,17 @@ public class DataValidationController extends AbstractController {
     private final DiseaseService diseaseService;
     private final ExpertService expertService;
     private final GeometryService geometryService;
+    private final AbraidJsonObjectMapper objectMapper;
 
     @Autowired
     public DataValidationController(CurrentUserService currentUserService, DiseaseService diseaseService,
-                                    ExpertService expertService, GeometryService geometryService) {
+                                    ExpertService expertService, GeometryService geometryService,
+                                    AbraidJsonObjectMapper objectMapper) {
         this.currentUserService = currentUserService;
         this.diseaseService = diseaseService;
         this.expertService = expertService;
         this.geometryService = geometryService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -156,29 +165,50 @@ public class DataValidationController extends AbstractController {
     }
 
     /**
-     * Returns the disease occurrence points in need of review by the current user for a given disease id.
+     * Returns the disease occurrence points in need of review by the current user for a given disease id, as GeoJSON.
+     * The occurrences are streamed to the response in ID order as they are read from the database, optionally limited
+     * to a bounding box and a page size. If there are further occurrences after a full page, the collection includes
+     * a "nextCursor", which should be passed as the cursor to request the next page.
      * Only SEEG users may view occurrences of disease groups before first model run prep.
      * Other external users may only view occurrences of disease groups with automatic model runs enabled.
      * @param validatorDiseaseGroupId The id of the validator disease group for which to return occurrence points.
-     * @return A GeoJSON DTO containing the occurrence points.
+     * @param bbox OPTIONAL: the bounding box, in the format "minLongitude,minLatitude,maxLongitude,maxLatitude".
+     * @param cursor OPTIONAL: only occurrences with an ID greater than this are returned.
+     * @param limit OPTIONAL: the maximum number of occurrences to return.
+     * @param response The servlet response object (provided by spring).
+     * @throws IOException if the occurrences could not be written to the response.
      */
     @Secured("ROLE_USER")
     @RequestMapping(
             value = DATA_VALIDATION_BASE_URL + "/diseases/{validatorDiseaseGroupId}/occurrences",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseBody
-    public ResponseEntity<GeoJsonDiseaseOccurrenceFeatureCollection> getDiseaseOccurrencesForReviewByCurrentUser(
-            @PathVariable Integer validatorDiseaseGroupId) {
+    @Transactional(rollbackFor = Exception.class)
+    public void getDiseaseOccurrencesForReviewByCurrentUser(@PathVariable Integer validatorDiseaseGroupId,
+                                                            @RequestParam(required = false) String bbox,
+                                                            @RequestParam(required = false) Integer cursor,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            HttpServletResponse response) throws IOException {
         Integer expertId = currentUserService.getCurrentUserId();
         boolean userIsSeeg = userIsSeegMember(expertId);
 
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer;
+        CloseableIterator<DiseaseOccurrence> occurrences;
         try {
-            List<DiseaseOccurrence> occurrences = expertService.getDiseaseOccurrencesYetToBeReviewedByExpert(
-                    expertId, userIsSeeg, validatorDiseaseGroupId);
-            return new ResponseEntity<>(new GeoJsonDiseaseOccurrenceFeatureCollection(occurrences), HttpStatus.OK);
+            writer = new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(
+                    objectMapper, GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox(bbox), limit);
+            occurrences = expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                    expertId, userIsSeeg, validatorDiseaseGroupId, (cursor == null) ? 0 : cursor);
         } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        try {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            writer.write(occurrences, response.getOutputStream());
+        } finally {
+            occurrences.close();
         }
     }
 
@@ -2,23 +2,29 @@ package uk.ac.ox.zoo.seeg.abraid.mp.publicsite.web;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.DiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRun;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.ModelRunStatus;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollection;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollectionWriter;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonDownloadDiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.WrappedList;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModellingLocationPrecisionAdjuster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.CloseableIterator;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,33 +36,62 @@ import java.util.List;
 public class ModelRunDataController {
     private static final String ATLAS_MODEL_RUN_DATA_URL = "/atlas/data/modelrun";
     private final ModelRunService modelRunService;
+    private final DiseaseService diseaseService;
+    private final AbraidJsonObjectMapper objectMapper;
     private ModellingLocationPrecisionAdjuster modellingLocationPrecisionAdjuster;
 
     @Autowired
-    public ModelRunDataController(ModelRunService modelRunService,
+    public ModelRunDataController(ModelRunService modelRunService, DiseaseService diseaseService,
+                                  AbraidJsonObjectMapper objectMapper,
                                   ModellingLocationPrecisionAdjuster modellingLocationPrecisionAdjuster) {
         this.modelRunService = modelRunService;
+        this.diseaseService = diseaseService;
+        this.objectMapper = objectMapper;
         this.modellingLocationPrecisionAdjuster = modellingLocationPrecisionAdjuster;
     }
 
     /**
-     * Gets the list of input disease occurrences associated with a model run, as geojson.
+     * Gets the input disease occurrences associated with a model run, as geojson. The occurrences are streamed to the
+     * response in ID order as they are read from the database, optionally limited to a bounding box and a page size.
+     * If there are further occurrences after a full page, the collection includes a "nextCursor", which should be
+     * passed as the cursor to request the next page.
      * @param modelRunName The unique name of the model run.
-     * @return The DTO of input disease occurrences.
+     * @param bbox OPTIONAL: the bounding box, in the format "minLongitude,minLatitude,maxLongitude,maxLatitude".
+     * @param cursor OPTIONAL: only occurrences with an ID greater than this are returned.
+     * @param limit OPTIONAL: the maximum number of occurrences to return.
+     * @param response The servlet response object (provided by spring).
+     * @throws IOException if the occurrences could not be written to the response.
      */
     @RequestMapping(
             value = ATLAS_MODEL_RUN_DATA_URL + "/{modelRunName}/geojson", method = RequestMethod.GET)
-    @Transactional
-    @ResponseBody
-    public ResponseEntity<GeoJsonDiseaseOccurrenceFeatureCollection> getInputDiseaseOccurrencesGeoJson(
-            @PathVariable String modelRunName) {
+    @Transactional(rollbackFor = Exception.class)
+    public void getInputDiseaseOccurrencesGeoJson(@PathVariable String modelRunName,
+                                                  @RequestParam(required = false) String bbox,
+                                                  @RequestParam(required = false) Integer cursor,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  HttpServletResponse response) throws IOException {
         ModelRun modelRun = modelRunService.getModelRunByName(modelRunName);
         if (modelRun == null || modelRun.getStatus() != ModelRunStatus.COMPLETED) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        } else {
-            List<DiseaseOccurrence> inputDiseaseOccurrences = modelRun.getInputDiseaseOccurrences();
-            return new ResponseEntity<>(
-                    new GeoJsonDiseaseOccurrenceFeatureCollection(inputDiseaseOccurrences), HttpStatus.OK);
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        GeoJsonDiseaseOccurrenceFeatureCollectionWriter writer;
+        try {
+            writer = new GeoJsonDiseaseOccurrenceFeatureCollectionWriter(
+                    objectMapper, GeoJsonDiseaseOccurrenceFeatureCollectionWriter.parseBoundingBox(bbox), limit);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        CloseableIterator<DiseaseOccurrence> occurrences = diseaseService.scrollInputDiseaseOccurrencesForModelRun(
+                modelRun.getId(), (cursor == null) ? 0 : cursor);
+        try {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            writer.write(occurrences, response.getOutputStream());
+        } finally {
+            occurrences.close();
         }
     }
 
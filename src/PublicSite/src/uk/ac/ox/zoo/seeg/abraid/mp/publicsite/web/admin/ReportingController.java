@@ -3,11 +3,14 @@ package uk.ac.ox.zoo.seeg.abraid.mp.publicsite.web.admin;
 import ch.lambdaj.group.Group;
 import org.joda.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapReportEntry;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
@@ -69,6 +72,19 @@ public class ReportingController extends AbstractController {
                 true);
     }
 
+    /**
+     * Rebuilds the HealthMap report rollup from all occurrences. This is needed after occurrences have been backfilled
+     * or corrected, as the rollup is otherwise only updated with newly acquired HealthMap occurrences.
+     * @return A HTTP status code response entity.
+     */
+    @Secured({ "ROLE_ADMIN" })
+    @RequestMapping(value = ADMIN_REPORTING_BASE_URL + "/rebuildHealthMapRollup", method = RequestMethod.POST)
+    @ResponseBody
+    public ResponseEntity rebuildHealthMapReportRollup() {
+        reportingService.rebuildHealthMapReportRollup();
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
     /**
      * Setup the template data for a HealthMap report.
      */
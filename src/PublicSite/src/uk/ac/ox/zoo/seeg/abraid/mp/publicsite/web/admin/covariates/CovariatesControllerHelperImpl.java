@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static ch.lambdaj.Lambda.*;
 import static ch.lambdaj.collection.LambdaCollections.with;
@@ -40,13 +41,16 @@ import static ch.lambdaj.collection.LambdaCollections.with;
 public class CovariatesControllerHelperImpl implements CovariatesControllerHelper {
     private final CovariateService covariateService;
     private final DiseaseService diseaseService;
+    private final ForkJoinPool rasterProcessingPool;
     private static final String ERROR_CREATE_SUBDIRECTORY = "Could not create subdirectory for new covariate file";
     private static final int NUMBER_OF_HISTOGRAM_BINS = 10;
 
     @Autowired
-    public CovariatesControllerHelperImpl(CovariateService covariateService, DiseaseService diseaseService) {
+    public CovariatesControllerHelperImpl(CovariateService covariateService, DiseaseService diseaseService,
+                                          ForkJoinPool rasterProcessingPool) {
         this.covariateService = covariateService;
         this.diseaseService = diseaseService;
+        this.rasterProcessingPool = rasterProcessingPool;
     }
 
     /**
@@ -250,13 +254,15 @@ public class CovariatesControllerHelperImpl implements CovariatesControllerHelpe
         // Find bins
         List<DoubleRange> histogramBins = new ArrayList<>();
         if (isDiscrete) {
-            Collection<Double> values = RasterUtils.summarizeRaster(rasterFile, new ValuesRasterSummaryCollator());
+            Collection<Double> values = RasterUtils.summarizeRaster(
+                    rasterFile, new ValuesRasterSummaryCollator(), rasterProcessingPool);
 
             for (Double value : values)  {
                 histogramBins.add(new DoubleRange(value, value));
             }
         } else {
-            DoubleRange range = RasterUtils.summarizeRaster(rasterFile, new RangeRasterSummaryCollator());
+            DoubleRange range = RasterUtils.summarizeRaster(
+                    rasterFile, new RangeRasterSummaryCollator(), rasterProcessingPool);
 
             double min = range.getMinimumDouble();
             double max = range.getMaximumDouble();
@@ -270,7 +276,8 @@ public class CovariatesControllerHelperImpl implements CovariatesControllerHelpe
         }
 
         // Count
-        return RasterUtils.summarizeRaster(rasterFile, new BinningRasterSummaryCollator(histogramBins));
+        return RasterUtils.summarizeRaster(
+                rasterFile, new BinningRasterSummaryCollator(histogramBins), rasterProcessingPool);
     }
 
     private void createDirectoryForCovariate(String path) throws IOException {
@@ -18,6 +18,7 @@ import uk.ac.ox.zoo.seeg.abraid.mp.publicsite.AbstractAuthenticatingTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.publicsite.AbstractPublicSiteIntegrationTests;
 import uk.ac.ox.zoo.seeg.abraid.mp.publicsite.domain.PublicSiteUser;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractDiseaseOccurrenceGeoJsonTests;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.SpringockitoWebContextLoader;
 
 import java.util.ArrayList;
@@ -80,7 +81,8 @@ public class DataValidationControllerIntegrationTest extends AbstractPublicSiteI
         occurrences.add(AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence());
         occurrences.add(AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence());
 
-        when(expertService.getDiseaseOccurrencesYetToBeReviewedByExpert(eq(1), eq(true), anyInt())).thenReturn(occurrences);
+        when(expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(eq(1), eq(true), anyInt(), eq(0)))
+                .thenReturn(GeneralTestUtils.createCloseableIterator(occurrences));
 
         this.mockMvc.perform(
                 get(DataValidationController.DATA_VALIDATION_BASE_URL + "/diseases/1/occurrences"))
@@ -91,7 +93,7 @@ public class DataValidationControllerIntegrationTest extends AbstractPublicSiteI
 
     @Test
     public void occurrenceResourceRejectsInvalidNumericId() throws Exception {
-        when(expertService.getDiseaseOccurrencesYetToBeReviewedByExpert(anyInt(), eq(true), anyInt()))
+        when(expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(anyInt(), eq(true), anyInt(), anyInt()))
                 .thenThrow(new IllegalArgumentException());
 
         this.mockMvc.perform(
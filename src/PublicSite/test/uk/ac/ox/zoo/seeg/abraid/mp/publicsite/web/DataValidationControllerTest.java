@@ -6,18 +6,22 @@ import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseExtentFeatureCollection;
-import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollection;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ExpertService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.GeometryService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.publicsite.security.CurrentUserService;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractDiseaseOccurrenceGeoJsonTests;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -276,45 +280,92 @@ public class DataValidationControllerTest {
         int validatorDiseaseGroupId = 2;
         wireUpExpert(expertId, userIsSeeg, true);
 
-        DiseaseOccurrence o1 = AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence();
-        when(o1.getId()).thenReturn(1);
+        List<DiseaseOccurrence> occurrences = Arrays.asList(
+                AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence(),
+                AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence());
+        when(expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(expertId, userIsSeeg, validatorDiseaseGroupId, 0))
+                .thenReturn(GeneralTestUtils.createCloseableIterator(occurrences));
+
+        DataValidationController target = createTarget();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(stream);
+
+        // Act
+        target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId, null, null, null, response);
 
+        // Assert
+        verify(response).setContentType(MediaType.APPLICATION_JSON_VALUE);
+        verify(response, never()).setStatus(anyInt());
+        assertThat(stream.toString()).isEqualTo(AbstractDiseaseOccurrenceGeoJsonTests.getTwoDiseaseOccurrenceFeaturesAsJson());
+    }
+
+    @Test
+    public void getDiseaseOccurrencesForReviewByCurrentUserPassesCursorAndAppliesLimit() throws Exception {
+        // Arrange
+        int expertId = 1;
+        boolean userIsSeeg = true;
+        int validatorDiseaseGroupId = 2;
+        wireUpExpert(expertId, userIsSeeg, true);
+
+        DiseaseOccurrence o1 = AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence();
+        when(o1.getId()).thenReturn(11);
         DiseaseOccurrence o2 = AbstractDiseaseOccurrenceGeoJsonTests.defaultDiseaseOccurrence();
-        when(o2.getId()).thenReturn(2);
+        when(o2.getId()).thenReturn(12);
+        when(expertService.scrollDiseaseOccurrencesYetToBeReviewedByExpert(expertId, userIsSeeg, validatorDiseaseGroupId, 10))
+                .thenReturn(GeneralTestUtils.createCloseableIterator(Arrays.asList(o1, o2)));
 
-        List<DiseaseOccurrence> occurrences = Arrays.asList(o1, o2);
-        when(expertService.getDiseaseOccurrencesYetToBeReviewedByExpert(expertId, userIsSeeg, validatorDiseaseGroupId)).thenReturn(occurrences);
+        DataValidationController target = createTarget();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(stream);
+
+        // Act
+        target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId, null, 10, 1, response);
+
+        // Assert
+        String json = stream.toString();
+        assertThat(json).contains("\"id\":11");
+        assertThat(json).doesNotContain("\"id\":12");
+        assertThat(json).endsWith("],\"nextCursor\":11}");
+    }
+
+    @Test
+    public void getDiseaseOccurrencesForReviewByCurrentUserFailsForInvalidBoundingBox() throws Exception {
+        // Arrange
+        Integer expertId = 1;
+        boolean userIsSeeg = true;
+        Integer validatorDiseaseGroupId = 2;
+        wireUpExpert(expertId, userIsSeeg, false);
 
         DataValidationController target = createTarget();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(new ByteArrayOutputStream());
 
         // Act
-        ResponseEntity<GeoJsonDiseaseOccurrenceFeatureCollection> result =
-                target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId);
+        target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId, "1,2,3", null, null, response);
 
         // Assert
-        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(result.getBody().getFeatures()).hasSameSizeAs(occurrences);
-        assertThat(result.getBody().getFeatures().get(0).getId()).isEqualTo(1);
-        assertThat(result.getBody().getFeatures().get(1).getId()).isEqualTo(2);
+        verify(response).setStatus(HttpStatus.BAD_REQUEST.value());
+        verify(expertService, never()).scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                anyInt(), anyBoolean(), anyInt(), anyInt());
     }
 
     @Test
-    public void getDiseaseOccurrencesForReviewByCurrentUserFailsForInvalidDisease() throws Exception {
+    public void getDiseaseOccurrencesForReviewByCurrentUserFailsForInvalidLimit() throws Exception {
         // Arrange
         Integer expertId = 1;
         boolean userIsSeeg = true;
         Integer validatorDiseaseGroupId = 2;
         wireUpExpert(expertId, userIsSeeg, false);
-        when(expertService.getDiseaseOccurrencesYetToBeReviewedByExpert(expertId, userIsSeeg, validatorDiseaseGroupId)).thenThrow(new IllegalArgumentException());
 
         DataValidationController target = createTarget();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(new ByteArrayOutputStream());
 
         // Act
-        ResponseEntity<GeoJsonDiseaseOccurrenceFeatureCollection> result =
-                target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId);
+        target.getDiseaseOccurrencesForReviewByCurrentUser(validatorDiseaseGroupId, null, null, 0, response);
 
         // Assert
-        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(response).setStatus(HttpStatus.BAD_REQUEST.value());
+        verify(expertService, never()).scrollDiseaseOccurrencesYetToBeReviewedByExpert(
+                anyInt(), anyBoolean(), anyInt(), anyInt());
     }
 
     @Test
@@ -985,7 +1036,8 @@ public class DataValidationControllerTest {
     }
 
     private DataValidationController createTarget() {
-        return new DataValidationController(currentUserService, diseaseService, expertService, geometryService);
+        return new DataValidationController(currentUserService, diseaseService, expertService, geometryService,
+                new AbraidJsonObjectMapper());
     }
 
     private List<AdminUnitDiseaseExtentClass> createDiseaseExtent() {
@@ -1,21 +1,26 @@
 package uk.ac.ox.zoo.seeg.abraid.mp.publicsite.web;
 
 import com.vividsolutions.jts.geom.Point;
-import org.joda.time.DateTime;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.*;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.AbraidJsonObjectMapper;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.GeoJsonDiseaseOccurrenceFeatureCollection;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.JsonDownloadDiseaseOccurrence;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.dto.json.WrappedList;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.ModelRunService;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.workflow.support.ModellingLocationPrecisionAdjuster;
+import uk.ac.ox.zoo.seeg.abraid.mp.common.util.GeometryUtils;
 import uk.ac.ox.zoo.seeg.abraid.mp.testutils.AbstractDiseaseOccurrenceGeoJsonTests;
+import uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +30,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -54,7 +60,7 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
 
         ModelRun modelRun = mockCompletedModelRunWithOccurrences(Arrays.asList(occurrence));
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        ModelRunDataController controller = createController(modelRunService, mock(DiseaseService.class));
         HttpServletResponse httpServletResponse = mock(HttpServletResponse.class);
 
         // Act
@@ -80,7 +86,7 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
         // Arrange
         String name = "modelRun5";
         ModelRunService modelRunService = mockModelRunService(name, null);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        ModelRunDataController controller = createController(modelRunService, mock(DiseaseService.class));
 
         // Act
         ResponseEntity response = controller.getInputDiseaseOccurrences(name, mock(HttpServletResponse.class));
@@ -97,7 +103,7 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
         ModelRun modelRun = mock(ModelRun.class);
         when(modelRun.getStatus()).thenReturn(ModelRunStatus.IN_PROGRESS);
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        ModelRunDataController controller = createController(modelRunService, mock(DiseaseService.class));
 
         // Act
         ResponseEntity response = controller.getInputDiseaseOccurrences(name, mock(HttpServletResponse.class));
@@ -112,7 +118,7 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
         String name = "modelRun7";
         ModelRun modelRun = mockCompletedModelRunWithOccurrences(new ArrayList<DiseaseOccurrence>());
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        ModelRunDataController controller = createController(modelRunService, mock(DiseaseService.class));
 
         // Act
         ResponseEntity response = controller.getInputDiseaseOccurrences(name, mock(HttpServletResponse.class));
@@ -128,20 +134,53 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
     public void getInputDiseaseOccurrencesGeoJsonReturnsExpectedJson() throws Exception {
         // Arrange
         String name = "modelRun7";
-        ModelRun modelRun = mockCompletedModelRunWithOccurrences(Arrays.asList(defaultDiseaseOccurrence()));
+        ModelRun modelRun = mockCompletedModelRunWithOccurrences(new ArrayList<DiseaseOccurrence>());
+        when(modelRun.getId()).thenReturn(7);
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        List<DiseaseOccurrence> occurrences = Arrays.asList(defaultDiseaseOccurrence(), defaultDiseaseOccurrence());
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        when(diseaseService.scrollInputDiseaseOccurrencesForModelRun(7, 0))
+                .thenReturn(GeneralTestUtils.createCloseableIterator(occurrences));
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(stream);
 
         // Act
-        ResponseEntity response = controller.getInputDiseaseOccurrencesGeoJson(name);
+        controller.getInputDiseaseOccurrencesGeoJson(name, null, null, null, response);
 
         // Assert
-        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        GeoJsonDiseaseOccurrenceFeatureCollection body = (GeoJsonDiseaseOccurrenceFeatureCollection) response.getBody();
-        assertThat(body.getFeatures()).hasSize(1);
-        assertThat(body.getFeatures().get(0).getGeometry().getCoordinates().getLongitude()).isEqualTo(-1.0);
-        assertThat(body.getFeatures().get(0).getGeometry().getCoordinates().getLatitude()).isEqualTo(1.0);
-        assertThat(body.getFeatures().get(0).getProperties().getOccurrenceDate()).isEqualTo(DateTime.parse("1970-01-01T00:00:00.000Z"));
+        verify(response).setContentType(MediaType.APPLICATION_JSON_VALUE);
+        verify(response, never()).setStatus(anyInt());
+        assertThat(stream.toString()).isEqualTo(getTwoDiseaseOccurrenceFeaturesAsJson());
+    }
+
+    @Test
+    public void getInputDiseaseOccurrencesGeoJsonPassesCursorAndAppliesBoundingBoxAndLimit() throws Exception {
+        // Arrange
+        String name = "modelRun7";
+        ModelRun modelRun = mockCompletedModelRunWithOccurrences(new ArrayList<DiseaseOccurrence>());
+        when(modelRun.getId()).thenReturn(7);
+        ModelRunService modelRunService = mockModelRunService(name, modelRun);
+        DiseaseOccurrence outside = defaultDiseaseOccurrence();
+        when(outside.getId()).thenReturn(21);
+        DiseaseOccurrence inside1 = mockDiseaseOccurrenceAt(22, 10.0, 20.0);
+        DiseaseOccurrence inside2 = mockDiseaseOccurrenceAt(23, 11.0, 21.0);
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        when(diseaseService.scrollInputDiseaseOccurrencesForModelRun(7, 20)).thenReturn(
+                GeneralTestUtils.createCloseableIterator(Arrays.asList(outside, inside1, inside2)));
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        HttpServletResponse response = GeneralTestUtils.createMockHttpServletResponse(stream);
+
+        // Act
+        controller.getInputDiseaseOccurrencesGeoJson(name, "0,0,15,25", 20, 1, response);
+
+        // Assert
+        String json = stream.toString();
+        assertThat(json).doesNotContain("\"id\":21");
+        assertThat(json).contains("\"id\":22");
+        assertThat(json).doesNotContain("\"id\":23");
+        assertThat(json).endsWith("],\"nextCursor\":22}");
     }
 
     @Test
@@ -149,13 +188,16 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
         // Arrange
         String name = "modelRun5";
         ModelRunService modelRunService = mockModelRunService(name, null);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        HttpServletResponse response = mock(HttpServletResponse.class);
 
         // Act
-        ResponseEntity response = controller.getInputDiseaseOccurrencesGeoJson(name);
+        controller.getInputDiseaseOccurrencesGeoJson(name, null, null, null, response);
 
         // Assert
-        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(response).setStatus(HttpStatus.BAD_REQUEST.value());
+        verify(diseaseService, never()).scrollInputDiseaseOccurrencesForModelRun(anyInt(), anyInt());
     }
 
     @Test
@@ -166,33 +208,73 @@ public class ModelRunDataControllerTest extends AbstractDiseaseOccurrenceGeoJson
         ModelRun modelRun = mock(ModelRun.class);
         when(modelRun.getStatus()).thenReturn(ModelRunStatus.IN_PROGRESS);
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        HttpServletResponse response = mock(HttpServletResponse.class);
 
         // Act
-        ResponseEntity response = controller.getInputDiseaseOccurrencesGeoJson(name);
+        controller.getInputDiseaseOccurrencesGeoJson(name, null, null, null, response);
 
         // Assert
-        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(response).setStatus(HttpStatus.BAD_REQUEST.value());
+        verify(diseaseService, never()).scrollInputDiseaseOccurrencesForModelRun(anyInt(), anyInt());
     }
 
     @Test
-    public void getInputDiseaseOccurrencesGeoJsonReturnsEmptyDTOIfNoInputDiseaseOccurrences() throws Exception {
+    public void getInputDiseaseOccurrencesGeoJsonReturnsBadRequestIfBoundingBoxIsInvalid() throws Exception {
+        // Arrange
+        String name = "modelRun7";
+        ModelRun modelRun = mockCompletedModelRunWithOccurrences(new ArrayList<DiseaseOccurrence>());
+        ModelRunService modelRunService = mockModelRunService(name, modelRun);
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        // Act
+        controller.getInputDiseaseOccurrencesGeoJson(name, "a,b,c,d", null, null, response);
+
+        // Assert
+        verify(response).setStatus(HttpStatus.BAD_REQUEST.value());
+        verify(diseaseService, never()).scrollInputDiseaseOccurrencesForModelRun(anyInt(), anyInt());
+    }
+
+    @Test
+    public void getInputDiseaseOccurrencesGeoJsonReturnsEmptyCollectionIfNoInputDiseaseOccurrences() throws Exception {
         // Arrange (eg manual run)
         String name = "modelRun7";
         ModelRun modelRun = mockCompletedModelRunWithOccurrences(new ArrayList<DiseaseOccurrence>());
+        when(modelRun.getId()).thenReturn(7);
         ModelRunService modelRunService = mockModelRunService(name, modelRun);
-        ModelRunDataController controller = new ModelRunDataController(modelRunService, createNoopAdjuster());
+        DiseaseService diseaseService = mock(DiseaseService.class);
+        when(diseaseService.scrollInputDiseaseOccurrencesForModelRun(7, 0)).thenReturn(
+                GeneralTestUtils.createCloseableIterator(new ArrayList<DiseaseOccurrence>()));
+        ModelRunDataController controller = createController(modelRunService, diseaseService);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
         // Act
-        ResponseEntity response = controller.getInputDiseaseOccurrencesGeoJson(name);
+        controller.getInputDiseaseOccurrencesGeoJson(name, null, null, null,
+                GeneralTestUtils.createMockHttpServletResponse(stream));
 
         // Assert
-        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        GeoJsonDiseaseOccurrenceFeatureCollection body =
-                (GeoJsonDiseaseOccurrenceFeatureCollection) response.getBody();
+        GeoJsonDiseaseOccurrenceFeatureCollection body = new AbraidJsonObjectMapper()
+                .reader(GeoJsonDiseaseOccurrenceFeatureCollection.class).readValue(stream.toString());
         assertThat(body.getFeatures()).isEmpty();
     }
 
+    private ModelRunDataController createController(ModelRunService modelRunService, DiseaseService diseaseService) {
+        return new ModelRunDataController(modelRunService, diseaseService, new AbraidJsonObjectMapper(),
+                createNoopAdjuster());
+    }
+
+    private DiseaseOccurrence mockDiseaseOccurrenceAt(int id, double longitude, double latitude) {
+        DiseaseOccurrence occurrence = defaultDiseaseOccurrence();
+        when(occurrence.getId()).thenReturn(id);
+        Location location = mock(Location.class);
+        when(location.getGeom()).thenReturn(GeometryUtils.createPoint(longitude, latitude));
+        when(occurrence.getLocation()).thenReturn(location);
+        return occurrence;
+    }
+
     private ModelRunService mockModelRunService(String name, ModelRun modelRun) {
         ModelRunService modelRunService = mock(ModelRunService.class);
         when(modelRunService.getModelRunByName(name)).thenReturn(modelRun);
@@ -3,6 +3,8 @@ package uk.ac.ox.zoo.seeg.abraid.mp.publicsite.web.admin;
 import org.joda.time.DateTimeUtils;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.domain.HealthMapReportEntry;
 import uk.ac.ox.zoo.seeg.abraid.mp.common.service.core.DiseaseService;
@@ -137,4 +139,19 @@ public class ReportingControllerTest {
         assertThat(data.get("Total")  .get("Other")).isEqualTo(new HealthMapReportEntry("Total",   "Other",  1L,  4L,  4L,  1L,  1L,  4L,  4L,  1L));
         assertThat(data.get("Total")  .get("Total")).isEqualTo(new HealthMapReportEntry("Total",   "Total", 11L, 13L, 14L, 10L, 11L, 14L, 13L, 11L));
     }
+
+    @Test
+    public void rebuildHealthMapReportRollup() throws Exception {
+        // Arrange
+        ReportingService reportingService = mock(ReportingService.class);
+        ReportingController target =
+                new ReportingController(reportingService, mock(GeometryService.class), mock(DiseaseService.class));
+
+        // Act
+        ResponseEntity result = target.rebuildHealthMapReportRollup();
+
+        // Assert
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        verify(reportingService).rebuildHealthMapReportRollup();
+    }
 }
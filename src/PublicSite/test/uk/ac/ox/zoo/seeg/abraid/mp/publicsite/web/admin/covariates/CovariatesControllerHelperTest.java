@@ -2,6 +2,7 @@ package uk.ac.ox.zoo.seeg.abraid.mp.publicsite.web.admin.covariates;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -18,6 +19,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static ch.lambdaj.Lambda.on;
 import static ch.lambdaj.Lambda.sort;
@@ -34,13 +36,20 @@ import static uk.ac.ox.zoo.seeg.abraid.mp.testutils.GeneralTestUtils.captorForCl
 public class CovariatesControllerHelperTest extends BaseCovariatesControllerTests {
     @Rule
     public TemporaryFolder testFolder = new TemporaryFolder(); ///CHECKSTYLE:SUPPRESS VisibilityModifier
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdownPool() {
+        pool.shutdown();
+    }
     private static final String TEST_DATA_PATH = "PublicSite/test/uk/ac/ox/zoo/seeg/abraid/mp/publicsite/web/admin/covariates";
 
     @Test
     public void extractTargetPathReturnsCorrectPath() throws Exception {
         // Arrange
         CovariateService covariateService = createMockCovariateService(testFolder.getRoot());
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, mock(DiseaseService.class));
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, mock(DiseaseService.class), pool);
 
         // Act
         String result = target.extractTargetPath("subdir/as", new MockMultipartFile("fn.g", "ofn.g", "application/octet-stream", new byte[0]));
@@ -54,7 +63,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         // Arrange
         CovariateService covariateService = createMockCovariateService(testFolder.getRoot());
         DiseaseService diseaseService = createMockDiseaseService();
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
 
         // Act
         JsonCovariateConfiguration result = target.getCovariateConfiguration();
@@ -85,7 +94,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         when(config.getFiles().get(0).getDiscrete()).thenReturn(true);
         when(config.getFiles().get(2).getEnabled()).thenReturn(Arrays.asList(22, 60));
         when(config.getFiles().get(2).getInfo()).thenReturn("new");
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
 
         // Act
         target.setCovariateConfiguration(config);
@@ -108,7 +117,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         // Arrange
         CovariateService covariateService = createMockCovariateService(testFolder.getRoot());
         DiseaseService diseaseService = createMockDiseaseService();
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
         File refFile = new File(TEST_DATA_PATH, "continuous_raster.tif");
         byte[] bytes = FileUtils.readFileToByteArray(refFile);
 
@@ -140,7 +149,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         // Arrange
         CovariateService covariateService = createMockCovariateService(testFolder.getRoot());
         DiseaseService diseaseService = createMockDiseaseService();
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
         File refFile = new File(TEST_DATA_PATH, "discrete_raster.tif");
         byte[] bytes = FileUtils.readFileToByteArray(refFile);
 
@@ -172,7 +181,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         // Arrange
         CovariateService covariateService = createMockCovariateService(testFolder.getRoot());
         DiseaseService diseaseService = createMockDiseaseService();
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
         File refFile = new File(TEST_DATA_PATH, "continuous_raster.tif");
         byte[] bytes = FileUtils.readFileToByteArray(refFile);
 
@@ -195,7 +204,7 @@ public class CovariatesControllerHelperTest extends BaseCovariatesControllerTest
         CovariateFile parentFile = mock(CovariateFile.class);
         when(parentFile.getFiles()).thenReturn(new ArrayList<CovariateSubFile>());
         when(covariateService.getCovariateFileById(1)).thenReturn(parentFile);
-        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService);
+        CovariatesControllerHelper target = new CovariatesControllerHelperImpl(covariateService, diseaseService, pool);
         File refFile = new File(TEST_DATA_PATH, "continuous_raster.tif");
         byte[] bytes = FileUtils.readFileToByteArray(refFile);
 